@@ -13,6 +13,8 @@ package org.jboss.ide.eclipse.archives.core;
 
 import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.Plugin;
+import org.eclipse.core.variables.VariablesPlugin;
+import org.jboss.tools.archives.scanner.VirtualDirectoryScanner;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.wiring.BundleWiring;
@@ -32,6 +34,7 @@ public class ArchivesCorePlugin extends Plugin {
 	// The shared instance
 	private static ArchivesCorePlugin plugin;
 	private static BundleContext context;
+	private VariableChangeListener variableListener;
 	
 	/**
 	 * The constructor
@@ -51,6 +54,9 @@ public class ArchivesCorePlugin extends Plugin {
 		// Load the workspace version of ArchivesCore
 		new WorkspaceArchivesCore();
 		ResourcesPlugin.getWorkspace().addResourceChangeListener(new WorkspaceChangeListener());
+		variableListener = new VariableChangeListener();
+		ResourcesPlugin.getWorkspace().getPathVariableManager().addChangeListener(variableListener);
+		VariablesPlugin.getDefault().getStringVariableManager().addValueVariableListener(variableListener);
 		
 		// JBIDE-17700  workaround
 		ClassLoader bundleLoader = getBundleClassLoader();
@@ -76,6 +82,12 @@ public class ArchivesCorePlugin extends Plugin {
 	 * @see org.eclipse.core.runtime.Plugin#stop(org.osgi.framework.BundleContext)
 	 */
 	public void stop(BundleContext context) throws Exception {
+		VirtualDirectoryScanner.shutdownScanExecutor();
+		if( variableListener != null ) {
+			ResourcesPlugin.getWorkspace().getPathVariableManager().removeChangeListener(variableListener);
+			VariablesPlugin.getDefault().getStringVariableManager().removeValueVariableListener(variableListener);
+			variableListener = null;
+		}
 		plugin = null;
 		super.stop(context);
 	}
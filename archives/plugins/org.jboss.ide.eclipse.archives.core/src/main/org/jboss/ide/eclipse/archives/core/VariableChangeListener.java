@@ -0,0 +1,41 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.ide.eclipse.archives.core;
+
+import org.eclipse.core.resources.IPathVariableChangeEvent;
+import org.eclipse.core.resources.IPathVariableChangeListener;
+import org.eclipse.core.variables.IValueVariable;
+import org.eclipse.core.variables.IValueVariableListener;
+import org.jboss.ide.eclipse.archives.core.util.FilesetMatchIndex;
+
+/**
+ * Clear the fileset index when a variable changes, as fileset
+ * paths may use string variables, and linked resources are
+ * resolved with path variables.
+ */
+public class VariableChangeListener implements IPathVariableChangeListener, IValueVariableListener {
+
+	public void pathVariableChanged(IPathVariableChangeEvent event) {
+		FilesetMatchIndex.getDefault().clear();
+	}
+
+	public void variablesAdded(IValueVariable[] variables) {
+		FilesetMatchIndex.getDefault().clear();
+	}
+
+	public void variablesRemoved(IValueVariable[] variables) {
+		FilesetMatchIndex.getDefault().clear();
+	}
+
+	public void variablesChanged(IValueVariable[] variables) {
+		FilesetMatchIndex.getDefault().clear();
+	}
+}
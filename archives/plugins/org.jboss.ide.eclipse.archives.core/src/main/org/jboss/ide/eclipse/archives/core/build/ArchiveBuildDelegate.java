@@ -85,13 +85,15 @@ public class ArchiveBuildDelegate {
 
 			String title = ArchivesCore.bind(ArchivesCoreMessages.BuildingProject,
 					ArchivesCore.getInstance().getVFS().getProjectName(project));
-			SubMonitor progress = SubMonitor.convert(monitor, title, nodes.length * 1000);
-			
-			for( int i = 0; i < nodes.length; i++ ) {
-				errors.addAll(Arrays.asList(
-						fullArchiveBuild(
-								((IArchive)nodes[i]), progress.split(1000), false)));
-			}
+			SubMonitor progress = SubMonitor.convert(monitor, title, 1000);
+
+			// Archives referencing one another's output are built in order,
+			// everything else is built concurrently.
+			IArchive[] archives = new IArchive[nodes.length];
+			for( int i = 0; i < nodes.length; i++ )
+				archives[i] = (IArchive)nodes[i];
+			errors.addAll(Arrays.asList(
+					new ArchiveBuildScheduler(this).build(archives, progress.split(1000))));
 
 			EventManager.finishedBuild(project);
 			EventManager.error(null, errors.toArray(new IStatus[errors.size()]));
@@ -131,6 +133,18 @@ public class ArchiveBuildDelegate {
 		return fullArchiveBuild(pkg, monitor, true);
 	}
 	protected IStatus fullArchiveBuild(IArchive pkg, IProgressMonitor monitor, boolean log) {
+		return fullArchiveBuild(pkg, monitor, log, true);
+	}
+
+	/**
+	 * Builds an archive entirely, overwriting whatever was in the output destination.
+	 * @param pkg The archive to build
+	 * @param log Whether errors should be fired to the build listeners
+	 * @param buildReferences Whether archives including this archive's output
+	 *        should be rebuilt afterwards. The {@link ArchiveBuildScheduler}
+	 *        handles references itself and passes false.
+	 */
+	protected IStatus fullArchiveBuild(IArchive pkg, IProgressMonitor monitor, boolean log, boolean buildReferences) {
 		if( !pkg.canBuild() ) {
 			IStatus s = new Status(IStatus.ERROR, ArchivesCore.PLUGIN_ID,
 					ArchivesCore.bind(ArchivesCoreMessages.CannotBuildBadConfiguration, pkg.getName()), null);
@@ -142,8 +156,10 @@ public class ArchiveBuildDelegate {
 
 		EventManager.cleanArchiveBuild(pkg);
 		EventManager.startedBuildingArchive(pkg);
-		
+		long start = System.currentTimeMillis();
+
 		IPath filePath = pkg.getArchiveFilePath();
+		ModelTruezipBridge.discardManifest(pkg);
 		if( filePath.toFile().isFile()) 
 			filePath.toFile().delete();
 		else
@@ -165,10 +181,9 @@ public class ArchiveBuildDelegate {
 
 		ArrayList<IStatus> errors = new ArrayList<IStatus>();
 
-		/* 3 steps:
-		 * create file: 200
-		 * create folders: 800
-		 * build filesets: 7000
+		/* 2 steps:
+		 * write the archive: 7000
+		 * build references: 1000
 		 */
 		SubMonitor progress = SubMonitor.convert(monitor, ArchivesCore.bind(
 				ArchivesCoreMessages.BuildingArchive, pkg.toString()), 8000);
@@ -182,40 +197,11 @@ public class ArchiveBuildDelegate {
 //		}
 
 
-		if( !ModelTruezipBridge.createFile(pkg) ) {
-			IStatus e = new Status(IStatus.ERROR, ArchivesCore.PLUGIN_ID,
-					ArchivesCore.bind(ArchivesCoreMessages.ErrorCreatingOutputFile,
-							ModelTruezipBridge.getFilePath(pkg),
-							pkg.toString()));
-			errors.add(e);
-		}
-		progress.split(200);
-
-		// force create all folders
-		IArchiveFolder[] folders = ModelUtil.findAllDescendentFolders(pkg);
-		IProgressMonitor folderMonitor = progress.split(800);
-		folderMonitor.beginTask(ArchivesCoreMessages.CreatingFolders, folders.length * 100);
-		for( int i = 0; i < folders.length; i++ ) {
-			if( !ModelTruezipBridge.createFile(folders[i])) {
-				IStatus e = new Status(IStatus.ERROR, ArchivesCore.PLUGIN_ID, 
-						ArchivesCore.bind(ArchivesCoreMessages.ErrorCreatingOutputFile,
-						ModelTruezipBridge.getFilePath(folders[i]),
-						folders[i].toString()));
-				errors.add(e);
-			}
-			folderMonitor.worked(100);
+		if( StreamingArchiveBuilder.isStreamingBuild(pkg)) {
+			errors.addAll(Arrays.asList(new StreamingArchiveBuilder(pkg).build(progress.split(7000))));
+		} else {
+			errors.addAll(Arrays.asList(truezipArchiveBuild(pkg, progress.split(7000))));
 		}
-		folderMonitor.done();
-
-		// build the filesets
-		IArchiveFileSet[] filesets = ModelUtil.findAllDescendentFilesets(pkg);
-		IProgressMonitor filesetMonitor = progress.split(6000);
-		filesetMonitor.beginTask(ArchivesCoreMessages.BuildingFilesets, filesets.length * 1000);
-		for( int i = 0; i < filesets.length; i++ ) {
-			IStatus[] errors2 = fullFilesetBuild(filesets[i], progress.split(1000), pkg);
-			errors.addAll(Arrays.asList(errors2));
-		}
-		filesetMonitor.done();
 
 //		// Run the post actions
 //		for( int i = 0; i < actions.length; i++ ) {
@@ -225,8 +211,12 @@ public class ArchiveBuildDelegate {
 //		}
 		
 		
+		// referencing archives report their own times
+		EventManager.archiveBuildTime(pkg, System.currentTimeMillis() - start);
+
 		ArrayList<IArchive> referencingArchives = new ArrayList<IArchive>();
-		referencingArchives.addAll(Arrays.asList(findReferences(pkg)));
+		if( buildReferences )
+			referencingArchives.addAll(Arrays.asList(findReferences(pkg)));
 		
 		SubMonitor referenceMon = SubMonitor.convert(progress.split(1000), ArchivesCoreMessages.BuildingArchive, 
 				referencingArchives.size() * 1000);
@@ -239,8 +229,6 @@ public class ArchiveBuildDelegate {
 			}
 		}
 
-		
-
 		EventManager.finishedBuildingArchive(pkg);
 		IStatus[] errors2 = errors.toArray(new IStatus[errors.size()]);
 		if( log )
@@ -255,8 +243,60 @@ public class ArchiveBuildDelegate {
 		return ms;
 	}
 
+	/*
+	 * Create the archive, its folders and filesets in TrueZip's virtual file system.
+	 * Only this archive is synced, as other archives may be built concurrently.
+	 */
+	private IStatus[] truezipArchiveBuild(IArchive pkg, IProgressMonitor monitor) {
+		ArrayList<IStatus> errors = new ArrayList<IStatus>();
+		/* 3 steps:
+		 * create file: 200
+		 * create folders: 800
+		 * build filesets: 6000
+		 */
+		SubMonitor progress = SubMonitor.convert(monitor, 7000);
+		if( !ModelTruezipBridge.createFile(pkg, false) ) {
+			IStatus e = new Status(IStatus.ERROR, ArchivesCore.PLUGIN_ID,
+					ArchivesCore.bind(ArchivesCoreMessages.ErrorCreatingOutputFile,
+							ModelTruezipBridge.getFilePath(pkg),
+							pkg.toString()));
+			errors.add(e);
+		}
+		// write the empty archive, so its manifest sees it exists
+		errors.addAll(Arrays.asList(ModelTruezipBridge.sync(pkg)));
+		progress.split(200);
+
+		// force create all folders
+		IArchiveFolder[] folders = ModelUtil.findAllDescendentFolders(pkg);
+		IProgressMonitor folderMonitor = progress.split(800);
+		folderMonitor.beginTask(ArchivesCoreMessages.CreatingFolders, folders.length * 100);
+		for( int i = 0; i < folders.length; i++ ) {
+			if( !ModelTruezipBridge.createFile(folders[i], false)) {
+				IStatus e = new Status(IStatus.ERROR, ArchivesCore.PLUGIN_ID, 
+						ArchivesCore.bind(ArchivesCoreMessages.ErrorCreatingOutputFile,
+						ModelTruezipBridge.getFilePath(folders[i]),
+						folders[i].toString()));
+				errors.add(e);
+			}
+			folderMonitor.worked(100);
+		}
+		folderMonitor.done();
+
+		// build the filesets
+		IArchiveFileSet[] filesets = ModelUtil.findAllDescendentFilesets(pkg);
+		IProgressMonitor filesetMonitor = progress.split(6000);
+		filesetMonitor.beginTask(ArchivesCoreMessages.BuildingFilesets, filesets.length * 1000);
+		for( int i = 0; i < filesets.length; i++ ) {
+			IStatus[] errors2 = fullFilesetBuild(filesets[i], progress.split(1000), pkg);
+			errors.addAll(Arrays.asList(errors2));
+		}
+		filesetMonitor.done();
+		errors.addAll(Arrays.asList(ModelTruezipBridge.sync(pkg)));
+		return errors.toArray(new IStatus[errors.size()]);
+	}
+
 	/**
-	 * Build the given fileset
+	 * Build the given fileset. The top level archive is not synced.
 	 * @param fileset The fileset to match
 	 * @param topLevel The top level archive that the fileset belongs to
 	 */
@@ -267,7 +307,7 @@ public class ArchiveBuildDelegate {
 		fileset.resetScanner();
 		FileWrapper[] paths = fileset.findMatchingPaths();
 
-		FileWrapperStatusPair result = ModelTruezipBridge.fullFilesetBuild(fileset, monitor, true);
+		FileWrapperStatusPair result = ModelTruezipBridge.fullFilesetBuild(fileset, monitor, false);
 
 		EventManager.filesUpdated(topLevel, fileset, paths);
 		EventManager.finishedCollectingFileSet(fileset);
@@ -351,7 +391,7 @@ public class ArchiveBuildDelegate {
 
 
 		// NOW do the synch
-		TrueZipUtil.sync();
+		ModelTruezipBridge.sync();
 		Comparator<IPath> c = new Comparator<IPath>() {
 			public int compare(IPath o1, IPath o2) {
 				return o1.toOSString().compareTo(o2.toOSString());
@@ -0,0 +1,285 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.ide.eclipse.archives.core.build;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.SubMonitor;
+import org.jboss.ide.eclipse.archives.core.ArchivesCore;
+import org.jboss.ide.eclipse.archives.core.ArchivesCoreMessages;
+import org.jboss.ide.eclipse.archives.core.model.ArchivesModel;
+import org.jboss.ide.eclipse.archives.core.model.DirectoryScannerFactory.DirectoryScannerExtension.FileWrapper;
+import org.jboss.ide.eclipse.archives.core.model.EventManager;
+import org.jboss.ide.eclipse.archives.core.model.EventManager.DeferredEvents;
+import org.jboss.ide.eclipse.archives.core.model.IArchive;
+import org.jboss.ide.eclipse.archives.core.model.IArchiveFileSet;
+import org.jboss.ide.eclipse.archives.core.model.IArchiveNode;
+import org.jboss.ide.eclipse.archives.core.model.IArchiveNodeVisitor;
+
+/**
+ * Builds a set of archives, plus every archive which (transitively)
+ * includes one of their outputs, on a bounded pool of worker threads.
+ *
+ * The reference graph is computed once up front. An archive is only
+ * scheduled once every archive whose output it consumes has finished,
+ * so independent archives are built concurrently while chains of
+ * nested outputs are still built in order.
+ *
+ * The number of workers defaults to the number of available processors
+ * and may be overridden with the {@link #BUILD_THREADS_PROPERTY} system property.
+ * A value of 1 restores a strictly sequential build.
+ *
+ * Each archive only syncs its own output with the file system, so
+ * concurrent builds do not close each other's archives. The build
+ * events of an archive are queued on its worker and delivered on
+ * the calling thread once the archive is done. Canceling the build
+ * also stops the archives being built.
+ */
+public class ArchiveBuildScheduler {
+	public static final String BUILD_THREADS_PROPERTY = "org.jboss.ide.eclipse.archives.core.build.threads"; //$NON-NLS-1$
+
+	private ArchiveBuildDelegate delegate;
+	private int threads;
+
+	public ArchiveBuildScheduler(ArchiveBuildDelegate delegate) {
+		this(delegate, getDefaultThreadCount());
+	}
+
+	public ArchiveBuildScheduler(ArchiveBuildDelegate delegate, int threads) {
+		this.delegate = delegate;
+		this.threads = Math.max(1, threads);
+	}
+
+	public static int getDefaultThreadCount() {
+		int def = Runtime.getRuntime().availableProcessors();
+		try {
+			String prop = System.getProperty(BUILD_THREADS_PROPERTY);
+			if( prop != null )
+				return Math.max(1, Integer.parseInt(prop.trim()));
+		} catch(NumberFormatException nfe) {
+			// ignore, use the default
+		}
+		return def;
+	}
+
+	/**
+	 * Build the given archives and all archives which reference them.
+	 *
+	 * @param archives the archives to build
+	 * @param monitor a progress monitor
+	 * @return all error statuses collected during the build
+	 */
+	public IStatus[] build(IArchive[] archives, IProgressMonitor monitor) {
+		Map<IArchive, Set<IArchive>> deps = computeDependencies(archives);
+		SubMonitor progress = SubMonitor.convert(monitor, deps.size() * 1000);
+		ArrayList<IStatus> errors = new ArrayList<IStatus>();
+
+		// archive -> the archives which must wait for it
+		Map<IArchive, Set<IArchive>> dependents = new LinkedHashMap<IArchive, Set<IArchive>>();
+		for( Iterator<IArchive> i = deps.keySet().iterator(); i.hasNext(); )
+			dependents.put(i.next(), new HashSet<IArchive>());
+		for( Iterator<Map.Entry<IArchive, Set<IArchive>>> i = deps.entrySet().iterator(); i.hasNext(); ) {
+			Map.Entry<IArchive, Set<IArchive>> e = i.next();
+			for( Iterator<IArchive> j = e.getValue().iterator(); j.hasNext(); )
+				dependents.get(j.next()).add(e.getKey());
+		}
+
+		LinkedList<IArchive> pending = new LinkedList<IArchive>(deps.keySet());
+		ExecutorService executor = Executors.newFixedThreadPool(
+				Math.min(threads, Math.max(1, pending.size())), new BuildThreadFactory());
+		CompletionService<IArchive> completion = new ExecutorCompletionService<IArchive>(executor);
+		final Map<IArchive, BuildResult> results = new LinkedHashMap<IArchive, BuildResult>();
+		final IProgressMonitor workerMonitor = new WorkerMonitor(progress);
+		int running = 0;
+		try {
+			while( !pending.isEmpty() || running > 0 ) {
+				if( progress.isCanceled() ) {
+					errors.add(Status.CANCEL_STATUS);
+					break;
+				}
+				ArrayList<IArchive> ready = new ArrayList<IArchive>();
+				for( Iterator<IArchive> i = pending.iterator(); i.hasNext(); ) {
+					IArchive a = i.next();
+					if( deps.get(a).isEmpty() ) {
+						ready.add(a);
+						i.remove();
+					}
+				}
+				if( ready.isEmpty() && running == 0 ) {
+					// A reference cycle. Nothing can become ready, so break it
+					// by building the first remaining archive regardless.
+					ready.add(pending.removeFirst());
+				}
+				for( Iterator<IArchive> i = ready.iterator(); i.hasNext(); ) {
+					final IArchive a = i.next();
+					completion.submit(new Runnable() {
+						public void run() {
+							BuildResult r = new BuildResult();
+							EventManager.beginDeferral();
+							try {
+								r.status = delegate.fullArchiveBuild(a, workerMonitor, false, false);
+							} catch(OperationCanceledException oce) {
+								r.status = Status.CANCEL_STATUS;
+							} catch(RuntimeException re) {
+								r.status = new Status(IStatus.ERROR, ArchivesCore.PLUGIN_ID,
+										ArchivesCoreMessages.RuntimeErrorDuringBuild, re);
+							} finally {
+								r.events = EventManager.endDeferral();
+							}
+							synchronized(results) {
+								results.put(a, r);
+							}
+						}
+					}, a);
+					running++;
+				}
+				if( running == 0 )
+					continue;
+
+				IArchive done = completion.take().get();
+				running--;
+				BuildResult r;
+				synchronized(results) {
+					r = results.remove(done);
+				}
+				if( r != null ) {
+					r.events.fire();
+					if( r.status != null && !r.status.isOK())
+						errors.add(r.status);
+				}
+				for( Iterator<IArchive> i = dependents.get(done).iterator(); i.hasNext(); )
+					deps.get(i.next()).remove(done);
+				progress.split(1000);
+			}
+		} catch(InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			errors.add(Status.CANCEL_STATUS);
+		} catch(ExecutionException ee) {
+			errors.add(new Status(IStatus.ERROR, ArchivesCore.PLUGIN_ID,
+					ArchivesCoreMessages.RuntimeErrorDuringBuild, ee.getCause()));
+		} finally {
+			executor.shutdown();
+			try {
+				// let in-flight archives finish so their output is not left half-written
+				executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+			} catch(InterruptedException ie) {
+				Thread.currentThread().interrupt();
+			}
+			// archives which finished after the build was canceled
+			BuildResult[] left;
+			synchronized(results) {
+				left = results.values().toArray(new BuildResult[results.size()]);
+				results.clear();
+			}
+			for( int i = 0; i < left.length; i++ ) {
+				left[i].events.fire();
+				if( left[i].status != null && !left[i].status.isOK())
+					errors.add(left[i].status);
+			}
+			progress.done();
+		}
+		return errors.toArray(new IStatus[errors.size()]);
+	}
+
+	/**
+	 * Compute the archive reference graph, starting with the given archives and
+	 * following every archive whose filesets match one of their output files.
+	 *
+	 * @param archives the archives to start from
+	 * @return a map of each archive to the archives whose output it includes
+	 */
+	protected Map<IArchive, Set<IArchive>> computeDependencies(IArchive[] archives) {
+		final ArrayList<IArchiveFileSet> filesets = new ArrayList<IArchiveFileSet>();
+		ArchivesModel.instance().accept(new IArchiveNodeVisitor(){
+			public boolean visit(IArchiveNode node) {
+				if( node.getNodeType() == IArchiveNode.TYPE_ARCHIVE_FILESET)
+					filesets.add((IArchiveFileSet)node);
+				return true;
+			}
+		});
+
+		Map<IArchive, Set<IArchive>> deps = new LinkedHashMap<IArchive, Set<IArchive>>();
+		LinkedList<IArchive> toVisit = new LinkedList<IArchive>(Arrays.asList(archives));
+		for( int i = 0; i < archives.length; i++ )
+			deps.put(archives[i], new HashSet<IArchive>());
+
+		while( !toVisit.isEmpty()) {
+			IArchive a = toVisit.removeFirst();
+			IPath dest = a.getArchiveFilePath();
+			for( Iterator<IArchiveFileSet> i = filesets.iterator(); i.hasNext(); ) {
+				IArchiveFileSet fs = i.next();
+				FileWrapper[] wrapper = fs.getMatches(dest);
+				if( wrapper == null || wrapper.length == 0 )
+					continue;
+				IArchive referencing = fs.getRootArchive();
+				if( referencing == null || referencing == a )
+					continue;
+				Set<IArchive> s = deps.get(referencing);
+				if( s == null ) {
+					s = new HashSet<IArchive>();
+					deps.put(referencing, s);
+					toVisit.add(referencing);
+				}
+				s.add(a);
+			}
+		}
+		return deps;
+	}
+
+	private static class BuildResult {
+		private IStatus status;
+		private DeferredEvents events;
+	}
+
+	/*
+	 * Lets the workers see that the build was canceled. Their progress is
+	 * not reported, as the build's monitor belongs to the calling thread.
+	 */
+	private static class WorkerMonitor extends NullProgressMonitor {
+		private IProgressMonitor build;
+		private WorkerMonitor(IProgressMonitor build) {
+			this.build = build;
+		}
+		public boolean isCanceled() {
+			return super.isCanceled() || build.isCanceled();
+		}
+	}
+
+	private static class BuildThreadFactory implements ThreadFactory {
+		private static final AtomicInteger count = new AtomicInteger();
+		public Thread newThread(Runnable r) {
+			Thread t = new Thread(r, "Archives Build Worker " + count.incrementAndGet()); //$NON-NLS-1$
+			t.setDaemon(true);
+			return t;
+		}
+	}
+}
@@ -0,0 +1,356 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.ide.eclipse.archives.core.build;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.SubMonitor;
+import org.jboss.ide.eclipse.archives.core.ArchivesCore;
+import org.jboss.ide.eclipse.archives.core.ArchivesCoreMessages;
+import org.jboss.ide.eclipse.archives.core.model.DirectoryScannerFactory.DirectoryScannerExtension.FileWrapper;
+import org.jboss.ide.eclipse.archives.core.model.EventManager;
+import org.jboss.ide.eclipse.archives.core.model.IArchive;
+import org.jboss.ide.eclipse.archives.core.model.IArchiveFileSet;
+import org.jboss.ide.eclipse.archives.core.model.IArchiveFolder;
+import org.jboss.ide.eclipse.archives.core.model.IArchiveNode;
+import org.jboss.ide.eclipse.archives.core.model.IArchiveStandardFileSet;
+import org.jboss.ide.eclipse.archives.core.util.internal.ModelTruezipBridge;
+
+/**
+ * Builds a zipped top level archive by streaming every entry straight
+ * into a {@link ZipOutputStream}, instead of assembling it in TrueZip's
+ * virtual file system first.
+ *
+ * Nested zipped archives are written to a spool, in memory while small
+ * and in a temporary file beyond that, and then stored in their parent.
+ * Files which are compressed already, such as jars and images, are
+ * written without compressing them again, so each is only read once.
+ *
+ * The archive is written to a temporary file beside the destination,
+ * which replaces the destination once it is complete. A failed or
+ * canceled build leaves no partial archive behind.
+ *
+ * An archive is built this way when its {@link #STREAMING_BUILD_PROPERTY}
+ * property is "true".
+ */
+public class StreamingArchiveBuilder {
+	public static final String STREAMING_BUILD_PROPERTY = "org.jboss.ide.eclipse.archives.core.build.streaming"; //$NON-NLS-1$
+
+	private static final int SPOOL_THRESHOLD = 4 * 1024 * 1024;
+	private static final String[] COMPRESSED_EXTENSIONS = new String[] {
+		"jar", "war", "ear", "rar", "sar", "zip", "gz", "tgz", "bz2", "xz", "7z",  //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$ //$NON-NLS-7$ //$NON-NLS-8$ //$NON-NLS-9$ //$NON-NLS-10$ //$NON-NLS-11$
+		"png", "jpg", "jpeg", "gif", "mp3", "mp4" //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$
+	};
+
+	/**
+	 * Whether the given archive should be built by streaming
+	 * @param pkg the archive
+	 * @return true if the archive is a zipped top level archive which asks for it
+	 */
+	public static boolean isStreamingBuild(IArchive pkg) {
+		return pkg.isTopLevel() && !pkg.isExploded()
+			&& Boolean.valueOf(pkg.getProperty(STREAMING_BUILD_PROPERTY)).booleanValue();
+	}
+
+	private IArchive topLevel;
+	private ArrayList<IStatus> errors = new ArrayList<IStatus>();
+	// fileset -> the files it contributed
+	private LinkedHashMap<IArchiveFileSet, FileWrapper[]> filesets = new LinkedHashMap<IArchiveFileSet, FileWrapper[]>();
+	// shared by every copy, rather than one per file
+	private byte[] buffer = new byte[8192];
+
+	public StreamingArchiveBuilder(IArchive topLevel) {
+		this.topLevel = topLevel;
+	}
+
+	/**
+	 * Write the archive. Any previous output is replaced once it is complete.
+	 * @param monitor a progress monitor
+	 * @return the errors found while writing
+	 */
+	public IStatus[] build(IProgressMonitor monitor) {
+		SubMonitor progress = SubMonitor.convert(monitor, 1000);
+		File dest = topLevel.getArchiveFilePath().toFile();
+		// make sure TrueZip holds no stale view of the archive being replaced.
+		// Other archives may be being built concurrently and are left alone.
+		errors.addAll(Arrays.asList(ModelTruezipBridge.sync(topLevel)));
+		boolean written = false;
+		File tmp = null;
+		try {
+			tmp = File.createTempFile("." + dest.getName() + "-", ".tmp", dest.getParentFile()); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			OutputStream os = new FileOutputStream(tmp);
+			try {
+				writeArchive(topLevel, new BufferedOutputStream(os), progress.split(900));
+			} finally {
+				os.close();
+			}
+			if( (dest.exists() && !dest.delete()) || !tmp.renameTo(dest))
+				throw new IOException(ArchivesCore.bind(ArchivesCoreMessages.FileCopyFailed,
+						tmp.toString(), dest.toString()));
+			written = true;
+		} catch(IOException ioe) {
+			errors.add(new Status(IStatus.ERROR, ArchivesCore.PLUGIN_ID,
+					ArchivesCore.bind(ArchivesCoreMessages.ErrorCreatingOutputFile,
+							dest.toString(), topLevel.toString()), ioe));
+		} catch(OperationCanceledException oce) {
+			errors.add(Status.CANCEL_STATUS);
+		} finally {
+			if( tmp != null && !written )
+				tmp.delete();
+		}
+
+		for( Iterator<Map.Entry<IArchiveFileSet, FileWrapper[]>> i = filesets.entrySet().iterator(); i.hasNext(); ) {
+			Map.Entry<IArchiveFileSet, FileWrapper[]> e = i.next();
+			if( written ) {
+				EventManager.filesUpdated(topLevel, e.getKey(), e.getValue());
+				EventManager.filesCopied(topLevel, e.getKey(), e.getValue().length, 0);
+			}
+			EventManager.finishedCollectingFileSet(e.getKey());
+		}
+		progress.setWorkRemaining(0);
+		return errors.toArray(new IStatus[errors.size()]);
+	}
+
+	/*
+	 * Write a zipped archive, with all its descendents, to the stream
+	 */
+	private void writeArchive(IArchive archive, OutputStream os, IProgressMonitor monitor) throws IOException {
+		// Collect the entries first. Where two nodes write the same
+		// entry the last one wins, as it would when copying with TrueZip.
+		LinkedHashMap<String, Object> entries = new LinkedHashMap<String, Object>();
+		collect(archive, "", entries); //$NON-NLS-1$
+
+		SubMonitor progress = SubMonitor.convert(monitor, entries.size());
+		ZipOutputStream zos = new ZipOutputStream(os);
+		Set<String> dirs = new HashSet<String>();
+		for( Iterator<Map.Entry<String, Object>> i = entries.entrySet().iterator(); i.hasNext(); ) {
+			if( progress.isCanceled())
+				throw new OperationCanceledException();
+			Map.Entry<String, Object> e = i.next();
+			String name = e.getKey();
+			addParentDirs(zos, name, dirs);
+			Object o = e.getValue();
+			if( o == null ) {
+				if( dirs.add(name))
+					putEntry(zos, name, System.currentTimeMillis(), null);
+			} else if( o instanceof IArchive ) {
+				writeNested((IArchive)o, name, zos);
+			} else {
+				writeFile((File)o, name, zos);
+			}
+			progress.worked(1);
+		}
+		zos.finish();
+		zos.flush();
+	}
+
+	private void collect(IArchiveNode node, String prefix, Map<String, Object> entries) {
+		IArchiveNode[] children = node.getAllChildren();
+		for( int i = 0; i < children.length; i++ ) {
+			int type = children[i].getNodeType();
+			if( type == IArchiveNode.TYPE_ARCHIVE_FOLDER ) {
+				String dir = prefix + ((IArchiveFolder)children[i]).getName() + "/"; //$NON-NLS-1$
+				put(entries, dir, null);
+				collect(children[i], dir, entries);
+			} else if( type == IArchiveNode.TYPE_ARCHIVE ) {
+				IArchive nested = (IArchive)children[i];
+				if( nested.isExploded() ) {
+					String dir = prefix + nested.getName() + "/"; //$NON-NLS-1$
+					put(entries, dir, null);
+					collect(nested, dir, entries);
+				} else {
+					put(entries, prefix + nested.getName(), nested);
+				}
+			} else if( type == IArchiveNode.TYPE_ARCHIVE_FILESET ) {
+				collectFileset((IArchiveFileSet)children[i], prefix, entries);
+			}
+		}
+	}
+
+	private void collectFileset(IArchiveFileSet fs, String prefix, Map<String, Object> entries) {
+		EventManager.startedCollectingFileSet(fs);
+		// reset the scanner. It *is* a full build afterall
+		fs.resetScanner();
+		FileWrapper[] files = fs.findMatchingPaths();
+		boolean flattened = fs instanceof IArchiveStandardFileSet && ((IArchiveStandardFileSet)fs).isFlattened();
+		for( int i = 0; i < files.length; i++ ) {
+			String relative = flattened ? files[i].getOutputName() : files[i].getFilesetRelative();
+			put(entries, prefix + new Path(relative).makeRelative().toString(), files[i]);
+		}
+		filesets.put(fs, files);
+	}
+
+	private void put(Map<String, Object> entries, String name, Object value) {
+		entries.remove(name);
+		entries.put(name, value);
+	}
+
+	private void addParentDirs(ZipOutputStream zos, String name, Set<String> dirs) throws IOException {
+		int slash = name.indexOf('/');
+		while( slash != -1 && slash < name.length() - 1 ) {
+			String dir = name.substring(0, slash + 1);
+			if( dirs.add(dir))
+				putEntry(zos, dir, System.currentTimeMillis(), null);
+			slash = name.indexOf('/', slash + 1);
+		}
+	}
+
+	private void writeFile(File f, String name, ZipOutputStream zos) {
+		// A stored entry needs its checksum before its content, which
+		// would mean reading the file twice. Deflating without any
+		// compression costs a few bytes per block instead.
+		boolean compressed = isCompressed(name);
+		try {
+			if( compressed )
+				zos.setLevel(Deflater.NO_COMPRESSION);
+			putEntry(zos, name, f.lastModified(), null);
+			copy(f, zos, buffer);
+			zos.closeEntry();
+		} catch(IOException ioe) {
+			errors.add(new Status(IStatus.ERROR, ArchivesCore.PLUGIN_ID,
+					ArchivesCore.bind(ArchivesCoreMessages.FileCopyFailed,
+							f.getAbsolutePath(), name), ioe));
+		} finally {
+			if( compressed )
+				zos.setLevel(Deflater.DEFAULT_COMPRESSION);
+		}
+	}
+
+	private void writeNested(IArchive nested, String name, ZipOutputStream zos) throws IOException {
+		Spool spool = new Spool();
+		try {
+			writeArchive(nested, spool, null);
+			spool.close();
+			putEntry(zos, name, System.currentTimeMillis(), new long[] { spool.size, spool.crc.getValue() });
+			spool.writeTo(zos, buffer);
+			zos.closeEntry();
+		} finally {
+			spool.dispose();
+		}
+	}
+
+	/*
+	 * Begin an entry. Stored entries need their size and crc up front.
+	 */
+	private void putEntry(ZipOutputStream zos, String name, long time, long[] storedSizeAndCrc) throws IOException {
+		ZipEntry ze = new ZipEntry(name);
+		ze.setTime(time);
+		if( storedSizeAndCrc != null || name.endsWith("/")) { //$NON-NLS-1$
+			long size = storedSizeAndCrc == null ? 0 : storedSizeAndCrc[0];
+			ze.setMethod(ZipEntry.STORED);
+			ze.setSize(size);
+			ze.setCompressedSize(size);
+			ze.setCrc(storedSizeAndCrc == null ? 0 : storedSizeAndCrc[1]);
+		}
+		zos.putNextEntry(ze);
+		if( name.endsWith("/")) //$NON-NLS-1$
+			zos.closeEntry();
+	}
+
+	private static boolean isCompressed(String name) {
+		int dot = name.lastIndexOf('.');
+		if( dot == -1 || name.lastIndexOf('/') > dot )
+			return false;
+		String ext = name.substring(dot + 1);
+		for( int i = 0; i < COMPRESSED_EXTENSIONS.length; i++ )
+			if( COMPRESSED_EXTENSIONS[i].equalsIgnoreCase(ext))
+				return true;
+		return false;
+	}
+
+	private static void copy(File f, OutputStream os, byte[] buf) throws IOException {
+		InputStream is = new FileInputStream(f);
+		try {
+			int read;
+			while( (read = is.read(buf)) != -1 )
+				os.write(buf, 0, read);
+		} finally {
+			is.close();
+		}
+	}
+
+	/**
+	 * Collects a nested archive's bytes, and their checksum.
+	 * Kept in memory up to {@link StreamingArchiveBuilder#SPOOL_THRESHOLD},
+	 * then moved to a temporary file.
+	 */
+	private static class Spool extends OutputStream {
+		private ByteArrayOutputStream memory = new ByteArrayOutputStream();
+		private File file;
+		private OutputStream fileStream;
+		private CRC32 crc = new CRC32();
+		private long size = 0;
+
+		public void write(int b) throws IOException {
+			write(new byte[] { (byte)b }, 0, 1);
+		}
+
+		public void write(byte[] b, int off, int len) throws IOException {
+			if( fileStream == null && size + len > SPOOL_THRESHOLD ) {
+				file = File.createTempFile("archives", ".spool"); //$NON-NLS-1$ //$NON-NLS-2$
+				fileStream = new BufferedOutputStream(new FileOutputStream(file));
+				memory.writeTo(fileStream);
+				memory = null;
+			}
+			if( fileStream != null )
+				fileStream.write(b, off, len);
+			else
+				memory.write(b, off, len);
+			crc.update(b, off, len);
+			size += len;
+		}
+
+		public void close() throws IOException {
+			if( fileStream != null )
+				fileStream.close();
+		}
+
+		private void writeTo(OutputStream os, byte[] buf) throws IOException {
+			if( file == null )
+				memory.writeTo(os);
+			else
+				copy(file, os, buf);
+		}
+
+		private void dispose() {
+			try {
+				close();
+			} catch(IOException ioe) {
+				// ignore
+			}
+			if( file != null )
+				file.delete();
+		}
+	}
+}
@@ -13,7 +13,7 @@ package org.jboss.ide.eclipse.archives.core.model;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IStatus;
 
-public class AbstractBuildListener implements IArchiveBuildListener {
+public class AbstractBuildListener implements IArchiveBuildListener2 {
 	public void buildFailed(IArchive pkg, IStatus status) {
 	}
 	public void cleanArchive(IArchive pkg) {
@@ -40,4 +40,8 @@ public class AbstractBuildListener implements IArchiveBuildListener {
 	}
 	public void startedCollectingFileSet(IArchiveFileSet fileset) {
 	}
+	public void archiveBuildTime(IArchive pkg, long durationMillis) {
+	}
+	public void filesCopied(IArchive topLevelArchive, IArchiveFileSet fileset, int written, int skipped) {
+	}
 }
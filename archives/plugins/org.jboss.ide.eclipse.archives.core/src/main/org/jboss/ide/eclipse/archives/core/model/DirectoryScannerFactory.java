@@ -16,6 +16,7 @@ import java.util.HashMap;
 
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.Path;
 import org.jboss.ide.eclipse.archives.core.ArchivesCore;
 import org.jboss.ide.eclipse.archives.core.model.DirectoryScannerFactory.DirectoryScannerExtension.FileWrapper;
@@ -57,7 +58,7 @@ public class DirectoryScannerFactory {
 	}
 	
 	/**
-	 * Create a scanner and, optionally, scan it. The scan operation may throw a RuntimeException 
+	 * Create a scanner and, optionally, scan it. The scan operation throws an OperationCanceledException 
 	 * if a progress monitor is provided and it is canceled at any time. 
 	 * 
 	 * @param rawPath
@@ -70,7 +71,7 @@ public class DirectoryScannerFactory {
 	 * @param scan
 	 * @param monitor
 	 * @return
-	 * @throws RuntimeException
+	 * @throws OperationCanceledException
 	 */
 	
 	public static DirectoryScannerExtension createDirectoryScanner (
@@ -180,7 +181,7 @@ public class DirectoryScannerFactory {
 		 */
 	    protected FileWrapper[] listFileWrapperChildren(FileWrapper file) {
 	    	if( monitor != null && monitor.isCanceled() )
-	    		throw new RuntimeException();
+	    		throw new OperationCanceledException();
 	    	
 	    	if( fs.inWorkspace )
 	    		return listWorkspace(file);
@@ -199,7 +200,7 @@ public class DirectoryScannerFactory {
 	    @Override
 	    protected ITreeNode getChild(FileWrapper file, String element) {
 	    	if( monitor != null && monitor.isCanceled() )
-	    		throw new RuntimeException();
+	    		throw new OperationCanceledException();
 	    	File f2 = (File)file;
 	    	if( !fs.inWorkspace)
 	    		return new FileWrapper(f2, new Path(f2.getAbsolutePath()), fs.rootArchiveRelativePath);
@@ -218,7 +219,7 @@ public class DirectoryScannerFactory {
 		 */
 	    protected FileWrapper[] listWorkspace(File file) {
 	    	if( monitor != null && monitor.isCanceled() )
-	    		throw new RuntimeException();
+	    		throw new OperationCanceledException();
 
 	    	IPath workspaceRelative = ((FileWrapper)file).getWrapperPath();
 	    	if( workspaceRelative == null )
@@ -253,7 +254,7 @@ public class DirectoryScannerFactory {
 		 */
 	    protected FileWrapper[] listAbsolute(File file) {
 	    	if( monitor != null && monitor.isCanceled() )
-	    		throw new RuntimeException();
+	    		throw new OperationCanceledException();
 
 	    	File[] children = file.listFiles();
 	    	if( children != null ) {
@@ -10,6 +10,9 @@
  ******************************************************************************/
 package org.jboss.ide.eclipse.archives.core.model;
 
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Path;
@@ -78,6 +81,25 @@ public class EventManager {
 	}
 
 
+	public static void archiveBuildTime(IArchive archive, long durationMillis) {
+		IArchiveBuildListener[] listeners = getBuildListeners(archive);
+		for( int i = 0; i < listeners.length; i++ ) {
+			try {
+				if( listeners[i] instanceof IArchiveBuildListener2 )
+					((IArchiveBuildListener2)listeners[i]).archiveBuildTime(archive, durationMillis);
+			} catch(Exception e ) {logError(e);}
+		}
+	}
+
+	public static void filesCopied(IArchive topLevelArchive, IArchiveFileSet fileset, int written, int skipped) {
+		IArchiveBuildListener[] listeners = getBuildListeners(fileset);
+		for( int i = 0; i < listeners.length; i++ ) {
+			try {
+				if( listeners[i] instanceof IArchiveBuildListener2 )
+					((IArchiveBuildListener2)listeners[i]).filesCopied(topLevelArchive, fileset, written, skipped);
+			} catch(Exception e ) {logError(e);}
+		}
+	}
 
 	public static void startedCollectingFileSet(IArchiveFileSet fileset) {
 		IArchiveBuildListener[] listeners = getBuildListeners(fileset);
@@ -190,13 +212,161 @@ public class EventManager {
 		return listeners;
 	}
 
+	/*
+	 * Build events fired on the current thread are queued here
+	 * instead of being delivered, if it has begun a deferral
+	 */
+	private static final ThreadLocal<DeferredEvents> deferred = new ThreadLocal<DeferredEvents>();
+
+	/**
+	 * Queue the build events fired on the current thread instead of
+	 * delivering them, until {@link #endDeferral()} is called. Archives
+	 * may then be built on worker threads, while the listeners are
+	 * still only called by the thread which requested the build.
+	 */
+	public static void beginDeferral() {
+		deferred.set(new DeferredEvents());
+	}
+
+	/**
+	 * Stop queueing the build events fired on the current thread
+	 * @return the events queued since {@link #beginDeferral()}
+	 */
+	public static DeferredEvents endDeferral() {
+		DeferredEvents d = deferred.get();
+		deferred.remove();
+		return d == null ? new DeferredEvents() : d;
+	}
+
+	/**
+	 * Build events which were queued rather than delivered
+	 */
+	public static class DeferredEvents {
+		private ArrayList<DeferredEvent> events = new ArrayList<DeferredEvent>();
+		private IdentityHashMap<IArchiveNode, Recorder> recorders = new IdentityHashMap<IArchiveNode, Recorder>();
+
+		private DeferredEvents() {
+		}
+
+		private IArchiveBuildListener recorder(IArchiveNode node) {
+			Recorder r = recorders.get(node);
+			if( r == null ) {
+				r = new Recorder(this, node);
+				recorders.put(node, r);
+			}
+			return r;
+		}
+
+		/**
+		 * Deliver the events to the listeners, in the order they were fired
+		 */
+		public void fire() {
+			for( int i = 0; i < events.size(); i++ ) {
+				DeferredEvent e = events.get(i);
+				IArchiveBuildListener[] listeners = findBuildListeners(e.node);
+				for( int j = 0; j < listeners.length; j++ ) {
+					try {
+						e.deliver(listeners[j]);
+					} catch(Exception ex ) {logError(ex);}
+				}
+			}
+			events.clear();
+			recorders.clear();
+		}
+	}
+
+	/*
+	 * A build event, along with the node whose listeners it goes to
+	 */
+	private static abstract class DeferredEvent {
+		private IArchiveNode node;
+		private DeferredEvent(IArchiveNode node) {
+			this.node = node;
+		}
+		abstract void deliver(IArchiveBuildListener listener);
+	}
+
+	/*
+	 * Stands in for the listeners of a node while events are deferred,
+	 * and queues each event it is given
+	 */
+	private static class Recorder implements IArchiveBuildListener2 {
+		private DeferredEvents deferred;
+		private IArchiveNode node;
+		private Recorder(DeferredEvents deferred, IArchiveNode node) {
+			this.deferred = deferred;
+			this.node = node;
+		}
+		private void add(DeferredEvent e) {
+			deferred.events.add(e);
+		}
+		public void startedBuild(final IPath project) {
+			add(new DeferredEvent(node) { void deliver(IArchiveBuildListener l) { l.startedBuild(project); }});
+		}
+		public void finishedBuild(final IPath project) {
+			add(new DeferredEvent(node) { void deliver(IArchiveBuildListener l) { l.finishedBuild(project); }});
+		}
+		public void cleanProject(final IPath project) {
+			add(new DeferredEvent(node) { void deliver(IArchiveBuildListener l) { l.cleanProject(project); }});
+		}
+		public void startedBuildingArchive(final IArchive pkg) {
+			add(new DeferredEvent(node) { void deliver(IArchiveBuildListener l) { l.startedBuildingArchive(pkg); }});
+		}
+		public void finishedBuildingArchive(final IArchive pkg) {
+			add(new DeferredEvent(node) { void deliver(IArchiveBuildListener l) { l.finishedBuildingArchive(pkg); }});
+		}
+		public void cleanArchive(final IArchive pkg) {
+			add(new DeferredEvent(node) { void deliver(IArchiveBuildListener l) { l.cleanArchive(pkg); }});
+		}
+		public void startedCollectingFileSet(final IArchiveFileSet fileset) {
+			add(new DeferredEvent(node) { void deliver(IArchiveBuildListener l) { l.startedCollectingFileSet(fileset); }});
+		}
+		public void finishedCollectingFileSet(final IArchiveFileSet fileset) {
+			add(new DeferredEvent(node) { void deliver(IArchiveBuildListener l) { l.finishedCollectingFileSet(fileset); }});
+		}
+		public void buildFailed(final IArchive pkg, final IStatus status) {
+			add(new DeferredEvent(node) { void deliver(IArchiveBuildListener l) { l.buildFailed(pkg, status); }});
+		}
+		public void fileUpdated(final IArchive topLevelArchive, final IArchiveFileSet fileset, final IPath filePath) {
+			add(new DeferredEvent(node) { void deliver(IArchiveBuildListener l) { l.fileUpdated(topLevelArchive, fileset, filePath); }});
+		}
+		public void fileRemoved(final IArchive topLevelArchive, final IArchiveFileSet fileset, final IPath filePath) {
+			add(new DeferredEvent(node) { void deliver(IArchiveBuildListener l) { l.fileRemoved(topLevelArchive, fileset, filePath); }});
+		}
+		public void error(final IArchiveNode errorNode, final IStatus[] multi) {
+			add(new DeferredEvent(node) { void deliver(IArchiveBuildListener l) { l.error(errorNode, multi); }});
+		}
+		public void archiveBuildTime(final IArchive pkg, final long durationMillis) {
+			add(new DeferredEvent(node) {
+				void deliver(IArchiveBuildListener l) {
+					if( l instanceof IArchiveBuildListener2 )
+						((IArchiveBuildListener2)l).archiveBuildTime(pkg, durationMillis);
+				}
+			});
+		}
+		public void filesCopied(final IArchive topLevelArchive, final IArchiveFileSet fileset, final int written, final int skipped) {
+			add(new DeferredEvent(node) {
+				void deliver(IArchiveBuildListener l) {
+					if( l instanceof IArchiveBuildListener2 )
+						((IArchiveBuildListener2)l).filesCopied(topLevelArchive, fileset, written, skipped);
+				}
+			});
+		}
+	}
+
 	// get workspace default ones
 	private static IArchiveBuildListener[] getBuildListeners() {
-		return ArchivesModel.instance().getBuildListeners();
+		return getBuildListeners(null);
 	}
 	private static IArchiveBuildListener[] getBuildListeners(IArchiveNode node) {
+		DeferredEvents d = deferred.get();
+		if( d != null )
+			return new IArchiveBuildListener[] { d.recorder(node) };
+		return findBuildListeners(node);
+	}
+	private static IArchiveBuildListener[] findBuildListeners(IArchiveNode node) {
 		if( node == null )
-			return getBuildListeners();
+			return ArchivesModel.instance().getBuildListeners();
 		IArchiveModelRootNode model = node.getModelRootNode();
 		if( model != null && model.getModel() != null ) {
 			return model.getModel().getBuildListeners();
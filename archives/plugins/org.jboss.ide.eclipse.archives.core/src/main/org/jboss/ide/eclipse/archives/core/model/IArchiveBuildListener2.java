@@ -0,0 +1,41 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.ide.eclipse.archives.core.model;
+
+/**
+ * An extension to {@link IArchiveBuildListener} for listeners
+ * interested in build statistics.
+ */
+public interface IArchiveBuildListener2 extends IArchiveBuildListener {
+
+	/**
+	 * An archive has been fully built.
+	 * The duration does not include rebuilding any archives that
+	 * include this archive's output.
+	 *
+	 * @param pkg the Archive that was built
+	 * @param durationMillis the wall time spent building the archive, in milliseconds
+	 */
+	public void archiveBuildTime(IArchive pkg, long durationMillis);
+
+	/**
+	 * Files matched by a fileset have been copied into its archive.
+	 * Files whose content had not changed since they were last
+	 * copied are skipped.
+	 *
+	 * @param topLevelArchive the root archive being written
+	 * @param fileset the fileset whose files were copied
+	 * @param written the number of files written to the archive
+	 * @param skipped the number of unchanged files which were not written
+	 */
+	public void filesCopied(IArchive topLevelArchive, IArchiveFileSet fileset, int written, int skipped);
+
+}
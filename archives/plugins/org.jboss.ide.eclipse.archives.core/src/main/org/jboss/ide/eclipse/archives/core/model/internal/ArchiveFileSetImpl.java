@@ -34,6 +34,12 @@ import org.jboss.ide.eclipse.archives.core.xpl.AntNLS;
 public class ArchiveFileSetImpl extends ArchiveNodeImpl implements
 		IArchiveStandardFileSet {
 
+	/**
+	 * Set this system property to true to list the folders of
+	 * filesets outside the workspace on several threads
+	 */
+	public static final String PARALLEL_SCAN_PROPERTY = "org.jboss.ide.eclipse.archives.core.scan.parallel"; //$NON-NLS-1$
+
 	private DirectoryScannerExtension scanner;
 	private FileWrapper[] matchingPaths;
 	private HashMap<String, ArrayList<FileWrapper>> matchingMap;
@@ -136,11 +142,12 @@ public class ArchiveFileSetImpl extends ArchiveNodeImpl implements
 			rescanRequired = false;
 
 			try {
-				scanner = DirectoryScannerFactory.createDirectoryScanner(this, true);
-				if( scanner != null ) {
-					matchingPaths = scanner.getMatchedArray();
-					matchingMap = scanner.getMatchedMap();
-				}
+				scanner = DirectoryScannerFactory.createDirectoryScanner(this, false);
+				// filesystem folders are safe to list concurrently
+				scanner.setParallelScan(!isInWorkspace() && Boolean.getBoolean(PARALLEL_SCAN_PROPERTY));
+				scanner.scan();
+				matchingPaths = scanner.getMatchedArray();
+				matchingMap = scanner.getMatchedMap();
 			} catch( IllegalStateException ise ) {
 				if( logError ) {
 					ArchivesCore.getInstance().getLogger().log(IStatus.WARNING, 
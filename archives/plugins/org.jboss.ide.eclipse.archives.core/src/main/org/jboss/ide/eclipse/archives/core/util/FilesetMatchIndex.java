@@ -0,0 +1,271 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.ide.eclipse.archives.core.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.Path;
+import org.jboss.ide.eclipse.archives.core.ArchivesCore;
+import org.jboss.ide.eclipse.archives.core.model.ArchivesModel;
+import org.jboss.ide.eclipse.archives.core.model.IArchiveFileSet;
+import org.jboss.ide.eclipse.archives.core.model.IArchiveModel;
+import org.jboss.ide.eclipse.archives.core.model.IArchiveModelListener;
+import org.jboss.ide.eclipse.archives.core.model.IArchiveModelRootNode;
+import org.jboss.ide.eclipse.archives.core.model.IArchiveNode;
+import org.jboss.ide.eclipse.archives.core.model.IArchiveNodeDelta;
+import org.jboss.ide.eclipse.archives.core.model.IArchiveNodeVisitor;
+import org.jboss.ide.eclipse.archives.core.model.IArchiveStandardFileSet;
+
+/**
+ * An index of the filesets in the workspace archives model, keyed
+ * on the base directory of each fileset.
+ *
+ * A fileset can only match a path which lives beneath its base directory,
+ * so walking the path's segments through a prefix tree yields the candidate
+ * filesets in O(path depth). Only the candidates then need to be asked
+ * whether they really match.
+ *
+ * Workspace filesets are keyed by their workspace path, filesystem filesets
+ * by their absolute path. Filesets whose base directory cannot be resolved
+ * are always returned as candidates.
+ *
+ * The index is maintained per project from the model's deltas, which are
+ * fired when a project is registered, unregistered or saved. Anything
+ * else the base directories are resolved with, such as variables,
+ * must {@link #clear()} the index when it changes.
+ */
+public class FilesetMatchIndex implements IArchiveModelListener {
+
+	private static FilesetMatchIndex instance;
+
+	/**
+	 * Get the index for the workspace model, {@link ArchivesModel#instance()}.
+	 */
+	public static synchronized FilesetMatchIndex getDefault() {
+		IArchiveModel model = ArchivesModel.instance();
+		if( instance == null || instance.model != model ) {
+			if( instance != null )
+				instance.dispose();
+			instance = new FilesetMatchIndex(model);
+		}
+		return instance;
+	}
+
+	private static class TrieNode {
+		private HashMap<String, TrieNode> children;
+		private ArrayList<IArchiveFileSet> filesets;
+
+		private TrieNode getChild(String segment, boolean create) {
+			TrieNode n = children == null ? null : children.get(segment);
+			if( n == null && create ) {
+				if( children == null )
+					children = new HashMap<String, TrieNode>();
+				n = new TrieNode();
+				children.put(segment, n);
+			}
+			return n;
+		}
+	}
+
+	private IArchiveModel model;
+	private TrieNode workspaceRoot = new TrieNode();
+	private TrieNode globalRoot = new TrieNode();
+	// raw source path -> filesets, for filesets whose scanner is broken
+	private HashMap<IPath, ArrayList<IArchiveFileSet>> rawPaths = new HashMap<IPath, ArrayList<IArchiveFileSet>>();
+	private ArrayList<IArchiveFileSet> unindexed = new ArrayList<IArchiveFileSet>();
+	// project -> its indexed filesets
+	private HashMap<IPath, List<IArchiveFileSet>> projects = new HashMap<IPath, List<IArchiveFileSet>>();
+	private Set<IPath> dirtyProjects = new HashSet<IPath>();
+	private boolean allDirty = true;
+
+	public FilesetMatchIndex(IArchiveModel model) {
+		this.model = model;
+		model.addModelListener(this);
+	}
+
+	public void dispose() {
+		model.removeModelListener(this);
+	}
+
+	public synchronized void modelChanged(IArchiveNodeDelta delta) {
+		IArchiveNode node = delta.getPostNode() == null ? delta.getPreNode() : delta.getPostNode();
+		IPath project = node == null ? null : node.getProjectPath();
+		if( project == null )
+			allDirty = true;
+		else
+			dirtyProjects.add(project);
+	}
+
+	/**
+	 * Drop the whole index, so that it is rebuilt from the model
+	 * the next time it is used.
+	 */
+	public synchronized void clear() {
+		allDirty = true;
+	}
+
+	/**
+	 * Get the filesets which may match the given path. The result
+	 * is a superset of the filesets which actually match it.
+	 *
+	 * @param path the path to check
+	 * @param inWorkspace whether the path is workspace relative or absolute
+	 * @return the candidate filesets
+	 */
+	public synchronized IArchiveFileSet[] getCandidates(IPath path, boolean inWorkspace) {
+		refresh();
+		Set<IArchiveFileSet> result = new LinkedHashSet<IArchiveFileSet>();
+		if( inWorkspace ) {
+			collect(workspaceRoot, path, result);
+			IPath global = ArchivesCore.getInstance().getVFS().workspacePathToAbsolutePath(path);
+			if( global != null )
+				collect(globalRoot, global, result);
+		} else {
+			collect(globalRoot, path, result);
+			IPath[] wsPaths = ArchivesCore.getInstance().getVFS().absolutePathToWorkspacePath(path);
+			for( int i = 0; wsPaths != null && i < wsPaths.length; i++ )
+				collect(workspaceRoot, wsPaths[i], result);
+		}
+		ArrayList<IArchiveFileSet> raw = rawPaths.get(path);
+		if( raw != null )
+			result.addAll(raw);
+		result.addAll(unindexed);
+		return result.toArray(new IArchiveFileSet[result.size()]);
+	}
+
+	private void collect(TrieNode root, IPath path, Set<IArchiveFileSet> result) {
+		TrieNode n = root;
+		String[] segments = getKeySegments(path);
+		for( int i = 0; n != null; i++ ) {
+			if( n.filesets != null )
+				result.addAll(n.filesets);
+			n = i < segments.length ? n.getChild(segments[i], false) : null;
+		}
+	}
+
+	private static String[] getKeySegments(IPath path) {
+		String[] segments = path.segments();
+		if( path.getDevice() == null )
+			return segments;
+		String[] withDevice = new String[segments.length + 1];
+		withDevice[0] = path.getDevice();
+		System.arraycopy(segments, 0, withDevice, 1, segments.length);
+		return withDevice;
+	}
+
+	private void refresh() {
+		if( allDirty ) {
+			workspaceRoot = new TrieNode();
+			globalRoot = new TrieNode();
+			rawPaths.clear();
+			unindexed.clear();
+			projects.clear();
+			dirtyProjects.clear();
+			IArchiveModelRootNode[] roots = model.getModelNodes();
+			for( int i = 0; i < roots.length; i++ )
+				addProject(roots[i]);
+			allDirty = false;
+		} else if( !dirtyProjects.isEmpty()) {
+			for( Iterator<IPath> i = dirtyProjects.iterator(); i.hasNext(); ) {
+				IPath project = i.next();
+				removeProject(project);
+				IArchiveModelRootNode root = model.getRoot(project);
+				if( root != null )
+					addProject(root);
+			}
+			dirtyProjects.clear();
+		}
+	}
+
+	private void addProject(IArchiveModelRootNode root) {
+		final ArrayList<IArchiveFileSet> filesets = new ArrayList<IArchiveFileSet>();
+		root.accept(new IArchiveNodeVisitor() {
+			public boolean visit(IArchiveNode node) {
+				if( node.getNodeType() == IArchiveNode.TYPE_ARCHIVE_FILESET )
+					filesets.add((IArchiveFileSet)node);
+				return true;
+			}
+		});
+		for( Iterator<IArchiveFileSet> i = filesets.iterator(); i.hasNext(); )
+			add(i.next());
+		projects.put(root.getProjectPath(), filesets);
+	}
+
+	private void removeProject(IPath project) {
+		List<IArchiveFileSet> filesets = projects.remove(project);
+		if( filesets == null )
+			return;
+		Set<IArchiveFileSet> toRemove = new HashSet<IArchiveFileSet>(filesets);
+		prune(workspaceRoot, toRemove);
+		prune(globalRoot, toRemove);
+		unindexed.removeAll(toRemove);
+		for( Iterator<ArrayList<IArchiveFileSet>> i = rawPaths.values().iterator(); i.hasNext(); ) {
+			ArrayList<IArchiveFileSet> l = i.next();
+			l.removeAll(toRemove);
+			if( l.isEmpty())
+				i.remove();
+		}
+	}
+
+	private boolean prune(TrieNode n, Set<IArchiveFileSet> toRemove) {
+		if( n.filesets != null ) {
+			n.filesets.removeAll(toRemove);
+			if( n.filesets.isEmpty())
+				n.filesets = null;
+		}
+		if( n.children != null ) {
+			for( Iterator<TrieNode> i = n.children.values().iterator(); i.hasNext(); )
+				if( prune(i.next(), toRemove))
+					i.remove();
+			if( n.children.isEmpty())
+				n.children = null;
+		}
+		return n.filesets == null && n.children == null;
+	}
+
+	private void add(IArchiveFileSet fs) {
+		if( !(fs instanceof IArchiveStandardFileSet)) {
+			unindexed.add(fs);
+			return;
+		}
+		IArchiveStandardFileSet std = (IArchiveStandardFileSet)fs;
+		String raw = std.getRawSourcePath();
+		if( raw != null ) {
+			IPath rawPath = new Path(raw);
+			ArrayList<IArchiveFileSet> l = rawPaths.get(rawPath);
+			if( l == null ) {
+				l = new ArrayList<IArchiveFileSet>();
+				rawPaths.put(rawPath, l);
+			}
+			l.add(fs);
+		}
+		String base = raw == null ? null : PathUtils.getAbsoluteLocation(raw,
+				std.getProjectName(), std.isInWorkspace(), std.getDescriptorVersion());
+		if( base == null ) {
+			unindexed.add(fs);
+			return;
+		}
+		TrieNode n = std.isInWorkspace() ? workspaceRoot : globalRoot;
+		String[] segments = getKeySegments(new Path(base));
+		for( int i = 0; i < segments.length; i++ )
+			n = n.getChild(segments[i], true);
+		if( n.filesets == null )
+			n.filesets = new ArrayList<IArchiveFileSet>();
+		n.filesets.add(fs);
+	}
+}
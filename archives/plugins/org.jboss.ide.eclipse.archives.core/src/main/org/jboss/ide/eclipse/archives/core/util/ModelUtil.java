@@ -59,30 +59,49 @@ public class ModelUtil {
 
 	public static IArchiveFileSet[] getMatchingFilesets(IArchiveNode node, final IPath path, final boolean inWorkspace) {
 		final ArrayList<IArchiveFileSet> rets = new ArrayList<IArchiveFileSet>();
-		IArchiveNodeVisitor visitor = new IArchiveNodeVisitor() {
+		if( node == null || isInWorkspaceModel(node)) {
+			// Only ask the filesets whose base directory contains the path
+			IArchiveFileSet[] candidates = FilesetMatchIndex.getDefault().getCandidates(path, inWorkspace);
+			for( int i = 0; i < candidates.length; i++ ) {
+				if( (node == null || isDescendent(candidates[i], node))
+						&& filesetMatches(candidates[i], path, inWorkspace))
+					rets.add(candidates[i]);
+			}
+			return rets.toArray(new IArchiveFileSet[rets.size()]);
+		}
+
+		node.accept(new IArchiveNodeVisitor() {
 			public boolean visit(IArchiveNode node) {
-				if( node.getNodeType() == IArchiveNode.TYPE_ARCHIVE_FILESET ) {
-					boolean matches = false;
-					try {
-						matches = ((IArchiveFileSet)node).matchesPath(path, inWorkspace);
-					} catch(IllegalStateException ise) {
-						// The fileset is broken somehow, so do some raw checks. 
-						IArchiveStandardFileSet std = node instanceof IArchiveStandardFileSet ? (IArchiveStandardFileSet)node : null;
-						matches =  std != null && new Path(std.getRawSourcePath()).equals(path) && std.isInWorkspace() == inWorkspace;
-					}
-					if( matches ) 
-						rets.add((IArchiveFileSet)node);
-				}
+				if( node.getNodeType() == IArchiveNode.TYPE_ARCHIVE_FILESET
+						&& filesetMatches((IArchiveFileSet)node, path, inWorkspace))
+					rets.add((IArchiveFileSet)node);
 				return true;
 			}
-		};
+		});
+		return rets.toArray(new IArchiveFileSet[rets.size()]);
+	}
 
-		if( node == null )
-			ArchivesModel.instance().accept(visitor);
-		else
-			node.accept(visitor);
+	private static boolean filesetMatches(IArchiveFileSet fs, IPath path, boolean inWorkspace) {
+		try {
+			return fs.matchesPath(path, inWorkspace);
+		} catch(IllegalStateException ise) {
+			// The fileset is broken somehow, so do some raw checks. 
+			IArchiveStandardFileSet std = fs instanceof IArchiveStandardFileSet ? (IArchiveStandardFileSet)fs : null;
+			return std != null && new Path(std.getRawSourcePath()).equals(path) && std.isInWorkspace() == inWorkspace;
+		}
+	}
 
-		return rets.toArray(new IArchiveFileSet[rets.size()]);
+	private static boolean isInWorkspaceModel(IArchiveNode node) {
+		IArchiveModelRootNode root = node.getModelRootNode();
+		return root != null && root.getProjectPath() != null
+				&& ArchivesModel.instance().getRoot(root.getProjectPath()) == root;
+	}
+
+	private static boolean isDescendent(IArchiveNode child, IArchiveNode ancestor) {
+		for( IArchiveNode n = child; n != null; n = n.getParent())
+			if( n == ancestor )
+				return true;
+		return false;
 	}
 
 	/**
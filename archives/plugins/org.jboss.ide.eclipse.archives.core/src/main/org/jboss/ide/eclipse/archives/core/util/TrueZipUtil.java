@@ -10,7 +10,11 @@
  ******************************************************************************/
 package org.jboss.ide.eclipse.archives.core.util;
 
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.Checksum;
 
 import org.eclipse.core.runtime.IPath;
 import org.jboss.ide.eclipse.archives.core.ArchivesCorePlugin;
@@ -132,6 +136,41 @@ public class TrueZipUtil {
 		}
 	}
 
+	/**
+	 * Copy a single file, feeding its bytes to the given checksum on the way.
+	 * Like {@link #copyFile(String, de.schlichtherle.io.File, boolean)}, the
+	 * copy keeps the timestamp of the source.
+	 *
+	 * @param source the file to copy
+	 * @param file the destination
+	 * @param updateTimestamps whether to touch the archives enclosing the destination
+	 * @param checksum updated with every byte of the source
+	 * @return whether the file was copied
+	 */
+	public static boolean copyFile(java.io.File source, de.schlichtherle.io.File file, boolean updateTimestamps, Checksum checksum) {
+		ClassLoader bundleLoader = ArchivesCorePlugin.getDefault().getBundleClassLoader();
+		ClassLoader originalTCCL = Thread.currentThread().getContextClassLoader();
+		InputStream in = null;
+		try {
+			Thread.currentThread().setContextClassLoader(bundleLoader);
+			long lastModified = source.lastModified();
+			file.getParentFile().mkdirs();
+			in = new CheckedInputStream(new FileInputStream(source), checksum);
+			boolean b = file.copyFrom(in) && file.setLastModified(lastModified);
+			return  b && (updateTimestamps ? updateParentTimestamps(file) : true);
+		} catch(IOException ioe) {
+			return false;
+		} finally {
+			try {
+				if( in != null )
+					in.close();
+			} catch(IOException ioe) {
+				// ignore
+			}
+			Thread.currentThread().setContextClassLoader(originalTCCL);
+		}
+	}
+
 	public static boolean touchFile(IPath path) {
 		ClassLoader bundleLoader = ArchivesCorePlugin.getDefault().getBundleClassLoader();
 		ClassLoader originalTCCL = Thread.currentThread().getContextClassLoader();
@@ -293,6 +332,24 @@ public class TrueZipUtil {
 		}
 	}
 
+	/**
+	 * Sync one top level archive, and the archives nested inside it,
+	 * with the file system. Archives which other threads are still
+	 * writing are left open.
+	 * @param archive a top level archive
+	 * @throws ArchiveException if the archive could not be written
+	 */
+	public static void umount(de.schlichtherle.io.File archive) throws ArchiveException {
+		ClassLoader bundleLoader = ArchivesCorePlugin.getDefault().getBundleClassLoader();
+		ClassLoader originalTCCL = Thread.currentThread().getContextClassLoader();
+		try {
+			Thread.currentThread().setContextClassLoader(bundleLoader);
+			de.schlichtherle.io.File.umount(archive);
+		} finally {
+			Thread.currentThread().setContextClassLoader(originalTCCL);
+		}
+	}
+
 	/**
 	 * Sync's with file system after executing a runnable
 	 * @param run Runnable or null
@@ -0,0 +1,331 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.ide.eclipse.archives.core.util.internal;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import org.eclipse.core.runtime.IStatus;
+import org.jboss.ide.eclipse.archives.core.ArchivesCore;
+import org.jboss.ide.eclipse.archives.core.ArchivesCorePlugin;
+
+/**
+ * Remembers the size and checksum of every entry copied into a root
+ * archive, so a file whose bytes have not changed since it was last
+ * copied does not need to be copied again. If nothing is written,
+ * TrueZip does not need to rewrite the archive when it is synced.
+ *
+ * The manifest is kept in memory and stored in the plugin's state
+ * location once the archive has been synced, so nothing but the archive
+ * is written to the output folder. The stored manifest remembers the
+ * path, length and timestamp of the archive it describes, and is
+ * ignored if the archive has changed since.
+ *
+ * Entries are keyed by their path relative to the root archive.
+ */
+public class ArchiveEntryManifest {
+	private static final String FOLDER = "entries"; //$NON-NLS-1$
+	private static final String SUFFIX = ".entries"; //$NON-NLS-1$
+	private static final String ENCODING = "UTF-8"; //$NON-NLS-1$
+
+	private static final HashMap<File, ArchiveEntryManifest> manifests = new HashMap<File, ArchiveEntryManifest>();
+
+	/**
+	 * Get the manifest for the given root archive
+	 * @param archive the root archive's file, or folder if exploded
+	 * @return the manifest
+	 */
+	public static ArchiveEntryManifest getManifest(File archive) {
+		synchronized(manifests) {
+			ArchiveEntryManifest m = manifests.get(archive);
+			if( m == null ) {
+				m = new ArchiveEntryManifest(archive);
+				m.load();
+				manifests.put(archive, m);
+			}
+			return m;
+		}
+	}
+
+	/**
+	 * Forget everything known about the given root archive,
+	 * for example because it is about to be deleted.
+	 * @param archive the root archive's file, or folder if exploded
+	 */
+	public static void discard(File archive) {
+		synchronized(manifests) {
+			manifests.remove(archive);
+			getManifestFile(archive).delete();
+		}
+	}
+
+	/**
+	 * Store every manifest which changed. This must only be
+	 * called once the archives have been synced to disk.
+	 */
+	public static void saveAll() {
+		ArchiveEntryManifest[] all;
+		synchronized(manifests) {
+			all = manifests.values().toArray(new ArchiveEntryManifest[manifests.size()]);
+		}
+		for( int i = 0; i < all.length; i++ )
+			all[i].save();
+	}
+
+	/**
+	 * Store the manifest of the given root archive if it changed.
+	 * This must only be called once the archive has been synced to disk.
+	 * @param archive the root archive's file, or folder if exploded
+	 */
+	public static void save(File archive) {
+		ArchiveEntryManifest m;
+		synchronized(manifests) {
+			m = manifests.get(archive);
+		}
+		if( m != null )
+			m.save();
+	}
+
+	/*
+	 * Archives with the same name are told apart by a hash of their path,
+	 * and the path itself is stored in the file in case the hashes collide
+	 */
+	private static File getManifestFile(File archive) {
+		File folder = ArchivesCorePlugin.getDefault().getStateLocation().append(FOLDER).toFile();
+		String hash = Integer.toHexString(archive.getAbsolutePath().hashCode());
+		return new File(folder, archive.getName() + "-" + hash + SUFFIX); //$NON-NLS-1$
+	}
+
+	private static class Entry {
+		private long size;
+		private long lastModified;
+		private long checksum;
+	}
+
+	private File archive;
+	private HashMap<String, Entry> entries = new HashMap<String, Entry>();
+	private boolean dirty = false;
+	// the archive's stamp when the manifest was last loaded or saved
+	private String stamp;
+
+	private ArchiveEntryManifest(File archive) {
+		this.archive = archive;
+	}
+
+	/**
+	 * Forget all entries if the archive has been changed or
+	 * removed by someone else since the manifest was last stored.
+	 */
+	public synchronized void validate() {
+		if( !archive.exists()) {
+			if( !entries.isEmpty())
+				dirty = true;
+			entries.clear();
+			stamp = null;
+		} else if( !dirty && stamp != null && !stamp.equals(getStamp())) {
+			entries.clear();
+			stamp = null;
+		}
+	}
+
+	/**
+	 * Whether the source file has the same content as when it was last
+	 * recorded for the given entry. Only the size and timestamp are
+	 * compared when the timestamp has not changed. Otherwise the
+	 * file's checksum is computed and compared.
+	 *
+	 * @param entry the path of the entry inside the root archive
+	 * @param source the file to be copied
+	 * @return true if copying the source would not change the entry
+	 */
+	public synchronized boolean isUnchanged(String entry, File source) {
+		Entry e = entries.get(entry);
+		if( e == null || e.size != source.length())
+			return false;
+		if( archive.isDirectory() ) {
+			// an exploded archive can be changed without us noticing
+			File dest = new File(archive, entry);
+			if( !dest.isFile() || dest.length() != e.size )
+				return false;
+		}
+		long lastModified = source.lastModified();
+		if( e.lastModified == lastModified )
+			return true;
+		try {
+			if( checksum(source) != e.checksum )
+				return false;
+		} catch(IOException ioe) {
+			return false;
+		}
+		// same bytes, only touched
+		e.lastModified = lastModified;
+		dirty = true;
+		return true;
+	}
+
+	/**
+	 * Record that the source file has been copied to the given entry
+	 * @param entry the path of the entry inside the root archive
+	 * @param source the file which was copied
+	 */
+	public synchronized void update(String entry, File source) {
+		long size = source.length();
+		long lastModified = source.lastModified();
+		try {
+			update(entry, size, lastModified, checksum(source));
+		} catch(IOException ioe) {
+			entries.remove(entry);
+			dirty = true;
+		}
+	}
+
+	/**
+	 * Record that a file has been copied to the given entry, with the
+	 * checksum computed while it was copied
+	 * @param entry the path of the entry inside the root archive
+	 * @param size the length of the file which was copied
+	 * @param lastModified the timestamp of the file before it was copied
+	 * @param checksum the CRC-32 of the bytes which were copied
+	 */
+	public synchronized void update(String entry, long size, long lastModified, long checksum) {
+		Entry e = new Entry();
+		e.size = size;
+		e.lastModified = lastModified;
+		e.checksum = checksum;
+		entries.put(entry, e);
+		dirty = true;
+	}
+
+	/**
+	 * Forget the given entry, and every entry beneath it
+	 * @param entry the path of the entry inside the root archive
+	 */
+	public synchronized void remove(String entry) {
+		String prefix = entry + "/"; //$NON-NLS-1$
+		for( Iterator<String> i = entries.keySet().iterator(); i.hasNext(); ) {
+			String key = i.next();
+			if( key.equals(entry) || key.startsWith(prefix)) {
+				i.remove();
+				dirty = true;
+			}
+		}
+	}
+
+	private static long checksum(File f) throws IOException {
+		CRC32 crc = new CRC32();
+		byte[] buf = new byte[8192];
+		InputStream is = new FileInputStream(f);
+		try {
+			int read;
+			while( (read = is.read(buf)) != -1 )
+				crc.update(buf, 0, read);
+		} finally {
+			is.close();
+		}
+		return crc.getValue();
+	}
+
+	private String getStamp() {
+		if( archive.isDirectory())
+			return "dir"; //$NON-NLS-1$
+		return archive.length() + " " + archive.lastModified(); //$NON-NLS-1$
+	}
+
+	private synchronized void load() {
+		File f = getManifestFile(archive);
+		if( !f.isFile() || !archive.exists())
+			return;
+		BufferedReader r = null;
+		try {
+			r = new BufferedReader(new InputStreamReader(new FileInputStream(f), ENCODING));
+			if( !archive.getAbsolutePath().equals(r.readLine()))
+				return;
+			String current = getStamp();
+			if( !current.equals(r.readLine()))
+				return;
+			HashMap<String, Entry> read = new HashMap<String, Entry>();
+			String line;
+			while( (line = r.readLine()) != null ) {
+				// size lastModified checksum path
+				String[] parts = line.split(" ", 4); //$NON-NLS-1$
+				if( parts.length != 4 )
+					return;
+				Entry e = new Entry();
+				e.size = Long.parseLong(parts[0]);
+				e.lastModified = Long.parseLong(parts[1]);
+				e.checksum = Long.parseLong(parts[2]);
+				read.put(parts[3], e);
+			}
+			entries = read;
+			stamp = current;
+		} catch(IOException ioe) {
+			// start over with an empty manifest
+		} catch(NumberFormatException nfe) {
+			// start over with an empty manifest
+		} finally {
+			try {
+				if( r != null )
+					r.close();
+			} catch(IOException ioe) {
+				// ignore
+			}
+		}
+	}
+
+	private synchronized void save() {
+		if( !dirty )
+			return;
+		File f = getManifestFile(archive);
+		if( !archive.exists()) {
+			f.delete();
+			return;
+		}
+		BufferedWriter w = null;
+		try {
+			String current = getStamp();
+			f.getParentFile().mkdirs();
+			w = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(f), ENCODING));
+			w.write(archive.getAbsolutePath());
+			w.newLine();
+			w.write(current);
+			w.newLine();
+			for( Iterator<Map.Entry<String, Entry>> i = entries.entrySet().iterator(); i.hasNext(); ) {
+				Map.Entry<String, Entry> me = i.next();
+				Entry e = me.getValue();
+				w.write(e.size + " " + e.lastModified + " " + e.checksum + " " + me.getKey()); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+				w.newLine();
+			}
+			dirty = false;
+			stamp = current;
+		} catch(IOException ioe) {
+			ArchivesCore.log(IStatus.WARNING, ioe.getMessage(), ioe);
+			f.delete();
+		} finally {
+			try {
+				if( w != null )
+					w.close();
+			} catch(IOException ioe) {
+				// ignore
+			}
+		}
+	}
+}
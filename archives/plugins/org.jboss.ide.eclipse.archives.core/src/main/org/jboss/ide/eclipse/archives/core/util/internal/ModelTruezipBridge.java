@@ -12,6 +12,7 @@ package org.jboss.ide.eclipse.archives.core.util.internal;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.zip.CRC32;
 
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -22,6 +23,7 @@ import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.SubProgressMonitor;
 import org.jboss.ide.eclipse.archives.core.ArchivesCore;
 import org.jboss.ide.eclipse.archives.core.ArchivesCoreMessages;
+import org.jboss.ide.eclipse.archives.core.model.EventManager;
 import org.jboss.ide.eclipse.archives.core.model.IArchive;
 import org.jboss.ide.eclipse.archives.core.model.IArchiveFileSet;
 import org.jboss.ide.eclipse.archives.core.model.IArchiveStandardFileSet;
@@ -33,6 +35,7 @@ import org.jboss.ide.eclipse.archives.core.util.ModelUtil;
 import org.jboss.ide.eclipse.archives.core.util.PathUtils;
 import org.jboss.ide.eclipse.archives.core.util.TrueZipUtil;
 import de.schlichtherle.io.ArchiveDetector;
+import de.schlichtherle.io.ArchiveException;
 import de.schlichtherle.io.File;
 
 /**
@@ -62,7 +65,7 @@ public class ModelTruezipBridge {
 		FileWrapper[] files = fileset.findMatchingPaths();
 		IStatus[] s = copyFiles(fileset, files, monitor, false, false);
 		if( sync )
-			TrueZipUtil.sync();
+			sync();
 		return new FileWrapperStatusPair( files, s );
 	}
 
@@ -137,7 +140,7 @@ public class ModelTruezipBridge {
 		} );
 
 		if( sync )
-			TrueZipUtil.sync();
+			sync();
 		monitor.worked(250);
 		monitor.done();
 
@@ -152,17 +155,48 @@ public class ModelTruezipBridge {
 		boolean b = true;
 		ArrayList<IStatus> list = new ArrayList<IStatus>();
 		final File[] destFiles = getFiles(files, fileset);
-		for( int i = 0; i < files.length; i++ ) {
-			b = TrueZipUtil.copyFile(files[i].getAbsolutePath(), destFiles[i], updateTimestamps);
+		java.io.File root = getRootFile(fileset);
+		ArchiveEntryManifest manifest = root == null ? null : ArchiveEntryManifest.getManifest(root);
+		if( manifest != null )
+			manifest.validate();
+		int written = 0;
+		int skipped = 0;
+		for( int i = 0; i < files.length && !monitor.isCanceled(); i++ ) {
+			String entry = manifest == null ? null : getEntryName(root, destFiles[i]);
+			if( entry != null && manifest.isUnchanged(entry, files[i])) {
+				skipped++;
+				monitor.worked(100);
+				continue;
+			}
+			// the checksum is computed while copying, so the file is read only once
+			CRC32 crc = null;
+			long size = files[i].length();
+			long lastModified = files[i].lastModified();
+			if( entry != null && files[i].isFile()) {
+				crc = new CRC32();
+				b = TrueZipUtil.copyFile(files[i], destFiles[i], updateTimestamps, crc);
+			} else {
+				b = TrueZipUtil.copyFile(files[i].getAbsolutePath(), destFiles[i], updateTimestamps);
+			}
 			if( b == false ) {
 				list.add(new Status(IStatus.ERROR, ArchivesCore.PLUGIN_ID,
 						ArchivesCore.bind(ArchivesCoreMessages.FileCopyFailed,
 								files[i].getAbsolutePath(), destFiles[i].toString())));
+				if( entry != null )
+					manifest.remove(entry);
+			} else {
+				written++;
+				if( crc != null )
+					manifest.update(entry, size, lastModified, crc.getValue());
+				else if( entry != null )
+					manifest.remove(entry);
 			}
 			monitor.worked(100);
 		}
+		if( fileset != null )
+			EventManager.filesCopied(fileset.getRootArchive(), fileset, written, skipped);
 		if( sync )
-			TrueZipUtil.sync();
+			sync();
 		monitor.done();
 		return list.toArray(new IStatus[list.size()]);
 	}
@@ -174,8 +208,13 @@ public class ModelTruezipBridge {
 		monitor.beginTask(ArchivesCore.bind(ArchivesCoreMessages.DeletingCountFiles,
 				new Integer(files.length).toString()), files.length * 100);
 		final File[] destFiles = getFiles(files, fileset);
+		java.io.File root = getRootFile(fileset);
+		ArchiveEntryManifest manifest = root == null ? null : ArchiveEntryManifest.getManifest(root);
 		ArrayList<IStatus> list = new ArrayList<IStatus>();
-		for( int i = 0; i < files.length; i++ ) {
+		for( int i = 0; i < files.length && !monitor.isCanceled(); i++ ) {
+			String entry = manifest == null ? null : getEntryName(root, destFiles[i]);
+			if( entry != null )
+				manifest.remove(entry);
 			if( !TrueZipUtil.deleteAll(destFiles[i]) ) {
 				IStatus e = new Status(IStatus.ERROR, ArchivesCore.PLUGIN_ID,
 						ArchivesCore.bind(ArchivesCoreMessages.FileDeleteFailed, destFiles[i].toString()));
@@ -184,7 +223,7 @@ public class ModelTruezipBridge {
 			monitor.worked(100);
 		}
 		if( sync )
-			TrueZipUtil.sync();
+			sync();
 		monitor.done();
 		return list.toArray(new IStatus[list.size()]);
 	}
@@ -192,6 +231,7 @@ public class ModelTruezipBridge {
 
 	public static boolean deleteArchive(IArchive archive) {
 		final File file = getFile(archive);
+		discardManifest(archive);
 		boolean b = file.deleteAll();
 		TrueZipUtil.sync();
 		return b;
@@ -204,10 +244,104 @@ public class ModelTruezipBridge {
 	public static boolean cleanFolder(java.io.File folder, boolean sync) {
 		boolean b = TrueZipUtil.deleteEmptyChildren(folder);
 		if( sync )
-			TrueZipUtil.sync();
+			sync();
 		return b;
 	}
 
+	/**
+	 * Sync all archives to disk, then store the manifests of
+	 * the entries which were copied into them.
+	 */
+	public static void sync() {
+		TrueZipUtil.sync();
+		ArchiveEntryManifest.saveAll();
+	}
+
+	/**
+	 * Sync only the given root archive, and the archives nested
+	 * inside it, to disk, then store its manifest. Unlike {@link #sync()}
+	 * this leaves archives which are being built concurrently alone.
+	 * @param archive a root archive
+	 * @return the errors which occurred while writing the archives
+	 */
+	public static IStatus[] sync(IArchive archive) {
+		ArrayList<File> topLevel = new ArrayList<File>();
+		collectTopLevelArchives(archive, topLevel);
+		ArrayList<IStatus> errors = new ArrayList<IStatus>();
+		for( int i = 0; i < topLevel.size(); i++ ) {
+			File f = topLevel.get(i);
+			try {
+				TrueZipUtil.umount(f);
+			} catch(ArchiveException ae) {
+				errors.add(new Status(IStatus.ERROR, ArchivesCore.PLUGIN_ID,
+						ArchivesCore.bind(ArchivesCoreMessages.ErrorCreatingOutputFile,
+								f.getAbsolutePath(), archive.toString()), ae));
+			}
+		}
+		java.io.File root = getRootFile(archive);
+		if( root != null ) {
+			// the manifest may describe entries which were never written
+			if( errors.isEmpty())
+				ArchiveEntryManifest.save(root);
+			else
+				ArchiveEntryManifest.discard(root);
+		}
+		return errors.toArray(new IStatus[errors.size()]);
+	}
+
+	/*
+	 * The zipped archives at or beneath a node which are not
+	 * nested inside another zipped archive
+	 */
+	private static void collectTopLevelArchives(IArchiveNode node, ArrayList<File> files) {
+		if( node.getNodeType() == IArchiveNode.TYPE_ARCHIVE && !((IArchive)node).isExploded()) {
+			File f = getFile(node);
+			if( f != null && f.isArchive() && f.getEnclArchive() == null )
+				files.add(f);
+			return;
+		}
+		IArchiveNode[] children = node.getAllChildren();
+		for( int i = 0; i < children.length; i++ ) {
+			if( children[i].getNodeType() == IArchiveNode.TYPE_ARCHIVE
+					|| children[i].getNodeType() == IArchiveNode.TYPE_ARCHIVE_FOLDER )
+				collectTopLevelArchives(children[i], files);
+		}
+	}
+
+	/**
+	 * Forget which entries have been copied into an archive's
+	 * root archive. This must be called whenever it is deleted
+	 * without going through this class.
+	 * @param archive the archive
+	 */
+	public static void discardManifest(IArchive archive) {
+		java.io.File root = getRootFile(archive);
+		if( root != null )
+			ArchiveEntryManifest.discard(root);
+	}
+
+	/*
+	 * The root archive of a node as a plain file, 
+	 * which is never treated as a folder
+	 */
+	private static java.io.File getRootFile(IArchiveNode node) {
+		File f = node == null ? null : getFile(node.getRootArchive());
+		return f == null ? null : new java.io.File(f.getAbsolutePath());
+	}
+
+	/*
+	 * The path of a destination file relative to its root archive,
+	 * or null if it is not inside it
+	 */
+	private static String getEntryName(java.io.File root, File dest) {
+		String rootPath = root.getAbsolutePath();
+		String destPath = dest.getAbsolutePath();
+		if( destPath.length() <= rootPath.length() + 1 || !destPath.startsWith(rootPath)
+				|| destPath.charAt(rootPath.length()) != java.io.File.separatorChar )
+			return null;
+		return destPath.substring(rootPath.length() + 1).replace(java.io.File.separatorChar, '/');
+	}
+
 	/**
 	 * Creates the file, folder, or archive represented by the node.
 	 * Does nothing for filesets
@@ -10,11 +10,16 @@
  ******************************************************************************/
 package org.jboss.ide.eclipse.archives.jdt.integration;
 
+import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.IElementChangedListener;
+import org.eclipse.jdt.core.IJavaElementDelta;
+import org.eclipse.jdt.core.JavaCore;
 import org.eclipse.jdt.ui.JavaUI;
 import org.eclipse.jface.viewers.ILabelProvider;
 import org.eclipse.jface.viewers.LabelProvider;
 import org.eclipse.swt.graphics.Image;
 import org.eclipse.ui.plugin.AbstractUIPlugin;
+import org.jboss.ide.eclipse.archives.core.util.FilesetMatchIndex;
 import org.jboss.ide.eclipse.archives.jdt.integration.model.IArchiveLibFileSet;
 import org.jboss.ide.eclipse.archives.ui.ExtensionManager;
 import org.osgi.framework.BundleContext;
@@ -44,8 +49,26 @@ public class ArchiveJDTIntegrationPlugin extends AbstractUIPlugin {
 		super.start(context);
 		plugin = this;
 		addProvider();
+		JavaCore.addElementChangedListener(classpathListener, ElementChangedEvent.POST_CHANGE);
 	}
 
+	/*
+	 * Classpath variables and containers may move what a fileset resolves to,
+	 * so the fileset index is cleared when a resolved classpath changes
+	 */
+	private IElementChangedListener classpathListener = new IElementChangedListener() {
+		public void elementChanged(ElementChangedEvent event) {
+			IJavaElementDelta[] projects = event.getDelta().getAffectedChildren();
+			for( int i = 0; i < projects.length; i++ ) {
+				if( (projects[i].getFlags() & (IJavaElementDelta.F_CLASSPATH_CHANGED
+						| IJavaElementDelta.F_RESOLVED_CLASSPATH_CHANGED)) != 0 ) {
+					FilesetMatchIndex.getDefault().clear();
+					return;
+				}
+			}
+		}
+	};
+
 	private ILabelProvider labelProvider;
 	protected void addProvider() {
 		labelProvider = 
@@ -69,6 +92,7 @@ public class ArchiveJDTIntegrationPlugin extends AbstractUIPlugin {
 	 * @see org.eclipse.ui.plugin.AbstractUIPlugin#stop(org.osgi.framework.BundleContext)
 	 */
 	public void stop(BundleContext context) throws Exception {
+		JavaCore.removeElementChangedListener(classpathListener);
 		ExtensionManager.removeLabelProvider(labelProvider);
 		plugin = null;
 		super.stop(context);
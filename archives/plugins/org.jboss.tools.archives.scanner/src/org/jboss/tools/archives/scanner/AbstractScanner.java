@@ -19,7 +19,7 @@ package org.jboss.tools.archives.scanner;
 
 import java.io.File;
 
-import org.jboss.tools.archives.scanner.internal.MatchPatterns;
+import org.jboss.tools.archives.scanner.internal.CompiledMatchPatterns;
 import org.jboss.tools.archives.scanner.internal.SelectorUtils;
 
 /**
@@ -103,14 +103,14 @@ public abstract class AbstractScanner<T> implements Scanner <T> {
      */
     protected String[] includes;
 
-    private MatchPatterns includesPatterns;
+    private CompiledMatchPatterns includesPatterns;
 
     /**
      * The patterns for the files to be excluded.
      */
     protected String[] excludes;
 
-    private MatchPatterns excludesPatterns;
+    private CompiledMatchPatterns excludesPatterns;
 
     /**
      * Whether or not the file system should be treated as a case sensitive
@@ -331,7 +331,7 @@ public abstract class AbstractScanner<T> implements Scanner <T> {
 
     protected void setupMatchPatterns()
     {
-        includesPatterns = MatchPatterns.from( includes );
-        excludesPatterns = MatchPatterns.from( excludes );
+        includesPatterns = CompiledMatchPatterns.from( includes );
+        excludesPatterns = CompiledMatchPatterns.from( excludes );
     }
 }
@@ -55,9 +55,16 @@
 package org.jboss.tools.archives.scanner;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Vector;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.jboss.tools.archives.scanner.internal.MatchPattern;
 
@@ -250,6 +257,17 @@ public class VirtualDirectoryScanner<T extends ITreeNode> extends AbstractScanne
      */
     protected boolean everythingIncluded = true;
 
+    /**
+     * Whether or not a fast scan may list subdirectories
+     * on the threads of {@link #getScanExecutor()}.
+     */
+    protected boolean parallelScan = false;
+
+    /**
+     * The threads shared by all parallel scans, created when first needed.
+     */
+    private static ExecutorService scanExecutor;
+
     private final String[] tokenizedEmpty = MatchPattern.tokenizePathToString( "", File.separator ); //$NON-NLS-1$
     
     protected IDirectoryScannerIterator<T> iterator = null;
@@ -344,6 +362,31 @@ public class VirtualDirectoryScanner<T extends ITreeNode> extends AbstractScanne
         return basedir;
     }
 
+    /**
+     * Sets whether or not {@link #scan()} should list subdirectories
+     * in parallel. Results are merged in the order a sequential scan
+     * would produce them, and {@link #processIncluded(String, ITreeNode, Vector, Vector, Vector)}
+     * with its selectors and callbacks is still only called on the thread
+     * which called {@link #scan()}. Callers enabling this must make
+     * {@link #listChildren(ITreeNode)}, {@link #getName(ITreeNode)} and
+     * {@link #isDirectory(ITreeNode)} safe to call concurrently.
+     * A runtime exception thrown by any of them, for example to cancel
+     * the scan, is rethrown by {@link #scan()} once all threads are done.
+     * <p/>
+     * Disabled by default. Iterating scans and slow scans are always sequential.
+     *
+     * @param parallelScan whether or not to scan in parallel
+     */
+    public void setParallelScan( boolean parallelScan )
+    {
+        this.parallelScan = parallelScan;
+    }
+
+    public boolean isParallelScan()
+    {
+        return parallelScan;
+    }
+
     /**
      * Returns whether or not the scanner has included all the files or
      * directories it has come across so far.
@@ -366,7 +409,11 @@ public class VirtualDirectoryScanner<T extends ITreeNode> extends AbstractScanne
      */
     public void scan() throws IllegalStateException {
     	scanPrepare();
-        scandirWrap( basedir, "", true );//$NON-NLS-1$
+    	if ( parallelScan && iterator == null ) {
+    		scanParallel();
+    	} else {
+    		scandirWrap( basedir, "", true );//$NON-NLS-1$
+    	}
     }
 
     /*
@@ -465,6 +512,47 @@ public class VirtualDirectoryScanner<T extends ITreeNode> extends AbstractScanne
      * @see #slowScan
      */
     protected void scandir( ITreeNode dir, String vpath, boolean fast ) {
+        ITreeNode[] newfiles = listScannableChildren( dir, vpath );
+
+        // Run scanner on files to track (excluding symlinks if we are ignoring symlinks)
+        for ( ITreeNode newfile : newfiles ) {
+            String name = vpath + getName(newfile);
+            String[] tokenizedName =  MatchPattern.tokenizePathToString( name, File.separator );
+            ITreeNode file = newfile;
+            if ( isDirectory(file) ) {
+                if ( isIncluded( name, tokenizedName ) ) {
+                	accountForIncludedDir(name, (T)file, fast);
+                } else {
+                    everythingIncluded = false;
+                    dirsNotIncluded.addElement( name );
+                    if ( fast && couldHoldIncluded( name ) ) {
+                        scandirWrap( (T)file, name + File.separator, fast );
+                    }
+                }
+                
+                if ( !fast ) {
+                    scandirWrap( (T)file, name + File.separator, fast );
+                }
+                
+            } else { // assumed to be a file   
+                if ( isIncluded( name, tokenizedName ) ) {
+                    accountForIncludedFile(name, (T)file);
+                } else {
+                    everythingIncluded = false;
+                    filesNotIncluded.addElement( name );
+                }
+            }
+        }
+    }
+
+    /**
+     * List the children of a directory which are to be scanned.
+     *
+     * @param dir   The directory to list
+     * @param vpath The path of the directory relative to the base directory
+     * @return the children, never <code>null</code>
+     */
+    private ITreeNode[] listScannableChildren( ITreeNode dir, String vpath ) {
     	 // LINE MODIFIED FOR JBOSS TOOLS;  was  dir.list();
     	ITreeNode[] newfiles = listChildren(dir);
         
@@ -496,33 +584,205 @@ public class VirtualDirectoryScanner<T extends ITreeNode> extends AbstractScanne
         }
 
         trimInapplicableEntries(newfiles, dir, vpath);
+        return newfiles;
+    }
 
-        // Run scanner on files to track (excluding symlinks if we are ignoring symlinks)
-        for ( ITreeNode newfile : newfiles ) {
-            String name = vpath + getName(newfile);
-            String[] tokenizedName =  MatchPattern.tokenizePathToString( name, File.separator );
-            ITreeNode file = newfile;
-            if ( isDirectory(file) ) {
-                if ( isIncluded( name, tokenizedName ) ) {
-                	accountForIncludedDir(name, (T)file, fast);
-                } else {
-                    everythingIncluded = false;
-                    dirsNotIncluded.addElement( name );
-                    if ( fast && couldHoldIncluded( name ) ) {
-                        scandirWrap( (T)file, name + File.separator, fast );
+    /**
+     * A fast scan of the base directory, with each subdirectory
+     * listed by a task of its own on {@link #getScanExecutor()}.
+     */
+    protected void scanParallel() {
+        ParallelScan scan = new ParallelScan( getScanExecutor() );
+        ScanTask root = new ScanTask( scan, basedir, "" );//$NON-NLS-1$
+        scan.submit( root );
+        scan.await();
+        merge( root );
+    }
+
+    /**
+     * Get the executor which runs the tasks of parallel scans.
+     * Tasks never wait for each other, so any number of scans
+     * may share an executor with a fixed number of threads.
+     *
+     * @return an executor with a thread per processor, shared by all scanners
+     */
+    protected Executor getScanExecutor() {
+        synchronized ( VirtualDirectoryScanner.class ) {
+            if ( scanExecutor == null ) {
+                final AtomicInteger count = new AtomicInteger();
+                scanExecutor = Executors.newFixedThreadPool( Runtime.getRuntime().availableProcessors(),
+                        new ThreadFactory() {
+                    public Thread newThread( Runnable r ) {
+                        Thread t = new Thread( r, "Directory Scanner " + count.incrementAndGet() ); //$NON-NLS-1$
+                        t.setDaemon( true );
+                        return t;
                     }
+                });
+            }
+            return scanExecutor;
+        }
+    }
+
+    /**
+     * Stop the threads shared by all parallel scans. They are
+     * created again by the next parallel scan.
+     */
+    public static void shutdownScanExecutor() {
+        synchronized ( VirtualDirectoryScanner.class ) {
+            if ( scanExecutor != null ) {
+                scanExecutor.shutdown();
+                scanExecutor = null;
+            }
+        }
+    }
+
+    /*
+     * Add the results of a parallel scan to the result vectors, 
+     * depth first, which is the order a sequential scan adds them in.
+     */
+    private void merge( ScanTask task ) {
+        for ( Object o : task.entries ) {
+            if ( o instanceof VirtualDirectoryScanner.ScanTask ) {
+                merge( (ScanTask)o );
+                continue;
+            }
+            ScanEntry e = (ScanEntry)o;
+            if ( !e.included ) {
+                everythingIncluded = false;
+                ( e.directory ? dirsNotIncluded : filesNotIncluded ).addElement( e.name );
+            } else if ( e.directory ) {
+                processIncluded( e.name, e.file, dirsIncluded, dirsExcluded, dirsDeselected );
+            } else {
+                processIncluded( e.name, e.file, filesIncluded, filesExcluded, filesDeselected );
+            }
+        }
+    }
+
+    /**
+     * A name found by a parallel scan, and whether it matched the includes
+     */
+    private class ScanEntry {
+        private final String name;
+        private final T file;
+        private final boolean directory;
+        private final boolean included;
+
+        private ScanEntry( String name, T file, boolean directory, boolean included ) {
+            this.name = name;
+            this.file = file;
+            this.directory = directory;
+            this.included = included;
+        }
+    }
+
+    /**
+     * The tasks of one parallel scan still to run, and the first failure
+     */
+    private static class ParallelScan {
+        private final Executor executor;
+        private int pending = 0;
+        private RuntimeException failure;
+        private Error error;
+
+        private ParallelScan( Executor executor ) {
+            this.executor = executor;
+        }
+
+        private synchronized void submit( Runnable task ) {
+            pending++;
+            try {
+                executor.execute( task );
+            } catch ( RuntimeException re ) {
+                pending--;
+                throw re;
+            }
+        }
+
+        private synchronized boolean isFailed() {
+            return failure != null || error != null;
+        }
+
+        private synchronized void done( Throwable t ) {
+            if ( t != null && !isFailed() ) {
+                if ( t instanceof Error )
+                    error = (Error)t;
+                else
+                    failure = (RuntimeException)t;
+            }
+            if ( --pending == 0 ) {
+                notifyAll();
+            }
+        }
+
+        /*
+         * Wait for all tasks, including ones skipped after a failure,
+         * so that none still runs once the scan has returned.
+         */
+        private synchronized void await() {
+            boolean interrupted = false;
+            while ( pending > 0 ) {
+                try {
+                    wait();
+                } catch ( InterruptedException ie ) {
+                    interrupted = true;
                 }
-                
-                if ( !fast ) {
-                    scandirWrap( (T)file, name + File.separator, fast );
+            }
+            if ( interrupted ) {
+                Thread.currentThread().interrupt();
+            }
+            if ( error != null )
+                throw error;
+            if ( failure != null )
+                throw failure;
+        }
+    }
+
+    /**
+     * Lists one directory of a parallel scan. Its findings, and the tasks
+     * for its subdirectories, are buffered in order rather than added to
+     * the shared result vectors, so tasks never contend with each other
+     * and never wait for each other.
+     */
+    private class ScanTask implements Runnable {
+        private final ParallelScan scan;
+        private final T dir;
+        private final String vpath;
+        private final List<Object> entries = new ArrayList<Object>();
+
+        private ScanTask( ParallelScan scan, T dir, String vpath ) {
+            this.scan = scan;
+            this.dir = dir;
+            this.vpath = vpath;
+        }
+
+        public void run() {
+            Throwable failure = null;
+            try {
+                if ( !scan.isFailed() ) {
+                    scan();
                 }
-                
-            } else { // assumed to be a file   
-                if ( isIncluded( name, tokenizedName ) ) {
-                    accountForIncludedFile(name, (T)file);
-                } else {
-                    everythingIncluded = false;
-                    filesNotIncluded.addElement( name );
+            } catch ( RuntimeException re ) {
+                failure = re;
+            } catch ( Error e ) {
+                failure = e;
+            } finally {
+                scan.done( failure );
+            }
+        }
+
+        private void scan() {
+            ITreeNode[] newfiles = listScannableChildren( dir, vpath );
+            for ( ITreeNode newfile : newfiles ) {
+                String name = vpath + getName(newfile);
+                String[] tokenizedName = MatchPattern.tokenizePathToString( name, File.separator );
+                T file = (T)newfile;
+                boolean directory = isDirectory( file );
+                entries.add( new ScanEntry( name, file, directory, isIncluded( name, tokenizedName ) ) );
+                // prune subtrees which cannot hold anything before listing them
+                if ( directory && couldHoldIncluded( name ) ) {
+                    ScanTask sub = new ScanTask( scan, file, name + File.separator );
+                    entries.add( sub );
+                    scan.submit( sub );
                 }
             }
         }
@@ -0,0 +1,310 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.archives.scanner.internal;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * A drop-in replacement for {@link MatchPatterns} which compiles
+ * all of its ant style patterns into one automaton over path segments.
+ * <p/>
+ * Each state of the automaton is the set of positions (pattern, segment)
+ * which are still alive after the segments seen so far. A '**' segment
+ * loops on its own position, and every other segment moves to the next
+ * position when the path segment matches it. States are created lazily
+ * and the transitions out of each state are cached per segment name, so
+ * the siblings of a directory share the work done for its prefix, and
+ * matching a path is a single pass over its segments regardless of the
+ * number of patterns.
+ * <p/>
+ * The state reached for the most recently seen parent directory is also
+ * kept per thread, so the children of the directory a thread is scanning
+ * only have to step through their last segment, even while other threads
+ * of a parallel scan match the children of other directories.
+ * <p/>
+ * %regex[] patterns cannot be expressed this way and are still
+ * matched one at a time. {@link #matchesPatternStart(String, boolean)}
+ * is delegated to the original patterns, as it is only asked once
+ * per directory.
+ * <p/>
+ * Instances are safe for use by several threads.
+ */
+public class CompiledMatchPatterns
+{
+    /**
+     * The maximum number of cached transitions per state. Beyond
+     * this, transitions are still computed but no longer remembered,
+     * so scanning a huge flat directory does not grow the cache without bound.
+     */
+    private static final int MAX_CACHED_TRANSITIONS = 4096;
+
+    private final MatchPatterns original;
+
+    private final Pattern[] regexPatterns;
+
+    // flattened segments of all ant patterns. Each pattern occupies
+    // its segments followed by one accepting position with a null segment.
+    private final char[][] segments;
+
+    private final boolean[] doubleStar;
+
+    private final Automaton caseSensitive;
+
+    private final Automaton caseInsensitive;
+
+    private CompiledMatchPatterns( String[] sources )
+    {
+        original = MatchPatterns.from( sources );
+        List<Pattern> regex = new ArrayList<Pattern>();
+        List<char[]> segs = new ArrayList<char[]>();
+        for ( String source : sources )
+        {
+            MatchPattern pattern = MatchPattern.fromString( source );
+            if ( pattern.getRegexPattern() != null )
+            {
+                regex.add( Pattern.compile( pattern.getRegexPattern() ) );
+                continue;
+            }
+            char[][] tokens = pattern.getTokenizedPathChars();
+            for ( char[] token : tokens )
+            {
+                segs.add( token );
+            }
+            segs.add( null );
+        }
+        regexPatterns = regex.toArray( new Pattern[regex.size()] );
+        segments = segs.toArray( new char[segs.size()][] );
+        doubleStar = new boolean[segments.length];
+        for ( int i = 0; i < segments.length; i++ )
+        {
+            char[] s = segments[i];
+            doubleStar[i] = s != null && s.length == 2 && s[0] == '*' && s[1] == '*';
+        }
+        caseSensitive = new Automaton( true );
+        caseInsensitive = new Automaton( false );
+    }
+
+    /**
+     * Checks these patterns against a specified string.
+     *
+     * @param name            The name to look for
+     * @param isCaseSensitive If the comparison is case sensitive
+     * @return true if any of the supplied patterns match
+     */
+    public boolean matches( String name, boolean isCaseSensitive )
+    {
+        String[] tokenized = MatchPattern.tokenizePathToString( name, File.separator );
+        return matches( name, tokenized, isCaseSensitive );
+    }
+
+    public boolean matches( String name, String[] tokenizedName, boolean isCaseSensitive )
+    {
+        if ( segments.length > 0 )
+        {
+            Automaton a = isCaseSensitive ? caseSensitive : caseInsensitive;
+            if ( a.matches( name, tokenizedName ) )
+            {
+                return true;
+            }
+        }
+        for ( Pattern regex : regexPatterns )
+        {
+            if ( regex.matcher( name ).matches() )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean matchesPatternStart( String name, boolean isCaseSensitive )
+    {
+        return original.matchesPatternStart( name, isCaseSensitive );
+    }
+
+    public static CompiledMatchPatterns from( String... sources )
+    {
+        return new CompiledMatchPatterns( sources );
+    }
+
+    /**
+     * A set of live positions, and its cached transitions
+     */
+    private static final class State
+    {
+        private final BitSet positions;
+
+        private final boolean accepting;
+
+        private final ConcurrentHashMap<String, State> transitions = new ConcurrentHashMap<String, State>();
+
+        private State( BitSet positions, boolean accepting )
+        {
+            this.positions = positions;
+            this.accepting = accepting;
+        }
+
+        private boolean isDead()
+        {
+            return positions.isEmpty();
+        }
+    }
+
+    /**
+     * The state reached for a directory prefix of a scanned name
+     */
+    private static final class PrefixState
+    {
+        private final String prefix;
+
+        private final int segmentCount;
+
+        private final State state;
+
+        private PrefixState( String prefix, int segmentCount, State state )
+        {
+            this.prefix = prefix;
+            this.segmentCount = segmentCount;
+            this.state = state;
+        }
+    }
+
+    private final class Automaton
+    {
+        private final boolean isCaseSensitive;
+
+        private final HashMap<BitSet, State> states = new HashMap<BitSet, State>();
+
+        private final State start;
+
+        private final ThreadLocal<PrefixState> lastPrefix = new ThreadLocal<PrefixState>();
+
+        private Automaton( boolean isCaseSensitive )
+        {
+            this.isCaseSensitive = isCaseSensitive;
+            BitSet initial = new BitSet( segments.length );
+            for ( int i = 0; i < segments.length; i++ )
+            {
+                // the first segment of each pattern
+                if ( i == 0 || segments[i - 1] == null )
+                {
+                    initial.set( i );
+                }
+            }
+            start = intern( initial );
+        }
+
+        private boolean matches( String name, String[] tokenizedName )
+        {
+            State state = start;
+            int from = 0;
+            PrefixState last = lastPrefix.get();
+            if ( last != null && isInPrefix( name, last.prefix ) )
+            {
+                state = last.state;
+                from = last.segmentCount;
+            }
+            int parentSegments = tokenizedName.length - 1;
+            for ( int i = from; i < tokenizedName.length && !state.isDead(); i++ )
+            {
+                if ( i == parentSegments && i > from )
+                {
+                    rememberParent( name, i, state );
+                }
+                state = step( state, tokenizedName[i] );
+            }
+            return state.accepting;
+        }
+
+        private boolean isInPrefix( String name, String prefix )
+        {
+            int len = prefix.length();
+            return name.length() > len && name.charAt( len ) == File.separatorChar
+                && name.startsWith( prefix );
+        }
+
+        private void rememberParent( String name, int segmentCount, State state )
+        {
+            int sep = name.lastIndexOf( File.separatorChar );
+            if ( sep <= 0 || sep == name.length() - 1 )
+            {
+                return;
+            }
+            lastPrefix.set( new PrefixState( name.substring( 0, sep ), segmentCount, state ) );
+        }
+
+        private State step( State state, String segment )
+        {
+            State next = state.transitions.get( segment );
+            if ( next != null )
+            {
+                return next;
+            }
+            char[] chars = segment.toCharArray();
+            BitSet positions = new BitSet( segments.length );
+            BitSet current = state.positions;
+            for ( int i = current.nextSetBit( 0 ); i >= 0; i = current.nextSetBit( i + 1 ) )
+            {
+                if ( segments[i] == null )
+                {
+                    continue;
+                }
+                if ( doubleStar[i] )
+                {
+                    positions.set( i );
+                }
+                else if ( SelectorUtils.match( segments[i], chars, isCaseSensitive ) )
+                {
+                    positions.set( i + 1 );
+                }
+            }
+            next = intern( positions );
+            if ( state.transitions.size() < MAX_CACHED_TRANSITIONS )
+            {
+                state.transitions.put( segment, next );
+            }
+            return next;
+        }
+
+        private State intern( BitSet positions )
+        {
+            // a '**' may also match no segment at all
+            for ( int i = positions.nextSetBit( 0 ); i >= 0; i = positions.nextSetBit( i + 1 ) )
+            {
+                if ( doubleStar[i] )
+                {
+                    positions.set( i + 1 );
+                }
+            }
+            synchronized ( states )
+            {
+                State s = states.get( positions );
+                if ( s == null )
+                {
+                    boolean accepting = false;
+                    for ( int i = positions.nextSetBit( 0 ); i >= 0 && !accepting; i = positions.nextSetBit( i + 1 ) )
+                    {
+                        accepting = segments[i] == null;
+                    }
+                    s = new State( positions, accepting );
+                    states.put( positions, s );
+                }
+                return s;
+            }
+        }
+    }
+}
@@ -87,6 +87,11 @@ public class MatchPattern
         }
     }
 
+    String getRegexPattern()
+    {
+        return regexPattern;
+    }
+
     public String[] getTokenizedPathString()
     {
         return tokenized;
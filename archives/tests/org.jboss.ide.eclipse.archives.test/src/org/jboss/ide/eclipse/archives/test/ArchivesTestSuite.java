@@ -13,14 +13,19 @@ package org.jboss.ide.eclipse.archives.test;
 import junit.framework.Test;
 import junit.framework.TestSuite;
 
+import org.jboss.ide.eclipse.archives.test.model.ArchiveBuildSchedulerTest;
+import org.jboss.ide.eclipse.archives.test.model.CompiledMatchPatternsTest;
 import org.jboss.ide.eclipse.archives.test.model.DirectoryScannerModelTest;
 import org.jboss.ide.eclipse.archives.test.model.DirectoryScannerRegexTest;
 import org.jboss.ide.eclipse.archives.test.model.DirectoryScannerTest;
+import org.jboss.ide.eclipse.archives.test.model.FilesetMatchIndexTest;
 import org.jboss.ide.eclipse.archives.test.model.FilesetMatchesPathTest;
 import org.jboss.ide.eclipse.archives.test.model.ModelCreationTest;
 import org.jboss.ide.eclipse.archives.test.model.ModelTruezipBridgeTest;
 import org.jboss.ide.eclipse.archives.test.model.ModelUtilTest;
+import org.jboss.ide.eclipse.archives.test.model.ParallelDirectoryScannerTest;
 import org.jboss.ide.eclipse.archives.test.model.ReadWriteTest;
+import org.jboss.ide.eclipse.archives.test.model.StreamingArchiveBuilderTest;
 import org.jboss.ide.eclipse.archives.test.model.XBMarshallTest;
 import org.jboss.ide.eclipse.archives.test.model.XBUnmarshallTest;
 import org.jboss.ide.eclipse.archives.test.projects.InnerZipResourceTimestampTest;
@@ -31,6 +36,7 @@ import org.jboss.ide.eclipse.archives.test.projects.JBIDE2311Test;
 import org.jboss.ide.eclipse.archives.test.projects.JBIDE2315Test;
 import org.jboss.ide.eclipse.archives.test.projects.JBIDE2439Test;
 import org.jboss.ide.eclipse.archives.test.ui.BuildActionTest;
+import org.jboss.ide.eclipse.archives.test.util.ArchiveEntryManifestTest;
 import org.jboss.ide.eclipse.archives.test.util.TruezipUtilTest;
 
 public class ArchivesTestSuite extends TestSuite {
@@ -40,13 +46,19 @@ public class ArchivesTestSuite extends TestSuite {
         suite.addTestSuite(XBUnmarshallTest.class);
         suite.addTestSuite(ReadWriteTest.class);
         suite.addTestSuite(TruezipUtilTest.class);
+        suite.addTestSuite(ArchiveEntryManifestTest.class);
         suite.addTestSuite(ModelUtilTest.class);
         suite.addTestSuite(DirectoryScannerRegexTest.class);
         suite.addTestSuite(DirectoryScannerModelTest.class);
         suite.addTestSuite(DirectoryScannerTest.class);
+        suite.addTestSuite(ParallelDirectoryScannerTest.class);
+        suite.addTestSuite(CompiledMatchPatternsTest.class);
         suite.addTestSuite(ModelCreationTest.class);
         suite.addTestSuite(ModelTruezipBridgeTest.class);
         suite.addTestSuite(FilesetMatchesPathTest.class);
+        suite.addTestSuite(FilesetMatchIndexTest.class);
+        suite.addTestSuite(StreamingArchiveBuilderTest.class);
+        suite.addTestSuite(ArchiveBuildSchedulerTest.class);
         
         // jiras
         suite.addTestSuite(JBIDE1406Test.class);
@@ -0,0 +1,171 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.ide.eclipse.archives.test.model;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Path;
+import org.jboss.ide.eclipse.archives.core.build.ArchiveBuildDelegate;
+import org.jboss.ide.eclipse.archives.core.build.ArchiveBuildScheduler;
+import org.jboss.ide.eclipse.archives.core.model.AbstractBuildListener;
+import org.jboss.ide.eclipse.archives.core.model.ArchivesModel;
+import org.jboss.ide.eclipse.archives.core.model.IArchive;
+import org.jboss.ide.eclipse.archives.core.model.IArchiveStandardFileSet;
+import org.jboss.ide.eclipse.archives.core.model.internal.ArchiveModelNode;
+import org.jboss.ide.eclipse.archives.core.model.internal.xb.XbPackages;
+import org.jboss.ide.eclipse.archives.test.util.FileIOUtil;
+
+/**
+ * Builds independent archives concurrently and verifies that each
+ * is complete, that the build listeners are still only called
+ * by the thread which requested the build, and that canceling
+ * the build stops the archives being built.
+ */
+public class ArchiveBuildSchedulerTest extends ModelTest {
+	private static final int ARCHIVES = 4;
+	private static final int FILES = 200;
+
+	private File tmp;
+	private ArchiveModelNode modelNode;
+	private IArchive[] archives;
+
+	protected void setUp() throws Exception {
+		tmp = File.createTempFile("archiveBuildScheduler", null);
+		tmp.delete();
+		tmp.mkdirs();
+		IPath root = new Path(tmp.getAbsolutePath());
+		for( int i = 0; i < FILES; i++ )
+			write(new File(tmp, "src/pkg" + (i % 10) + "/File" + i + ".txt"), 4096 + i);
+
+		modelNode = new ArchiveModelNode(root.append("project"), new XbPackages(), ArchivesModel.instance());
+		archives = new IArchive[ARCHIVES];
+		for( int i = 0; i < ARCHIVES; i++ ) {
+			archives[i] = createArchive("archive" + i + ".jar", root.append("out").toString());
+			archives[i].setInWorkspace(false);
+			IArchiveStandardFileSet fs = createFileSet("**/*.txt", root.append("src").toString());
+			fs.setInWorkspace(false);
+			archives[i].addChild(fs);
+			modelNode.addChild(archives[i]);
+		}
+		ArchivesModel.instance().registerProject(modelNode, new NullProgressMonitor());
+	}
+
+	protected void tearDown() throws Exception {
+		ArchivesModel.instance().unregisterProject(modelNode, new NullProgressMonitor());
+		FileIOUtil.clearFolder(tmp.listFiles());
+		tmp.delete();
+	}
+
+	public void testConcurrentArchivesAreComplete() throws IOException {
+		// build more than once, so archives are replaced while others are written
+		for( int run = 0; run < 3; run++ ) {
+			IStatus[] errors = new ArchiveBuildScheduler(new ArchiveBuildDelegate(), ARCHIVES)
+					.build(archives, new NullProgressMonitor());
+			assertEquals(0, errors.length);
+			for( int i = 0; i < ARCHIVES; i++ )
+				assertEquals(expectedEntries(), readEntries(archives[i].getArchiveFilePath().toFile()));
+		}
+	}
+
+	public void testListenersCalledOnBuildingThread() {
+		final ArrayList<Thread> threads = new ArrayList<Thread>();
+		final ArrayList<IArchive> finished = new ArrayList<IArchive>();
+		AbstractBuildListener listener = new AbstractBuildListener() {
+			public void startedBuildingArchive(IArchive pkg) {
+				threads.add(Thread.currentThread());
+			}
+			public void finishedBuildingArchive(IArchive pkg) {
+				threads.add(Thread.currentThread());
+				finished.add(pkg);
+			}
+		};
+		ArchivesModel.instance().addBuildListener(listener);
+		try {
+			IStatus[] errors = new ArchiveBuildScheduler(new ArchiveBuildDelegate(), ARCHIVES)
+					.build(archives, new NullProgressMonitor());
+			assertEquals(0, errors.length);
+		} finally {
+			ArchivesModel.instance().removeBuildListener(listener);
+		}
+		assertEquals(ARCHIVES, finished.size());
+		assertEquals(ARCHIVES * 2, threads.size());
+		for( int i = 0; i < threads.size(); i++ )
+			assertSame(Thread.currentThread(), threads.get(i));
+	}
+
+	public void testCancelStopsArchivesBeingBuilt() throws IOException {
+		// canceled while the workers are copying files
+		final AtomicInteger checks = new AtomicInteger();
+		IProgressMonitor monitor = new NullProgressMonitor() {
+			public boolean isCanceled() {
+				return checks.incrementAndGet() > 20;
+			}
+		};
+		IStatus[] errors = new ArchiveBuildScheduler(new ArchiveBuildDelegate(), ARCHIVES)
+				.build(archives, monitor);
+		boolean canceled = false;
+		for( int i = 0; i < errors.length; i++ )
+			canceled |= errors[i].getSeverity() == IStatus.CANCEL;
+		assertTrue(canceled);
+		for( int i = 0; i < ARCHIVES; i++ ) {
+			File f = archives[i].getArchiveFilePath().toFile();
+			assertTrue(!f.exists() || readEntries(f).size() < FILES);
+		}
+	}
+
+	private static TreeSet<String> expectedEntries() {
+		TreeSet<String> result = new TreeSet<String>();
+		for( int i = 0; i < FILES; i++ )
+			result.add("pkg" + (i % 10) + "/File" + i + ".txt:" + (4096 + i));
+		return result;
+	}
+
+	/*
+	 * Every file entry and its size. Opening the zip fails if it is corrupt.
+	 */
+	private static TreeSet<String> readEntries(File f) throws IOException {
+		TreeSet<String> result = new TreeSet<String>();
+		ZipFile zf = new ZipFile(f);
+		try {
+			Enumeration<? extends ZipEntry> entries = zf.entries();
+			while( entries.hasMoreElements()) {
+				ZipEntry e = entries.nextElement();
+				if( !e.isDirectory())
+					result.add(e.getName() + ":" + e.getSize());
+			}
+		} finally {
+			zf.close();
+		}
+		return result;
+	}
+
+	private static void write(File f, int size) throws IOException {
+		f.getParentFile().mkdirs();
+		FileOutputStream fos = new FileOutputStream(f);
+		try {
+			fos.write(new byte[size]);
+		} finally {
+			fos.close();
+		}
+	}
+}
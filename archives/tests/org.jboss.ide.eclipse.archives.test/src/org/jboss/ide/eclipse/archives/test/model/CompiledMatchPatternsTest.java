@@ -0,0 +1,168 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.ide.eclipse.archives.test.model;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.jboss.tools.archives.scanner.AbstractScanner;
+import org.jboss.tools.archives.scanner.internal.CompiledMatchPatterns;
+import org.jboss.tools.archives.scanner.internal.MatchPattern;
+import org.jboss.tools.archives.scanner.internal.MatchPatterns;
+
+/**
+ * Verifies that the compiled patterns agree with the original
+ * patterns on the paths of a tree of maven style modules,
+ * also when several threads share them.
+ */
+public class CompiledMatchPatternsTest extends TestCase {
+	private static final int MODULES = 40;
+	private static final int PACKAGES = 15;
+	private static final int CLASSES = 20;
+	private static final int THREADS = 4;
+
+	private static final String[] INCLUDES = new String[] {
+		"**/*.class", "**/*.xml", "**/*.properties", "src/main/webapp/", "**/META-INF/**"
+	};
+
+	private static final String[] EXCLUDES = new String[] {
+		"**/*Test.class", "**/test-classes/**", "**/target/*.jar", "%regex[.*\\.orig]"
+	};
+
+	public void testMatchesOriginalPatterns() {
+		assertSameMatches(INCLUDES, createMavenLayout(), false);
+		assertSameMatches(excludesWithDefaults(), createMavenLayout(), true);
+		String[] tricky = new String[] {
+			"**", "*", "a/**/b", "**/a*b/**/c?", "**/**/x", "/abs/**", "a/*/b/**", ""
+		};
+		String[] paths = new String[] {
+			"", "a", "a/b", "a/x/y/b", "ab/c1/x/c2", "abb/k/c3", "x", "q/q/x",
+			"abs/z", "a/q/b/r", "A/B", "aXb/cc"
+		};
+		for( int i = 0; i < paths.length; i++ )
+			paths[i] = paths[i].replace('/', File.separatorChar);
+		for( int i = 0; i < tricky.length; i++ ) {
+			String[] one = new String[] { tricky[i].replace('/', File.separatorChar) };
+			assertSameMatches(one, paths, true);
+			assertSameMatches(one, paths, false);
+		}
+	}
+
+	public void testMatchesFromSeveralThreads() throws Exception {
+		final String[] paths = createMavenLayout();
+		String[] excludes = excludesWithDefaults();
+		MatchPatterns origIncludes = MatchPatterns.from(normalize(INCLUDES));
+		MatchPatterns origExcludes = MatchPatterns.from(excludes);
+		final CompiledMatchPatterns includes = CompiledMatchPatterns.from(normalize(INCLUDES));
+		final CompiledMatchPatterns excl = CompiledMatchPatterns.from(excludes);
+		final String[][] tokenized = new String[paths.length][];
+		final boolean[] expected = new boolean[paths.length];
+		int count = 0;
+		for( int i = 0; i < paths.length; i++ ) {
+			tokenized[i] = MatchPattern.tokenizePathToString(paths[i], File.separator);
+			expected[i] = origIncludes.matches(paths[i], tokenized[i], true)
+					&& !origExcludes.matches(paths[i], tokenized[i], true);
+			if( expected[i] )
+				count++;
+		}
+		assertTrue(count > 0);
+
+		// each thread walks the tree from another module, so the
+		// threads keep stepping into directories the others are not in
+		final List<String> mismatches = Collections.synchronizedList(new ArrayList<String>());
+		Thread[] threads = new Thread[THREADS];
+		for( int t = 0; t < THREADS; t++ ) {
+			final int offset = t * paths.length / THREADS;
+			threads[t] = new Thread(new Runnable() {
+				public void run() {
+					for( int j = 0; j < paths.length; j++ ) {
+						int i = (offset + j) % paths.length;
+						boolean matched = includes.matches(paths[i], tokenized[i], true)
+								&& !excl.matches(paths[i], tokenized[i], true);
+						if( matched != expected[i] )
+							mismatches.add(paths[i]);
+					}
+				}
+			});
+			threads[t].start();
+		}
+		for( int t = 0; t < THREADS; t++ )
+			threads[t].join();
+		assertEquals(Collections.emptyList(), mismatches);
+	}
+
+	private void assertSameMatches(String[] patterns, String[] paths, boolean cs) {
+		MatchPatterns orig = MatchPatterns.from(normalize(patterns));
+		CompiledMatchPatterns compiled = CompiledMatchPatterns.from(normalize(patterns));
+		for( int i = 0; i < paths.length; i++ ) {
+			String[] tokens = MatchPattern.tokenizePathToString(paths[i], File.separator);
+			assertEquals(paths[i], orig.matches(paths[i], tokens, cs), compiled.matches(paths[i], tokens, cs));
+			assertEquals(paths[i], orig.matches(paths[i], cs), compiled.matches(paths[i], cs));
+		}
+	}
+
+	private static String[] excludesWithDefaults() {
+		String[] result = new String[EXCLUDES.length + AbstractScanner.DEFAULTEXCLUDES.length];
+		System.arraycopy(normalize(EXCLUDES), 0, result, 0, EXCLUDES.length);
+		System.arraycopy(normalize(AbstractScanner.DEFAULTEXCLUDES), 0, result,
+				EXCLUDES.length, AbstractScanner.DEFAULTEXCLUDES.length);
+		return result;
+	}
+
+	private static String[] normalize(String[] patterns) {
+		String[] result = new String[patterns.length];
+		for( int i = 0; i < patterns.length; i++ ) {
+			String p = patterns[i];
+			if( !p.startsWith("%regex[")) {
+				p = p.replace('/', File.separatorChar);
+				if( p.endsWith(File.separator))
+					p += "**";
+			}
+			result[i] = p;
+		}
+		return result;
+	}
+
+	private static String[] createMavenLayout() {
+		ArrayList<String> paths = new ArrayList<String>();
+		for( int m = 0; m < MODULES; m++ ) {
+			String module = "module" + m;
+			add(paths, module);
+			add(paths, module + "/pom.xml");
+			add(paths, module + "/.svn/entries");
+			add(paths, module + "/src/main/resources/META-INF/persistence.xml");
+			add(paths, module + "/src/main/webapp/WEB-INF/web.xml");
+			add(paths, module + "/target/" + module + ".jar");
+			add(paths, module + "/target/" + module + ".jar.orig");
+			for( int p = 0; p < PACKAGES; p++ ) {
+				String pkg = "org/example/" + module + "/pkg" + p;
+				add(paths, module + "/src/main/java/" + pkg);
+				add(paths, module + "/src/main/resources/" + pkg + "/messages.properties");
+				for( int c = 0; c < CLASSES; c++ ) {
+					add(paths, module + "/src/main/java/" + pkg + "/Class" + c + ".java");
+					add(paths, module + "/src/test/java/" + pkg + "/Class" + c + "Test.java");
+					add(paths, module + "/target/classes/" + pkg + "/Class" + c + ".class");
+					add(paths, module + "/target/classes/" + pkg + "/Class" + c + "$1.class");
+					add(paths, module + "/target/test-classes/" + pkg + "/Class" + c + "Test.class");
+				}
+			}
+		}
+		return paths.toArray(new String[paths.size()]);
+	}
+
+	private static void add(ArrayList<String> paths, String path) {
+		paths.add(path.replace('/', File.separatorChar));
+	}
+}
@@ -0,0 +1,128 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.ide.eclipse.archives.test.model;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.core.variables.IStringVariableManager;
+import org.eclipse.core.variables.IValueVariable;
+import org.eclipse.core.variables.VariablesPlugin;
+import org.jboss.ide.eclipse.archives.core.model.ArchivesModel;
+import org.jboss.ide.eclipse.archives.core.model.IArchive;
+import org.jboss.ide.eclipse.archives.core.model.IArchiveFileSet;
+import org.jboss.ide.eclipse.archives.core.model.IArchiveStandardFileSet;
+import org.jboss.ide.eclipse.archives.core.model.internal.ArchiveModelNode;
+import org.jboss.ide.eclipse.archives.core.model.internal.xb.XbPackages;
+import org.jboss.ide.eclipse.archives.core.util.FilesetMatchIndex;
+import org.jboss.ide.eclipse.archives.core.util.ModelUtil;
+import org.jboss.ide.eclipse.archives.test.util.FileIOUtil;
+
+/**
+ * Verifies that the fileset index returns the same matches as asking
+ * every fileset, and that it follows the model and variables.
+ */
+public class FilesetMatchIndexTest extends ModelTest {
+	private static final int FILESETS = 200;
+	private static final int CHANGES = 1000;
+	private static final String VARIABLE = "fileset_match_index_test";
+
+	private File tmp;
+	private ArchiveModelNode modelNode;
+	private ArrayList<IArchiveFileSet> filesets;
+	private IValueVariable variable;
+	private IArchiveFileSet variableFileset;
+
+	protected void setUp() throws Exception {
+		tmp = File.createTempFile("filesetMatchIndex", null);
+		tmp.delete();
+		tmp.mkdirs();
+		IPath root = new Path(tmp.getAbsolutePath());
+
+		modelNode = new ArchiveModelNode(root.append("project"), new XbPackages(), ArchivesModel.instance());
+		IArchive archive = createArchive("big.jar", root.append("out").toString());
+		archive.setInWorkspace(false);
+		modelNode.addChild(archive);
+
+		filesets = new ArrayList<IArchiveFileSet>();
+		for( int i = 0; i < FILESETS; i++ ) {
+			IPath src = root.append("src" + i);
+			src.toFile().mkdirs();
+			IArchiveStandardFileSet fs = createFileSet("**/*.class", "**/*Test.class", src.toString());
+			fs.setInWorkspace(false);
+			archive.addChild(fs);
+			filesets.add(fs);
+		}
+
+		IStringVariableManager manager = VariablesPlugin.getDefault().getStringVariableManager();
+		variable = manager.newValueVariable(VARIABLE, null);
+		variable.setValue(root.append("varA").toString());
+		manager.addVariables(new IValueVariable[] { variable });
+		IArchiveStandardFileSet fs = createFileSet("**/*.class", "", "${" + VARIABLE + "}");
+		fs.setInWorkspace(false);
+		archive.addChild(fs);
+		variableFileset = fs;
+		ArchivesModel.instance().registerProject(modelNode, new NullProgressMonitor());
+	}
+
+	protected void tearDown() throws Exception {
+		ArchivesModel.instance().unregisterProject(modelNode, new NullProgressMonitor());
+		VariablesPlugin.getDefault().getStringVariableManager().removeVariables(new IValueVariable[] { variable });
+		FileIOUtil.clearFolder(tmp.listFiles());
+		tmp.delete();
+	}
+
+	public void testIndexMatchesFullWalk() {
+		IPath[] changes = new IPath[CHANGES];
+		for( int i = 0; i < CHANGES; i++ ) {
+			String name = i % 7 == 0 ? "Class" + i + "Test.class" : "Class" + i + ".class";
+			changes[i] = new Path(tmp.getAbsolutePath()).append("src" + (i % FILESETS))
+					.append("org/example").append(name);
+		}
+
+		for( int i = 0; i < CHANGES; i++ ) {
+			IArchiveFileSet[] indexed = ModelUtil.getMatchingFilesets(null, changes[i], false);
+			HashSet<IArchiveFileSet> expected = new HashSet<IArchiveFileSet>();
+			for( int j = 0; j < filesets.size(); j++ )
+				if( filesets.get(j).matchesPath(changes[i], false))
+					expected.add(filesets.get(j));
+			assertEquals(changes[i].toString(), expected, new HashSet<IArchiveFileSet>(Arrays.asList(indexed)));
+			assertEquals(i % 7 == 0 ? 0 : 1, indexed.length);
+		}
+	}
+
+	public void testIndexFollowsUnregister() {
+		IPath p = new Path(tmp.getAbsolutePath()).append("src1/Foo.class");
+		IArchiveFileSet fs = filesets.get(1);
+		assertTrue(Arrays.asList(FilesetMatchIndex.getDefault().getCandidates(p, false)).contains(fs));
+		assertFalse(Arrays.asList(FilesetMatchIndex.getDefault().getCandidates(p, false)).contains(filesets.get(2)));
+		ArchivesModel.instance().unregisterProject(modelNode, new NullProgressMonitor());
+		assertFalse(Arrays.asList(FilesetMatchIndex.getDefault().getCandidates(p, false)).contains(fs));
+		ArchivesModel.instance().registerProject(modelNode, new NullProgressMonitor());
+		assertTrue(Arrays.asList(FilesetMatchIndex.getDefault().getCandidates(p, false)).contains(fs));
+	}
+
+	public void testIndexFollowsVariables() {
+		IPath root = new Path(tmp.getAbsolutePath());
+		IPath a = root.append("varA/Foo.class");
+		IPath b = root.append("varB/Foo.class");
+		assertTrue(Arrays.asList(FilesetMatchIndex.getDefault().getCandidates(a, false)).contains(variableFileset));
+		assertFalse(Arrays.asList(FilesetMatchIndex.getDefault().getCandidates(b, false)).contains(variableFileset));
+		variable.setValue(root.append("varB").toString());
+		assertFalse(Arrays.asList(FilesetMatchIndex.getDefault().getCandidates(a, false)).contains(variableFileset));
+		assertTrue(Arrays.asList(FilesetMatchIndex.getDefault().getCandidates(b, false)).contains(variableFileset));
+	}
+}
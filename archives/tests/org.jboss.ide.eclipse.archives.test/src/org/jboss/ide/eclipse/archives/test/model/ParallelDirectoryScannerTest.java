@@ -0,0 +1,188 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.ide.eclipse.archives.test.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.jboss.ide.eclipse.archives.core.model.DirectoryScannerFactory;
+import org.jboss.ide.eclipse.archives.core.model.DirectoryScannerFactory.DirectoryScannerExtension;
+import org.jboss.ide.eclipse.archives.core.model.DirectoryScannerFactory.DirectoryScannerExtension.FileWrapper;
+import org.jboss.ide.eclipse.archives.test.util.FileIOUtil;
+import org.jboss.tools.archives.scanner.ITreeNode;
+import org.jboss.tools.archives.scanner.VirtualDirectoryScanner;
+
+/**
+ * Scans the same folder sequentially and in parallel,
+ * and checks that both scans find the same in the same order.
+ */
+public class ParallelDirectoryScannerTest extends TestCase {
+	private File root;
+
+	protected void setUp() throws Exception {
+		root = File.createTempFile("parallelScan", "");
+		root.delete();
+		root.mkdirs();
+		for( int i = 0; i < 4; i++ ) {
+			File module = new File(root, "module" + i);
+			createFiles(new File(module, "src/org/test/p" + i), "A.java", "B.java", "text.txt");
+			createFiles(new File(module, "bin/org/test/p" + i), "A.class", "B.class", "text.txt");
+			createFiles(new File(module, "bin/org/test/p" + i + "/inner"), "C.class", "C$1.class");
+			createFiles(new File(module, "META-INF"), "MANIFEST.MF");
+			createFiles(new File(module, "empty"));
+		}
+		createFiles(root, "build.xml", "readme.txt");
+	}
+
+	protected void tearDown() throws Exception {
+		FileIOUtil.clearFolder(root.listFiles());
+		root.delete();
+	}
+
+	public void testSameResults() {
+		assertSameResults("**", "");
+		assertSameResults("**/*.class", "");
+		assertSameResults("**/*.class,**/*.txt", "**/inner/**");
+		assertSameResults("module1/bin/**", "**/B.class");
+		assertSameResults("*/META-INF/*,build.xml", "");
+		assertSameResults("nothing/**", "");
+	}
+
+	public void testIncludedOnScanningThread() {
+		final Thread scanning = Thread.currentThread();
+		final AtomicInteger included = new AtomicInteger();
+		final Set<Thread> listing = Collections.synchronizedSet(new HashSet<Thread>());
+		VirtualDirectoryScanner<FileNode> scanner = new VirtualDirectoryScanner<FileNode>() {
+			protected ITreeNode[] listChildren(ITreeNode node) {
+				listing.add(Thread.currentThread());
+				return super.listChildren(node);
+			}
+			protected void processIncluded(String name, FileNode file,
+					Vector<String> inc, Vector<String> exc, Vector<String> des) {
+				assertSame(scanning, Thread.currentThread());
+				super.processIncluded(name, file, inc, exc, des);
+			}
+			protected void postInclude(FileNode f, String name) {
+				assertSame(scanning, Thread.currentThread());
+				included.incrementAndGet();
+			}
+		};
+		scanner.setBasedir(new FileNode(root));
+		scanner.setIncludes("**/*.class");
+		scanner.setParallelScan(true);
+		scanner.scan();
+		assertEquals(16, included.get());
+		assertEquals(16, scanner.getIncludedFiles().length);
+		assertFalse(listing.contains(scanning));
+	}
+
+	public void testCanceled() {
+		final AtomicInteger checks = new AtomicInteger();
+		NullProgressMonitor monitor = new NullProgressMonitor() {
+			public boolean isCanceled() {
+				// canceled once the scan has spread out over the threads
+				return checks.incrementAndGet() > 5;
+			}
+		};
+		DirectoryScannerExtension scanner = DirectoryScannerFactory.createDirectoryScanner(
+				root.getAbsolutePath(), null, "**", "", null, false, 1.2, false);
+		scanner.setParallelScan(true);
+		try {
+			scanner.scan(monitor);
+			fail("The scan should have been canceled");
+		} catch(OperationCanceledException oce) {
+			// expected
+		}
+		assertEquals(0, scanner.getMatchedArray().length);
+	}
+
+	public void testScanAfterShutdown() {
+		assertSameResults("**/*.class", "");
+		VirtualDirectoryScanner.shutdownScanExecutor();
+		// the next parallel scan starts new threads
+		assertSameResults("**/*.class", "");
+	}
+
+	private void assertSameResults(String includes, String excludes) {
+		DirectoryScannerExtension sequential = createScanner(includes, excludes, false);
+		DirectoryScannerExtension parallel = createScanner(includes, excludes, true);
+		String pattern = includes + " - " + excludes;
+		assertEquals(pattern, Arrays.asList(sequential.getIncludedFiles()),
+				Arrays.asList(parallel.getIncludedFiles()));
+		assertEquals(pattern, Arrays.asList(sequential.getIncludedDirectories()),
+				Arrays.asList(parallel.getIncludedDirectories()));
+		assertEquals(pattern, Arrays.asList(sequential.getNotIncludedFiles()),
+				Arrays.asList(parallel.getNotIncludedFiles()));
+		assertEquals(pattern, Arrays.asList(sequential.getNotIncludedDirectories()),
+				Arrays.asList(parallel.getNotIncludedDirectories()));
+		assertEquals(pattern, Arrays.asList(sequential.getExcludedFiles()),
+				Arrays.asList(parallel.getExcludedFiles()));
+		assertEquals(pattern, sequential.isEverythingIncluded(), parallel.isEverythingIncluded());
+
+		FileWrapper[] expected = sequential.getMatchedArray();
+		FileWrapper[] actual = parallel.getMatchedArray();
+		assertEquals(pattern, expected.length, actual.length);
+		for( int i = 0; i < expected.length; i++ ) {
+			assertEquals(pattern, expected[i].getAbsolutePath(), actual[i].getAbsolutePath());
+			assertEquals(pattern, expected[i].getFilesetRelative(), actual[i].getFilesetRelative());
+		}
+	}
+
+	private DirectoryScannerExtension createScanner(String includes, String excludes, boolean parallel) {
+		DirectoryScannerExtension scanner = DirectoryScannerFactory.createDirectoryScanner(
+				root.getAbsolutePath(), null, includes, excludes, null, false, 1.2, false);
+		scanner.setParallelScan(parallel);
+		scanner.scan();
+		return scanner;
+	}
+
+	private static void createFiles(File folder, String... names) throws IOException {
+		folder.mkdirs();
+		for( int i = 0; i < names.length; i++ )
+			assertTrue(new File(folder, names[i]).createNewFile());
+	}
+
+	/**
+	 * A folder or file on disk, listed by the scanner
+	 */
+	private static class FileNode implements ITreeNode {
+		private File file;
+		private FileNode(File file) {
+			this.file = file;
+		}
+		public String getName() {
+			return file.getName();
+		}
+		public boolean isLeaf() {
+			return !file.isDirectory();
+		}
+		public ITreeNode getChild(String name) {
+			return new FileNode(new File(file, name));
+		}
+		public ITreeNode[] listChildren() {
+			File[] children = file.listFiles();
+			ITreeNode[] nodes = new ITreeNode[children == null ? 0 : children.length];
+			for( int i = 0; i < nodes.length; i++ )
+				nodes[i] = new FileNode(children[i]);
+			return nodes;
+		}
+	}
+}
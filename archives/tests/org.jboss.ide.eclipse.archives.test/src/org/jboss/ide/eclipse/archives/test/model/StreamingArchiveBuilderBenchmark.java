@@ -0,0 +1,174 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.ide.eclipse.archives.test.model;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.zip.ZipFile;
+
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Path;
+import org.jboss.ide.eclipse.archives.core.build.ArchiveBuildDelegate;
+import org.jboss.ide.eclipse.archives.core.build.StreamingArchiveBuilder;
+import org.jboss.ide.eclipse.archives.core.model.ArchivesModel;
+import org.jboss.ide.eclipse.archives.core.model.IArchive;
+import org.jboss.ide.eclipse.archives.core.model.IArchiveFolder;
+import org.jboss.ide.eclipse.archives.core.model.IArchiveStandardFileSet;
+import org.jboss.ide.eclipse.archives.core.model.internal.ArchiveModelNode;
+import org.jboss.ide.eclipse.archives.core.model.internal.xb.XbPackages;
+import org.jboss.ide.eclipse.archives.test.util.FileIOUtil;
+
+/**
+ * Compares the time and peak heap of full builds of a 200MB ear through
+ * TrueZip and through the {@link StreamingArchiveBuilder}. The ear holds
+ * a jar of 2000 classes and ten libraries of 20MB each.
+ *
+ * This is not part of the {@link org.jboss.ide.eclipse.archives.test.ArchivesTestSuite},
+ * as it writes over 2GB. Run it on its own, and compare the numbers printed.
+ */
+public class StreamingArchiveBuilderBenchmark extends ModelTest {
+	private static final int PACKAGES = 40;
+	private static final int CLASSES = 50;
+	private static final int LIBS = 10;
+	private static final int LIB_SIZE = 20 * 1024 * 1024;
+	private static final int WARMUPS = 2;
+	private static final int RUNS = 5;
+
+	private File tmp;
+	private ArchiveModelNode modelNode;
+	private IArchive archive;
+
+	protected void setUp() throws Exception {
+		tmp = File.createTempFile("streamingArchiveBenchmark", null);
+		tmp.delete();
+		tmp.mkdirs();
+		IPath root = new Path(tmp.getAbsolutePath());
+		createSources(root.append("src").toFile());
+
+		modelNode = new ArchiveModelNode(root.append("project"), new XbPackages(), ArchivesModel.instance());
+		archive = createArchive("app.ear", root.append("out").toString());
+		archive.setInWorkspace(false);
+		modelNode.addChild(archive);
+
+		IArchiveStandardFileSet classes = createFileSet("**/*.class", root.append("src/classes").toString());
+		classes.setInWorkspace(false);
+		IArchive inner = createArchive("inner.jar", "");
+		inner.addChild(classes);
+		IArchiveFolder lib = createFolder("lib");
+		lib.addChild(inner);
+		IArchiveStandardFileSet jars = createFileSet("*.jar", root.append("src/lib").toString());
+		jars.setInWorkspace(false);
+		lib.addChild(jars);
+		archive.addChild(lib);
+
+		ArchivesModel.instance().registerProject(modelNode, new NullProgressMonitor());
+	}
+
+	protected void tearDown() throws Exception {
+		ArchivesModel.instance().unregisterProject(modelNode, new NullProgressMonitor());
+		FileIOUtil.clearFolder(tmp.listFiles());
+		tmp.delete();
+	}
+
+	public void testTimeAndHeap() throws IOException {
+		long[][] truezip = measure(false);
+		int entries = countEntries();
+		long[][] streaming = measure(true);
+		assertEquals(entries, countEntries());
+
+		System.out.println("StreamingArchiveBuilderBenchmark: "
+				+ archive.getArchiveFilePath().toFile().length() / (1024 * 1024) + "MB, "
+				+ entries + " entries, median of " + RUNS + " full builds");
+		System.out.println("  truezip:   " + truezip[0][RUNS / 2] + "ms, "
+				+ truezip[1][RUNS / 2] / 1024 + "kB peak heap");
+		System.out.println("  streaming: " + streaming[0][RUNS / 2] + "ms, "
+				+ streaming[1][RUNS / 2] / 1024 + "kB peak heap");
+	}
+
+	/*
+	 * The sorted times and peak heaps of full builds, after warming up
+	 */
+	private long[][] measure(boolean streaming) {
+		archive.setProperty(StreamingArchiveBuilder.STREAMING_BUILD_PROPERTY, Boolean.toString(streaming));
+		for( int i = 0; i < WARMUPS; i++ )
+			build();
+		long[] times = new long[RUNS];
+		long[] heaps = new long[RUNS];
+		for( int i = 0; i < RUNS; i++ ) {
+			System.gc();
+			for( Iterator<MemoryPoolMXBean> pools = ManagementFactory.getMemoryPoolMXBeans().iterator(); pools.hasNext(); )
+				pools.next().resetPeakUsage();
+			long before = heapPeak();
+			long start = System.currentTimeMillis();
+			build();
+			times[i] = System.currentTimeMillis() - start;
+			heaps[i] = Math.max(0, heapPeak() - before);
+		}
+		Arrays.sort(times);
+		Arrays.sort(heaps);
+		return new long[][] { times, heaps };
+	}
+
+	private void build() {
+		archive.getArchiveFilePath().toFile().delete();
+		IStatus s = new ArchiveBuildDelegate().fullArchiveBuild(archive, new NullProgressMonitor());
+		assertTrue(s.getMessage(), s.isOK());
+	}
+
+	private int countEntries() throws IOException {
+		ZipFile zf = new ZipFile(archive.getArchiveFilePath().toFile());
+		try {
+			return zf.size();
+		} finally {
+			zf.close();
+		}
+	}
+
+	private static long heapPeak() {
+		long total = 0;
+		for( Iterator<MemoryPoolMXBean> i = ManagementFactory.getMemoryPoolMXBeans().iterator(); i.hasNext(); ) {
+			MemoryPoolMXBean pool = i.next();
+			if( pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null )
+				total += pool.getPeakUsage().getUsed();
+		}
+		return total;
+	}
+
+	private static void createSources(File src) throws IOException {
+		Random r = new Random(42);
+		for( int p = 0; p < PACKAGES; p++ )
+			for( int c = 0; c < CLASSES; c++ )
+				write(new File(src, "classes/org/example/pkg" + p + "/Class" + c + ".class"), 512 + r.nextInt(4096), r);
+		for( int i = 0; i < LIBS; i++ )
+			write(new File(src, "lib/lib" + i + ".jar"), LIB_SIZE, r);
+	}
+
+	private static void write(File f, int size, Random r) throws IOException {
+		f.getParentFile().mkdirs();
+		byte[] b = new byte[size];
+		r.nextBytes(b);
+		FileOutputStream fos = new FileOutputStream(f);
+		try {
+			fos.write(b);
+		} finally {
+			fos.close();
+		}
+	}
+}
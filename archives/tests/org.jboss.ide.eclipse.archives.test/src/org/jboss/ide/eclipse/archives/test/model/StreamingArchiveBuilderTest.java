@@ -0,0 +1,224 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.ide.eclipse.archives.test.model;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Enumeration;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Path;
+import org.jboss.ide.eclipse.archives.core.build.ArchiveBuildDelegate;
+import org.jboss.ide.eclipse.archives.core.build.StreamingArchiveBuilder;
+import org.jboss.ide.eclipse.archives.core.model.ArchivesModel;
+import org.jboss.ide.eclipse.archives.core.model.IArchive;
+import org.jboss.ide.eclipse.archives.core.model.IArchiveFolder;
+import org.jboss.ide.eclipse.archives.core.model.IArchiveStandardFileSet;
+import org.jboss.ide.eclipse.archives.core.model.internal.ArchiveModelNode;
+import org.jboss.ide.eclipse.archives.core.model.internal.xb.XbPackages;
+import org.jboss.ide.eclipse.archives.test.util.FileIOUtil;
+
+/**
+ * Verifies that a streamed archive has the same entries and content as
+ * one built through TrueZip, and that a canceled build leaves no output.
+ */
+public class StreamingArchiveBuilderTest extends ModelTest {
+	private static final int PACKAGES = 10;
+	private static final int CLASSES = 20;
+	private static final int LIBS = 3;
+
+	private File tmp;
+	private ArchiveModelNode modelNode;
+	private IArchive archive;
+
+	protected void setUp() throws Exception {
+		tmp = File.createTempFile("streamingArchiveBuilder", null);
+		tmp.delete();
+		tmp.mkdirs();
+		IPath root = new Path(tmp.getAbsolutePath());
+		createSources(root.append("src").toFile());
+
+		modelNode = new ArchiveModelNode(root.append("project"), new XbPackages(), ArchivesModel.instance());
+		archive = createArchive("app.ear", root.append("out").toString());
+		archive.setInWorkspace(false);
+		modelNode.addChild(archive);
+
+		IArchiveStandardFileSet classes = createFileSet("**/*.class", root.append("src/classes").toString());
+		classes.setInWorkspace(false);
+		IArchive inner = createArchive("inner.jar", "");
+		inner.addChild(classes);
+		IArchiveFolder lib = createFolder("lib");
+		lib.addChild(inner);
+		IArchiveStandardFileSet jars = createFileSet("*.jar", root.append("src/lib").toString());
+		jars.setInWorkspace(false);
+		lib.addChild(jars);
+		archive.addChild(lib);
+		IArchiveStandardFileSet resources = createFileSet("**/*.xml,**/*.png", root.append("src/resources").toString());
+		resources.setInWorkspace(false);
+		archive.addChild(resources);
+
+		ArchivesModel.instance().registerProject(modelNode, new NullProgressMonitor());
+	}
+
+	protected void tearDown() throws Exception {
+		ArchivesModel.instance().unregisterProject(modelNode, new NullProgressMonitor());
+		FileIOUtil.clearFolder(tmp.listFiles());
+		tmp.delete();
+	}
+
+	public void testStreamingMatchesTruezip() throws IOException {
+		File out = archive.getArchiveFilePath().toFile();
+		build(false);
+		TreeMap<String, Long> expected = readEntries(out);
+		build(true);
+		TreeMap<String, Long> actual = readEntries(out);
+
+		assertEquals(expected, actual);
+		assertEquals(PACKAGES * CLASSES + LIBS + PACKAGES * 2, actual.size());
+		assertTrue(actual.containsKey("lib/inner.jar!/org/example/pkg0/Class0.class"));
+		assertTrue(actual.containsKey("lib/lib0.jar"));
+	}
+
+	public void testNestedArchiveIsStored() throws IOException {
+		build(true);
+		ZipFile zf = new ZipFile(archive.getArchiveFilePath().toFile());
+		try {
+			ZipEntry inner = zf.getEntry("lib/inner.jar");
+			assertNotNull(inner);
+			assertEquals(ZipEntry.STORED, inner.getMethod());
+			// not compressed again, so no smaller than the file
+			ZipEntry lib = zf.getEntry("lib/lib0.jar");
+			assertTrue(lib.getCompressedSize() >= lib.getSize());
+		} finally {
+			zf.close();
+		}
+	}
+
+	public void testRebuildReplacesOutput() throws IOException {
+		build(true);
+		TreeMap<String, Long> first = readEntries(archive.getArchiveFilePath().toFile());
+		build(true);
+		assertEquals(first, readEntries(archive.getArchiveFilePath().toFile()));
+		assertNoTemporaryFiles();
+	}
+
+	public void testCanceledBuildLeavesNoOutput() {
+		archive.setProperty(StreamingArchiveBuilder.STREAMING_BUILD_PROPERTY, "true");
+		File out = archive.getArchiveFilePath().toFile();
+		out.delete();
+		NullProgressMonitor canceled = new NullProgressMonitor();
+		canceled.setCanceled(true);
+		IStatus[] errors = new StreamingArchiveBuilder(archive).build(canceled);
+		assertEquals(1, errors.length);
+		assertEquals(IStatus.CANCEL, errors[0].getSeverity());
+		assertFalse(out.exists());
+		assertNoTemporaryFiles();
+	}
+
+	private void build(boolean streaming) {
+		archive.setProperty(StreamingArchiveBuilder.STREAMING_BUILD_PROPERTY, Boolean.toString(streaming));
+		IStatus s = new ArchiveBuildDelegate().fullArchiveBuild(archive, new NullProgressMonitor());
+		assertTrue(s.getMessage(), s.isOK());
+	}
+
+	private void assertNoTemporaryFiles() {
+		String[] names = archive.getArchiveFilePath().toFile().getParentFile().list();
+		for( int i = 0; i < names.length; i++ )
+			assertFalse(names[i], names[i].endsWith(".tmp"));
+	}
+
+	/*
+	 * Every file entry and the checksum of its content, including those of nested jars
+	 */
+	private static TreeMap<String, Long> readEntries(File f) throws IOException {
+		TreeMap<String, Long> result = new TreeMap<String, Long>();
+		ZipFile zf = new ZipFile(f);
+		try {
+			Enumeration<? extends ZipEntry> entries = zf.entries();
+			while( entries.hasMoreElements()) {
+				ZipEntry e = entries.nextElement();
+				if( e.isDirectory())
+					continue;
+				if( e.getName().equals("lib/inner.jar")) {
+					ZipInputStream zis = new ZipInputStream(zf.getInputStream(e));
+					ZipEntry nested;
+					while( (nested = zis.getNextEntry()) != null )
+						if( !nested.isDirectory())
+							result.put(e.getName() + "!/" + nested.getName(), new Long(checksum(zis)));
+					zis.close();
+				} else {
+					result.put(e.getName(), new Long(checksum(zf.getInputStream(e))));
+				}
+			}
+		} finally {
+			zf.close();
+		}
+		return result;
+	}
+
+	private static long checksum(InputStream is) throws IOException {
+		CRC32 crc = new CRC32();
+		byte[] buf = new byte[8192];
+		int read;
+		while( (read = is.read(buf)) != -1 )
+			crc.update(buf, 0, read);
+		return crc.getValue();
+	}
+
+	private static void createSources(File src) throws IOException {
+		Random r = new Random(42);
+		for( int p = 0; p < PACKAGES; p++ ) {
+			for( int c = 0; c < CLASSES; c++ )
+				write(new File(src, "classes/org/example/pkg" + p + "/Class" + c + ".class"), 512 + r.nextInt(4096), r);
+			write(new File(src, "resources/META-INF/pkg" + p + "/beans.xml"), 1024, r);
+			write(new File(src, "resources/images/pkg" + p + ".png"), 16 * 1024, r);
+		}
+		for( int i = 0; i < LIBS; i++ )
+			writeJar(new File(src, "lib/lib" + i + ".jar"), 256 * 1024, r);
+	}
+
+	private static void writeJar(File f, int size, Random r) throws IOException {
+		f.getParentFile().mkdirs();
+		byte[] b = new byte[size];
+		r.nextBytes(b);
+		ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(f));
+		try {
+			zos.putNextEntry(new ZipEntry("data.bin"));
+			zos.write(b);
+			zos.closeEntry();
+		} finally {
+			zos.close();
+		}
+	}
+
+	private static void write(File f, int size, Random r) throws IOException {
+		f.getParentFile().mkdirs();
+		byte[] b = new byte[size];
+		r.nextBytes(b);
+		FileOutputStream fos = new FileOutputStream(f);
+		try {
+			fos.write(b);
+		} finally {
+			fos.close();
+		}
+	}
+}
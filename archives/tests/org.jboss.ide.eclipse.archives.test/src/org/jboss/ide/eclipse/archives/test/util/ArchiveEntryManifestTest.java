@@ -0,0 +1,132 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.ide.eclipse.archives.test.util;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.zip.CRC32;
+
+import junit.framework.TestCase;
+
+import org.jboss.ide.eclipse.archives.core.ArchivesCorePlugin;
+import org.jboss.ide.eclipse.archives.core.util.TrueZipUtil;
+import org.jboss.ide.eclipse.archives.core.util.internal.ArchiveEntryManifest;
+
+import de.schlichtherle.io.ArchiveDetector;
+
+/**
+ * Records copied files in the manifest of an archive, and checks
+ * which of them are found unchanged and where the manifest is stored.
+ */
+public class ArchiveEntryManifestTest extends TestCase {
+	private File tmp;
+	private File out;
+	private File archive;
+	private File source;
+
+	protected void setUp() throws Exception {
+		tmp = File.createTempFile("entryManifest", "");
+		tmp.delete();
+		tmp.mkdirs();
+		out = new File(tmp, "out");
+		out.mkdirs();
+		archive = new File(out, "test.jar");
+		setContents(archive, "archive");
+		source = new File(tmp, "a.txt");
+		setContents(source, "version1");
+	}
+
+	protected void tearDown() throws Exception {
+		ArchiveEntryManifest.discard(archive);
+		FileIOUtil.clearFolder(tmp.listFiles());
+		tmp.delete();
+	}
+
+	public void testUnchanged() throws Exception {
+		ArchiveEntryManifest manifest = ArchiveEntryManifest.getManifest(archive);
+		assertFalse(manifest.isUnchanged("a.txt", source));
+		manifest.update("a.txt", source);
+		assertTrue(manifest.isUnchanged("a.txt", source));
+		assertFalse(manifest.isUnchanged("b.txt", source));
+
+		// only touched
+		source.setLastModified(source.lastModified() + 2000);
+		assertTrue(manifest.isUnchanged("a.txt", source));
+
+		// same length, other bytes
+		setContents(source, "version2");
+		source.setLastModified(source.lastModified() + 4000);
+		assertFalse(manifest.isUnchanged("a.txt", source));
+
+		manifest.update("a.txt", source);
+		manifest.remove("a.txt");
+		assertFalse(manifest.isUnchanged("a.txt", source));
+	}
+
+	public void testChecksumComputedWhileCopying() throws Exception {
+		File dest = new File(out, "copy.txt");
+		CRC32 crc = new CRC32();
+		long lastModified = source.lastModified();
+		assertTrue(TrueZipUtil.copyFile(source, new de.schlichtherle.io.File(dest, ArchiveDetector.NULL), false, crc));
+		assertEquals(source.length(), dest.length());
+		assertEquals(lastModified, dest.lastModified());
+
+		ArchiveEntryManifest manifest = ArchiveEntryManifest.getManifest(archive);
+		manifest.update("a.txt", source.length(), lastModified, crc.getValue());
+		// only touched, so the checksum of the copy must match the file
+		source.setLastModified(lastModified + 2000);
+		assertTrue(manifest.isUnchanged("a.txt", source));
+	}
+
+	public void testStoredInStateLocation() throws Exception {
+		ArchiveEntryManifest.getManifest(archive).update("a.txt", source);
+		ArchiveEntryManifest.save(archive);
+		// nothing but the archive in the output folder
+		assertEquals(1, out.list().length);
+		File stored = getStoredManifest();
+		assertNotNull(stored);
+
+		ArchiveEntryManifest.discard(archive);
+		assertFalse(stored.exists());
+		assertFalse(ArchiveEntryManifest.getManifest(archive).isUnchanged("a.txt", source));
+	}
+
+	public void testArchiveChangedElsewhere() throws Exception {
+		ArchiveEntryManifest manifest = ArchiveEntryManifest.getManifest(archive);
+		manifest.update("a.txt", source);
+		ArchiveEntryManifest.save(archive);
+		manifest.validate();
+		assertTrue(manifest.isUnchanged("a.txt", source));
+
+		setContents(archive, "rewritten by someone else");
+		manifest.validate();
+		assertFalse(manifest.isUnchanged("a.txt", source));
+	}
+
+	private File getStoredManifest() {
+		File folder = ArchivesCorePlugin.getDefault().getStateLocation().append("entries").toFile();
+		File[] files = folder.listFiles();
+		for( int i = 0; files != null && i < files.length; i++ )
+			if( files[i].getName().startsWith(archive.getName() + "-"))
+				return files[i];
+		return null;
+	}
+
+	private static void setContents(File f, String contents) throws IOException {
+		FileOutputStream fos = new FileOutputStream(f);
+		try {
+			fos.write(contents.getBytes("UTF-8"));
+		} finally {
+			fos.close();
+		}
+	}
+}
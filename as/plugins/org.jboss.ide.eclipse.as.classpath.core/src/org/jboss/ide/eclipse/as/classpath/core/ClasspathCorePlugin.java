@@ -86,6 +86,7 @@ public class ClasspathCorePlugin extends Plugin {
 				if( rtt != null && rtt.getId().equals(rt.getId())) {
 					RuntimeClasspathCache.getInstance().cacheEntries(allRuntimes[i], null);
 					ModuleSlotCache.getInstance().clearRuntimeModuleSlots(allRuntimes[i]);
+					ModuleSlotCache.getInstance().clearModuleIndex(allRuntimes[i]);
 				}
 			}
 		}
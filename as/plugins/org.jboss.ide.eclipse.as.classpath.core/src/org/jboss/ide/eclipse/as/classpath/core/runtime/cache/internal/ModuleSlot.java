@@ -65,7 +65,29 @@ public class ModuleSlot {
 		return getJars(modulesFolder);
 	}
 	
+	/**
+	 * Get the jars of this module + slot from the index of the modules folder,
+	 * or by searching the folder if it could not be indexed
+	 * 
+	 * @param modulesFolder
+	 * @return
+	 */
 	public IPath[] getJars(IPath modulesFolder) {
+		ModuleSlotIndex index = ModuleSlotCache.getInstance().getModuleIndex(modulesFolder);
+		if( index == null ) {
+			return getJarsUncached(modulesFolder);
+		}
+		return index.getJars(this);
+	}
+	
+	/**
+	 * Get the jars of this module + slot by searching the modules folder,
+	 * without the use of any index
+	 * 
+	 * @param modulesFolder
+	 * @return
+	 */
+	public IPath[] getJarsUncached(IPath modulesFolder) {
 		File[] layeredPaths = LayeredModulePathFactory.resolveLayeredModulePath(modulesFolder.toFile());
 		for( int i = 0; i < layeredPaths.length; i++ ) {
 			IPath lay = new Path(layeredPaths[i].getAbsolutePath());
@@ -91,7 +113,7 @@ public class ModuleSlot {
 			File modulexml = new File(layeredPath, "module.xml"); //$NON-NLS-1$
 			String alias = new ModuleAliasUtil().getAlias(modulexml);
 			if( alias != null ) {
-				return new ModuleSlot(alias).getJars(modulesFolder);
+				return new ModuleSlot(alias).getJarsUncached(modulesFolder);
 			}
 		}
 		
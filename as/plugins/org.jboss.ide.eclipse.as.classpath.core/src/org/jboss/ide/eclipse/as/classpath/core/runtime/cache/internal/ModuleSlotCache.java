@@ -15,10 +15,13 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.IPath;
 import org.eclipse.wst.server.core.IRuntime;
+import org.jboss.ide.eclipse.as.classpath.core.ClasspathCorePlugin;
 
 /**
  * This class caches individual manifest or deployment-structure 
@@ -46,6 +49,8 @@ public class ModuleSlotCache {
 	// Keep a list of manifest files for each project
 	private Map<IProject, ArrayList<IFile>> deploymentStructures;
 
+	// The index of each modules folder, by its absolute path
+	private Map<String, ModuleSlotIndex> moduleIndexes;
 	
 	ModuleSlotCache() {
 		moduleSlotEntries = new HashMap<IFile, ModuleSlot[]>();
@@ -53,6 +58,7 @@ public class ModuleSlotCache {
 		defaultModuleSlots = new HashMap<RuntimeKey, ModuleSlot[]>();
 		manifests = new HashMap<IProject, ArrayList<IFile>>();
 		deploymentStructures = new HashMap<IProject, ArrayList<IFile>>();
+		moduleIndexes = new ConcurrentHashMap<String, ModuleSlotIndex>();
 	}
 	
 	public boolean hasInitializedManifests(IProject p) {
@@ -127,4 +133,51 @@ public class ModuleSlotCache {
 		RuntimeKey key = RuntimeClasspathCache.getRuntimeKey(runtime);
 		defaultModuleSlots.remove(key);		
 	}
+	
+	/**
+	 * Get the index of the modules in the given modules folder,
+	 * loading or building it on first use, or when the folder has changed.
+	 * 
+	 * @param modulesFolder
+	 * @return the index, or null if the folder could not be indexed
+	 */
+	public ModuleSlotIndex getModuleIndex(IPath modulesFolder) {
+		String key = modulesFolder.toFile().getAbsolutePath();
+		ModuleSlotIndex index = moduleIndexes.get(key);
+		if( index != null && index.checkCurrent()) {
+			return index;
+		}
+		synchronized(moduleIndexes) {
+			index = moduleIndexes.get(key);
+			if( index == null || !index.checkCurrent()) {
+				moduleIndexes.remove(key);
+				index = ModuleSlotIndex.load(new File(key), getModuleIndexFile(key));
+				// A failed scan is tried again on the next lookup
+				if( index != null ) {
+					moduleIndexes.put(key, index);
+				}
+			}
+		}
+		return index;
+	}
+	
+	/**
+	 * Forget the index of the modules folder of the given runtime, 
+	 * so it is checked against the filesystem when next used
+	 * 
+	 * @param runtime
+	 */
+	public void clearModuleIndex(IRuntime runtime) {
+		if( runtime != null && runtime.getLocation() != null ) {
+			moduleIndexes.remove(runtime.getLocation().append("modules").toFile().getAbsolutePath()); //$NON-NLS-1$
+		}
+	}
+	
+	private File getModuleIndexFile(String modulesFolder) {
+		ClasspathCorePlugin plugin = ClasspathCorePlugin.getDefault();
+		if( plugin == null )
+			return null;
+		String name = Integer.toHexString(modulesFolder.hashCode()) + ".xml"; //$NON-NLS-1$
+		return plugin.getStateLocation().append("moduleIndex").append(name).toFile(); //$NON-NLS-1$
+	}
 }
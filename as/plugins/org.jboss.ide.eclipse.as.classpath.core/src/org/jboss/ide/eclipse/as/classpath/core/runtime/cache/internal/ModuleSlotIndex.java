@@ -0,0 +1,400 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.ide.eclipse.as.classpath.core.runtime.cache.internal;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.Status;
+import org.jboss.ide.eclipse.as.classpath.core.ClasspathCorePlugin;
+import org.jboss.ide.eclipse.as.core.server.jbossmodules.LayeredModulePathFactory;
+import org.jboss.tools.foundation.core.xml.IMemento;
+import org.jboss.tools.foundation.core.xml.XMLMemento;
+
+/**
+ * An index of every module + slot in a jboss modules repository,
+ * and the jars each of them is made of.
+ *
+ * The index is built once by scanning the module.xml files of all layers,
+ * add-ons and patch overlays in parallel, applying the same precedence
+ * as the server does. It is persisted along with the modification
+ * times of the scanned folders and of the module.xml files of aliases,
+ * so a later session only needs to check those times rather than list
+ * the whole repository again. An alias can be edited in place, which
+ * does not change the time of its folder.
+ */
+public class ModuleSlotIndex {
+	private static final String MODULE_XML = "module.xml"; //$NON-NLS-1$
+	private static final String VERSION = "3"; //$NON-NLS-1$
+	private static final int MAX_ALIAS_DEPTH = 10;
+	private static final int SCAN_THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+	// How long a check of the scanned folders is trusted, in ms
+	private static final long CHECK_INTERVAL = 1000;
+
+	private File modulesFolder;
+	// The layered module path the index was built from, in precedence order
+	private List<String> roots;
+	// module:slot to its entry
+	private Map<String, Entry> entries;
+	// Every folder scanned, and every module.xml read, to the time it was last modified
+	private Map<String, Long> stamps;
+	// When the scanned folders were last found unchanged
+	private long checked;
+
+	private static class Entry {
+		private String[] jars;
+		private String alias;
+		Entry(String[] jars, String alias) {
+			this.jars = jars;
+			this.alias = alias;
+		}
+	}
+
+	private ModuleSlotIndex(File modulesFolder) {
+		this.modulesFolder = modulesFolder;
+	}
+
+	/**
+	 * Load the persisted index of the given modules folder,
+	 * or build it if there is none or it is out of date.
+	 *
+	 * @param modulesFolder
+	 * @param persisted the file the index is persisted in, or null
+	 * @return the index, or null if the modules folder could not be scanned
+	 */
+	public static ModuleSlotIndex load(File modulesFolder, File persisted) {
+		ModuleSlotIndex index = new ModuleSlotIndex(modulesFolder);
+		if( persisted != null && persisted.isFile() && index.read(persisted) && index.isCurrent()) {
+			index.checked = System.currentTimeMillis();
+			return index;
+		}
+		if( !index.build()) {
+			return null;
+		}
+		index.checked = System.currentTimeMillis();
+		if( persisted != null ) {
+			index.write(persisted);
+		}
+		return index;
+	}
+
+	/**
+	 * Get the jars of the module + slot, following module aliases
+	 *
+	 * @param ms
+	 * @return the absolute paths of the jars, or an empty array if the module is not found
+	 */
+	public IPath[] getJars(ModuleSlot ms) {
+		String module = ms.getModule();
+		String slot = ms.getSlot();
+		for( int depth = 0; depth < MAX_ALIAS_DEPTH; depth++ ) {
+			Entry e = entries.get(getKey(module, slot));
+			if( e == null )
+				break;
+			if( e.jars.length > 0 || e.alias == null ) {
+				IPath[] ret = new IPath[e.jars.length];
+				for( int i = 0; i < ret.length; i++ ) {
+					ret[i] = new Path(e.jars[i]);
+				}
+				return ret;
+			}
+			// An alias always points to the main slot of its target
+			module = e.alias;
+			slot = new ModuleSlot(e.alias).getSlot();
+		}
+		return new IPath[0];
+	}
+
+	/**
+	 * @return true if none of the scanned folders and module.xml files has changed since the index was built
+	 */
+	public boolean isCurrent() {
+		if( !getRoots().equals(roots))
+			return false;
+		for( Map.Entry<String, Long> f : stamps.entrySet()) {
+			if( new File(f.getKey()).lastModified() != f.getValue().longValue())
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Check whether the index is still current, unless it was found
+	 * current very recently. This keeps the many lookups made while 
+	 * resolving a classpath from checking all folders each time.
+	 * 
+	 * @return true if the index may still be used
+	 */
+	public synchronized boolean checkCurrent() {
+		long now = System.currentTimeMillis();
+		if( now - checked < CHECK_INTERVAL )
+			return true;
+		if( !isCurrent())
+			return false;
+		checked = now;
+		return true;
+	}
+
+	private List<String> getRoots() {
+		File[] layered = LayeredModulePathFactory.resolveLayeredModulePath(modulesFolder);
+		List<String> ret = new ArrayList<String>();
+		for( int i = 0; i < layered.length; i++ ) {
+			ret.add(layered[i].getAbsolutePath());
+		}
+		return ret;
+	}
+
+	private static String getKey(String module, String slot) {
+		return module + ":" + slot; //$NON-NLS-1$
+	}
+
+	/*
+	 * Scan all roots, each folder being a task of its own, so 
+	 * the large base layer is scanned in parallel as well.
+	 * A module found in an earlier root hides the same module in later ones.
+	 * Returns false if the roots could not all be scanned.
+	 */
+	private boolean build() {
+		roots = getRoots();
+		entries = new HashMap<String, Entry>();
+		stamps = new HashMap<String, Long>();
+
+		ForkJoinPool pool = new ForkJoinPool(SCAN_THREADS);
+		try {
+			List<FolderScan> scans = new ArrayList<FolderScan>();
+			for( int i = 0; i < roots.size(); i++ ) {
+				File root = new File(roots.get(i));
+				FolderScan scan = new FolderScan(root, "", getExcluded(root)); //$NON-NLS-1$
+				scans.add(scan);
+				pool.execute(scan);
+			}
+			for( FolderScan scan : scans ) {
+				scan.join();
+				stamps.putAll(scan.stamps);
+				for( Map.Entry<String, Entry> e : scan.entries.entrySet()) {
+					if( !entries.containsKey(e.getKey()))
+						entries.put(e.getKey(), e.getValue());
+				}
+			}
+			return true;
+		} catch(RuntimeException re) {
+			IStatus s = new Status(IStatus.ERROR, ClasspathCorePlugin.PLUGIN_ID,
+					"Unable to index modules folder " + modulesFolder, re); //$NON-NLS-1$
+			ClasspathCorePlugin.getDefault().getLog().log(s);
+			return false;
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/*
+	 * The other roots beneath this root, and the folders leading to them,
+	 * are not part of this root.
+	 */
+	private Set<String> getExcluded(File root) {
+		Set<String> excluded = new HashSet<String>();
+		String rootPath = root.getAbsolutePath();
+		for( String other : roots ) {
+			File f = new File(other);
+			while( f != null && f.getAbsolutePath().startsWith(rootPath + File.separator)) {
+				excluded.add(f.getAbsolutePath());
+				f = f.getParentFile();
+			}
+		}
+		return excluded;
+	}
+
+	/*
+	 * Scan a folder and, in parallel, everything beneath it. 
+	 * The results of the root scan of each root are shared by all its folders.
+	 */
+	private static class FolderScan extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private File folder;
+		private String relative;
+		private Set<String> excluded;
+		private Map<String, Entry> entries;
+		private Map<String, Long> stamps;
+
+		FolderScan(File root, String relative, Set<String> excluded) {
+			this(root, relative, excluded, new ConcurrentHashMap<String, Entry>(), new ConcurrentHashMap<String, Long>());
+		}
+
+		private FolderScan(File folder, String relative, Set<String> excluded, 
+				Map<String, Entry> entries, Map<String, Long> stamps) {
+			this.folder = folder;
+			this.relative = relative;
+			this.excluded = excluded;
+			this.entries = entries;
+			this.stamps = stamps;
+		}
+
+		protected void compute() {
+			File[] children = folder.listFiles();
+			if( children == null )
+				return;
+			stamps.put(folder.getAbsolutePath(), folder.lastModified());
+			List<String> jars = new ArrayList<String>();
+			List<FolderScan> subfolders = new ArrayList<FolderScan>();
+			boolean isModule = false;
+			for( int i = 0; i < children.length; i++ ) {
+				File c = children[i];
+				String name = c.getName();
+				if( c.isDirectory()) {
+					// hidden folders such as .overlays are roots of their own
+					if( !name.startsWith(".") && !excluded.contains(c.getAbsolutePath())) { //$NON-NLS-1$
+						String childRelative = relative.isEmpty() ? name : relative + "/" + name; //$NON-NLS-1$
+						subfolders.add(new FolderScan(c, childRelative, excluded, entries, stamps));
+					}
+				} else if( name.endsWith(".jar")) { //$NON-NLS-1$
+					jars.add(c.getAbsolutePath());
+				} else if( name.equals(MODULE_XML)) {
+					isModule = true;
+				}
+			}
+			// Any folder at the path of a module + slot is used, 
+			// whether or not it has a module.xml, as ModuleSlot#getJarsUncached does
+			int slash = relative.lastIndexOf('/');
+			if( slash > 0 ) {
+				String module = relative.substring(0, slash).replace('/', '.');
+				String slot = relative.substring(slash + 1);
+				Collections.sort(jars);
+				String alias = null;
+				if( isModule && jars.isEmpty()) {
+					File moduleXml = new File(folder, MODULE_XML);
+					stamps.put(moduleXml.getAbsolutePath(), moduleXml.lastModified());
+					alias = new ModuleAliasUtil().getAlias(moduleXml);
+				}
+				entries.put(getKey(module, slot), new Entry(jars.toArray(new String[jars.size()]), alias));
+			}
+			invokeAll(subfolders);
+		}
+	}
+
+	private boolean read(File file) {
+		InputStream is = null;
+		try {
+			is = new FileInputStream(file);
+			XMLMemento memento = XMLMemento.createReadRoot(is);
+			if( memento == null || !VERSION.equals(memento.getString("version")) //$NON-NLS-1$
+					|| !modulesFolder.getAbsolutePath().equals(memento.getString("modules"))) //$NON-NLS-1$
+				return false;
+			roots = new ArrayList<String>();
+			IMemento[] rootMementos = memento.getChildren("root"); //$NON-NLS-1$
+			for( int i = 0; i < rootMementos.length; i++ ) {
+				roots.add(rootMementos[i].getString("path")); //$NON-NLS-1$
+			}
+			stamps = new HashMap<String, Long>();
+			IMemento[] stampMementos = memento.getChildren("stamp"); //$NON-NLS-1$
+			for( int i = 0; i < stampMementos.length; i++ ) {
+				stamps.put(stampMementos[i].getString("path"), //$NON-NLS-1$
+						Long.valueOf(stampMementos[i].getString("modified"))); //$NON-NLS-1$
+			}
+			entries = new HashMap<String, Entry>();
+			IMemento[] moduleMementos = memento.getChildren("module"); //$NON-NLS-1$
+			for( int i = 0; i < moduleMementos.length; i++ ) {
+				IMemento[] jarMementos = moduleMementos[i].getChildren("jar"); //$NON-NLS-1$
+				String[] jars = new String[jarMementos.length];
+				for( int j = 0; j < jars.length; j++ ) {
+					jars[j] = jarMementos[j].getString("path"); //$NON-NLS-1$
+				}
+				entries.put(getKey(moduleMementos[i].getString("name"), moduleMementos[i].getString("slot")),  //$NON-NLS-1$ //$NON-NLS-2$
+						new Entry(jars, moduleMementos[i].getString("alias"))); //$NON-NLS-1$
+			}
+			return true;
+		} catch(IOException ioe) {
+			return false;
+		} catch(RuntimeException re) {
+			// A damaged file is simply rebuilt
+			return false;
+		} finally {
+			if( is != null ) {
+				try {
+					is.close();
+				} catch(IOException ioe) {
+					// Ignore
+				}
+			}
+		}
+	}
+
+	private void write(File file) {
+		XMLMemento memento = XMLMemento.createWriteRoot("moduleIndex"); //$NON-NLS-1$
+		memento.putString("version", VERSION); //$NON-NLS-1$
+		memento.putString("modules", modulesFolder.getAbsolutePath()); //$NON-NLS-1$
+		for( String r : roots ) {
+			memento.createChild("root").putString("path", r); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		for( Map.Entry<String, Long> f : stamps.entrySet()) {
+			IMemento child = memento.createChild("stamp"); //$NON-NLS-1$
+			child.putString("path", f.getKey()); //$NON-NLS-1$
+			child.putString("modified", f.getValue().toString()); //$NON-NLS-1$
+		}
+		for( Map.Entry<String, Entry> e : entries.entrySet()) {
+			IMemento child = memento.createChild("module"); //$NON-NLS-1$
+			int colon = e.getKey().lastIndexOf(':');
+			child.putString("name", e.getKey().substring(0, colon)); //$NON-NLS-1$
+			child.putString("slot", e.getKey().substring(colon + 1)); //$NON-NLS-1$
+			if( e.getValue().alias != null )
+				child.putString("alias", e.getValue().alias); //$NON-NLS-1$
+			for( String jar : e.getValue().jars ) {
+				child.createChild("jar").putString("path", jar); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+		}
+		OutputStream os = null;
+		try {
+			file.getParentFile().mkdirs();
+			os = new FileOutputStream(file);
+			memento.save(os);
+		} catch(IOException ioe) {
+			IStatus s = new Status(IStatus.WARNING, ClasspathCorePlugin.PLUGIN_ID,
+					"Unable to save the index of modules folder " + modulesFolder, ioe); //$NON-NLS-1$
+			ClasspathCorePlugin.getDefault().getLog().log(s);
+		} finally {
+			if( os != null ) {
+				try {
+					os.close();
+				} catch(IOException ioe) {
+					// Ignore
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the number of module + slot combinations indexed
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	@Override
+	public String toString() {
+		return "ModuleSlotIndex " + modulesFolder + " " + roots; //$NON-NLS-1$ //$NON-NLS-2$
+	}
+}
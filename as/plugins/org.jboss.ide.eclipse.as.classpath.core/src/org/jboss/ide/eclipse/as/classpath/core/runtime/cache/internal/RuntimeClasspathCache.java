@@ -59,6 +59,7 @@ public class RuntimeClasspathCache implements IRuntimeLifecycleListener {
 		if (key != null) {
 			runtimeClasspaths.remove(key);
 		}
+		ModuleSlotCache.getInstance().clearModuleIndex(runtime);
 	}
 	
 	private Map<RuntimeKey, IClasspathEntry[]> getRuntimeClasspaths() {
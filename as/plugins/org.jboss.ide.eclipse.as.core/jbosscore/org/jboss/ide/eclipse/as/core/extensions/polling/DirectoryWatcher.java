@@ -0,0 +1,131 @@
+/******************************************************************************* 
+ * Copyright (c) 2018 Red Hat, Inc. 
+ * Distributed under license by Red Hat, Inc. All rights reserved. 
+ * This program is made available under the terms of the 
+ * Eclipse Public License v1.0 which accompanies this distribution, 
+ * and is available at http://www.eclipse.org/legal/epl-v10.html 
+ * 
+ * Contributors: 
+ * Red Hat, Inc. - initial API and implementation 
+ ******************************************************************************/ 
+package org.jboss.ide.eclipse.as.core.extensions.polling;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jboss.ide.eclipse.as.core.Trace;
+import org.jboss.ide.eclipse.as.core.server.ServerPollingScheduler.ScheduledPoll;
+
+/**
+ * Wakes scheduled polls as soon as a file in the folder they 
+ * watch is created, modified or deleted, so for example a log is 
+ * read the moment it is written to, or a deployment marker is 
+ * noticed the moment it appears, rather than at the next 
+ * scheduled attempt.
+ * 
+ * A single thread waits for the events of all folders.
+ * 
+ * @since 3.6
+ */
+public class DirectoryWatcher implements Runnable {
+	private static DirectoryWatcher instance;
+	public static synchronized DirectoryWatcher getDefault() {
+		if( instance == null )
+			instance = new DirectoryWatcher();
+		return instance;
+	}
+	
+	private WatchService service;
+	private Map<Path, WatchKey> keys = new HashMap<Path, WatchKey>();
+	private Map<WatchKey, List<ScheduledPoll>> polls = new HashMap<WatchKey, List<ScheduledPoll>>();
+	
+	/**
+	 * Wake the poll whenever a file in the folder changes
+	 * 
+	 * @param folder
+	 * @param poll
+	 * @return false if the folder can not be watched
+	 */
+	public synchronized boolean register(File folder, ScheduledPoll poll) {
+		if( !folder.isDirectory())
+			return false;
+		try {
+			if( service == null ) {
+				service = FileSystems.getDefault().newWatchService();
+				Thread t = new Thread(this, "Server Directory Watcher"); //$NON-NLS-1$
+				t.setDaemon(true);
+				t.start();
+			}
+			Path p = folder.toPath();
+			WatchKey key = keys.get(p);
+			if( key == null || !key.isValid()) {
+				key = p.register(service, StandardWatchEventKinds.ENTRY_CREATE, 
+						StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+				keys.put(p, key);
+			}
+			List<ScheduledPoll> list = polls.get(key);
+			if( list == null ) {
+				list = new ArrayList<ScheduledPoll>();
+				polls.put(key, list);
+			}
+			list.add(poll);
+			return true;
+		} catch(IOException ioe) {
+			Trace.trace(Trace.STRING_FINER, "Unable to watch " + folder + ": " + ioe.getMessage()); //$NON-NLS-1$ //$NON-NLS-2$
+			return false;
+		}
+	}
+	
+	public synchronized void unregister(File folder, ScheduledPoll poll) {
+		Path p = folder.toPath();
+		WatchKey key = keys.get(p);
+		if( key == null )
+			return;
+		List<ScheduledPoll> list = polls.get(key);
+		if( list != null ) {
+			list.remove(poll);
+			if( !list.isEmpty())
+				return;
+		}
+		polls.remove(key);
+		keys.remove(p);
+		key.cancel();
+	}
+	
+	private synchronized List<ScheduledPoll> getPolls(WatchKey key) {
+		List<ScheduledPoll> list = polls.get(key);
+		return list == null ? null : new ArrayList<ScheduledPoll>(list);
+	}
+	
+	public void run() {
+		while(true) {
+			WatchKey key;
+			try {
+				key = service.take();
+			} catch(InterruptedException ie) {
+				return;
+			} catch(ClosedWatchServiceException cwse) {
+				return;
+			}
+			// Only the fact that something changed matters, not what
+			key.pollEvents();
+			key.reset();
+			List<ScheduledPoll> toWake = getPolls(key);
+			if( toWake != null ) {
+				for( ScheduledPoll poll : toWake ) {
+					poll.wakeUp();
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,325 @@
+/******************************************************************************* 
+ * Copyright (c) 2018 Red Hat, Inc. 
+ * Distributed under license by Red Hat, Inc. All rights reserved. 
+ * This program is made available under the terms of the 
+ * Eclipse Public License v1.0 which accompanies this distribution, 
+ * and is available at http://www.eclipse.org/legal/epl-v10.html 
+ * 
+ * Contributors: 
+ * Red Hat, Inc. - initial API and implementation 
+ ******************************************************************************/ 
+package org.jboss.ide.eclipse.as.core.extensions.polling;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.wst.server.core.IRuntime;
+import org.eclipse.wst.server.core.IServer;
+import org.jboss.ide.eclipse.as.core.JBossServerCorePlugin;
+import org.jboss.ide.eclipse.as.core.Trace;
+import org.jboss.ide.eclipse.as.core.server.IServerStatePoller;
+import org.jboss.ide.eclipse.as.core.server.IServerStatePoller2;
+import org.jboss.ide.eclipse.as.core.server.IServerStatePollerType;
+import org.jboss.ide.eclipse.as.core.server.ServerPollingScheduler;
+import org.jboss.ide.eclipse.as.core.server.ServerPollingScheduler.IPollTask;
+import org.jboss.ide.eclipse.as.core.server.ServerPollingScheduler.ScheduledPoll;
+import org.jboss.ide.eclipse.as.core.server.internal.v7.JBoss7ManagerServicePoller;
+import org.jboss.ide.eclipse.as.core.server.internal.v7.LocalJBoss7ServerRuntime;
+import org.jboss.ide.eclipse.as.core.util.IJBossRuntimeResourceConstants;
+import org.jboss.ide.eclipse.as.core.util.PollThreadUtils;
+
+/**
+ * Determines the server has started or stopped by tailing its server.log 
+ * and recognizing the lines the server logs when it is done, 
+ * rather than by repeatedly contacting the server while it boots. 
+ * 
+ * Only what is appended to the log after polling begins is read.
+ * If the log can not be found, or nothing is appended to it for a while
+ * (for example because logging has been configured elsewhere), the 
+ * management service poller is used as well. 
+ */
+public class ServerLogPoller implements IServerStatePoller2 {
+
+	public static final String POLLER_ID = "org.jboss.ide.eclipse.as.core.runtime.server.ServerLogPoller"; //$NON-NLS-1$
+	
+	private static final int MIN_DELAY = 50;
+	private static final int MAX_DELAY = 500;
+	
+	/*
+	 * How long the log may stay silent before the fallback poller is started as well
+	 */
+	private static final int FALLBACK_DELAY = 15000;
+	
+	private static final int BUFFER_SIZE = 64 * 1024;
+	
+	private IServerStatePollerType type;
+	private IServer server;
+	private boolean expectedState;
+	private boolean canceled, done, state;
+	private IServerStatePoller fallback;
+	private PollingException pollingException;
+	
+	private File logFile;
+	private boolean watching;
+	private long offset;
+	private long lastGrowth;
+	private ServerLogScanner scanner;
+	private byte[] buffer;
+	private ScheduledPoll poll;
+	
+	public void beginPolling(IServer server, boolean expectedState) throws PollingException {
+		this.server = server;
+		this.expectedState = expectedState;
+		setStateInternal(false, !expectedState);
+		this.canceled = false;
+		
+		File f = getLogFile(server);
+		if( f == null ) {
+			Trace.trace(Trace.STRING_FINER, "No server log found for " + server.getName() + ", polling the management service"); //$NON-NLS-1$ //$NON-NLS-2$
+			beginFallback();
+			return;
+		}
+		logFile = f;
+		offset = f.length();
+		lastGrowth = System.currentTimeMillis();
+		scanner = new ServerLogScanner();
+		buffer = new byte[BUFFER_SIZE];
+		
+		IPollTask task = new IPollTask() {
+			public boolean poll() {
+				return tail();
+			}
+		};
+		ScheduledPoll p = ServerPollingScheduler.getDefault().schedule("Server Log Poller", //$NON-NLS-1$
+				server.getId(), task, MIN_DELAY, MAX_DELAY);
+		synchronized(this) {
+			poll = p;
+		}
+	}
+	
+	/**
+	 * Get the log file of a local JBoss 7 or higher server 
+	 * 
+	 * @param server
+	 * @return the file, which need not exist yet, or null if it can not be determined
+	 */
+	public static File getLogFile(IServer server) {
+		IRuntime rt = server.getRuntime();
+		LocalJBoss7ServerRuntime jb7rt = rt == null ? null : (LocalJBoss7ServerRuntime)rt.loadAdapter(LocalJBoss7ServerRuntime.class, null);
+		if( jb7rt == null )
+			return null;
+		File base = new Path(jb7rt.getBaseDirectory()).toFile();
+		if( !base.isDirectory())
+			return null;
+		return new File(new File(base, IJBossRuntimeResourceConstants.FOLDER_LOG), IJBossRuntimeResourceConstants.AS7_SERVER_LOG);
+	}
+	
+	/*
+	 * Read what has been appended to the log. Return true if polling is over.
+	 */
+	private boolean tail() {
+		if( getCanceled())
+			return true;
+		ScheduledPoll p = getPoll();
+		if( !watching && p != null && logFile.getParentFile().isDirectory()) {
+			watching = DirectoryWatcher.getDefault().register(logFile.getParentFile(), p);
+		}
+		
+		long length = logFile.length();
+		if( length < offset ) {
+			// The log has been rotated or truncated
+			offset = 0;
+			scanner.reset();
+		}
+		if( length > offset ) {
+			lastGrowth = System.currentTimeMillis();
+			try {
+				read(length);
+			} catch(IOException ioe) {
+				// The file may be locked or recreated, try again next time
+				Trace.trace(Trace.STRING_FINER, "Unable to read " + logFile + ": " + ioe.getMessage()); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+			if( checkMarker(scanner.getState()))
+				return true;
+		}
+		
+		IServerStatePoller fb = getFallback();
+		if( fb == null && System.currentTimeMillis() - lastGrowth > FALLBACK_DELAY ) {
+			Trace.trace(Trace.STRING_FINER, logFile + " has not been written to for " + FALLBACK_DELAY  //$NON-NLS-1$
+					+ "ms, polling the management service as well"); //$NON-NLS-1$
+			try {
+				beginFallback();
+			} catch(PollingException pe) {
+				synchronized(this) {
+					pollingException = pe;
+				}
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	private void read(long length) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(logFile, "r"); //$NON-NLS-1$
+		try {
+			raf.seek(offset);
+			while( offset < length ) {
+				int read = raf.read(buffer, 0, (int)Math.min(buffer.length, length - offset));
+				if( read < 0 )
+					break;
+				scanner.scan(buffer, 0, read);
+				offset += read;
+			}
+		} finally {
+			raf.close();
+		}
+	}
+	
+	/*
+	 * Return true if the marker found answers the question asked
+	 */
+	private boolean checkMarker(int marker) {
+		if( expectedState == SERVER_UP ) {
+			if( marker == ServerLogScanner.STARTED ) {
+				setStateInternal(true, SERVER_UP);
+				return true;
+			}
+			if( marker == ServerLogScanner.FAILED ) {
+				setStateInternal(true, SERVER_DOWN);
+				return true;
+			}
+		} else if( marker == ServerLogScanner.STOPPED || marker == ServerLogScanner.FAILED ) {
+			setStateInternal(true, SERVER_DOWN);
+			return true;
+		}
+		return false;
+	}
+	
+	private void beginFallback() throws PollingException {
+		IServerStatePoller fb = createFallback();
+		if( fb == null ) 
+			return;
+		synchronized(this) {
+			if( canceled || fallback != null )
+				return;
+			fallback = fb;
+		}
+		fb.beginPolling(server, expectedState);
+	}
+	
+	private static IServerStatePoller createFallback() {
+		return PollThreadUtils.getPoller(JBoss7ManagerServicePoller.POLLER_ID);
+	}
+	
+	private synchronized ScheduledPoll getPoll() {
+		return poll;
+	}
+	
+	private synchronized IServerStatePoller getFallback() {
+		return fallback;
+	}
+	
+	private synchronized boolean getCanceled() {
+		return canceled;
+	}
+	
+	private synchronized void setStateInternal(boolean done, boolean state) {
+		this.done = done;
+		this.state = state;
+	}
+	
+	public IServerStatePollerType getPollerType() {
+		return type;
+	}
+
+	public void setPollerType(IServerStatePollerType type) {
+		this.type = type;
+	}
+
+	public IServer getServer() {
+		return server;
+	}
+
+	public boolean isComplete() throws PollingException, RequiresInfoException {
+		IServerStatePoller fb;
+		synchronized(this) {
+			if( pollingException != null )
+				throw pollingException;
+			if( done )
+				return true;
+			fb = fallback;
+		}
+		return fb != null && fb.isComplete();
+	}
+
+	public boolean getState() throws PollingException, RequiresInfoException {
+		IServerStatePoller fb;
+		synchronized(this) {
+			if( done )
+				return state;
+			fb = fallback;
+		}
+		return fb != null ? fb.getState() : state;
+	}
+
+	public void cancel(int type) {
+		IServerStatePoller fb;
+		synchronized(this) {
+			canceled = true;
+			fb = fallback;
+		}
+		stopTailing();
+		if( fb != null )
+			fb.cancel(type);
+	}
+
+	public void cleanup() {
+		stopTailing();
+		IServerStatePoller fb = getFallback();
+		if( fb != null )
+			fb.cleanup();
+	}
+	
+	private void stopTailing() {
+		ScheduledPoll p = getPoll();
+		if( p != null ) {
+			p.cancel();
+			if( logFile != null )
+				DirectoryWatcher.getDefault().unregister(logFile.getParentFile(), p);
+		}
+	}
+
+	public List<String> getRequiredProperties() {
+		IServerStatePoller fb = getFallback();
+		return fb == null ? new ArrayList<String>() : fb.getRequiredProperties();
+	}
+
+	public void provideCredentials(Properties properties) {
+		IServerStatePoller fb = getFallback();
+		if( fb != null )
+			fb.provideCredentials(properties);
+	}
+
+	public int getTimeoutBehavior() {
+		return TIMEOUT_BEHAVIOR_FAIL;
+	}
+
+	/*
+	 * The log only tells what happened, not whether the server is still 
+	 * running, so ask the management service instead.
+	 */
+	public IStatus getCurrentStateSynchronous(IServer server) {
+		IServerStatePoller fb = createFallback();
+		if( fb instanceof IServerStatePoller2 )
+			return ((IServerStatePoller2)fb).getCurrentStateSynchronous(server);
+		return new Status(IStatus.INFO, JBossServerCorePlugin.PLUGIN_ID, 
+				"The state of " + server.getName() + " can not be determined from its log"); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+}
@@ -0,0 +1,128 @@
+/******************************************************************************* 
+ * Copyright (c) 2018 Red Hat, Inc. 
+ * Distributed under license by Red Hat, Inc. All rights reserved. 
+ * This program is made available under the terms of the 
+ * Eclipse Public License v1.0 which accompanies this distribution, 
+ * and is available at http://www.eclipse.org/legal/epl-v10.html 
+ * 
+ * Contributors: 
+ * Red Hat, Inc. - initial API and implementation 
+ ******************************************************************************/ 
+package org.jboss.ide.eclipse.as.core.extensions.polling;
+
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Pattern;
+
+/**
+ * Recognizes the lines a JBoss AS 7, EAP or WildFly server 
+ * logs once it has started, failed to boot, or stopped. 
+ * 
+ * The log is fed as it grows, in chunks of any size. 
+ * Lines split across chunks are joined before being matched.
+ */
+public class ServerLogScanner {
+	/** No marker has been found so far */
+	public static final int UNKNOWN = 0;
+	/** The server has started, possibly with errors */
+	public static final int STARTED = 1;
+	/** The server has failed to boot */
+	public static final int FAILED = 2;
+	/** The server has stopped */
+	public static final int STOPPED = 3;
+	
+	// JBAS015874 / WFLYSRV0025: started, JBAS015875 / WFLYSRV0026: started with errors
+	private static final Pattern STARTED_PATTERN = Pattern.compile(
+			"JBAS01587[45]|WFLYSRV002[56]|(JBoss|WildFly|EAP).* started( \\(with errors\\))? in \\d+ms"); //$NON-NLS-1$
+	// JBAS015957 / WFLYSRV0056: Server boot has failed in an unrecoverable manner
+	private static final Pattern FAILED_PATTERN = Pattern.compile(
+			"JBAS015957|WFLYSRV0056|Server boot has failed in an unrecoverable manner"); //$NON-NLS-1$
+	// JBAS015950 / WFLYSRV0050: stopped
+	private static final Pattern STOPPED_PATTERN = Pattern.compile(
+			"JBAS015950|WFLYSRV0050|(JBoss|WildFly|EAP).* stopped in \\d+ms"); //$NON-NLS-1$
+	
+	// Longer lines, such as huge stack trace lines, are cut. Markers are at the start of a line.
+	private static final int MAX_LINE_LENGTH = 4096;
+	
+	private byte[] line = new byte[256];
+	private int lineLength = 0;
+	private int state = UNKNOWN;
+	
+	/**
+	 * Scan the next chunk of the log
+	 * 
+	 * @param bytes
+	 * @param offset
+	 * @param length
+	 * @return the state of the last marker found so far
+	 */
+	public int scan(byte[] bytes, int offset, int length) {
+		int end = offset + length;
+		for( int i = offset; i < end; i++ ) {
+			byte b = bytes[i];
+			if( b == '\n' ) {
+				endLine();
+			} else if( lineLength < MAX_LINE_LENGTH ) {
+				if( lineLength == line.length ) {
+					byte[] tmp = new byte[Math.min(MAX_LINE_LENGTH, line.length * 2)];
+					System.arraycopy(line, 0, tmp, 0, lineLength);
+					line = tmp;
+				}
+				line[lineLength++] = b;
+			}
+		}
+		return state;
+	}
+	
+	/**
+	 * Scan the line not yet terminated by a newline, 
+	 * for when the log will not grow any further. 
+	 * 
+	 * @return the state of the last marker found
+	 */
+	public int flush() {
+		if( lineLength > 0 )
+			endLine();
+		return state;
+	}
+	
+	/**
+	 * @return the state of the last marker found so far
+	 */
+	public int getState() {
+		return state;
+	}
+	
+	/**
+	 * Forget any partial line and marker found, 
+	 * for example when the log has been rotated
+	 */
+	public void reset() {
+		lineLength = 0;
+		state = UNKNOWN;
+	}
+	
+	private void endLine() {
+		// The markers are ascii, which any charset used for the log keeps intact
+		String s = new String(line, 0, lineLength, StandardCharsets.ISO_8859_1);
+		lineLength = 0;
+		int found = match(s);
+		if( found != UNKNOWN )
+			state = found;
+	}
+	
+	/**
+	 * Get the state a single log line indicates
+	 * 
+	 * @param line
+	 * @return one of {@link #STARTED}, {@link #FAILED}, {@link #STOPPED} or {@link #UNKNOWN}
+	 */
+	public static int match(String line) {
+		if( STARTED_PATTERN.matcher(line).find())
+			return STARTED;
+		if( FAILED_PATTERN.matcher(line).find())
+			return FAILED;
+		if( STOPPED_PATTERN.matcher(line).find())
+			return STOPPED;
+		return UNKNOWN;
+	}
+}
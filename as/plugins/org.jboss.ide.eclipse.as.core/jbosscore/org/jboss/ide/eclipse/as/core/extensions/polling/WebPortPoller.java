@@ -29,6 +29,9 @@ import org.jboss.ide.eclipse.as.core.Messages;
 import org.jboss.ide.eclipse.as.core.server.IJBossServer;
 import org.jboss.ide.eclipse.as.core.server.IServerStatePoller2;
 import org.jboss.ide.eclipse.as.core.server.IServerStatePollerType;
+import org.jboss.ide.eclipse.as.core.server.ServerPollingScheduler;
+import org.jboss.ide.eclipse.as.core.server.ServerPollingScheduler.IPollTask;
+import org.jboss.ide.eclipse.as.core.server.ServerPollingScheduler.ScheduledPoll;
 import org.jboss.ide.eclipse.as.core.util.IJBossToolingConstants;
 import org.jboss.ide.eclipse.as.core.util.ServerConverter;
 import org.jboss.ide.eclipse.as.core.util.ServerUtil;
@@ -36,11 +39,20 @@ import org.jboss.ide.eclipse.as.core.util.ServerUtil;
 public class WebPortPoller implements IServerStatePoller2 {
 
 	public static final String WEB_POLLER_ID = IJBossToolingConstants.DEFAULT_STARTUP_POLLER;
+	
+	/*
+	 * The poll is run on a shared thread, so a ping may not hang
+	 */
+	private static final int PING_TIMEOUT = 5000;
+	private static final int MIN_DELAY = 100;
+	private static final int MAX_DELAY = 1000;
+	
 	private IServer server;
 	private IServerStatePollerType type;
 	private boolean canceled, done;
 	private boolean state;
 	private boolean expectedState;
+	private ScheduledPoll poll;
 
 	public void beginPolling(IServer server, boolean expectedState) {
 		this.server = server;
@@ -50,13 +62,30 @@ public class WebPortPoller implements IServerStatePoller2 {
 		launchThread();
 	}
 
+	/**
+	 * Poll the web port on the shared {@link ServerPollingScheduler}.
+	 * Despite its name, no thread is launched any longer. 
+	 */
 	protected void launchThread() {
-		Thread t = new Thread(new Runnable(){
-			public void run() {
-				pollerRun();
+		setStateInternal(false, state);
+		final String url = getURL(getServer());
+		IPollTask task = new IPollTask() {
+			public boolean poll() {
+				if( canceled )
+					return true;
+				boolean up = onePing(url);
+				if( up == expectedState ) {
+					setStateInternal(true, expectedState);
+					return true;
+				}
+				return false;
 			}
-		}, "Web Poller"); //$NON-NLS-1$
-		t.start();
+		};
+		ScheduledPoll p = ServerPollingScheduler.getDefault().schedule("Web Poller", //$NON-NLS-1$ 
+				getServer().getId(), task, MIN_DELAY, MAX_DELAY);
+		synchronized(this) {
+			poll = p;
+		}
 	}
 	
 	private synchronized void setStateInternal(boolean done, boolean state) {
@@ -64,20 +93,6 @@ public class WebPortPoller implements IServerStatePoller2 {
 		this.state = state;
 	}
 	
-	private void pollerRun() {
-		setStateInternal(false, state);
-		String url = getURL(getServer());
-		while(!canceled && !done) {
-			boolean up = onePing(url);
-			if( up == expectedState ) {
-				setStateInternal(true, expectedState);
-			}
-			try {
-				Thread.sleep(100);
-			} catch(InterruptedException ie) {} // ignore
-		}
-	}
-	
 	private static String getURL(IServer server) {
 		// v6_safe
 		IJBossServer jbs = ServerConverter.getJBossServer(server);
@@ -94,6 +109,8 @@ public class WebPortPoller implements IServerStatePoller2 {
 		try {
 			URL pingUrl = new URL(url);
 			conn = pingUrl.openConnection();
+			conn.setConnectTimeout(PING_TIMEOUT);
+			conn.setReadTimeout(PING_TIMEOUT);
 			((HttpURLConnection)conn).getResponseCode();
 			return true;
 		} catch( FileNotFoundException fnfe ) {
@@ -143,8 +160,14 @@ public class WebPortPoller implements IServerStatePoller2 {
 	public void provideCredentials(Properties properties) {
 	}
 
-	public synchronized void cancel(int type) {
-		canceled = true;
+	public void cancel(int type) {
+		ScheduledPoll p;
+		synchronized(this) {
+			canceled = true;
+			p = poll;
+		}
+		if( p != null )
+			p.cancel();
 	}
 
 	public int getTimeoutBehavior() {
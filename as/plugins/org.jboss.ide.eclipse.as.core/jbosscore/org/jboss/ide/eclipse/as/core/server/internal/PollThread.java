@@ -21,11 +21,21 @@ import org.jboss.ide.eclipse.as.core.server.IPollResultListener;
 import org.jboss.ide.eclipse.as.core.server.IServerStatePoller;
 import org.jboss.ide.eclipse.as.core.server.IServerStatePoller.PollingException;
 import org.jboss.ide.eclipse.as.core.server.IServerStatePoller.RequiresInfoException;
+import org.jboss.ide.eclipse.as.core.server.ServerPollingScheduler;
+import org.jboss.ide.eclipse.as.core.server.ServerPollingScheduler.IPollTask;
+import org.jboss.ide.eclipse.as.core.server.ServerPollingScheduler.ScheduledPoll;
 import org.jboss.ide.eclipse.as.core.util.IEventCodes;
 import org.jboss.ide.eclipse.as.core.util.PollThreadUtils;
 
 /**
- * 
+ * Polls a server with an {@link IServerStatePoller} until it reaches 
+ * the expected state, the poller has an answer, or the timeout is reached.
+ * <p>
+ * This class remains a {@link Thread} for compatibility, but {@link #start()} 
+ * no longer launches a thread. The polling is instead run on the shared
+ * {@link ServerPollingScheduler}. {@link #run()} still polls synchronously 
+ * on the calling thread.
+ * </p>
  * @author rob.stryker@jboss.com
  */
 public class PollThread extends Thread {
@@ -46,7 +56,17 @@ public class PollThread extends Thread {
 	public static final String SERVER_STARTING = "org.jboss.ide.eclipse.as.core.runtime.server.PollThread.server.starting"; //$NON-NLS-1$
 	public static final String SERVER_STOPPING = "org.jboss.ide.eclipse.as.core.runtime.server.PollThread.server.stopping"; //$NON-NLS-1$
 
-	private boolean expectedState, abort, stateStartedOrStopped;
+	/*
+	 * The interval to ask the poller whether it is complete. 
+	 * Asking is cheap, the pollers themselves decide how often to contact the server.
+	 */
+	private static final int POLL_INTERVAL = 100;
+	
+	private boolean expectedState, stateStartedOrStopped, done;
+	private volatile boolean abort;
+	private int maxWait;
+	private long startTime;
+	private ScheduledPoll scheduledPoll;
 	private IServerStatePoller poller;
 	private String abortMessage;
 	private String pollerId;
@@ -71,9 +91,13 @@ public class PollThread extends Thread {
 	}
 
 	public void cancel(String message) {
-		abort = true;
 		abortMessage = message;
+		abort = true;
 		poller.cancel(IServerStatePoller.CANCEL);
+		// Handle the abort at once rather than at the next interval
+		ScheduledPoll p = scheduledPoll;
+		if( p != null )
+			p.wakeUp();
 	}
 
 	public int getTimeout() {
@@ -83,34 +107,76 @@ public class PollThread extends Thread {
 			return (getServer().getStopTimeout() - 2) * 1000;
 	}
 
+	/**
+	 * Poll on the shared scheduler rather than on a new thread. 
+	 */
+	public synchronized void start() {
+		if( scheduledPoll != null )
+			throw new IllegalThreadStateException();
+		final boolean[] begun = new boolean[]{false};
+		IPollTask task = new IPollTask() {
+			public boolean poll() {
+				if( !begun[0] ) {
+					begun[0] = true;
+					// the first check follows one interval after polling begins
+					return !begin();
+				}
+				return step();
+			}
+		};
+		scheduledPoll = ServerPollingScheduler.getDefault().schedule(getName(), 
+				server.getId(), task, POLL_INTERVAL, POLL_INTERVAL);
+	}
+	
 	public void run() {
+		if( !begin())
+			return;
+		// begin the loop; ask the poller every so often
+		do {
+			try {
+				Thread.sleep(POLL_INTERVAL);
+			} catch (InterruptedException ie) {
+				// I have no idea what I'm supposed to do here to make this 'not empty'
+			}
+		} while(!step());
+	}
+	
+	/*
+	 * Begin polling. Return false if there is nothing to poll.
+	 */
+	private boolean begin() {
 		// Poller not found. Abort
 		if (poller == null) {
 			alertEventLogStarting();
 			alertPollerNotFound();
 			alertListener(!expectedState);
-			return;
+			return false;
 		}
 
-		int maxWait = getTimeout();
+		maxWait = getTimeout();
 		alertEventLogStarting();
 
-		long startTime = System.currentTimeMillis();
-		boolean done = false;
+		startTime = System.currentTimeMillis();
+		done = false;
 		try {
 			poller.beginPolling(getServer(), expectedState);
+		} catch(Exception e) {
+			abort = true;
+			Status s = new Status(IStatus.ERROR, JBossServerCorePlugin.PLUGIN_ID, Messages.ServerStatePollerUnexpectedError, e);
+			ServerLogger.getDefault().log(server, s);
+		}
+		return true;
+	}
 	
-			// begin the loop; ask the poller every so often
-			while (!stateStartedOrStopped 
-					&& !abort 
-					&& !done
-					&& !timeoutReached(startTime, maxWait)) {
-				try {
-					Thread.sleep(100);
-				} catch (InterruptedException ie) {
-					// I have no idea what I'm supposed to do here to make this 'not empty'
-				}
-	
+	/*
+	 * Ask the poller once. Return true if polling is over.
+	 */
+	private boolean step() {
+		if (!stateStartedOrStopped 
+				&& !abort 
+				&& !done
+				&& !timeoutReached(startTime, maxWait)) {
+			try {
 				try {
 					done = poller.isComplete();
 				} catch (PollingException e) {
@@ -119,7 +185,7 @@ public class PollThread extends Thread {
 					poller.cleanup();
 					alertEventLogPollerException(e);
 					alertListener(!expectedState);
-					return;
+					return true;
 				} catch (RequiresInfoException rie) {
 					// This way each request for new info is checked only once.
 					if (!rie.getChecked()) {
@@ -128,13 +194,22 @@ public class PollThread extends Thread {
 					}
 				}
 				stateStartedOrStopped = checkServerState();
+			} catch(Exception e) {
+				abort = true;
+				Status s = new Status(IStatus.ERROR, JBossServerCorePlugin.PLUGIN_ID, Messages.ServerStatePollerUnexpectedError, e);
+				ServerLogger.getDefault().log(server, s);
 			}
-		} catch(Exception e) {
-			abort = true;
-			Status s = new Status(IStatus.ERROR, JBossServerCorePlugin.PLUGIN_ID, Messages.ServerStatePollerUnexpectedError, e);
-			ServerLogger.getDefault().log(server, s);
+			if (!stateStartedOrStopped 
+					&& !abort 
+					&& !done
+					&& !timeoutReached(startTime, maxWait))
+				return false;
 		}
-
+		finish();
+		return true;
+	}
+	
+	private void finish() {
 		if (stateStartedOrStopped) {
 			// we stopped. Did we abort?
 			handleUncertainTermination();
@@ -11,6 +11,9 @@
  ******************************************************************************/ 
 package org.jboss.ide.eclipse.as.core.server.internal.v7;
 
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
@@ -21,6 +24,8 @@ import org.eclipse.wst.server.core.IModule;
 import org.eclipse.wst.server.core.IServer;
 import org.jboss.ide.eclipse.as.core.JBossServerCorePlugin;
 import org.jboss.ide.eclipse.as.core.server.IServerModuleStateVerifier;
+import org.jboss.ide.eclipse.as.core.server.internal.v7.DeploymentReadinessWaiter.IReadinessCheck;
+import org.jboss.ide.eclipse.as.core.server.internal.v7.DeploymentReadinessWaiter.Waiting;
 import org.jboss.ide.eclipse.as.core.util.JBossServerBehaviorUtils;
 import org.jboss.ide.eclipse.as.wtp.core.server.behavior.AbstractSubsystemController;
 import org.jboss.ide.eclipse.as.wtp.core.server.behavior.IControllableServerBehavior;
@@ -29,29 +34,7 @@ import org.jboss.tools.as.core.server.controllable.systems.IModuleDeployPathCont
 
 public abstract class AbstractJBoss7ModuleStateVerifier extends AbstractSubsystemController implements IModuleStateController, IServerModuleStateVerifier {
 	public void waitModuleStarted(IServer server, IModule[] module, final int maxDelay) {
-		final NullProgressMonitor monitor = new NullProgressMonitor();
-		Thread t = new Thread(){
-			public void run() {
-				try {
-					Thread.sleep(maxDelay);
-				} catch(InterruptedException ie) {
-					return;
-				}
-				synchronized(monitor) {
-					monitor.setCanceled(true);
-				}
-			}
-		};
-		t.start();
-		
-		// synchronous call to wait
-		waitModuleStarted(server, module, monitor);
-		
-		// call is over, can notify the thread to go finish itself
-		synchronized(monitor) {
-			if( !monitor.isCanceled() )
-				t.interrupt();
-		}
+		waitModuleStarted(server, module, new NullProgressMonitor(), maxDelay);
 	}
 
 	public boolean isModuleStarted(IServer server, IModule[] module,
@@ -99,46 +82,83 @@ public abstract class AbstractJBoss7ModuleStateVerifier extends AbstractSubsyste
 	
 
 	public void waitModuleStarted(IServer server, IModule[] module, IProgressMonitor monitor) {
+		waitModuleStarted(server, module, monitor, -1);
+	}
+	
+	/*
+	 * Wait for the module to be started, or to have failed, until canceled 
+	 * or the max delay (if not negative) has passed. The state of the module
+	 * is checked on a thread of the server's readiness waiter, so the checks
+	 * get a monitor of their own, while this thread watches the given one.
+	 */
+	private void waitModuleStarted(final IServer server, final IModule[] module, 
+			final IProgressMonitor monitor, long maxDelay) {
 		if( module.length == 0 || module[0] == null)
 			return;
 		
+		final String deploymentName;
 		try {
-			String deploymentName = getDeploymentName(server, module[0]);
-			boolean waitedOnce = false;
-			
-			while (!monitor.isCanceled()) {
-				boolean done = isRootModuleStarted(server, module[0], deploymentName, monitor);
-				if (done) {
-					return;
-				}
-				if(!waitedOnce) {
-					String info = "Module {0} on {1} not yet fully deployed. Waiting..."; //$NON-NLS-1$
-					IStatus s = new Status( IStatus.INFO, JBossServerCorePlugin.PLUGIN_ID, 
-						NLS.bind(info, module[0].getName(), server.getName()),null);
-					JBossServerCorePlugin.log(s);
-				}
-				waitedOnce = true;
-				try {
-					Thread.sleep(2000);
-				} catch (InterruptedException ie) {
-					// Ignore, intentional
+			deploymentName = getDeploymentName(server, module[0]);
+		} catch (Exception e) {
+			logWaitError(server, module, e);
+			return;
+		}
+		
+		IReadinessCheck check = new IReadinessCheck() {
+			public boolean isReady() throws Exception {
+				return isRootModuleStarted(server, module[0], deploymentName, new NullProgressMonitor());
+			}
+			public boolean isFailed() throws Exception {
+				return isRootModuleFailed(server, module[0], deploymentName, new NullProgressMonitor());
+			}
+			public void waiting() {
+				String info = "Module {0} on {1} not yet fully deployed. Waiting..."; //$NON-NLS-1$
+				IStatus s = new Status( IStatus.INFO, JBossServerCorePlugin.PLUGIN_ID, 
+					NLS.bind(info, module[0].getName(), server.getName()),null);
+				JBossServerCorePlugin.log(s);
+			}
+		};
+		long deadline = maxDelay < 0 ? -1 : System.currentTimeMillis() + maxDelay;
+		DeploymentReadinessWaiter waiter = DeploymentReadinessWaiter.getWaiter(server.getId());
+		Waiting waiting = waiter.add(check, getWatchedFolder(server, module[0]));
+		boolean done = false;
+		try {
+			while( !(done = waiting.await(100, TimeUnit.MILLISECONDS))) {
+				if( monitor.isCanceled() || (deadline != -1 && System.currentTimeMillis() >= deadline)) {
+					break;
 				}
 			}
-			
-			String warning = "Module {0} on {1} still not ready to be shown in browser. Aborting delay."; //$NON-NLS-1$
+		} catch(InterruptedException ie) {
+			Thread.currentThread().interrupt();
+		}
+		if( !done )
+			waiter.remove(waiting);
+		
+		if( waiting.getError() != null ) {
+			logWaitError(server, module, waiting.getError());
+		} else if( waiting.isFailed()) {
+			String warning = "Module {0} on {1} failed to deploy. Aborting delay."; //$NON-NLS-1$
 			IStatus s = new Status(
 					IStatus.WARNING, JBossServerCorePlugin.PLUGIN_ID, 
 					NLS.bind(warning, module[0].getName(), server.getName()), null);
 			JBossServerCorePlugin.log(s);
-		} catch (Exception e) {
-			String er = "Error occurred while waiting for {0} to start on server {1}"; //$NON-NLS-1$
+		} else if( !done ) {
+			String warning = "Module {0} on {1} still not ready to be shown in browser. Aborting delay."; //$NON-NLS-1$
 			IStatus s = new Status(
-					IStatus.WARNING, JBossServerCorePlugin.PLUGIN_ID,
-					NLS.bind(er, module[0].getName(), server.getName()), e);
+					IStatus.WARNING, JBossServerCorePlugin.PLUGIN_ID, 
+					NLS.bind(warning, module[0].getName(), server.getName()), null);
 			JBossServerCorePlugin.log(s);
 		}
 	}
 	
+	private void logWaitError(IServer server, IModule[] module, Throwable e) {
+		String er = "Error occurred while waiting for {0} to start on server {1}"; //$NON-NLS-1$
+		IStatus s = new Status(
+				IStatus.WARNING, JBossServerCorePlugin.PLUGIN_ID,
+				NLS.bind(er, module[0].getName(), server.getName()), e);
+		JBossServerCorePlugin.log(s);
+	}
+	
 
 	@Override
 	public int stopModule(IModule[] module, IProgressMonitor monitor) throws CoreException  {
@@ -154,6 +174,31 @@ public abstract class AbstractJBoss7ModuleStateVerifier extends AbstractSubsyste
 	protected abstract int getRootModuleState(IServer server, IModule root, 
 			String deploymentName, IProgressMonitor monitor) throws Exception;
 
+	/**
+	 * Return true if the deployment of the root module has failed, 
+	 * so there is no point in waiting for it to start. 
+	 * Verifiers which can tell a failed deployment from a 
+	 * stopped one should override. 
+	 * 
+	 * @since 3.6
+	 */
+	protected boolean isRootModuleFailed(IServer server, IModule root, 
+			String deploymentName, IProgressMonitor monitor) throws Exception {
+		return false;
+	}
+
+	/**
+	 * Return a local folder in which something changes when the 
+	 * state of the root module changes, or null if there is none.
+	 * Waiting for the module to start checks its state as soon as 
+	 * anything in this folder changes. 
+	 * 
+	 * @since 3.6
+	 */
+	protected File getWatchedFolder(IServer server, IModule root) {
+		return null;
+	}
+
 	public abstract int changeModuleStateTo(IModule[] module, int state, IProgressMonitor monitor) throws CoreException;
 	
 	@Override
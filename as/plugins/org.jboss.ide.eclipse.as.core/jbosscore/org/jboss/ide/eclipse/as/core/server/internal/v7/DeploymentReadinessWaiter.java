@@ -0,0 +1,189 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.ide.eclipse.as.core.server.internal.v7;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.ide.eclipse.as.core.extensions.polling.DirectoryWatcher;
+import org.jboss.ide.eclipse.as.core.server.ServerPollingScheduler;
+import org.jboss.ide.eclipse.as.core.server.ServerPollingScheduler.IPollCompletionListener;
+import org.jboss.ide.eclipse.as.core.server.ServerPollingScheduler.IPollTask;
+import org.jboss.ide.eclipse.as.core.server.ServerPollingScheduler.ScheduledPoll;
+
+/**
+ * Waits for deployments on a server to be ready.
+ *
+ * Each deployment being waited for is checked by a poll of its own
+ * on the shared scheduler. As every attempt runs on a thread of the
+ * scheduler's pool, a check blocking on a slow server or deployment
+ * does not hold up the checks of the other deployments. A poll is
+ * woken at once whenever something changes in its watched folder,
+ * such as a deployment marker being added next to the deployment,
+ * so a deployment is noticed as soon as it is ready or has failed.
+ */
+class DeploymentReadinessWaiter {
+	private static final int POLL_MIN_DELAY = 100;
+	private static final int POLL_MAX_DELAY = 1000;
+
+	private static Map<String, DeploymentReadinessWaiter> waiters = new HashMap<String, DeploymentReadinessWaiter>();
+
+	static synchronized DeploymentReadinessWaiter getWaiter(String serverId) {
+		DeploymentReadinessWaiter w = waiters.get(serverId);
+		if( w == null ) {
+			w = new DeploymentReadinessWaiter(serverId);
+			waiters.put(serverId, w);
+		}
+		return w;
+	}
+
+	/**
+	 * Checks the state of one deployment
+	 */
+	interface IReadinessCheck {
+		/**
+		 * @return true if the deployment is ready
+		 */
+		public boolean isReady() throws Exception;
+
+		/**
+		 * @return true if the deployment has failed and will not become ready
+		 */
+		public boolean isFailed() throws Exception;
+
+		/**
+		 * Called once, the first time the deployment is found not to be ready
+		 */
+		public void waiting();
+	}
+
+	/**
+	 * A deployment being waited for
+	 */
+	static class Waiting {
+		private IReadinessCheck check;
+		private File folder;
+		private ScheduledPoll poll;
+		private CountDownLatch done = new CountDownLatch(1);
+		private volatile boolean ready, failed;
+		private volatile Throwable error;
+		private boolean checkedOnce;
+
+		private Waiting(IReadinessCheck check, File folder) {
+			this.check = check;
+			this.folder = folder;
+		}
+
+		/**
+		 * Wait for the deployment to be ready or failed
+		 * @return true if it is, false if the timeout has passed first
+		 */
+		boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+			return done.await(timeout, unit);
+		}
+
+		boolean isReady() {
+			return ready;
+		}
+
+		boolean isFailed() {
+			return failed;
+		}
+
+		/**
+		 * @return the exception thrown while checking the deployment, or null
+		 */
+		Throwable getError() {
+			return error;
+		}
+
+		private boolean isDone() {
+			return done.getCount() == 0;
+		}
+
+		/*
+		 * Check the deployment once. Whether a failure belongs to an
+		 * earlier attempt is left to the check, which knows what a
+		 * pending deployment looks like.
+		 */
+		private void check() {
+			try {
+				if( check.isReady()) {
+					ready = true;
+				} else if( check.isFailed()) {
+					failed = true;
+				}
+			} catch(Exception e) {
+				error = e;
+			}
+			if( ready || failed || error != null ) {
+				done.countDown();
+			} else if( !checkedOnce ) {
+				check.waiting();
+			}
+			checkedOnce = true;
+		}
+	}
+
+	private String serverId;
+
+	private DeploymentReadinessWaiter(String serverId) {
+		this.serverId = serverId;
+	}
+
+	/**
+	 * Begin waiting for a deployment
+	 *
+	 * @param check checks the state of the deployment
+	 * @param folder a local folder to watch for changes, or null
+	 * @return the deployment being waited for, which must be passed to
+	 *         {@link #remove(Waiting)} if it is no longer waited for before it is done
+	 */
+	Waiting add(IReadinessCheck check, File folder) {
+		final Waiting w = new Waiting(check, folder);
+		w.poll = ServerPollingScheduler.getDefault().schedule("Deployment Readiness Poller", //$NON-NLS-1$
+				serverId, new ReadinessPollTask(w), POLL_MIN_DELAY, POLL_MAX_DELAY);
+		if( folder != null ) {
+			DirectoryWatcher.getDefault().register(folder, w.poll);
+			// registered first, so a poll done by now is still unwatched
+			w.poll.addCompletionListener(new IPollCompletionListener() {
+				public void pollCompleted(ScheduledPoll poll) {
+					DirectoryWatcher.getDefault().unregister(w.folder, poll);
+				}
+			});
+		}
+		return w;
+	}
+
+	/**
+	 * Stop waiting for a deployment, for example because the wait was canceled
+	 * @param w
+	 */
+	void remove(Waiting w) {
+		w.poll.cancel();
+	}
+
+	private static class ReadinessPollTask implements IPollTask {
+		private Waiting waiting;
+
+		private ReadinessPollTask(Waiting waiting) {
+			this.waiting = waiting;
+		}
+
+		public boolean poll() throws Exception {
+			waiting.check();
+			return waiting.isDone();
+		}
+	}
+}
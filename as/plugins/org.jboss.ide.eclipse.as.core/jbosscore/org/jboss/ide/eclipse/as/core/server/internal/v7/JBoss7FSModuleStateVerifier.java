@@ -11,6 +11,8 @@
  ******************************************************************************/ 
 package org.jboss.ide.eclipse.as.core.server.internal.v7;
 
+import java.io.File;
+
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -20,6 +22,7 @@ import org.jboss.ide.eclipse.as.core.server.IServerModuleStateVerifier;
 import org.jboss.ide.eclipse.as.core.util.RemotePath;
 import org.jboss.ide.eclipse.as.wtp.core.server.behavior.IFilesystemController;
 import org.jboss.ide.eclipse.as.wtp.core.server.behavior.IModuleStateController;
+import org.jboss.ide.eclipse.as.wtp.core.server.behavior.LocalFilesystemController;
 import org.jboss.tools.as.core.server.controllable.systems.IDeploymentOptionsController;
 import org.jboss.tools.as.core.server.controllable.systems.IModuleDeployPathController;
 
@@ -116,6 +119,36 @@ public class JBoss7FSModuleStateVerifier extends AbstractJBoss7ModuleStateVerifi
 		return IServer.STATE_UNKNOWN;
 	}
 	
+	/*
+	 * A failed marker only means the deployment failed if the 
+	 * scanner has not been asked to deploy it again since
+	 */
+	protected boolean isRootModuleFailed(IServer server, IModule root,
+			String deploymentName, IProgressMonitor monitor) throws Exception {
+		IFilesystemController c = getFilesystemController();
+		IPath d = getModuleDeployRoot(new IModule[]{root});
+		return DeploymentMarkerUtils.markerExists(d, c, DeploymentMarkerUtils.FAILED_DEPLOY)
+				&& !DeploymentMarkerUtils.markerExists(d, c, DeploymentMarkerUtils.DO_DEPLOY)
+				&& !DeploymentMarkerUtils.markerExists(d, c, DeploymentMarkerUtils.DEPLOYING)
+				&& !DeploymentMarkerUtils.markerExists(d, c, DeploymentMarkerUtils.PENDING);
+	}
+	
+	/*
+	 * The markers are written next to the deployment, so the folder 
+	 * holding it can be watched if it is on the local filesystem
+	 */
+	protected File getWatchedFolder(IServer server, IModule root) {
+		try {
+			if( !(getFilesystemController() instanceof LocalFilesystemController))
+				return null;
+			IPath d = getModuleDeployRoot(new IModule[]{root});
+			File folder = new File(d.removeLastSegments(1).toOSString());
+			return folder.isDirectory() ? folder : null;
+		} catch(CoreException ce) {
+			return null;
+		}
+	}
+	
 	public int changeModuleStateTo(IModule[] module, int state, IProgressMonitor monitor) throws CoreException {
 		IPath archiveDestination = getModuleDeployRoot(new IModule[]{module[0]});
 		if(state == IServer.STATE_STARTED ) {
@@ -27,6 +27,9 @@ import org.jboss.ide.eclipse.as.core.Messages;
 import org.jboss.ide.eclipse.as.core.server.IServerStatePoller;
 import org.jboss.ide.eclipse.as.core.server.IServerStatePoller2;
 import org.jboss.ide.eclipse.as.core.server.IServerStatePollerType;
+import org.jboss.ide.eclipse.as.core.server.ServerPollingScheduler;
+import org.jboss.ide.eclipse.as.core.server.ServerPollingScheduler.IPollTask;
+import org.jboss.ide.eclipse.as.core.server.ServerPollingScheduler.ScheduledPoll;
 import org.jboss.ide.eclipse.as.core.server.v7.management.AS7ManagementDetails;
 import org.jboss.ide.eclipse.as.management.core.IAS7ManagementDetails;
 import org.jboss.ide.eclipse.as.management.core.IJBoss7ManagerService;
@@ -44,6 +47,8 @@ public class JBoss7ManagerServicePoller implements IServerStatePoller2 {
 	public static final String WILDFLY_POLLER_ID = "org.jboss.ide.eclipse.as.core.server.Wildfly8ManagerServicePoller"; //$NON-NLS-1$
 	
 	private static final int SYNCHRONOUS_POLL_FAST_TIMEOUT = 800;
+	private static final int POLL_MIN_DELAY = 300;
+	private static final int POLL_MAX_DELAY = 1000;
 	
 	
 	private IServer server;
@@ -57,6 +62,7 @@ public class JBoss7ManagerServicePoller implements IServerStatePoller2 {
 	private RequiresInfoException requiresInfoException = null;
 	private List<String> requiredProperties = null; 
 	private Properties requiredPropertiesReturned = null;
+	private ScheduledPoll poll;
 
 	public void beginPolling(IServer server, boolean expectedState) throws PollingException {
 		try {
@@ -160,34 +166,58 @@ public class JBoss7ManagerServicePoller implements IServerStatePoller2 {
 		return !expectedState;
 	}
 	
+	/**
+	 * Poll the management service on the shared {@link ServerPollingScheduler}.
+	 * Despite its name, no thread is launched any longer. 
+	 */
 	public void launchPollingThread() {
-		new Thread() {
-			public void run() {
-				runLoop();
+		IPollTask task = new IPollTask() {
+			public boolean poll() {
+				try {
+					return pollOnce();
+				} catch (Exception e) {
+					setPollingException(new PollingException(e.getMessage()));
+					return true;
+				}
 			}
-		}.start();
+		};
+		ScheduledPoll p = ServerPollingScheduler.getDefault().schedule("JBoss Management Poller", //$NON-NLS-1$
+				server.getId(), task, POLL_MIN_DELAY, POLL_MAX_DELAY);
+		synchronized(this) {
+			poll = p;
+		}
 	}
 	
+	/**
+	 * Poll on the calling thread until done or canceled
+	 */
 	public void runLoop() {
 		try {
-			while( !getDone() && !getCanceled() )  {
-				if (expectedState == SERVER_DOWN) {
-					setDone(checkShutdown(service));
-				} else {
-					setDone(checkRunning(service));
-				}
-				if( !getDone() ) {
-					try {
-						Thread.sleep(300);
-					} catch(InterruptedException ie) {
-						// Ignore
-					}
+			while( !pollOnce() )  {
+				try {
+					Thread.sleep(POLL_MIN_DELAY);
+				} catch(InterruptedException ie) {
+					// Ignore
 				}
 			}
 		} catch (Exception e) {
 			setPollingException(new PollingException(e.getMessage()));
 		}
 	}
+	
+	/*
+	 * Ask the service once. Return true if polling is over.
+	 */
+	private boolean pollOnce() {
+		if( getDone() || getCanceled())
+			return true;
+		if (expectedState == SERVER_DOWN) {
+			setDone(checkShutdown(service));
+		} else {
+			setDone(checkRunning(service));
+		}
+		return getDone() || getCanceled();
+	}
 
 	private boolean checkRunning(IJBoss7ManagerService service) {
 		try {
@@ -234,8 +264,14 @@ public class JBoss7ManagerServicePoller implements IServerStatePoller2 {
 		requiredPropertiesReturned = properties;
 	}
 
-	public synchronized void cancel(int type) {
-		canceled = true;
+	public void cancel(int type) {
+		ScheduledPoll p;
+		synchronized(this) {
+			canceled = true;
+			p = poll;
+		}
+		if( p != null )
+			p.cancel();
 	}
 
 	public int getTimeoutBehavior() {
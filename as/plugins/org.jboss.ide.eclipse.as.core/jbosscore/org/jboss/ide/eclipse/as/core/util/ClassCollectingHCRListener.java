@@ -12,17 +12,30 @@ package org.jboss.ide.eclipse.as.core.util;
 
 import java.io.IOException;
 import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 import javax.management.MBeanServerConnection;
 import javax.management.ObjectName;
 
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IStatus;
 import org.eclipse.debug.core.DebugPlugin;
 import org.eclipse.debug.core.ILaunch;
 import org.eclipse.debug.core.model.IBreakpoint;
+import org.eclipse.jdt.debug.core.IJavaBreakpoint;
 import org.eclipse.jdt.debug.core.IJavaDebugTarget;
 import org.eclipse.wst.server.core.IModule;
 import org.eclipse.wst.server.core.IServer;
+import org.eclipse.wst.server.core.internal.Server;
+import org.eclipse.wst.server.core.model.IModuleFile;
+import org.eclipse.wst.server.core.model.IModuleResource;
+import org.eclipse.wst.server.core.model.IModuleResourceDelta;
 import org.jboss.ide.eclipse.as.core.JBossServerCorePlugin;
+import org.jboss.ide.eclipse.as.core.Trace;
 import org.jboss.ide.eclipse.as.wtp.core.server.launch.ServerHotCodeReplaceListener;
 import org.jboss.tools.foundation.core.plugin.log.StatusFactory;
 import org.jboss.tools.jmx.core.IConnectionFacade;
@@ -30,36 +43,209 @@ import org.jboss.tools.jmx.core.IConnectionWrapper;
 import org.jboss.tools.jmx.core.IJMXRunnable;
 import org.jboss.tools.jmx.core.JMXException;
 
+/**
+ * A hotcode replace listener which, once the modules are restarted after a
+ * failed hotcode replace, re-registers the breakpoints of the classes changed
+ * in the publish, so that they get installed in the newly loaded classes.
+ * 
+ * The former behavior of re-registering all breakpoints around two forced
+ * garbage collections on the server can be restored with
+ * {@link #PROPERTY_HOTCODE_FULL_REFRESH}.
+ */
 public class ClassCollectingHCRListener extends ServerHotCodeReplaceListener {
 
+	/**
+	 * The setting on whether to re-register all breakpoints and force garbage
+	 * collections on the server after the modules are restarted, rather than
+	 * re-register only the breakpoints of the changed classes
+	 */
+	public static final String PROPERTY_HOTCODE_FULL_REFRESH = "org.jboss.ide.eclipse.as.core.util.ClassCollectingHCRListener.fullRefresh"; //$NON-NLS-1$
+
+	private static final String CLASS_EXTENSION = ".class"; //$NON-NLS-1$
+	private static final String JAR_EXTENSION = ".jar"; //$NON-NLS-1$
+	private static final String WEB_CLASSES_FOLDER = "WEB-INF/classes/"; //$NON-NLS-1$
+
 	public ClassCollectingHCRListener(IServer server, ILaunch launch) {
 		super(server, launch);
 	}
 
+	/*
+	 * Publishes the modules like the superclass does, handing the classes
+	 * changed in the publish to the publish listener
+	 */
+	@Override
+	protected void restartModules(final IJavaDebugTarget target) {
+		final IModule[] modules = getServer().getModules();
+		// The delta is gone once the restart has published the modules
+		final Set<String> changedTypes = isFullRefresh() ? null : collectChangedTypes(modules);
+		IServer.IOperationListener listener = new IServer.IOperationListener() {
+			public void done(IStatus result) {
+				postPublish(target, modules, changedTypes);
+			}
+		};
+		getServer().publish(IServer.PUBLISH_FULL, Collections.singletonList(modules), null, listener);
+	}
+
 	@Override
 	protected void postPublish(IJavaDebugTarget target, IModule[] modules) {
+		postPublish(target, modules, null);
+	}
+
+	/*
+	 * Re-registers the breakpoints of the given changed classes,
+	 * or all breakpoints if they are not known
+	 */
+	private void postPublish(IJavaDebugTarget target, IModule[] modules, Set<String> changedTypes) {
 		IServer server = getServer();
+		long time = System.currentTimeMillis();
 		waitModulesStarted(modules);
-		removeBreakpoints(target);
-		executeJMXGarbageCollection(server, modules);
-		addBreakpoints(target);
-	}
-	
-	
-	private void addBreakpoints(IJavaDebugTarget target) {
+		time = trace("Waiting for the modules to start", time); //$NON-NLS-1$
+
 		IBreakpoint[] breakpoints = DebugPlugin.getDefault().getBreakpointManager().getBreakpoints();
+		if (isFullRefresh()) {
+			removeBreakpoints(target, breakpoints);
+			time = trace("Removing " + breakpoints.length + " breakpoints", time); //$NON-NLS-1$ //$NON-NLS-2$
+			executeJMXGarbageCollection(server, modules);
+			time = trace("Garbage collection on the server", time); //$NON-NLS-1$
+			addBreakpoints(target, breakpoints);
+			trace("Adding " + breakpoints.length + " breakpoints", time); //$NON-NLS-1$ //$NON-NLS-2$
+		} else {
+			IBreakpoint[] changed = getBreakpoints(breakpoints, changedTypes);
+			removeBreakpoints(target, changed);
+			addBreakpoints(target, changed);
+			trace("Re-registering " + changed.length + " of " + breakpoints.length + " breakpoints for " //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+					+ (changedTypes == null ? "unknown" : changedTypes.size() + " changed") + " classes", time); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		}
+	}
+
+	protected boolean isFullRefresh() {
+		return getServer().getAttribute(PROPERTY_HOTCODE_FULL_REFRESH, false);
+	}
+
+	private long trace(String phase, long start) {
+		long end = System.currentTimeMillis();
+		Trace.trace(Trace.STRING_PERFORMANCE, "Hotcode replace on " + getServer().getName() + ": " + phase + " took " + (end - start) + " ms"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+		return end;
+	}
+
+	private void addBreakpoints(IJavaDebugTarget target, IBreakpoint[] breakpoints) {
 		for (int i = 0; i < breakpoints.length; i++) {
 			target.breakpointAdded(breakpoints[i]);
 		}
 	}
 
-	private void removeBreakpoints(IJavaDebugTarget target) {
-		IBreakpoint[] breakpoints = DebugPlugin.getDefault().getBreakpointManager().getBreakpoints();
+	private void removeBreakpoints(IJavaDebugTarget target, IBreakpoint[] breakpoints) {
 		for (int i = 0; i < breakpoints.length; i++) {
 			target.breakpointRemoved(breakpoints[i], null);
 		}
 	}
 
+	/*
+	 * Gets the java breakpoints in the given classes, 
+	 * or all breakpoints if the classes are not known
+	 */
+	private IBreakpoint[] getBreakpoints(IBreakpoint[] breakpoints, Set<String> types) {
+		if (types == null) {
+			return breakpoints;
+		}
+		List<IBreakpoint> ret = new ArrayList<IBreakpoint>();
+		for (int i = 0; i < breakpoints.length; i++) {
+			if (breakpoints[i] instanceof IJavaBreakpoint) {
+				try {
+					String typeName = ((IJavaBreakpoint) breakpoints[i]).getTypeName();
+					if (typeName != null && types.contains(getTopLevelTypeName(typeName))) {
+						ret.add(breakpoints[i]);
+					}
+				} catch (CoreException ce) {
+					// The marker is gone, nothing to re-register
+				}
+			}
+		}
+		return ret.toArray(new IBreakpoint[ret.size()]);
+	}
+
+	/**
+	 * Collects the top-level names of the classes changed since the last
+	 * publish of the given modules and their child modules.
+	 * 
+	 * @return the names, or null if they are not known, such as when a jar
+	 *         has changed or nothing has changed since the modules have
+	 *         already been published
+	 */
+	protected Set<String> collectChangedTypes(IModule[] modules) {
+		Set<String> types = new HashSet<String>();
+		for (int i = 0; i < modules.length; i++) {
+			if (!collectChangedTypes(new IModule[] { modules[i] }, types)) {
+				return null;
+			}
+		}
+		return types.isEmpty() ? null : types;
+	}
+
+	private boolean collectChangedTypes(IModule[] module, Set<String> types) {
+		IModuleResourceDelta[] deltas = getPublishedResourceDelta(module);
+		if (deltas == null) {
+			return false;
+		}
+		for (int i = 0; i < deltas.length; i++) {
+			if (!collectChangedTypes(deltas[i], types)) {
+				return false;
+			}
+		}
+		IModule[] children = getServer().getChildModules(module, null);
+		for (int i = 0; children != null && i < children.length; i++) {
+			IModule[] child = new IModule[module.length + 1];
+			System.arraycopy(module, 0, child, 0, module.length);
+			child[module.length] = children[i];
+			if (!collectChangedTypes(child, types)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Gets the changes to the given module since it was last published
+	 * 
+	 * @return the changes, or null if they are not known
+	 */
+	protected IModuleResourceDelta[] getPublishedResourceDelta(IModule[] module) {
+		if (!(getServer() instanceof Server)) {
+			return null;
+		}
+		return ((Server) getServer()).getPublishedResourceDelta(module);
+	}
+
+	private boolean collectChangedTypes(IModuleResourceDelta delta, Set<String> types) {
+		IModuleResource resource = delta.getModuleResource();
+		if (resource instanceof IModuleFile && delta.getKind() != IModuleResourceDelta.NO_CHANGE) {
+			String name = resource.getName();
+			if (name.endsWith(JAR_EXTENSION)) {
+				return false;
+			}
+			if (name.endsWith(CLASS_EXTENSION)) {
+				String path = resource.getModuleRelativePath().append(name).makeRelative().toString();
+				if (path.startsWith(WEB_CLASSES_FOLDER)) {
+					path = path.substring(WEB_CLASSES_FOLDER.length());
+				}
+				String typeName = path.substring(0, path.length() - CLASS_EXTENSION.length()).replace('/', '.');
+				types.add(getTopLevelTypeName(typeName));
+			}
+		}
+		IModuleResourceDelta[] children = delta.getAffectedChildren();
+		for (int i = 0; children != null && i < children.length; i++) {
+			if (!collectChangedTypes(children[i], types)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static String getTopLevelTypeName(String typeName) {
+		int index = typeName.indexOf('$');
+		return index == -1 ? typeName : typeName.substring(0, index);
+	}
+
 	protected void executeJMXGarbageCollection(IServer server, IModule[] modules) {
 		IConnectionFacade jbs = (IConnectionFacade) server.loadAdapter(IConnectionFacade.class, null);
 		if (jbs instanceof IConnectionFacade) {
@@ -44,6 +44,7 @@ import org.jboss.ide.eclipse.as.core.util.IJBossToolingConstants;
 import org.jboss.ide.eclipse.as.core.util.JBossServerBehaviorUtils;
 import org.jboss.ide.eclipse.as.core.util.ModuleResourceUtil;
 import org.jboss.ide.eclipse.as.core.util.ProgressMonitorUtil;
+import org.jboss.ide.eclipse.as.management.core.BatchDeploymentManagerService;
 import org.jboss.ide.eclipse.as.management.core.IJBoss7DeploymentResult;
 import org.jboss.ide.eclipse.as.management.core.IJBoss7ManagerService;
 import org.jboss.ide.eclipse.as.management.core.IncrementalDeploymentManagerService;
@@ -113,7 +114,25 @@ public class ManagementPublishController extends AbstractSubsystemController
 	 */
 	private IModuleDeployPathController moduleDeployPathController;
 	
-	private IJBoss7ManagerService getService() throws JBoss7ManangerException {
+	/*
+	 * Deployments waiting to be sent to the server together when the 
+	 * publish finishes, or null if each module is sent as it is published. 
+	 */
+	private List<PendingDeployment> pendingDeployments;
+	
+	private static class PendingDeployment {
+		private IModule[] module;
+		private String name;
+		private IncrementalManagementModel model;
+		private PendingDeployment(IModule[] module, String name, IncrementalManagementModel model) {
+			this.module = module;
+			this.name = name;
+			this.model = model;
+		}
+	}
+	
+	//Exposed only for tests to override
+	protected IJBoss7ManagerService getService() throws JBoss7ManangerException {
 		if( service == null ) {
 			this.service = JBoss7ManagerUtil.getService(getServer());
 			this.managementDetails = new AS7ManagementDetails(getServer());
@@ -184,10 +203,30 @@ public class ManagementPublishController extends AbstractSubsystemController
 		if( !canPublish.isOK() && canPublish().getSeverity() != IStatus.CANCEL) {
 			throw new CoreException(canPublish);
 		}
+		
+		// Collect the module changes during this publish, and send them all at once
+		pendingDeployments = null;
+		if( canPublish.isOK() ) {
+			IJBoss7ManagerService s = getService();
+			if( s instanceof BatchDeploymentManagerService && ((BatchDeploymentManagerService)s).supportsBatchDeployment()) {
+				pendingDeployments = new ArrayList<PendingDeployment>();
+			}
+		}
 	}
 
 	@Override
 	public void publishFinish(IProgressMonitor monitor) throws CoreException {
+		List<PendingDeployment> pending = pendingDeployments;
+		pendingDeployments = null;
+		if( pending != null && pending.size() > 0 ) {
+			if( monitor.isCanceled()) {
+				// nothing is sent; the modules keep their publish state for the next publish
+				pending.clear();
+			} else {
+				publishPending(pending, monitor);
+			}
+		}
+		
 		IServer s = getServer();
 		((Server)s).setServerPublishState(getUpdatedPublishState(s));
 
@@ -290,6 +329,16 @@ public class ManagementPublishController extends AbstractSubsystemController
 		
 		File toTransfer = getFullPublishFilesToTransfer(module, monitor);
 		
+		if( toTransfer != null && pendingDeployments != null ) {
+			// send it with the rest of the modules when the publish finishes
+			String[] explodePaths = (isBinaryObject ? new String[] {} : getExplodePaths(module));
+			IncrementalManagementModel model = new IncrementalManagementModel();
+			model.setDeploymentFile(toTransfer.getName(), toTransfer, explodePaths);
+			pendingDeployments.add(new PendingDeployment(module, toTransfer.getName(), model));
+			// not published until the publish finishes
+			return IServer.PUBLISH_STATE_FULL;
+		}
+		
 		if( toTransfer != null ) {
 			String tName = toTransfer.getName();
 			MultiStatus ms = new MultiStatus(JBossServerCorePlugin.PLUGIN_ID, IEventCodes.JST_PUB_FAIL, "Deployment of module " + module[0].getName() + " has failed", null);  //$NON-NLS-1$//$NON-NLS-2$
@@ -497,7 +546,98 @@ public class ManagementPublishController extends AbstractSubsystemController
 
 	protected int incrementalPublish(IModule module, IProgressMonitor monitor) throws CoreException {
 		IncrementalDeploymentManagerService service = (IncrementalDeploymentManagerService)getService();
-		return new IncrementalManagementPublishRunner().incrementalPublish(module, service, monitor);
+		IncrementalManagementPublishRunner runner = new IncrementalManagementPublishRunner();
+		if( pendingDeployments != null ) {
+			// send it with the rest of the modules when the publish finishes
+			String rootName = getDeploymentOutputName(getServer(), module);
+			IncrementalManagementModel model = runner.createModel(module, rootName, monitor);
+			pendingDeployments.add(new PendingDeployment(new IModule[] {module}, rootName, model));
+			monitor.done();
+			// not published until the publish finishes
+			return IServer.PUBLISH_STATE_INCREMENTAL;
+		}
+		return runner.incrementalPublish(module, service, monitor);
+	}
+	
+	/*
+	 * Send all collected deployments to the server as one deployment plan, 
+	 * and update each module's publish state with its own result.
+	 * The modules which failed, or all of them if the plan as a whole fails, 
+	 * are sent again one at a time.
+	 */
+	private void publishPending(List<PendingDeployment> pending, IProgressMonitor monitor) throws CoreException {
+		monitor.beginTask("Publishing modules", 100 + pending.size() * 100); //$NON-NLS-1$
+		IncrementalManagementModel batch = new IncrementalManagementModel();
+		for( PendingDeployment p : pending ) {
+			batch.addAll(p.model);
+		}
+		
+		Map<String, IJBoss7DeploymentResult> results = null;
+		try {
+			BatchDeploymentManagerService service = (BatchDeploymentManagerService)getService();
+			results = service.publishAll(managementDetails, batch, ProgressMonitorUtil.submon(monitor, 100));
+		} catch(JBoss7ManangerException jme) {
+			// fall back to sending each module on its own
+			ServerLogger.getDefault().log(getServer(), new Status(IStatus.WARNING, JBossServerCorePlugin.PLUGIN_ID, 
+					"Publishing all modules at once has failed", jme)); //$NON-NLS-1$
+		}
+		
+		for( PendingDeployment p : pending ) {
+			IStatus s = null;
+			try {
+				IJBoss7DeploymentResult r = results == null ? null : results.get(p.name);
+				s = r == null ? null : r.getStatus();
+			} catch(JBoss7ManangerException jme) {
+				s = null;
+			}
+			int state = IServer.PUBLISH_STATE_NONE;
+			if( s == null || s.getSeverity() == IStatus.ERROR ) {
+				state = publishSingle(p, ProgressMonitorUtil.submon(monitor, 100));
+			} else {
+				monitor.worked(100);
+			}
+			((Server)getServer()).setModulePublishState(p.module, state);
+		}
+		monitor.done();
+	}
+	
+	private int publishSingle(PendingDeployment p, IProgressMonitor monitor) throws CoreException {
+		File file = p.model.getDeploymentFile(p.name);
+		IJBoss7DeploymentResult result = null;
+		try {
+			if( file != null ) {
+				monitor.beginTask("Transfering " + p.name, 100); //$NON-NLS-1$
+				MultiStatus ms = new MultiStatus(JBossServerCorePlugin.PLUGIN_ID, IEventCodes.JST_PUB_FAIL, "Deployment of module " + p.module[0].getName() + " has failed", null);  //$NON-NLS-1$//$NON-NLS-2$
+				JBoss7DeploymentState state = getService().getDeploymentState(managementDetails, p.name);
+				if( state != JBoss7DeploymentState.NOT_FOUND) {
+					IJBoss7DeploymentResult removeResult = getService().undeploySync(managementDetails, p.name, true,  ProgressMonitorUtil.submon(monitor, 5));
+					ms.add(removeResult.getStatus());
+				}
+				IncrementalDeploymentManagerService serv = (IncrementalDeploymentManagerService)getService();
+				result = serv.deploySync(managementDetails, p.name, file, 
+						true, p.model.getExplodePaths(p.name), ProgressMonitorUtil.submon(monitor, 95));
+				ms.add(result.getStatus());
+				if( ms.isOK())
+					return IServer.PUBLISH_STATE_NONE;
+				JBossServerCorePlugin.log(ms);
+				return IServer.PUBLISH_STATE_FULL;
+			}
+			IncrementalDeploymentManagerService service = (IncrementalDeploymentManagerService)getService();
+			result = service.incrementalPublish(managementDetails, p.name, p.model, 
+					p.model.isRedeploy(p.name), monitor);
+			IStatus s = result.getStatus();
+			if( !s.isOK()) {
+				ServerLogger.getDefault().log(getServer(), s);
+				return IServer.PUBLISH_STATE_FULL;
+			}
+			return IServer.PUBLISH_STATE_NONE;
+		} catch(JBoss7ManangerException jme) {
+			ServerLogger.getDefault().log(getServer(), new Status(IStatus.ERROR, JBossServerCorePlugin.PLUGIN_ID, 
+					"Deployment of module " + p.module[0].getName() + " has failed", jme)); //$NON-NLS-1$ //$NON-NLS-2$
+			return IServer.PUBLISH_STATE_FULL;
+		} finally {
+			monitor.done();
+		}
 	}
 	
 	//Exposed only for tests to override
@@ -527,13 +667,27 @@ public class ManagementPublishController extends AbstractSubsystemController
 		}
 		
 		public int incrementalPublish(IModule module, IncrementalDeploymentManagerService service, IProgressMonitor monitor) throws CoreException {
+			String rootName = getDeploymentOutputName(getServer(), module);
+			IncrementalManagementModel model = createModel(module, rootName, monitor);
+			IJBoss7DeploymentResult result = service.incrementalPublish(managementDetails, rootName, model, 
+					model.isRedeploy(rootName), new SubProgressMonitor(monitor, 100));
+			IStatus s = result.getStatus();
+			if( !s.isOK()) {
+				ServerLogger.getDefault().log(getServer(), s);
+				return IServer.PUBLISH_STATE_FULL;
+			}
+			return IServer.PUBLISH_STATE_NONE;
+		}
+		
+		/*
+		 * Collect the changes of the module and its children, 
+		 * and whether it needs to be redeployed
+		 */
+		public IncrementalManagementModel createModel(IModule module, String rootName, IProgressMonitor monitor) throws CoreException {
 			// module may be any size > 0 
 			monitor.beginTask("Incremental Publish", 200); //$NON-NLS-1$
 			boolean shouldMinimizeRedeploys = shouldMinimizeRedeployments();
 			
-			String rootName = getDeploymentOutputName(getServer(), module);
-			
-			
 			IModule[] asArr = new IModule[] {module};
 			IModuleResourceDelta[] delta = getDeltaForModule(asArr);
 			
@@ -575,15 +729,8 @@ public class ManagementPublishController extends AbstractSubsystemController
 				relative = rel.removeTrailingSeparator().toString();
 				model.addSubDeploymentChanges(rootName, relative, dub.changedContent, dub.removedContent);
 			}
-			
-			IJBoss7DeploymentResult result = service.incrementalPublish(managementDetails, rootName, model, 
-					requiresRestart, new SubProgressMonitor(monitor, 100));
-			IStatus s = result.getStatus();
-			if( !s.isOK()) {
-				ServerLogger.getDefault().log(getServer(), s);
-				return IServer.PUBLISH_STATE_FULL;
-			}
-			return IServer.PUBLISH_STATE_NONE;
+			model.setRedeploy(rootName, requiresRestart);
+			return model;
 		}
 		
 
@@ -0,0 +1,41 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.ide.eclipse.as.management.core;
+
+import java.util.Map;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+
+public interface BatchDeploymentManagerService extends IncrementalDeploymentManagerService {
+
+	/**
+	 * Whether this service is able to publish several deployments at once
+	 * @return
+	 */
+	public boolean supportsBatchDeployment();
+
+	/**
+	 * A synchronous API to send the changes of several deployments to the server
+	 * as a single deployment plan.
+	 *
+	 * Deployments with a file set via {@link IncrementalManagementModel#setDeploymentFile(String, java.io.File, String[])}
+	 * are replaced entirely. All other deployments have their changed and removed
+	 * content applied, and are redeployed if {@link IncrementalManagementModel#isRedeploy(String)}.
+	 *
+	 * @param details
+	 * @param model
+	 * @param monitor
+	 * @return the result for each deployment in the model, by deployment name
+	 * @throws JBoss7ManangerException
+	 */
+	public Map<String, IJBoss7DeploymentResult> publishAll(IAS7ManagementDetails details,
+			IncrementalManagementModel model, IProgressMonitor monitor) throws JBoss7ManangerException;
+}
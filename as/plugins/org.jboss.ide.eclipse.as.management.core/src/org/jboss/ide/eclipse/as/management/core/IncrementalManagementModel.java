@@ -1,18 +1,21 @@
 package org.jboss.ide.eclipse.as.management.core;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 public class IncrementalManagementModel {
 	
-	private HashMap<String, Module> map;
+	// deployments are published in the order they were added
+	private LinkedHashMap<String, Module> map;
 	public IncrementalManagementModel() {
-		map = new HashMap<String, Module>();
+		map = new LinkedHashMap<String, Module>();
 	}
 	
 	public void setDeploymentChanges(String deploymentId, Map<String, String> changedContent, List<String> removedContent) {
@@ -58,6 +61,61 @@ public class IncrementalManagementModel {
 		return (String[]) s.toArray(new String[s.size()]);
 	}
 	
+	/**
+	 * Whether the given deployment should be redeployed once its changes are applied. 
+	 * Only used when publishing several deployments at once. 
+	 */
+	public void setRedeploy(String deploymentId, boolean redeploy) {
+		getOrCreate(deploymentId).redeploy = redeploy;
+	}
+	
+	public boolean isRedeploy(String deploymentId) {
+		Module m = map.get(deploymentId);
+		return m != null && m.redeploy;
+	}
+	
+	/**
+	 * Replace the given deployment entirely with the given file, 
+	 * instead of changing its content. 
+	 * Only used when publishing several deployments at once. 
+	 * 
+	 * @param deploymentId
+	 * @param file  the archive to deploy
+	 * @param explodePaths the deployment or child archives to explode once added
+	 */
+	public void setDeploymentFile(String deploymentId, File file, String[] explodePaths) {
+		Module m = getOrCreate(deploymentId);
+		m.file = file;
+		m.explodePaths = explodePaths;
+	}
+	
+	public File getDeploymentFile(String deploymentId) {
+		Module m = map.get(deploymentId);
+		return m == null ? null : m.file;
+	}
+	
+	public String[] getExplodePaths(String deploymentId) {
+		Module m = map.get(deploymentId);
+		return m == null || m.explodePaths == null ? new String[0] : m.explodePaths;
+	}
+	
+	/**
+	 * Add all deployments of another model to this one, 
+	 * replacing any deployments of the same name. 
+	 */
+	public void addAll(IncrementalManagementModel other) {
+		map.putAll(other.map);
+	}
+	
+	private Module getOrCreate(String deploymentId) {
+		Module m = map.get(deploymentId); 
+		if( m == null ) {
+			m = new Module(new HashMap<String,String>(), new ArrayList<String>());
+			map.put(deploymentId, m);
+		}
+		return m;
+	}
+	
 	public Map<String,String> getChanged(String deploymentId) {
 		Module m = map.get(deploymentId);
 		if( m != null ) {
@@ -80,6 +138,9 @@ public class IncrementalManagementModel {
 		Map<String, String> changedContent;
 		List<String> removedContent;
 		Set<String> toExplode;
+		boolean redeploy;
+		File file;
+		String[] explodePaths;
 		public Module(Map<String, String> changedContent, List<String> removedContent) {
 			this.changedContent = changedContent; 
 			this.removedContent = removedContent;
@@ -12,6 +12,7 @@ package org.jboss.ide.eclipse.as.management.core;
 
 import java.io.File;
 import java.text.MessageFormat;
+import java.util.Map;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.osgi.framework.BundleContext;
@@ -22,7 +23,7 @@ import org.osgi.util.tracker.ServiceTracker;
  * @author André Dietisheim
  */
 public class JBoss7ManagerServiceProxy extends ServiceTracker<IJBoss7ManagerService, IJBoss7ManagerService>
-		implements IJBoss7ManagerService, IncrementalDeploymentManagerService {
+		implements IJBoss7ManagerService, IncrementalDeploymentManagerService, BatchDeploymentManagerService {
 
 	private String serviceVersion;
 	public JBoss7ManagerServiceProxy(BundleContext context, String serviceVersion) throws InvalidSyntaxException {
@@ -146,4 +147,21 @@ public class JBoss7ManagerServiceProxy extends ServiceTracker<IJBoss7ManagerServ
 		throw new UnsupportedOperationException();
 	}
 
+	@Override
+	public boolean supportsBatchDeployment() {
+		IJBoss7ManagerService serv = checkedGetService();
+		return serv instanceof BatchDeploymentManagerService 
+				&& ((BatchDeploymentManagerService)serv).supportsBatchDeployment();
+	}
+
+	@Override
+	public Map<String, IJBoss7DeploymentResult> publishAll(IAS7ManagementDetails details,
+			IncrementalManagementModel model, IProgressMonitor monitor) throws JBoss7ManangerException {
+		IJBoss7ManagerService serv = checkedGetService();
+		if( serv instanceof BatchDeploymentManagerService) {
+			return ((BatchDeploymentManagerService)serv).publishAll(details, model, monitor);
+		}
+		throw new UnsupportedOperationException();
+	}
+
 }
@@ -0,0 +1,534 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.ide.eclipse.as.management.core;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+
+import org.eclipse.core.runtime.IStatus;
+
+/**
+ * A pool of management clients, shared by all operations of a manager service.
+ *
+ * Opening a management client means opening a remoting connection and
+ * authenticating, which takes much longer than most operations. Clients
+ * are therefore kept open once an operation is done, and handed out again
+ * to the next operation against the same server with the same credentials.
+ *
+ * Idle clients are not checked before they are handed out, since that
+ * would cost a request of its own. Operations which only read from the
+ * server are instead run once more on a new client if the pooled one has
+ * lost its connection. Operations which change the server can not be
+ * repeated safely, so they only reuse a client which has been used within
+ * the last {@link #REUSE_FOR_CHANGES} milliseconds. A client whose operation
+ * failed with a connection error is closed rather than returned to the pool,
+ * and idle clients are closed after {@link #IDLE_TIMEOUT}.
+ *
+ * The client of an asynchronous deployment stays checked out until
+ * the deployment is done, so its result can still be read.
+ *
+ * @param <T> the type of the client, for example a version specific manager
+ */
+public class ManagementClientPool<T> {
+
+	/**
+	 * Creates and closes the pooled clients
+	 */
+	public interface IClientFactory<T> {
+		public T create(IAS7ManagementDetails details) throws JBoss7ManangerException;
+
+		/**
+		 * Check whether the result of an asynchronous operation is complete,
+		 * without waiting for it
+		 */
+		public boolean isDone(IJBoss7DeploymentResult result);
+
+		public void dispose(T client);
+	}
+
+	/**
+	 * An operation run with a pooled client
+	 */
+	public interface IClientOperation<T, R> {
+		public R run(T client) throws JBoss7ManangerException;
+	}
+
+	/**
+	 * Idle clients are closed after this many milliseconds
+	 */
+	public static final long IDLE_TIMEOUT = 60000;
+
+	/**
+	 * Operations which change the server only reuse clients
+	 * which were used within this many milliseconds
+	 */
+	public static final long REUSE_FOR_CHANGES = 5000;
+
+	/**
+	 * How often idle clients and asynchronous operations are checked
+	 */
+	private static final long CHECK_INTERVAL = 5000;
+
+	/**
+	 * The most idle clients kept per server
+	 */
+	public static final int MAX_IDLE_PER_KEY = 4;
+
+	private static Timer evictionTimer;
+
+	private static synchronized Timer getEvictionTimer() {
+		if( evictionTimer == null )
+			evictionTimer = new Timer("Management client eviction", true); //$NON-NLS-1$
+		return evictionTimer;
+	}
+
+	private static class PooledClient<T> {
+		private T client;
+		private long lastUsed;
+		private PooledClient(T client) {
+			this.client = client;
+		}
+	}
+
+	private IClientFactory<T> factory;
+	private HashMap<Key, LinkedList<PooledClient<T>>> idle = new HashMap<Key, LinkedList<PooledClient<T>>>();
+	private List<AsyncResult> pending = new ArrayList<AsyncResult>();
+	private TimerTask evictionTask;
+	private boolean disposed = false;
+
+	// statistics
+	private long created, reused, connectionFailures, evicted, retries;
+
+	public ManagementClientPool(IClientFactory<T> factory) {
+		this.factory = factory;
+	}
+
+	/**
+	 * Run an operation with a pooled client.
+	 * Operations which change the server are not retried.
+	 */
+	public <R> R execute(IAS7ManagementDetails details, IClientOperation<T, R> operation) throws JBoss7ManangerException {
+		return execute(details, operation, false);
+	}
+
+	/**
+	 * Run an operation which only reads from the server with a pooled client.
+	 * If a reused client has lost its connection, the operation is run
+	 * once more with a new client.
+	 */
+	public <R> R executeReadOnly(IAS7ManagementDetails details, IClientOperation<T, R> operation) throws JBoss7ManangerException {
+		return execute(details, operation, true);
+	}
+
+	/**
+	 * Run an operation which starts an asynchronous deployment with a pooled client.
+	 * The client is not returned to the pool until the deployment is done.
+	 */
+	public IJBoss7DeploymentResult executeAsync(IAS7ManagementDetails details, 
+			IClientOperation<T, IJBoss7DeploymentResult> operation) throws JBoss7ManangerException {
+		Key key = new Key(details);
+		PooledClient<T> pc = acquire(key, false);
+		if( pc == null )
+			pc = create(details);
+		IJBoss7DeploymentResult result;
+		try {
+			result = operation.run(pc.client);
+		} catch(JBoss7ManangerException e) {
+			releaseOrDiscard(key, pc, e);
+			throw e;
+		} catch(RuntimeException re) {
+			releaseOrDiscard(key, pc, re);
+			throw re;
+		}
+		AsyncResult async = new AsyncResult(key, pc, result);
+		synchronized(this) {
+			pending.add(async);
+			scheduleEviction();
+		}
+		return async;
+	}
+
+	private <R> R execute(IAS7ManagementDetails details, IClientOperation<T, R> operation, boolean retry) throws JBoss7ManangerException {
+		Key key = new Key(details);
+		PooledClient<T> pc = acquire(key, retry);
+		boolean fresh = pc == null;
+		if( fresh )
+			pc = create(details);
+		try {
+			R result = operation.run(pc.client);
+			release(key, pc);
+			return result;
+		} catch(JBoss7ManangerException e) {
+			if( !isConnectionFailure(e) ) {
+				release(key, pc);
+				throw e;
+			}
+			discard(pc);
+			if( fresh || !retry )
+				throw e;
+		} catch(RuntimeException re) {
+			releaseOrDiscard(key, pc, re);
+			throw re;
+		}
+
+		// The reused client had lost its connection, the server may have been restarted
+		synchronized(this) {
+			retries++;
+		}
+		invalidate(key);
+		pc = create(details);
+		try {
+			R result = operation.run(pc.client);
+			release(key, pc);
+			return result;
+		} catch(JBoss7ManangerException e) {
+			releaseOrDiscard(key, pc, e);
+			throw e;
+		} catch(RuntimeException re) {
+			releaseOrDiscard(key, pc, re);
+			throw re;
+		}
+	}
+
+	/**
+	 * Close all idle clients for the given server, for example
+	 * because it has been asked to shut down.
+	 */
+	public void invalidate(IAS7ManagementDetails details) {
+		invalidate(new Key(details));
+	}
+
+	private void invalidate(Key key) {
+		LinkedList<PooledClient<T>> list;
+		synchronized(this) {
+			list = idle.remove(key);
+		}
+		if( list != null ) {
+			for( Iterator<PooledClient<T>> i = list.iterator(); i.hasNext(); )
+				factory.dispose(i.next().client);
+		}
+	}
+
+	/**
+	 * Close all idle clients. Clients in use, including those of asynchronous
+	 * deployments, are closed when they are released.
+	 */
+	public void dispose() {
+		List<PooledClient<T>> toClose = new ArrayList<PooledClient<T>>();
+		synchronized(this) {
+			disposed = true;
+			for( Iterator<LinkedList<PooledClient<T>>> i = idle.values().iterator(); i.hasNext(); )
+				toClose.addAll(i.next());
+			idle.clear();
+			// the timer still has to release the clients of pending deployments
+			if( evictionTask != null && pending.isEmpty()) {
+				evictionTask.cancel();
+				evictionTask = null;
+			}
+		}
+		for( Iterator<PooledClient<T>> i = toClose.iterator(); i.hasNext(); )
+			factory.dispose(i.next().client);
+	}
+
+	public synchronized Statistics getStatistics() {
+		int idleCount = 0;
+		for( Iterator<LinkedList<PooledClient<T>>> i = idle.values().iterator(); i.hasNext(); )
+			idleCount += i.next().size();
+		return new Statistics(created, reused, connectionFailures, evicted, retries, idleCount, pending.size());
+	}
+
+	/*
+	 * Take the most recently used idle client for the key, or null if none can be used.
+	 * Unless the operation can be retried, the client must have been used recently.
+	 */
+	private PooledClient<T> acquire(Key key, boolean retry) {
+		long now = System.currentTimeMillis();
+		while(true) {
+			PooledClient<T> pc;
+			synchronized(this) {
+				LinkedList<PooledClient<T>> list = idle.get(key);
+				if( list == null || list.isEmpty())
+					return null;
+				pc = list.getFirst();
+				if( now - pc.lastUsed <= IDLE_TIMEOUT && !retry && now - pc.lastUsed > REUSE_FOR_CHANGES )
+					return null;
+				list.removeFirst();
+				if( list.isEmpty())
+					idle.remove(key);
+				if( now - pc.lastUsed <= IDLE_TIMEOUT ) {
+					reused++;
+					return pc;
+				}
+				evicted++;
+			}
+			factory.dispose(pc.client);
+		}
+	}
+
+	private PooledClient<T> create(IAS7ManagementDetails details) throws JBoss7ManangerException {
+		PooledClient<T> pc = new PooledClient<T>(factory.create(details));
+		synchronized(this) {
+			created++;
+		}
+		return pc;
+	}
+
+	private void release(Key key, PooledClient<T> pc) {
+		pc.lastUsed = System.currentTimeMillis();
+		PooledClient<T> overflow = null;
+		synchronized(this) {
+			if( disposed ) {
+				overflow = pc;
+			} else {
+				LinkedList<PooledClient<T>> list = idle.get(key);
+				if( list == null ) {
+					list = new LinkedList<PooledClient<T>>();
+					idle.put(key, list);
+				}
+				list.addFirst(pc);
+				if( list.size() > MAX_IDLE_PER_KEY )
+					overflow = list.removeLast();
+				scheduleEviction();
+			}
+		}
+		if( overflow != null )
+			factory.dispose(overflow.client);
+	}
+
+	/*
+	 * Return the client to the pool, unless the failure
+	 * means that its connection is gone
+	 */
+	private void releaseOrDiscard(Key key, PooledClient<T> pc, Throwable failure) {
+		if( isConnectionFailure(failure))
+			discard(pc);
+		else
+			release(key, pc);
+	}
+
+	private void discard(PooledClient<T> pc) {
+		synchronized(this) {
+			connectionFailures++;
+		}
+		factory.dispose(pc.client);
+	}
+
+	/*
+	 * Must be called while holding the pool's lock
+	 */
+	private void scheduleEviction() {
+		if( evictionTask != null )
+			return;
+		evictionTask = new TimerTask() {
+			public void run() {
+				evictIdle();
+			}
+		};
+		getEvictionTimer().schedule(evictionTask, CHECK_INTERVAL, CHECK_INTERVAL);
+	}
+
+	private void evictIdle() {
+		long now = System.currentTimeMillis();
+		List<PooledClient<T>> toClose = new ArrayList<PooledClient<T>>();
+		List<AsyncResult> done = new ArrayList<AsyncResult>();
+		synchronized(this) {
+			done.addAll(pending);
+		}
+		for( Iterator<AsyncResult> i = done.iterator(); i.hasNext(); ) {
+			AsyncResult async = i.next();
+			if( !factory.isDone(async.result))
+				i.remove();
+		}
+		synchronized(this) {
+			for( Iterator<LinkedList<PooledClient<T>>> i = idle.values().iterator(); i.hasNext(); ) {
+				LinkedList<PooledClient<T>> list = i.next();
+				for( Iterator<PooledClient<T>> j = list.iterator(); j.hasNext(); ) {
+					PooledClient<T> pc = j.next();
+					if( now - pc.lastUsed > IDLE_TIMEOUT ) {
+						j.remove();
+						toClose.add(pc);
+					}
+				}
+				if( list.isEmpty())
+					i.remove();
+			}
+			evicted += toClose.size();
+			if( idle.isEmpty() && pending.size() == done.size() && evictionTask != null ) {
+				evictionTask.cancel();
+				evictionTask = null;
+			}
+		}
+		for( Iterator<PooledClient<T>> i = toClose.iterator(); i.hasNext(); )
+			factory.dispose(i.next().client);
+		// deployments nobody asked the result of
+		for( Iterator<AsyncResult> i = done.iterator(); i.hasNext(); )
+			i.next().complete(false);
+	}
+
+	/**
+	 * Check whether the given exception, or any of its causes,
+	 * means that the server could not be reached.
+	 */
+	public static boolean isConnectionFailure(Throwable t) {
+		while( t != null ) {
+			if( t instanceof IOException || t instanceof JBoss7ManangerConnectException )
+				return true;
+			t = t.getCause();
+		}
+		return false;
+	}
+
+	/*
+	 * The result of an asynchronous deployment, which returns its client
+	 * to the pool once the result has been read, or the timer finds it done
+	 */
+	private class AsyncResult implements IJBoss7DeploymentResult {
+		private Key key;
+		private PooledClient<T> pc;
+		private IJBoss7DeploymentResult result;
+
+		private AsyncResult(Key key, PooledClient<T> pc, IJBoss7DeploymentResult result) {
+			this.key = key;
+			this.pc = pc;
+			this.result = result;
+		}
+
+		public IStatus getStatus() throws JBoss7ManangerException {
+			IStatus status;
+			try {
+				status = result.getStatus();
+			} catch(JBoss7ManangerException e) {
+				if( isConnectionFailure(e))
+					complete(true);
+				else if( factory.isDone(result))
+					complete(false);
+				throw e;
+			}
+			complete(false);
+			return status;
+		}
+
+		private void complete(boolean failed) {
+			synchronized(ManagementClientPool.this) {
+				if( !pending.remove(this))
+					return;
+			}
+			if( failed )
+				discard(pc);
+			else
+				release(key, pc);
+		}
+	}
+
+	/**
+	 * Clients may only be shared between details which would open the same
+	 * connection as the same user. The password is not kept, a client which
+	 * has been opened is already authenticated.
+	 */
+	private static class Key {
+		private String host;
+		private int port;
+		private String protocol;
+		private String user;
+		private Object timeout;
+
+		private Key(IAS7ManagementDetails details) {
+			this.host = details.getHost();
+			this.port = details.getManagementPort();
+			this.protocol = details.getProtocol();
+			this.user = details.getManagementUsername();
+			this.timeout = details.getProperty(IAS7ManagementDetails.PROPERTY_TIMEOUT);
+		}
+
+		public boolean equals(Object o) {
+			if( !(o instanceof Key))
+				return false;
+			Key k = (Key)o;
+			return port == k.port && eq(host, k.host) && eq(protocol, k.protocol)
+					&& eq(user, k.user) && eq(timeout, k.timeout);
+		}
+
+		public int hashCode() {
+			return ((host == null ? 0 : host.hashCode()) * 31 + port) * 31 + (user == null ? 0 : user.hashCode());
+		}
+
+		private static boolean eq(Object a, Object b) {
+			return a == null ? b == null : a.equals(b);
+		}
+	}
+
+	/**
+	 * A snapshot of how well the pool's clients are being reused
+	 */
+	public static class Statistics {
+		private long created, reused, connectionFailures, evicted, retries;
+		private int idle, pending;
+
+		private Statistics(long created, long reused, long connectionFailures, 
+				long evicted, long retries, int idle, int pending) {
+			this.created = created;
+			this.reused = reused;
+			this.connectionFailures = connectionFailures;
+			this.evicted = evicted;
+			this.retries = retries;
+			this.idle = idle;
+			this.pending = pending;
+		}
+
+		/** The number of clients opened */
+		public long getCreated() {
+			return created;
+		}
+		/** The number of operations which were given an already open client */
+		public long getReused() {
+			return reused;
+		}
+		/** The number of clients closed because an operation lost its connection */
+		public long getConnectionFailures() {
+			return connectionFailures;
+		}
+		/** The number of clients closed for being idle too long */
+		public long getEvicted() {
+			return evicted;
+		}
+		/** The number of operations run again with a new client */
+		public long getRetries() {
+			return retries;
+		}
+		/** The number of clients currently idle in the pool */
+		public int getIdle() {
+			return idle;
+		}
+		/** The number of clients held by asynchronous deployments which are not done */
+		public int getPending() {
+			return pending;
+		}
+		/** The fraction of operations which reused an open client */
+		public double getReuseRatio() {
+			long total = created + reused;
+			return total == 0 ? 0 : (double)reused / total;
+		}
+
+		public String toString() {
+			return "created=" + created + ", reused=" + reused //$NON-NLS-1$ //$NON-NLS-2$
+					+ ", connectionFailures=" + connectionFailures //$NON-NLS-1$
+					+ ", evicted=" + evicted + ", retries=" + retries //$NON-NLS-1$ //$NON-NLS-2$
+					+ ", idle=" + idle + ", pending=" + pending; //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	}
+}
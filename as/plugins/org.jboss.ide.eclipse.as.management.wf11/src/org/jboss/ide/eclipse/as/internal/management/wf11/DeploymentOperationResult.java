@@ -11,11 +11,14 @@
 package org.jboss.ide.eclipse.as.internal.management.wf11;
 
 import java.text.MessageFormat;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.MultiStatus;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.osgi.util.NLS;
 import org.jboss.as.controller.client.helpers.standalone.DeploymentAction;
@@ -33,21 +36,34 @@ import org.jboss.ide.eclipse.as.management.core.JBoss7ManangerException;
 public class DeploymentOperationResult implements IJBoss7DeploymentResult {
 	
 	private Future<ServerDeploymentPlanResult> planResult;
-	private DeploymentAction action;
+	private List<DeploymentAction> actions;
 	private long timeout;
 	private TimeUnit unit;
 
 	DeploymentOperationResult(DeploymentAction action, Future<ServerDeploymentPlanResult> planResult) {
+		this(Collections.singletonList(action), planResult);
 		Assert.isNotNull(action);
-		this.action = action;
-		Assert.isNotNull(planResult);
-		this.planResult = planResult;
 	}
 	DeploymentOperationResult(DeploymentAction action, Future<ServerDeploymentPlanResult> planResult, long timeout, TimeUnit unit) {
 		this(action, planResult);
 		this.timeout = timeout;
 		this.unit = unit;
 	}
+	/*
+	 * The result of several actions of a plan, 
+	 * which is only ok if all of them are
+	 */
+	DeploymentOperationResult(List<DeploymentAction> actions, Future<ServerDeploymentPlanResult> planResult, long timeout, TimeUnit unit) {
+		this(actions, planResult);
+		this.timeout = timeout;
+		this.unit = unit;
+	}
+	private DeploymentOperationResult(List<DeploymentAction> actions, Future<ServerDeploymentPlanResult> planResult) {
+		Assert.isLegal(!actions.isEmpty());
+		this.actions = actions;
+		Assert.isNotNull(planResult);
+		this.planResult = planResult;
+	}
 	
 	
 
@@ -58,17 +74,35 @@ public class DeploymentOperationResult implements IJBoss7DeploymentResult {
 	@Override
 	public IStatus getStatus() throws JBoss7ManangerException {
 		try {
-			ServerDeploymentActionResult actionResult = null;
+			ServerDeploymentPlanResult result = null;
 			if( unit == null )
-				actionResult = planResult.get().getDeploymentActionResult(action.getId());
+				result = planResult.get();
 			else
-				actionResult = planResult.get(timeout, unit).getDeploymentActionResult(action.getId());
-			return createStatus(action.getDeploymentUnitUniqueName(), action.getType().name(), actionResult);
+				result = planResult.get(timeout, unit);
+			if( actions.size() == 1 )
+				return createStatus(actions.get(0), result);
+			MultiStatus ms = null;
+			for( DeploymentAction action : actions ) {
+				IStatus s = createStatus(action, result);
+				if( s == null || s.isOK())
+					continue;
+				if( ms == null ) {
+					ms = new MultiStatus(WildFly11ManagementActivator.PLUGIN_ID, 0, NLS.bind(
+							Messages.OperationOnUnitFailed, "deploy", action.getDeploymentUnitUniqueName()), null); //$NON-NLS-1$
+				}
+				ms.add(s);
+			}
+			return ms == null ? Status.OK_STATUS : ms;
 		} catch (Exception e) {
 			throw new JBoss7ManangerException(e);
 		}
 	}
 
+	private IStatus createStatus(DeploymentAction action, ServerDeploymentPlanResult result) {
+		ServerDeploymentActionResult actionResult = result.getDeploymentActionResult(action.getId());
+		return createStatus(action.getDeploymentUnitUniqueName(), action.getType().name(), actionResult);
+	}
+
 	private IStatus createStatus(String deploymentName, String actionName, ServerDeploymentActionResult actionResult) {
 		if (actionResult == null) {
 			return null;
@@ -33,6 +33,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -47,7 +48,9 @@ import javax.security.auth.callback.UnsupportedCallbackException;
 import javax.security.sasl.RealmCallback;
 
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.SubMonitor;
 import org.eclipse.core.runtime.SubProgressMonitor;
 import org.eclipse.osgi.util.NLS;
@@ -596,6 +599,121 @@ public class WildFly11Manager {
 		}
 	}
 	
+	/**
+	 * Publish every deployment in the model with a single deployment plan. 
+	 * Each deployment's result is the combined result of all its actions in the plan.
+	 */
+	public Map<String, IJBoss7DeploymentResult> publishAll(IncrementalManagementModel model, 
+			IProgressMonitor monitor) throws JBoss7ManangerException {
+		monitor.beginTask("Publishing deployments via management", 100); //$NON-NLS-1$
+		Set<String> existing = getDeploymentNames();
+		monitor.worked(5);
+
+		DeploymentPlanBuilder b = manager.newDeploymentPlan();
+		String[] deployments = model.getDeploymentIds();
+		try {
+			for (String deployment : deployments) {
+				File file = model.getDeploymentFile(deployment);
+				if( file != null ) {
+					b = addFullDeployment(deployment, file, model.getExplodePaths(deployment), 
+							existing.contains(deployment), b);
+				} else {
+					b = addIncrementalDeployment(deployment, model, b);
+				}
+			}
+		} catch (IOException e) {
+			throw new JBoss7ManangerException(e);
+		}
+		DeploymentPlan plan = b.build();
+		Map<String, List<DeploymentAction>> actions = new HashMap<String, List<DeploymentAction>>();
+		for (DeploymentAction action : plan.getDeploymentActions()) {
+			List<DeploymentAction> list = actions.get(action.getDeploymentUnitUniqueName());
+			if( list == null ) {
+				list = new ArrayList<DeploymentAction>();
+				actions.put(action.getDeploymentUnitUniqueName(), list);
+			}
+			list.add(action);
+		}
+		monitor.worked(5);
+
+		Map<String, IJBoss7DeploymentResult> results = new LinkedHashMap<String, IJBoss7DeploymentResult>();
+		if( actions.isEmpty()) {
+			for (String deployment : deployments) {
+				results.put(deployment, OK_RESULT);
+			}
+			monitor.done();
+			return results;
+		}
+		Future<ServerDeploymentPlanResult> future = null;
+		try {
+			future = manager.execute(plan);
+		} catch (Exception ex) {
+			throw new JBoss7ManangerException(ex);
+		}
+		DeploymentOperationResult any = null;
+		for (String deployment : deployments) {
+			List<DeploymentAction> list = actions.get(deployment);
+			if( list == null ) {
+				// nothing to do for this deployment
+				results.put(deployment, OK_RESULT);
+				continue;
+			}
+			any = new DeploymentOperationResult(list, future, DEFAULT_REQUEST_TIMEOUT, TimeUnit.MILLISECONDS);
+			results.put(deployment, any);
+		}
+		if( any != null ) {
+			waitFor(any, "Publishing deployments via management", new SubProgressMonitor(monitor, 90)); //$NON-NLS-1$
+		}
+		monitor.done();
+		return results;
+	}
+
+	private static final IJBoss7DeploymentResult OK_RESULT = new IJBoss7DeploymentResult() {
+		public IStatus getStatus() {
+			return Status.OK_STATUS;
+		}
+	};
+
+	private DeploymentPlanBuilder addFullDeployment(String name, File file, String[] explodedPaths, 
+			boolean exists, DeploymentPlanBuilder b) throws IOException {
+		if( exists ) {
+			b = b.undeploy(name).andRemoveUndeployed();
+		}
+		b = b.add(name, file);
+		for( int i = 0; i < explodedPaths.length; i++ ) {
+			if (name.equals(explodedPaths[i])) {
+				b = b.explodeDeployment(explodedPaths[i]);
+			} else {
+				b = b.explodeDeploymentContent(name, explodedPaths[i]);
+			}
+		}
+		return b.deploy(name);
+	}
+
+	private DeploymentPlanBuilder addIncrementalDeployment(String deploymentName, 
+			IncrementalManagementModel model, DeploymentPlanBuilder b) throws IOException {
+		// child modules must be exploded before their content can be changed
+		String[] children = model.getChildrenToExplode(deploymentName);
+		if( children.length > 0 ) {
+			ArrayList<String> zipped = getZippedPathsForDeployment(deploymentName);
+			b = b.undeploy(deploymentName);
+			for( int i = 0; i < children.length; i++ ) {
+				if( zipped == null || zipped.contains(children[i])) {
+					b = b.explodeDeploymentContent(deploymentName, children[i]);
+				}
+			}
+			b = b.deploy(deploymentName);
+		}
+		Map<String, String> changed = model.getChanged(deploymentName);
+		List<String> removed = model.getRemoved(deploymentName);
+		if( changed.size() > 0 || removed.size() > 0)
+			b = addChanges(deploymentName, changed, removed, b);
+		if( model.isRedeploy(deploymentName)) {
+			b = b.redeploy(deploymentName);
+		}
+		return b;
+	}
+
 	private DeploymentPlanBuilder addChanges(String deploymentName, 
 			Map<String, String> changedContent, 
 			List<String> removedContent,
@@ -11,9 +11,11 @@
 package org.jboss.ide.eclipse.as.internal.management.wf11;
 
 import java.io.File;
+import java.util.Map;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.jboss.dmr.ModelNode;
+import org.jboss.ide.eclipse.as.management.core.BatchDeploymentManagerService;
 import org.jboss.ide.eclipse.as.management.core.IAS7ManagementDetails;
 import org.jboss.ide.eclipse.as.management.core.IJBoss7DeploymentResult;
 import org.jboss.ide.eclipse.as.management.core.IJBoss7ManagerService;
@@ -22,11 +24,30 @@ import org.jboss.ide.eclipse.as.management.core.IncrementalManagementModel;
 import org.jboss.ide.eclipse.as.management.core.JBoss7DeploymentState;
 import org.jboss.ide.eclipse.as.management.core.JBoss7ManangerException;
 import org.jboss.ide.eclipse.as.management.core.JBoss7ServerState;
+import org.jboss.ide.eclipse.as.management.core.ManagementClientPool;
 
 /**
  * @author Rob Stryker
  */
-public class WildFly11ManagerService implements IJBoss7ManagerService, IncrementalDeploymentManagerService {
+public class WildFly11ManagerService implements IJBoss7ManagerService, IncrementalDeploymentManagerService, 
+		BatchDeploymentManagerService {
+
+	/*
+	 * Managers are pooled, so that operations against the same server
+	 * share a connection instead of each opening and authenticating its own.
+	 */
+	private final ManagementClientPool<WildFly11Manager> clients = new ManagementClientPool<WildFly11Manager>(
+			new ManagementClientPool.IClientFactory<WildFly11Manager>() {
+		public WildFly11Manager create(IAS7ManagementDetails details) throws JBoss7ManangerException {
+			return new WildFly11Manager(details);
+		}
+		public boolean isDone(IJBoss7DeploymentResult result) {
+			return !(result instanceof DeploymentOperationResult) || ((DeploymentOperationResult)result).isDone();
+		}
+		public void dispose(WildFly11Manager manager) {
+			manager.dispose();
+		}
+	});
 
 	public void init() throws JBoss7ManangerException {
 	}
@@ -36,14 +57,11 @@ public class WildFly11ManagerService implements IJBoss7ManagerService, Increment
 	 */
 	public IJBoss7DeploymentResult addDeployment(IAS7ManagementDetails details, String deploymentName,
 			File file, IProgressMonitor monitor) throws JBoss7ManangerException {
-		WildFly11Manager manager = new WildFly11Manager(details);
-		try {
+		return clients.execute(details, manager -> {
 			IJBoss7DeploymentResult result = manager.add(deploymentName, file);
 			result.getStatus();
 			return result;
-		} finally {
-			manager.dispose();
-		}
+		});
 	}
 
 	/**
@@ -51,14 +69,11 @@ public class WildFly11ManagerService implements IJBoss7ManagerService, Increment
 	 */
 	public IJBoss7DeploymentResult removeDeployment(IAS7ManagementDetails details, String deploymentName,
 			IProgressMonitor monitor) throws JBoss7ManangerException {
-		WildFly11Manager manager = new WildFly11Manager(details);
-		try {
+		return clients.execute(details, manager -> {
 			IJBoss7DeploymentResult result = manager.remove(deploymentName);
 			result.getStatus();
 			return result;
-		} finally {
-			manager.dispose();
-		}
+		});
 	}
 
 	/**
@@ -66,44 +81,21 @@ public class WildFly11ManagerService implements IJBoss7ManagerService, Increment
 	 */
 	public IJBoss7DeploymentResult replaceDeployment(IAS7ManagementDetails details, String deploymentName,
 			File file, IProgressMonitor monitor) throws JBoss7ManangerException {
-		WildFly11Manager manager = new WildFly11Manager(details);
-		try {
+		return clients.execute(details, manager -> {
 			IJBoss7DeploymentResult result = manager.replace(deploymentName, file);
 			result.getStatus();
 			return result;
-		} finally {
-			manager.dispose();
-		}
+		});
 	}
 
-	
-	/* 
-	 * This asynch method does not really work. 
-	 * They dispose the manager before the result has come through
-	 */
 	public IJBoss7DeploymentResult deployAsync(IAS7ManagementDetails details, String deploymentName,
 			File file, boolean add, IProgressMonitor monitor) throws JBoss7ManangerException {
-		WildFly11Manager manager = new WildFly11Manager(details);
-		try {
-			IJBoss7DeploymentResult result = manager.deploy(deploymentName, file, new String[] {deploymentName}, add);
-			return result;
-		} finally {
-			manager.dispose();
-		}
+		return clients.executeAsync(details, manager -> manager.deploy(deploymentName, file, new String[] {deploymentName}, add));
 	}
-	/* 
-	 * This asynch method does not really work. 
-	 * They dispose the manager before the result has come through
-	 */
+
 	public IJBoss7DeploymentResult undeployAsync(IAS7ManagementDetails details, String deploymentName,
 			boolean removeFile, IProgressMonitor monitor) throws JBoss7ManangerException {
-		WildFly11Manager manager = new WildFly11Manager(details);
-		try {
-			IJBoss7DeploymentResult result = manager.undeploy(deploymentName, removeFile);
-			return result;
-		} finally {
-			manager.dispose();
-		}
+		return clients.executeAsync(details, manager -> manager.undeploy(deploymentName, removeFile));
 	}
 
 	public IJBoss7DeploymentResult deploySync(IAS7ManagementDetails details, String deploymentName,
@@ -116,77 +108,55 @@ public class WildFly11ManagerService implements IJBoss7ManagerService, Increment
 	@Override
 	public IJBoss7DeploymentResult deploySync(IAS7ManagementDetails details, String deploymentName, File file,
 			boolean add, String[] explodePaths, IProgressMonitor monitor) throws JBoss7ManangerException {
-		WildFly11Manager manager = new WildFly11Manager(details);
-		try {
-			IJBoss7DeploymentResult result = manager.deploySync(deploymentName, file, add, explodePaths, monitor);
-			return result;
-		} finally {
-			manager.dispose();
-		}
+		return clients.execute(details, 
+				manager -> manager.deploySync(deploymentName, file, add, explodePaths, monitor));
 	}
 	
 
 	public IJBoss7DeploymentResult undeploySync(IAS7ManagementDetails details, String deploymentName,
 			boolean removeFile, IProgressMonitor monitor) throws JBoss7ManangerException {
-		WildFly11Manager manager = new WildFly11Manager(details);
-		try {
-			IJBoss7DeploymentResult result = manager.undeploySync(deploymentName, removeFile, monitor);
-			return result;
-		} finally {
-			manager.dispose();
-		}
+		return clients.execute(details, 
+				manager -> manager.undeploySync(deploymentName, removeFile, monitor));
 	}
 
 	public JBoss7DeploymentState getDeploymentState(IAS7ManagementDetails details, String deploymentName) throws JBoss7ManangerException {
-		WildFly11Manager manager = new WildFly11Manager(details);
-		try {
-			JBoss7DeploymentState result = manager.getDeploymentStateSafe(deploymentName);
-			return result;
-		} finally {
-			manager.dispose();
-		}
+		return clients.executeReadOnly(details, manager -> manager.getDeploymentStateSafe(deploymentName));
 	}
 	
 	public JBoss7ServerState getServerState(IAS7ManagementDetails details) throws JBoss7ManangerException {
-		WildFly11Manager manager = new WildFly11Manager(details);
-		try {
-			JBoss7ServerState state = manager.getServerState();
-			return state;
-		} finally {
-			manager.dispose();
-		}
+		return clients.executeReadOnly(details, manager -> manager.getServerState());
 	}
 
 	public boolean isRunning(IAS7ManagementDetails details) throws JBoss7ManangerException {
-		WildFly11Manager manager = new WildFly11Manager(details);
+		// not manager.isRunning(), which would hide a lost connection from the pool
 		try {
-			boolean ret = manager.isRunning();
-			return ret;
-		} finally {
-			manager.dispose();
+			return getServerState(details) == JBoss7ServerState.RUNNING;
+		} catch(Exception e) {
+			// the pool only throws the client away if the connection failed
+			return false;
 		}
 	}
 
 	public void stop(IAS7ManagementDetails details) throws JBoss7ManangerException {
-		WildFly11Manager manager = new WildFly11Manager(details);
 		try {
-			manager.stopServer();
+			clients.execute(details, manager -> {
+				manager.stopServer();
+				return null;
+			});
 		} finally {
-			manager.dispose();
+			// the server's connections are going away
+			clients.invalidate(details);
 		}
 	}
 
     public String execute(IAS7ManagementDetails details, String request) throws JBoss7ManangerException {
-        WildFly11Manager manager = new WildFly11Manager(details);
-        try {
-            return manager.execute(ModelNode.fromJSONString(request)).toJSONString(true);
-        } finally {
-            manager.dispose();
-        }
+        return clients.execute(details, 
+        		manager -> manager.execute(ModelNode.fromJSONString(request)).toJSONString(true));
     }
 
     @Override
 	public void dispose() {
+		clients.dispose();
 	}
 
 	@Override
@@ -194,13 +164,8 @@ public class WildFly11ManagerService implements IJBoss7ManagerService, Increment
 			IAS7ManagementDetails details, String deploymentName, 
 			IncrementalManagementModel model,
 			boolean redeploy, IProgressMonitor monitor) throws JBoss7ManangerException {
-		WildFly11Manager manager = new WildFly11Manager(details);
-		try {
-			IJBoss7DeploymentResult ret = manager.incrementalPublish(details, deploymentName, model, redeploy, monitor);
-			return ret;
-		} finally {
-			manager.dispose();
-		}
+		return clients.execute(details, 
+				manager -> manager.incrementalPublish(details, deploymentName, model, redeploy, monitor));
 	}
 
 	@Override
@@ -208,4 +173,15 @@ public class WildFly11ManagerService implements IJBoss7ManagerService, Increment
 		return this instanceof IncrementalDeploymentManagerService;
 	}
 
+	@Override
+	public Map<String, IJBoss7DeploymentResult> publishAll(IAS7ManagementDetails details,
+			IncrementalManagementModel model, IProgressMonitor monitor) throws JBoss7ManangerException {
+		return clients.execute(details, manager -> manager.publishAll(model, monitor));
+	}
+
+	@Override
+	public boolean supportsBatchDeployment() {
+		return true;
+	}
+
 }
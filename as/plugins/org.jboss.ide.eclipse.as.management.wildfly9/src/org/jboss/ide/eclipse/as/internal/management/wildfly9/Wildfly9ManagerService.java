@@ -21,12 +21,30 @@ import org.jboss.ide.eclipse.as.management.core.IncrementalDeploymentManagerServ
 import org.jboss.ide.eclipse.as.management.core.JBoss7DeploymentState;
 import org.jboss.ide.eclipse.as.management.core.JBoss7ManangerException;
 import org.jboss.ide.eclipse.as.management.core.JBoss7ServerState;
+import org.jboss.ide.eclipse.as.management.core.ManagementClientPool;
 
 /**
  * @author Rob Stryker
  */
 public class Wildfly9ManagerService implements IJBoss7ManagerService {
 
+	/*
+	 * Managers are pooled, so that operations against the same server
+	 * share a connection instead of each opening and authenticating its own.
+	 */
+	private final ManagementClientPool<Wildfly9Manager> clients = new ManagementClientPool<Wildfly9Manager>(
+			new ManagementClientPool.IClientFactory<Wildfly9Manager>() {
+		public Wildfly9Manager create(IAS7ManagementDetails details) throws JBoss7ManangerException {
+			return new Wildfly9Manager(details);
+		}
+		public boolean isDone(IJBoss7DeploymentResult result) {
+			return !(result instanceof DeploymentOperationResult) || ((DeploymentOperationResult)result).isDone();
+		}
+		public void dispose(Wildfly9Manager manager) {
+			manager.dispose();
+		}
+	});
+
 	public void init() throws JBoss7ManangerException {
 	}
 
@@ -35,14 +53,11 @@ public class Wildfly9ManagerService implements IJBoss7ManagerService {
 	 */
 	public IJBoss7DeploymentResult addDeployment(IAS7ManagementDetails details, String deploymentName,
 			File file, IProgressMonitor monitor) throws JBoss7ManangerException {
-		Wildfly9Manager manager = new Wildfly9Manager(details);
-		try {
+		return clients.execute(details, manager -> {
 			IJBoss7DeploymentResult result = manager.add(deploymentName, file);
 			result.getStatus();
 			return result;
-		} finally {
-			manager.dispose();
-		}
+		});
 	}
 
 	/**
@@ -50,14 +65,11 @@ public class Wildfly9ManagerService implements IJBoss7ManagerService {
 	 */
 	public IJBoss7DeploymentResult removeDeployment(IAS7ManagementDetails details, String deploymentName,
 			IProgressMonitor monitor) throws JBoss7ManangerException {
-		Wildfly9Manager manager = new Wildfly9Manager(details);
-		try {
+		return clients.execute(details, manager -> {
 			IJBoss7DeploymentResult result = manager.remove(deploymentName);
 			result.getStatus();
 			return result;
-		} finally {
-			manager.dispose();
-		}
+		});
 	}
 
 	/**
@@ -65,123 +77,77 @@ public class Wildfly9ManagerService implements IJBoss7ManagerService {
 	 */
 	public IJBoss7DeploymentResult replaceDeployment(IAS7ManagementDetails details, String deploymentName,
 			File file, IProgressMonitor monitor) throws JBoss7ManangerException {
-		Wildfly9Manager manager = new Wildfly9Manager(details);
-		try {
+		return clients.execute(details, manager -> {
 			IJBoss7DeploymentResult result = manager.replace(deploymentName, file);
 			result.getStatus();
 			return result;
-		} finally {
-			manager.dispose();
-		}
+		});
 	}
 
-	
-	/* 
-	 * This asynch method does not really work. 
-	 * They dispose the manager before the result has come through
-	 */
 	public IJBoss7DeploymentResult deployAsync(IAS7ManagementDetails details, String deploymentName,
 			File file, boolean add, IProgressMonitor monitor) throws JBoss7ManangerException {
-		Wildfly9Manager manager = new Wildfly9Manager(details);
-		try {
-			IJBoss7DeploymentResult result = manager.deploy(deploymentName, file, add);
-			return result;
-		} finally {
-			manager.dispose();
-		}
+		return clients.executeAsync(details, manager -> manager.deploy(deploymentName, file, add));
 	}
-	/* 
-	 * This asynch method does not really work. 
-	 * They dispose the manager before the result has come through
-	 */
+
 	public IJBoss7DeploymentResult undeployAsync(IAS7ManagementDetails details, String deploymentName,
 			boolean removeFile, IProgressMonitor monitor) throws JBoss7ManangerException {
-		Wildfly9Manager manager = new Wildfly9Manager(details);
-		try {
-			IJBoss7DeploymentResult result = manager.undeploy(deploymentName, removeFile);
-			return result;
-		} finally {
-			manager.dispose();
-		}
+		return clients.executeAsync(details, manager -> manager.undeploy(deploymentName, removeFile));
 	}
 
 	public IJBoss7DeploymentResult deploySync(IAS7ManagementDetails details, String deploymentName,
 			File file, boolean add, IProgressMonitor monitor) throws JBoss7ManangerException {
-		Wildfly9Manager manager = new Wildfly9Manager(details);
-		try {
-			IJBoss7DeploymentResult result = manager.deploySync(deploymentName, file, add, monitor);
-			return result;
-		} finally {
-			manager.dispose();
-		}
+		return clients.execute(details, 
+				manager -> manager.deploySync(deploymentName, file, add, monitor));
 	}
 
 	public IJBoss7DeploymentResult undeploySync(IAS7ManagementDetails details, String deploymentName,
 			boolean removeFile, IProgressMonitor monitor) throws JBoss7ManangerException {
-		Wildfly9Manager manager = new Wildfly9Manager(details);
-		try {
-			IJBoss7DeploymentResult result = manager.undeploySync(deploymentName, removeFile, monitor);
-			return result;
-		} finally {
-			manager.dispose();
-		}
+		return clients.execute(details, 
+				manager -> manager.undeploySync(deploymentName, removeFile, monitor));
 	}
 
 	public JBoss7DeploymentState getDeploymentState(IAS7ManagementDetails details, String deploymentName) throws JBoss7ManangerException {
-		Wildfly9Manager manager = new Wildfly9Manager(details);
-		try {
-			JBoss7DeploymentState result = manager.getDeploymentStateSafe(deploymentName);
-			return result;
-		} finally {
-			manager.dispose();
-		}
+		return clients.executeReadOnly(details, manager -> manager.getDeploymentStateSafe(deploymentName));
 	}
 	
 	public JBoss7ServerState getServerState(IAS7ManagementDetails details) throws JBoss7ManangerException {
-		Wildfly9Manager manager = new Wildfly9Manager(details);
-		try {
-			JBoss7ServerState state = manager.getServerState();
-			return state;
-		} finally {
-			manager.dispose();
-		}
+		return clients.executeReadOnly(details, manager -> manager.getServerState());
 	}
 
 	public boolean isRunning(IAS7ManagementDetails details) throws JBoss7ManangerException {
-		Wildfly9Manager manager = new Wildfly9Manager(details);
+		// not manager.isRunning(), which would hide a lost connection from the pool
 		try {
-			boolean ret = manager.isRunning();
-			return ret;
-		} finally {
-			manager.dispose();
+			return getServerState(details) == JBoss7ServerState.RUNNING;
+		} catch(Exception e) {
+			// the pool only throws the client away if the connection failed
+			return false;
 		}
 	}
 
 	public void stop(IAS7ManagementDetails details) throws JBoss7ManangerException {
-		Wildfly9Manager manager = new Wildfly9Manager(details);
 		try {
-			manager.stopServer();
+			clients.execute(details, manager -> {
+				manager.stopServer();
+				return null;
+			});
 		} finally {
-			manager.dispose();
+			// the server's connections are going away
+			clients.invalidate(details);
 		}
 	}
 
     public String execute(IAS7ManagementDetails details, String request) throws JBoss7ManangerException {
-        Wildfly9Manager manager = new Wildfly9Manager(details);
-        try {
-            return manager.execute(ModelNode.fromJSONString(request)).toJSONString(true);
-        } finally {
-            manager.dispose();
-        }
+        return clients.execute(details, 
+        		manager -> manager.execute(ModelNode.fromJSONString(request)).toJSONString(true));
     }
 
     @Override
 	public void dispose() {
+		clients.dispose();
 	}
 
 	@Override
 	public boolean supportsIncrementalDeployment() {
 		return this instanceof IncrementalDeploymentManagerService;
 	}
-
 }
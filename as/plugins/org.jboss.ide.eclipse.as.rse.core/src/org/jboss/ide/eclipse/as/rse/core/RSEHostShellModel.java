@@ -12,6 +12,8 @@
 package org.jboss.ide.eclipse.as.rse.core;
 
 import java.util.HashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -225,6 +227,65 @@ public class RSEHostShellModel {
 			Trace.trace(Trace.STRING_FINER, NLS.bind("Command {0} exited with status {1}", command, statusLine[0]));
 			return -1;
 		}
+		
+		/**
+		 * Run the command in the single use shell and wait until it has completed, 
+		 * rather than for a fixed delay. 
+		 * 
+		 * Return a -1 if the command did not complete before the timeout, 
+		 * or if the monitor is canceled, or the actual status code of the command
+		 * 
+		 * @param command
+		 * @param monitor
+		 * @param timeout the maximum time to wait, in milliseconds
+		 * @return
+		 * @throws CoreException
+		 */
+		public int executeRemoteCommandWaitForStatus(String command, 
+				IProgressMonitor monitor, long timeout) throws CoreException {
+			executeRemoteCommand(null, command, null, monitor);
+			final IHostShell shell = singleUseShell;
+			if( shell == null || !shell.isActive())
+				return -1;
+			
+			// The echoed command line itself does not start with the marker
+			final String marker = serverId + "-" + System.nanoTime() + ":";
+			final int[] status = new int[]{-1};
+			final CountDownLatch done = new CountDownLatch(1);
+			IHostShellOutputListener statusListener = new IHostShellOutputListener() {
+				public void shellOutputChanged(IHostShellChangeEvent event) {
+					IHostOutput[] lines = event.getLines();
+					for( int i = 0; i < lines.length; i++ ) {
+						String line = lines[i].getString();
+						if( line != null && line.trim().startsWith(marker)) {
+							try {
+								status[0] = Integer.parseInt(line.trim().substring(marker.length()).trim());
+							} catch(NumberFormatException nfe) {
+								// leave unknown
+							}
+							done.countDown();
+						}
+					}
+				}
+			};
+			shell.addOutputListener(statusListener);
+			try {
+				shell.writeToShell("echo \"" + marker + "$?\"");
+				long end = System.currentTimeMillis() + timeout;
+				while( !monitor.isCanceled() && System.currentTimeMillis() < end ) {
+					if( done.await(100, TimeUnit.MILLISECONDS)) {
+						Trace.trace(Trace.STRING_FINER, NLS.bind("Command {0} exited with status {1}", command, status[0]));
+						return status[0];
+					}
+				}
+			} catch(InterruptedException ie) {
+				Thread.currentThread().interrupt();
+			} finally {
+				shell.removeOutputListener(statusListener);
+			}
+			Trace.trace(Trace.STRING_FINER, NLS.bind("Command {0} did not complete within {1} ms", command, timeout));
+			return -1;
+		}
 	}
 	
 	public static IShellService findShellService(IServer server) throws CoreException {
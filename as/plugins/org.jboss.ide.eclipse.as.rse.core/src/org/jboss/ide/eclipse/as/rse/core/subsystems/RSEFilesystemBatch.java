@@ -0,0 +1,274 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.ide.eclipse.as.rse.core.subsystems;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.jboss.ide.eclipse.as.core.Trace;
+import org.jboss.ide.eclipse.as.core.util.ProgressMonitorUtil;
+import org.jboss.ide.eclipse.as.rse.core.RSECorePlugin;
+import org.jboss.ide.eclipse.as.rse.core.util.TarStreamWriter;
+import org.jboss.ide.eclipse.as.wtp.core.server.behavior.IFilesystemBatchController.IFilesystemBatch;
+
+/**
+ * A batch of copies to a remote host, which are packed into a single
+ * tar archive, uploaded in one call and unpacked through the remote shell.
+ *
+ * Entries which can not be stored in the archive, or any entries at all
+ * if the archive could not be written, uploaded or unpacked, are copied
+ * one at a time by the filesystem controller instead. If it is unknown
+ * whether the archive was unpacked, for example because tar did not finish
+ * in time, nothing is copied again and the commit fails. The remote tar
+ * may still be writing to the deployment.
+ *
+ * @since 3.6
+ */
+public class RSEFilesystemBatch implements IFilesystemBatch {
+	private static final IStatus[] EMPTY_STATUS = new IStatus[0];
+	private static final int UNPACKED = 0;
+	private static final int NOT_UNPACKED = 1;
+	private static final int UNPACK_UNKNOWN = 2;
+
+	private RSEFilesystemController controller;
+	private IPath root;
+	private Map<IPath, File> files = new LinkedHashMap<IPath, File>();
+	private Set<IPath> folders = new LinkedHashSet<IPath>();
+	private File archive;
+
+	public RSEFilesystemBatch(RSEFilesystemController controller, IPath root) {
+		this.controller = controller;
+		this.root = root;
+	}
+
+	@Override
+	public void addFile(File f, IPath path) {
+		files.put(path, f);
+	}
+
+	@Override
+	public void addFolder(IPath path) {
+		folders.add(path);
+	}
+
+	@Override
+	public IStatus[] commit(IProgressMonitor monitor) throws CoreException {
+		if( files.isEmpty() && folders.isEmpty())
+			return EMPTY_STATUS;
+		monitor.beginTask("Publishing " + files.size() + " files to " + root.toOSString(), 1000); //$NON-NLS-1$ //$NON-NLS-2$
+		try {
+			// Anything the archive can not hold is copied on its own
+			Map<IPath, File> singleFiles = new LinkedHashMap<IPath, File>();
+			Set<IPath> singleFolders = new LinkedHashSet<IPath>();
+			Map<String, File> archivedFiles = new LinkedHashMap<String, File>();
+			Set<String> archivedFolders = new LinkedHashSet<String>();
+			for( Iterator<Entry<IPath, File>> i = files.entrySet().iterator(); i.hasNext(); ) {
+				Entry<IPath, File> e = i.next();
+				String name = getEntryName(e.getKey());
+				if( name != null && e.getValue().isFile() && TarStreamWriter.canWrite(name, e.getValue().length())) {
+					archivedFiles.put(name, e.getValue());
+				} else {
+					singleFiles.put(e.getKey(), e.getValue());
+				}
+			}
+			for( IPath folder : folders ) {
+				String name = getEntryName(folder);
+				if( name != null && TarStreamWriter.canWrite(name, 0)) {
+					archivedFolders.add(name);
+				} else if( !folder.equals(root)) {
+					singleFolders.add(folder);
+				}
+			}
+
+			List<IStatus> status = new ArrayList<IStatus>();
+			if( monitor.isCanceled())
+				return EMPTY_STATUS;
+			IStatus rootStatus = controller.makeDirectoryIfRequired(root, ProgressMonitorUtil.submon(monitor, 50));
+			if( rootStatus != null && !rootStatus.isOK())
+				status.add(rootStatus);
+
+			if( !archivedFiles.isEmpty() || !archivedFolders.isEmpty()) {
+				int unpacked = publishArchive(archivedFiles, archivedFolders, ProgressMonitorUtil.submon(monitor, 800));
+				if( unpacked == UNPACK_UNKNOWN ) {
+					status.add(new Status(IStatus.ERROR, RSECorePlugin.PLUGIN_ID,
+							"Unable to confirm that the publish archive was unpacked into " + root.toOSString() //$NON-NLS-1$
+							+ ". The remote deployment may be incomplete.")); //$NON-NLS-1$
+					return status.toArray(new IStatus[status.size()]);
+				} else if( unpacked == UNPACKED ) {
+					markFoldersCreated(archivedFiles.keySet(), archivedFolders);
+				} else {
+					// Fall back to copying everything one at a time
+					singleFiles.clear();
+					singleFiles.putAll(files);
+					singleFolders.clear();
+					singleFolders.addAll(folders);
+				}
+			}
+
+			if( monitor.isCanceled())
+				return EMPTY_STATUS;
+			int work = singleFiles.size() + singleFolders.size();
+			IProgressMonitor singleMonitor = ProgressMonitorUtil.submon(monitor, 150);
+			singleMonitor.beginTask("Copying files", Math.max(1, work * 100)); //$NON-NLS-1$
+			for( IPath folder : singleFolders ) {
+				if( singleMonitor.isCanceled())
+					return EMPTY_STATUS;
+				addStatus(status, controller.makeDirectoryIfRequired(folder, ProgressMonitorUtil.submon(singleMonitor, 100)));
+			}
+			for( Entry<IPath, File> e : singleFiles.entrySet()) {
+				if( singleMonitor.isCanceled())
+					return EMPTY_STATUS;
+				addStatus(status, controller.makeDirectoryIfRequired(e.getKey().removeLastSegments(1), ProgressMonitorUtil.submon(singleMonitor, 10)));
+				addStatus(status, controller.copyFile(e.getValue(), e.getKey(), ProgressMonitorUtil.submon(singleMonitor, 90)));
+			}
+			singleMonitor.done();
+			return status.toArray(new IStatus[status.size()]);
+		} finally {
+			monitor.done();
+		}
+	}
+
+	@Override
+	public void dispose() {
+		if( archive != null ) {
+			archive.delete();
+			archive = null;
+		}
+		files.clear();
+		folders.clear();
+	}
+
+	/*
+	 * Write, upload and unpack the archive. Return UNPACKED, NOT_UNPACKED if
+	 * nothing has been written to the remote folder, or UNPACK_UNKNOWN.
+	 */
+	private int publishArchive(Map<String, File> archivedFiles, Set<String> archivedFolders,
+			IProgressMonitor monitor) throws CoreException {
+		monitor.beginTask("Publishing archive", 100); //$NON-NLS-1$
+		try {
+			archive = File.createTempFile("publish", ".tar"); //$NON-NLS-1$ //$NON-NLS-2$
+			TarStreamWriter writer = new TarStreamWriter(new BufferedOutputStream(new FileOutputStream(archive)));
+			try {
+				for( String folder : archivedFolders ) {
+					writer.addFolder(folder);
+				}
+				for( Entry<String, File> e : archivedFiles.entrySet()) {
+					if( monitor.isCanceled())
+						return NOT_UNPACKED;
+					writer.addFile(e.getKey(), e.getValue());
+				}
+			} finally {
+				writer.close();
+			}
+		} catch(IOException ioe) {
+			Trace.trace(Trace.STRING_FINER, "Unable to write publish archive, copying files one at a time: " + ioe.getMessage()); //$NON-NLS-1$
+			return NOT_UNPACKED;
+		}
+		monitor.worked(10);
+
+		// Upload next to the root folder, so the archive never shows up in the deployment itself
+		IPath remoteArchive = root.removeLastSegments(1).append("." + root.lastSegment() + "." + System.currentTimeMillis() + ".tar"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		IStatus uploaded;
+		try {
+			uploaded = controller.copyFile(archive, remoteArchive, ProgressMonitorUtil.submon(monitor, 70));
+		} catch(CoreException ce) {
+			uploaded = ce.getStatus();
+		}
+		if( uploaded != null && !uploaded.isOK()) {
+			Trace.trace(Trace.STRING_FINER, "Unable to upload publish archive, copying files one at a time: " + uploaded.getMessage()); //$NON-NLS-1$
+			return NOT_UNPACKED;
+		}
+		if( monitor.isCanceled())
+			return NOT_UNPACKED;
+
+		int result = controller.unpackArchive(remoteArchive, root, archive.length(), ProgressMonitorUtil.submon(monitor, 20));
+		if( result == RSEFilesystemController.UNPACK_STATUS_UNKNOWN ) {
+			// tar may still be running. Deleting the archive or copying
+			// the files again would race with it.
+			Trace.trace(Trace.STRING_FINER, "Unable to determine whether the publish archive was unpacked"); //$NON-NLS-1$
+			return UNPACK_UNKNOWN;
+		}
+		if( result != 0 ) {
+			Trace.trace(Trace.STRING_FINER, "Unable to unpack publish archive (status " + result + "), copying files one at a time"); //$NON-NLS-1$ //$NON-NLS-2$
+			try {
+				controller.deleteResource(remoteArchive, ProgressMonitorUtil.submon(monitor, 0));
+			} catch(CoreException ce) {
+				RSECorePlugin.pluginLog().logStatus(new Status(IStatus.WARNING, RSECorePlugin.PLUGIN_ID,
+						"Unable to remove publish archive " + remoteArchive.toOSString(), ce)); //$NON-NLS-1$
+			}
+			return NOT_UNPACKED;
+		}
+		return UNPACKED;
+	}
+
+	/*
+	 * Remember the folders the archive has created,
+	 * so later single copies need not check for them
+	 */
+	private void markFoldersCreated(Set<String> archivedFiles, Set<String> archivedFolders) {
+		Set<IPath> created = new LinkedHashSet<IPath>();
+		for( String name : archivedFiles ) {
+			IPath parent = root;
+			String[] segments = name.split("/"); //$NON-NLS-1$
+			for( int i = 0; i < segments.length - 1; i++ ) {
+				parent = parent.append(segments[i]);
+				created.add(parent);
+			}
+		}
+		for( String name : archivedFolders ) {
+			IPath folder = root;
+			for( String segment : name.split("/")) { //$NON-NLS-1$
+				folder = folder.append(segment);
+				created.add(folder);
+			}
+		}
+		controller.foldersCreated(created);
+	}
+
+	/*
+	 * The '/' separated path of the given absolute path relative to the root,
+	 * or null if it is not beneath the root
+	 */
+	private String getEntryName(IPath path) {
+		if( !root.isPrefixOf(path) || path.segmentCount() == root.segmentCount())
+			return null;
+		StringBuilder sb = new StringBuilder();
+		for( int i = root.segmentCount(); i < path.segmentCount(); i++ ) {
+			String segment = path.segment(i);
+			if( segment.equals("..") || segment.equals(".")) //$NON-NLS-1$ //$NON-NLS-2$
+				return null;
+			if( sb.length() > 0 )
+				sb.append('/');
+			sb.append(segment);
+		}
+		return sb.toString();
+	}
+
+	private static void addStatus(List<IStatus> list, IStatus s) {
+		if( s != null && !s.isOK())
+			list.add(s);
+	}
+}
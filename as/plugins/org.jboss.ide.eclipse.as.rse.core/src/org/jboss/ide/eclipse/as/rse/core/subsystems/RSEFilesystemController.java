@@ -12,8 +12,9 @@
 package org.jboss.ide.eclipse.as.rse.core.subsystems;
 
 import java.io.File;
-import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashSet;
 
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
@@ -30,19 +31,40 @@ import org.jboss.ide.eclipse.as.core.Trace;
 import org.jboss.ide.eclipse.as.core.util.ProgressMonitorUtil;
 import org.jboss.ide.eclipse.as.rse.core.IFileServiceProvider;
 import org.jboss.ide.eclipse.as.rse.core.RSEFrameworkUtils;
+import org.jboss.ide.eclipse.as.rse.core.RSEHostShellModel;
 import org.jboss.ide.eclipse.as.rse.core.RSEUtils;
 import org.jboss.ide.eclipse.as.rse.core.util.RemoteCallWrapperUtility;
 import org.jboss.ide.eclipse.as.rse.core.util.RemoteCallWrapperUtility.NamedRunnableWithProgress;
 import org.jboss.ide.eclipse.as.wtp.core.server.behavior.AbstractSubsystemController;
-import org.jboss.ide.eclipse.as.wtp.core.server.behavior.IFilesystemController;
+import org.jboss.ide.eclipse.as.wtp.core.server.behavior.IFilesystemBatchController;
 
-public class RSEFilesystemController extends AbstractSubsystemController implements IFilesystemController, IFileServiceProvider  {
+public class RSEFilesystemController extends AbstractSubsystemController implements IFilesystemBatchController, IFileServiceProvider  {
+	/**
+	 * A system property to disable publishing batches through a single archive,
+	 * in which case every file is uploaded on its own.
+	 */
+	public static final String BATCH_PUBLISH_PROPERTY = "org.jboss.ide.eclipse.as.rse.core.batchPublish"; //$NON-NLS-1$
+	
+	/**
+	 * The time to wait for an archive to be unpacked, 
+	 * and the time added for every megabyte in it.
+	 */
+	private static final long UNPACK_TIMEOUT = 30000;
+	private static final long UNPACK_TIMEOUT_PER_MB = 1000;
+	
+	/**
+	 * The results of {@link #unpackArchive(IPath, IPath, long, IProgressMonitor)} 
+	 * other than an exit status
+	 */
+	protected static final int UNPACK_STATUS_UNKNOWN = -1;
+	protected static final int UNPACK_NOT_RUN = -2;
+	
 	/**
 	 * This variable is here to help ensure that multiple remote requests to create
 	 * the same directory are not made. This ensures each folder is only
 	 * created once. 
 	 */
-	private ArrayList<IPath> createdFolders = new ArrayList<IPath>(); 
+	private HashSet<IPath> createdFolders = new HashSet<IPath>(); 
 	
 	/**
 	 * A file subsystem for the given server
@@ -166,6 +188,61 @@ public class RSEFilesystemController extends AbstractSubsystemController impleme
 	}
 	
 	
+	/*
+	 * (non-Javadoc)
+	 * @see org.jboss.ide.eclipse.as.wtp.core.server.behavior.IFilesystemBatchController#createBatch(org.eclipse.core.runtime.IPath, org.eclipse.core.runtime.IProgressMonitor)
+	 */
+	public IFilesystemBatch createBatch(IPath root, IProgressMonitor monitor) throws CoreException {
+		if( Boolean.FALSE.toString().equals(System.getProperty(BATCH_PUBLISH_PROPERTY)) || root.segmentCount() == 0 )
+			return null;
+		// Archives are unpacked with a posix shell and tar
+		if( getFileServiceSubSystem().getHost().getSystemType().isWindows())
+			return null;
+		try {
+			if( RSEHostShellModel.findShellService(getServer()) == null )
+				return null;
+		} catch(CoreException ce) {
+			Trace.trace(Trace.STRING_FINER, "No remote shell available, files will be copied one at a time");
+			return null;
+		}
+		return new RSEFilesystemBatch(this, root);
+	}
+	
+	/**
+	 * Unpack the remote archive into the given remote folder and delete it. 
+	 * Return the exit status of the unpack command, {@link #UNPACK_NOT_RUN} 
+	 * if it could not be started, or {@link #UNPACK_STATUS_UNKNOWN}, 
+	 * for example because it did not complete in time. The command 
+	 * may then still be running.
+	 */
+	protected int unpackArchive(IPath archive, IPath folder, long archiveSize, IProgressMonitor monitor) throws CoreException {
+		String archivePath = quote(archive.toOSString());
+		String command = "tar -xmf " + archivePath + " -C " + quote(folder.toOSString()) + " && rm -f " + archivePath;
+		long timeout = UNPACK_TIMEOUT + UNPACK_TIMEOUT_PER_MB * (archiveSize / (1024 * 1024));
+		monitor.beginTask("Unpack remote archive " + archive.toOSString(), 100); //$NON-NLS-1$
+		try {
+			return RSEHostShellModel.getInstance().getModel(getServer())
+					.executeRemoteCommandWaitForStatus(command, monitor, timeout);
+		} catch(CoreException ce) {
+			Trace.trace(Trace.STRING_FINER, "Unable to unpack remote archive: " + ce.getMessage());
+			return UNPACK_NOT_RUN;
+		} finally {
+			monitor.done();
+		}
+	}
+	
+	/*
+	 * Remember folders created on the remote system by other means
+	 */
+	void foldersCreated(Collection<IPath> folders) {
+		createdFolders.addAll(folders);
+	}
+	
+	// Quote a path for a posix shell
+	private static String quote(String path) {
+		return "'" + path.replace("'", "'\\''") + "'";
+	}
+	
 	/*
 	 * Load the file service subsystem
 	 */
@@ -0,0 +1,196 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.ide.eclipse.as.rse.core.util;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.Arrays;
+
+/**
+ * A minimal writer of ustar archives, as understood by
+ * the tar command of any posix system.
+ *
+ * Only regular files and folders are supported.
+ * Entry names are relative, '/' separated paths, which
+ * must fit the ustar limits as checked by {@link #canWrite(String, long)}.
+ *
+ * @since 3.6
+ */
+public class TarStreamWriter implements Closeable {
+	private static final int BLOCK_SIZE = 512;
+	private static final int RECORD_SIZE = 20 * BLOCK_SIZE;
+	private static final int NAME_LENGTH = 100;
+	private static final int PREFIX_LENGTH = 155;
+	private static final long MAX_SIZE = 077777777777L;
+	private static final byte[] MAGIC = new byte[]{'u', 's', 't', 'a', 'r', 0, '0', '0'};
+
+	private OutputStream out;
+	private byte[] buffer = new byte[64 * 1024];
+	private long written = 0;
+
+	public TarStreamWriter(OutputStream out) {
+		this.out = out;
+	}
+
+	/**
+	 * Return true if an entry with the given name and size
+	 * can be written to a ustar archive.
+	 *
+	 * @param name a relative, '/' separated path
+	 * @param size the size of the file, or 0 for a folder
+	 * @return
+	 */
+	public static boolean canWrite(String name, long size) {
+		return size <= MAX_SIZE && splitName(name.getBytes(StandardCharsets.UTF_8)) >= 0;
+	}
+
+	/**
+	 * Add a folder entry
+	 * @param name a relative, '/' separated path
+	 * @throws IOException
+	 */
+	public void addFolder(String name) throws IOException {
+		writeHeader(name.endsWith("/") ? name : name + "/", 0, 0755, System.currentTimeMillis(), '5');
+	}
+
+	/**
+	 * Add the contents of a local file. The file is executable in the
+	 * archive if its owner may execute it locally. Where the local file system
+	 * has no posix permissions, files are never executable.
+	 * @param name a relative, '/' separated path
+	 * @param file the local file
+	 * @throws IOException
+	 */
+	public void addFile(String name, File file) throws IOException {
+		long size = file.length();
+		writeHeader(name, size, isExecutable(file) ? 0755 : 0644, file.lastModified(), '0');
+		InputStream in = new FileInputStream(file);
+		try {
+			long remaining = size;
+			while( remaining > 0 ) {
+				int read = in.read(buffer, 0, (int)Math.min(buffer.length, remaining));
+				if( read < 0 )
+					break;
+				write(buffer, read);
+				remaining -= read;
+			}
+			// The file got shorter while being read. Keep the archive consistent.
+			while( remaining > 0 ) {
+				int len = (int)Math.min(buffer.length, remaining);
+				Arrays.fill(buffer, 0, len, (byte)0);
+				write(buffer, len);
+				remaining -= len;
+			}
+		} finally {
+			in.close();
+		}
+		pad(BLOCK_SIZE);
+	}
+
+	private static boolean isExecutable(File file) throws IOException {
+		PosixFileAttributeView view = Files.getFileAttributeView(file.toPath(), PosixFileAttributeView.class);
+		return view != null && view.readAttributes().permissions().contains(PosixFilePermission.OWNER_EXECUTE);
+	}
+
+	/**
+	 * Write the end of archive marker and close the underlying stream
+	 */
+	public void close() throws IOException {
+		try {
+			write(new byte[2 * BLOCK_SIZE], 2 * BLOCK_SIZE);
+			pad(RECORD_SIZE);
+			out.flush();
+		} finally {
+			out.close();
+		}
+	}
+
+	private void writeHeader(String name, long size, int mode, long modified, char type) throws IOException {
+		byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+		int split = splitName(nameBytes);
+		if( split < 0 || size > MAX_SIZE )
+			throw new IOException("Entry can not be stored in a tar archive: " + name);
+
+		byte[] header = new byte[BLOCK_SIZE];
+		if( split == 0 ) {
+			System.arraycopy(nameBytes, 0, header, 0, nameBytes.length);
+		} else {
+			System.arraycopy(nameBytes, split + 1, header, 0, nameBytes.length - split - 1);
+			System.arraycopy(nameBytes, 0, header, 345, split);
+		}
+		writeOctal(header, 100, 8, mode);
+		writeOctal(header, 108, 8, 0);
+		writeOctal(header, 116, 8, 0);
+		writeOctal(header, 124, 12, size);
+		writeOctal(header, 136, 12, modified / 1000);
+		header[156] = (byte)type;
+		System.arraycopy(MAGIC, 0, header, 257, MAGIC.length);
+
+		// The checksum is computed with its own field set to spaces
+		for( int i = 148; i < 156; i++ )
+			header[i] = ' ';
+		long checksum = 0;
+		for( int i = 0; i < BLOCK_SIZE; i++ )
+			checksum += header[i] & 0xff;
+		writeOctal(header, 148, 7, checksum);
+		header[155] = ' ';
+		write(header, BLOCK_SIZE);
+	}
+
+	/*
+	 * Return 0 if the name fits the name field,
+	 * the index of the '/' to split the name at into prefix and name,
+	 * or -1 if the name does not fit at all
+	 */
+	private static int splitName(byte[] name) {
+		if( name.length == 0 )
+			return -1;
+		if( name.length <= NAME_LENGTH )
+			return 0;
+		for( int i = Math.min(name.length - 1, PREFIX_LENGTH); i > 0; i-- ) {
+			if( name[i] == '/' && name.length - i - 1 <= NAME_LENGTH && name.length - i - 1 > 0)
+				return i;
+		}
+		return -1;
+	}
+
+	// Octal digits, zero padded, followed by a NUL
+	private static void writeOctal(byte[] header, int offset, int length, long value) {
+		String s = Long.toOctalString(value);
+		int digits = length - 1;
+		for( int i = 0; i < digits; i++ ) {
+			int from = s.length() - digits + i;
+			header[offset + i] = (byte)(from < 0 ? '0' : s.charAt(from));
+		}
+		header[offset + digits] = 0;
+	}
+
+	private void pad(int boundary) throws IOException {
+		int remainder = (int)(written % boundary);
+		if( remainder != 0 ) {
+			int len = boundary - remainder;
+			write(new byte[len], len);
+		}
+	}
+
+	private void write(byte[] bytes, int len) throws IOException {
+		out.write(bytes, 0, len);
+		written += len;
+	}
+}
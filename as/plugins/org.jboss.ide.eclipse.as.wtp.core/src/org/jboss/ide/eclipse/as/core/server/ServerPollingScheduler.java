@@ -0,0 +1,415 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.ide.eclipse.as.core.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.osgi.util.NLS;
+import org.jboss.ide.eclipse.as.wtp.core.Trace;
+
+/**
+ * A scheduler shared by everything that polls a server for its state.
+ *
+ * Rather than each poller spinning a thread of its own which sleeps
+ * between attempts, pollers submit an {@link IPollTask}. A single timer
+ * thread waits out the delays, and each attempt is handed to a pool of
+ * threads which grows with the number of attempts in progress, since
+ * attempts usually block on the network. Idle threads are discarded,
+ * so no thread is held by a poll while it waits for its next attempt.
+ *
+ * The delay between attempts starts at a minimum and backs off
+ * while the task is not complete, up to a maximum. A poll may
+ * be woken to poll again at once, for example when something
+ * indicates the state of the server has just changed.
+ *
+ * Poll counts and detection latencies are recorded per server
+ * and can be retrieved with {@link #getStatistics(String)}.
+ *
+ * @since 3.6
+ */
+public class ServerPollingScheduler {
+
+	private static final long IDLE_THREAD_TIMEOUT = 30000;
+
+	private static ServerPollingScheduler instance;
+	public static synchronized ServerPollingScheduler getDefault() {
+		if( instance == null )
+			instance = new ServerPollingScheduler();
+		return instance;
+	}
+
+	/**
+	 * A single attempt to determine the state of a server
+	 */
+	public interface IPollTask {
+		/**
+		 * Poll once. Implementations may block on I/O, as every
+		 * attempt in progress has a thread of its own, but should
+		 * use a timeout so that canceled polls do not linger.
+		 *
+		 * @return true if polling is complete and should not be repeated
+		 * @throws Exception to complete the poll with a failure
+		 */
+		public boolean poll() throws Exception;
+	}
+
+	/**
+	 * Notified when a poll completes, fails, or is canceled
+	 */
+	public interface IPollCompletionListener {
+		public void pollCompleted(ScheduledPoll poll);
+	}
+
+	private ScheduledThreadPoolExecutor timer;
+	private ThreadPoolExecutor executor;
+	private ConcurrentHashMap<String, PollStatistics> statistics = new ConcurrentHashMap<String, PollStatistics>();
+
+	ServerPollingScheduler() {
+		timer = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "Server State Poll Timer"); //$NON-NLS-1$
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		timer.setRemoveOnCancelPolicy(true);
+		final AtomicInteger count = new AtomicInteger();
+		executor = new ThreadPoolExecutor(0, Integer.MAX_VALUE, IDLE_THREAD_TIMEOUT, TimeUnit.MILLISECONDS,
+				new SynchronousQueue<Runnable>(), new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "Server State Poller " + count.incrementAndGet()); //$NON-NLS-1$
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	}
+
+	/**
+	 * Schedule the task to be polled at once, and then repeatedly until it completes
+	 * or the returned poll is canceled.
+	 *
+	 * @param name a name for tracing
+	 * @param serverId the id of the server being polled, for statistics
+	 * @param task the task to poll
+	 * @param minDelay the delay after the first unsuccessful attempt, in milliseconds
+	 * @param maxDelay the delay the backoff ends at, in milliseconds
+	 * @return the scheduled poll
+	 */
+	public ScheduledPoll schedule(String name, String serverId, IPollTask task, long minDelay, long maxDelay) {
+		ScheduledPoll poll = new ScheduledPoll(name, getStatisticsInternal(serverId), task, minDelay, maxDelay);
+		poll.reschedule(0);
+		return poll;
+	}
+
+	/**
+	 * Get the statistics of all polls of the given server so far
+	 *
+	 * @param serverId
+	 * @return the statistics, never null
+	 */
+	public PollStatistics getStatistics(String serverId) {
+		return getStatisticsInternal(serverId);
+	}
+
+	private PollStatistics getStatisticsInternal(String serverId) {
+		String key = serverId == null ? "" : serverId; //$NON-NLS-1$
+		PollStatistics s = statistics.get(key);
+		if( s == null ) {
+			PollStatistics s2 = new PollStatistics();
+			s = statistics.putIfAbsent(key, s2);
+			if( s == null )
+				s = s2;
+		}
+		return s;
+	}
+
+	/**
+	 * The poll counts and latencies of a server
+	 */
+	public static class PollStatistics {
+		private AtomicLong polls = new AtomicLong();
+		private AtomicLong completed = new AtomicLong();
+		private AtomicLong totalDetectionLatency = new AtomicLong();
+		private volatile long lastDetectionLatency = -1;
+		private volatile long lastDuration = -1;
+
+		/**
+		 * @return the number of attempts made for this server
+		 */
+		public long getPollCount() {
+			return polls.get();
+		}
+
+		/**
+		 * @return the number of polls which completed successfully
+		 */
+		public long getCompletedCount() {
+			return completed.get();
+		}
+
+		/**
+		 * The time between the last unsuccessful attempt and the successful one
+		 * of the most recently completed poll. This bounds how late the state change
+		 * was noticed.
+		 *
+		 * @return the latency in milliseconds, or -1 if no poll has completed
+		 */
+		public long getLastDetectionLatency() {
+			return lastDetectionLatency;
+		}
+
+		/**
+		 * @return the average detection latency in milliseconds, or -1 if no poll has completed
+		 */
+		public long getAverageDetectionLatency() {
+			long c = completed.get();
+			return c == 0 ? -1 : totalDetectionLatency.get() / c;
+		}
+
+		/**
+		 * @return the time from scheduling to completion of the most recently
+		 * completed poll in milliseconds, or -1 if no poll has completed
+		 */
+		public long getLastDuration() {
+			return lastDuration;
+		}
+
+		void completed(long detectionLatency, long duration) {
+			completed.incrementAndGet();
+			totalDetectionLatency.addAndGet(detectionLatency);
+			lastDetectionLatency = detectionLatency;
+			lastDuration = duration;
+		}
+	}
+
+	/**
+	 * A task being polled on the scheduler.
+	 *
+	 * As a {@link Future}, it is done once the task completed,
+	 * failed, or the poll was canceled. {@link #get()} returns
+	 * true when the task completed.
+	 */
+	public class ScheduledPoll implements Future<Boolean>, Runnable {
+		private String name;
+		private PollStatistics stats;
+		private IPollTask task;
+		private long minDelay, maxDelay, delay;
+		private long startTime, lastAttempt;
+		private int attempts = 0;
+
+		private ScheduledFuture<?> next;
+		private boolean running, wakeRequested, canceled, completed;
+		private Throwable failure;
+		private CountDownLatch done = new CountDownLatch(1);
+		private List<IPollCompletionListener> listeners = new ArrayList<IPollCompletionListener>();
+
+		ScheduledPoll(String name, PollStatistics stats, IPollTask task, long minDelay, long maxDelay) {
+			this.name = name;
+			this.stats = stats;
+			this.task = task;
+			this.minDelay = minDelay;
+			this.maxDelay = Math.max(minDelay, maxDelay);
+			this.delay = minDelay;
+			this.startTime = this.lastAttempt = System.currentTimeMillis();
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * Poll again as soon as possible, and restart the backoff
+		 * from the minimum delay.
+		 */
+		public synchronized void wakeUp() {
+			if( isDone())
+				return;
+			delay = minDelay;
+			if( running ) {
+				wakeRequested = true;
+			} else {
+				reschedule(0);
+			}
+		}
+
+		/**
+		 * Cancel the poll. Listeners are notified before this method returns.
+		 * A task attempt in progress is not interrupted, but its result is ignored.
+		 */
+		public void cancel() {
+			cancel(false);
+		}
+
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			synchronized(this) {
+				if( isDone())
+					return false;
+				canceled = true;
+				if( next != null )
+					next.cancel(mayInterruptIfRunning);
+			}
+			finish();
+			return true;
+		}
+
+		/**
+		 * Add a listener to be notified once this poll is done.
+		 * If it is already done, the listener is notified at once.
+		 * @param listener
+		 */
+		public void addCompletionListener(IPollCompletionListener listener) {
+			synchronized(this) {
+				if( !isDone()) {
+					listeners.add(listener);
+					return;
+				}
+			}
+			listener.pollCompleted(this);
+		}
+
+		public synchronized boolean isCancelled() {
+			return canceled;
+		}
+
+		public synchronized boolean isDone() {
+			return canceled || completed || failure != null;
+		}
+
+		/**
+		 * @return the exception thrown by the task, or null
+		 */
+		public synchronized Throwable getFailure() {
+			return failure;
+		}
+
+		/**
+		 * Wait for this poll to be done
+		 *
+		 * @param timeout
+		 * @param unit
+		 * @return true if this poll is done
+		 * @throws InterruptedException
+		 */
+		public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+			return done.await(timeout, unit);
+		}
+
+		public Boolean get() throws InterruptedException, ExecutionException {
+			done.await();
+			return getResult();
+		}
+
+		public Boolean get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+			if( !done.await(timeout, unit))
+				throw new TimeoutException();
+			return getResult();
+		}
+
+		private synchronized Boolean getResult() throws ExecutionException {
+			if( canceled )
+				throw new CancellationException();
+			if( failure != null )
+				throw new ExecutionException(failure);
+			return Boolean.TRUE;
+		}
+
+		/*
+		 * Run one attempt. Never runs concurrently with itself,
+		 * as the next attempt is only scheduled once this one is over.
+		 */
+		public void run() {
+			synchronized(this) {
+				if( isDone())
+					return;
+				if( running ) {
+					// woken while an attempt is in progress
+					wakeRequested = true;
+					return;
+				}
+				running = true;
+				next = null;
+			}
+			boolean complete = false;
+			Throwable t = null;
+			try {
+				complete = task.poll();
+			} catch(Throwable e) {
+				t = e;
+			}
+			stats.polls.incrementAndGet();
+			long now = System.currentTimeMillis();
+			synchronized(this) {
+				running = false;
+				attempts++;
+				if( isDone())
+					return;
+				if( t == null && !complete ) {
+					lastAttempt = now;
+					long d = wakeRequested ? 0 : delay;
+					wakeRequested = false;
+					delay = Math.min(maxDelay, delay + delay / 2);
+					reschedule(d);
+					return;
+				}
+				if( t != null ) {
+					failure = t;
+				} else {
+					completed = true;
+					stats.completed(now - lastAttempt, now - startTime);
+				}
+			}
+			finish();
+		}
+
+		private synchronized void reschedule(long d) {
+			if( next != null )
+				next.cancel(false);
+			// the timer only hands the attempt over, so that an attempt
+			// blocking on I/O never delays the attempts of other polls
+			next = timer.schedule(new Runnable() {
+				public void run() {
+					executor.execute(ScheduledPoll.this);
+				}
+			}, d, TimeUnit.MILLISECONDS);
+		}
+
+		private void finish() {
+			List<IPollCompletionListener> toNotify;
+			String result;
+			synchronized(this) {
+				toNotify = new ArrayList<IPollCompletionListener>(listeners);
+				listeners.clear();
+				result = canceled ? "canceled" : failure != null ? "failed" : "completed"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			}
+			done.countDown();
+			Trace.trace(Trace.STRING_FINER, NLS.bind("Poll {0} {1} after {2} attempts in {3} ms", //$NON-NLS-1$
+					new Object[]{name, result, attempts, System.currentTimeMillis() - startTime}));
+			for( IPollCompletionListener l : toNotify ) {
+				l.pollCompleted(this);
+			}
+		}
+	}
+}
@@ -12,10 +12,7 @@ package org.jboss.ide.eclipse.as.core.server.bean;
 
 import java.io.File;
 import java.io.FilenameFilter;
-import java.io.IOException;
 import java.util.Properties;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
 
 public abstract class AbstractCondition implements ICondition {
 	
@@ -71,35 +68,16 @@ public abstract class AbstractCondition implements ICondition {
 		}
 		
 		String version = null;
-		ZipFile jar = null;
-		if(systemJarFile.canRead()) {
-			try {
-				jar = new ZipFile(systemJarFile);
-				ZipEntry manifest = jar.getEntry("META-INF/MANIFEST.MF");//$NON-NLS-1$
-				Properties props = new Properties();
-				props.load(jar.getInputStream(manifest));
-				
-				for( int i = 0; i < manifestAttributes.length; i++ ) {
-					version = props.getProperty(manifestAttributes[i]); //$NON-NLS-1$
-					if (version != null && version.trim().length() > 0) {
-						return version;
-					}
-					version = (String)props.get(manifestAttributes[i]);
-					if (version != null && version.trim().length() > 0) {
-						return version;
-					}
+		Properties props = JarManifestCache.getManifest(systemJarFile);
+		if( props != null ) {
+			for( int i = 0; i < manifestAttributes.length; i++ ) {
+				version = props.getProperty(manifestAttributes[i]); //$NON-NLS-1$
+				if (version != null && version.trim().length() > 0) {
+					return version;
 				}
-			} catch (IOException e) {
-				// It's already null, and would fall through to return null,
-				// but hudson doesn't like empty catch blocks.
-				return null;  
-			} finally {
-				if (jar != null) {
-					try {
-						jar.close();
-					} catch (IOException e) {
-						// ignore
-					}
+				version = (String)props.get(manifestAttributes[i]);
+				if (version != null && version.trim().length() > 0) {
+					return version;
 				}
 			}
 		}
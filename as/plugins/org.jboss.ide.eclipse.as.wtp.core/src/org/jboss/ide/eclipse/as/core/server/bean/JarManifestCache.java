@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.ide.eclipse.as.core.server.bean;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * A cache of the manifests of jars, shared by all server bean types,
+ * so that detecting the type of a server opens each jar only once
+ * however many conditions look into it.
+ *
+ * A manifest is read again once the jar's timestamp or size changes.
+ * The manifest is loaded as {@link Properties}, as the conditions
+ * have always done.
+ */
+class JarManifestCache {
+	private static final int MAX_ENTRIES = 1024;
+	private static final Properties NO_MANIFEST = new Properties();
+
+	private static ConcurrentHashMap<String, Entry> cache = new ConcurrentHashMap<String, Entry>();
+
+	private static class Entry {
+		private long lastModified, length;
+		private Properties manifest;
+		private Entry(long lastModified, long length, Properties manifest) {
+			this.lastModified = lastModified;
+			this.length = length;
+			this.manifest = manifest;
+		}
+	}
+
+	/**
+	 * Get the manifest of the jar. The returned properties must not be changed.
+	 *
+	 * @param jar
+	 * @return the manifest, empty if the jar has none, or null if the jar can not be read
+	 */
+	static Properties getManifest(File jar) {
+		if( !jar.canRead())
+			return null;
+		final long lastModified = jar.lastModified();
+		final long length = jar.length();
+		String key = jar.getAbsolutePath();
+		Entry e = cache.get(key);
+		if( e == null || e.lastModified != lastModified || e.length != length ) {
+			if( cache.size() >= MAX_ENTRIES )
+				cache.clear();
+			// concurrent lookups of the same jar wait for a single read
+			e = cache.compute(key, (k, old) -> {
+				if( old != null && old.lastModified == lastModified && old.length == length )
+					return old;
+				return new Entry(lastModified, length, readManifest(jar));
+			});
+		}
+		return e.manifest;
+	}
+
+	static void clear() {
+		cache.clear();
+	}
+
+	private static Properties readManifest(File jar) {
+		ZipFile zip = null;
+		try {
+			zip = new ZipFile(jar);
+			ZipEntry manifest = zip.getEntry("META-INF/MANIFEST.MF");//$NON-NLS-1$
+			if( manifest == null )
+				return NO_MANIFEST;
+			Properties props = new Properties();
+			InputStream is = zip.getInputStream(manifest);
+			try {
+				props.load(is);
+			} finally {
+				is.close();
+			}
+			return props;
+		} catch (IOException e) {
+			return null;
+		} finally {
+			if (zip != null) {
+				try {
+					zip.close();
+				} catch (IOException e) {
+					// ignore
+				}
+			}
+		}
+	}
+}
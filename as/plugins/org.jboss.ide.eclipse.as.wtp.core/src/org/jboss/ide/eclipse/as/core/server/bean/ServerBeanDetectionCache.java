@@ -0,0 +1,162 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.ide.eclipse.as.core.server.bean;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.jboss.ide.eclipse.as.core.server.jbossmodules.LayeredModulePathFactory;
+
+/**
+ * A cache of the server beans detected at a location, so that
+ * detecting the same server home again need not run every
+ * server bean type's condition again.
+ *
+ * An entry is only used while the stamp of its location is unchanged.
+ * The stamp is made of the timestamps and sizes of the files the
+ * conditions look at: the location itself, the system jar of every
+ * type, a few files which tell products apart, and, for a layered
+ * modules folder, its layers.conf, every layer and overlay, and the
+ * manifests of the product modules found in them.
+ */
+class ServerBeanDetectionCache {
+	private static final int MAX_ENTRIES = 512;
+	private static final String MODULES = "modules"; //$NON-NLS-1$
+	private static final String BASE_LAYER = "modules/system/layers/base"; //$NON-NLS-1$
+	private static final String PRODUCT_MODULE = "org/jboss/as/product"; //$NON-NLS-1$
+	private static final String PRODUCT_META_INF = "dir/META-INF"; //$NON-NLS-1$
+	private static final String OVERLAYS = ".overlays/.overlays"; //$NON-NLS-1$
+	private static final String[] PRODUCT_PATHS = new String[] {
+		"bin", "bin/product.conf", "lib", MODULES, "version.txt", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+		"modules/layers.conf", "modules/system/layers", "modules/system/add-ons" //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	};
+
+	private static class Detected {
+		private long stamp;
+		private ServerBeanType type;
+		private String name, fullVersion;
+		private Detected(long stamp, ServerBean bean) {
+			this.stamp = stamp;
+			this.type = bean.getBeanType();
+			this.name = bean.getName();
+			this.fullVersion = bean.getFullVersion();
+		}
+	}
+
+	private static Map<String, Detected> cache = new LinkedHashMap<String, Detected>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+		protected boolean removeEldestEntry(Map.Entry<String, Detected> eldest) {
+			return size() > MAX_ENTRIES;
+		}
+	};
+
+	/**
+	 * Compute the stamp of a location
+	 *
+	 * @param location
+	 * @param types the types whose system jars are part of the stamp
+	 * @return
+	 */
+	static long getStamp(File location, ServerBeanType[] types) {
+		Set<String> paths = new LinkedHashSet<String>();
+		for( int i = 0; i < types.length; i++ ) {
+			if( types[i].getSystemJarPath() != null )
+				paths.add(types[i].getSystemJarPath());
+		}
+		for( int i = 0; i < PRODUCT_PATHS.length; i++ ) {
+			paths.add(PRODUCT_PATHS[i]);
+		}
+		long stamp = location.lastModified();
+		for( String p : paths ) {
+			stamp = stamp(stamp, new File(location, p));
+		}
+		File modules = new File(location, MODULES);
+		if( modules.isDirectory())
+			stamp = stampModules(stamp, location, modules, paths);
+		return stamp;
+	}
+
+	/*
+	 * The conditions look up the system jars and product modules in every
+	 * layer, add-on and overlay of the modules folder, which a patch or a
+	 * layered product changes without touching the base layer.
+	 */
+	private static long stampModules(long stamp, File location, File modules, Set<String> paths) {
+		String base = new File(location, BASE_LAYER).getPath() + File.separator;
+		Set<String> systemModules = new LinkedHashSet<String>();
+		for( String p : paths ) {
+			String path = new File(location, p).getPath();
+			if( path.startsWith(base))
+				systemModules.add(path.substring(base.length()));
+		}
+		File[] roots;
+		try {
+			roots = LayeredModulePathFactory.resolveLayeredModulePath(modules);
+		} catch(RuntimeException re) {
+			// a broken layers.conf, which is part of the stamp already
+			return stamp;
+		}
+		for( int i = 0; i < roots.length; i++ ) {
+			stamp = stamp(stamp, roots[i]);
+			stamp = stamp(stamp, new File(roots[i], OVERLAYS));
+			for( String m : systemModules ) {
+				stamp = stamp(stamp, new File(roots[i], m));
+			}
+			File[] slots = new File(roots[i], PRODUCT_MODULE).listFiles();
+			if( slots != null ) {
+				Arrays.sort(slots);
+				for( int j = 0; j < slots.length; j++ ) {
+					// the manifest is looked up whatever the case of its name
+					File metaInf = new File(slots[j], PRODUCT_META_INF);
+					stamp = stamp(stamp, slots[j]);
+					stamp = stamp(stamp, metaInf);
+					File[] files = metaInf.listFiles();
+					if( files != null ) {
+						Arrays.sort(files);
+						for( int k = 0; k < files.length; k++ )
+							stamp = stamp(stamp, files[k]);
+					}
+				}
+			}
+		}
+		return stamp;
+	}
+
+	private static long stamp(long stamp, File f) {
+		stamp = stamp * 31 + f.lastModified();
+		return stamp * 31 + f.length();
+	}
+
+	/**
+	 * @param location
+	 * @param stamp
+	 * @return a new bean for what has been detected at the location, 
+	 *         or null if nothing has been detected with the same stamp
+	 */
+	static synchronized ServerBean get(File location, long stamp) {
+		Detected e = cache.get(location.getAbsolutePath());
+		if( e == null || e.stamp != stamp )
+			return null;
+		return new ServerBean(location.getPath(), e.name, e.type, e.fullVersion);
+	}
+
+	static synchronized void put(File location, long stamp, ServerBean bean) {
+		cache.put(location.getAbsolutePath(), new Detected(stamp, bean));
+	}
+
+	static synchronized void clear() {
+		cache.clear();
+	}
+}
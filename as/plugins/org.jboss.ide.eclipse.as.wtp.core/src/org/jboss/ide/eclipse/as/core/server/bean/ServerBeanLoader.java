@@ -12,6 +12,8 @@
 package org.jboss.ide.eclipse.as.core.server.bean;
 
 import java.io.File;
+import java.util.OptionalInt;
+import java.util.stream.IntStream;
 
 
 /**
@@ -23,11 +25,28 @@ public class ServerBeanLoader {
 
 	private ServerBean bean = null;
 	private File rootLocation = null;
+	private boolean parallel = false;
 
 	public ServerBeanLoader(File location) {
 		rootLocation = location;
 	}
 	
+	/**
+	 * Create a loader which, if parallel is true, checks the conditions 
+	 * of all server bean types at once rather than one after the other. 
+	 * The first matching type in the usual order is still the one chosen. 
+	 * This is faster when many folders are to be checked, most of which
+	 * match no type at all, for example when searching for runtimes. 
+	 * 
+	 * @param location
+	 * @param parallel
+	 * @since 3.6
+	 */
+	public ServerBeanLoader(File location, boolean parallel) {
+		this(location);
+		this.parallel = parallel;
+	}
+	
 	public ServerBean getServerBean() {
 		if( bean == null )
 			loadBeanInternal();
@@ -42,17 +61,31 @@ public class ServerBeanLoader {
 
 	
 	private void loadBeanInternal() {
-		ServerBeanType type = loadTypeInternal(rootLocation);
+		ServerBeanType[] all = ServerBeanExtensionManager.getDefault().getAllTypes();
+		long stamp = ServerBeanDetectionCache.getStamp(rootLocation, all);
+		ServerBean cached = ServerBeanDetectionCache.get(rootLocation, stamp);
+		if( cached != null ) {
+			this.bean = cached;
+			return;
+		}
+		
+		ServerBeanType type = loadTypeInternal(rootLocation, all);
 		String version = null;
 		if (!ServerBeanType.UNKNOWN.equals(type)) {
 			version = type.getFullVersion(rootLocation);
 		} 
 		ServerBean server = new ServerBean(rootLocation.getPath(),type.getServerBeanName(rootLocation),type,version);
+		ServerBeanDetectionCache.put(rootLocation, stamp, server);
 		this.bean = server;
 	}
 	
-	private ServerBeanType loadTypeInternal(File location) {
-		ServerBeanType[] all = ServerBeanExtensionManager.getDefault().getAllTypes();
+	private ServerBeanType loadTypeInternal(final File location, final ServerBeanType[] all) {
+		if( parallel ) {
+			// findFirst keeps the order of the types, whichever condition is done first
+			OptionalInt match = IntStream.range(0, all.length).parallel()
+					.filter(i -> all[i].isServerRoot(location)).findFirst();
+			return match.isPresent() ? all[match.getAsInt()] : ServerBeanType.UNKNOWN;
+		}
 		for( int i = 0; i < all.length; i++ ) {
 			if( all[i].isServerRoot(location))
 				return all[i];
@@ -61,6 +94,18 @@ public class ServerBeanLoader {
 		
 	}
 	
+	/**
+	 * Forget the server beans and jar manifests remembered from earlier detections. 
+	 * They are otherwise only detected again once the files they were 
+	 * detected from have changed. 
+	 * 
+	 * @since 3.6
+	 */
+	public static void clearCache() {
+		ServerBeanDetectionCache.clear();
+		JarManifestCache.clear();
+	}
+	
 	/**
 	 * This method just gets the name of the file or folder provided. 
 	 * 
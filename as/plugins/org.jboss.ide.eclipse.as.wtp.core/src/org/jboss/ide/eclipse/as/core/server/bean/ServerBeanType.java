@@ -19,8 +19,6 @@ import java.util.ArrayList;
 import java.util.Properties;
 import java.util.jar.Attributes;
 import java.util.jar.Manifest;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
 
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.Path;
@@ -298,30 +296,9 @@ public class ServerBeanType {
 	 * @return
 	 */
 	public static String getJarProperty(File systemJarFile, String propertyName) {
-		if (systemJarFile.canRead()) {
-			ZipFile jar = null;
-			try {
-				jar = new ZipFile(systemJarFile);
-				ZipEntry manifest = jar.getEntry("META-INF/MANIFEST.MF");//$NON-NLS-1$
-				Properties props = new Properties();
-				props.load(jar.getInputStream(manifest));
-				String value = (String) props.get(propertyName);
-				return value;
-			} catch (IOException e) {
-				// Intentionally empty
-				return null; 
-			} finally {
-				if (jar != null) {
-					try {
-						jar.close();
-					} catch (IOException e) {
-						// Intentionally empty
-						return null;
-					}
-				}
-			}
-		} 
-		return null;
+		// Many conditions look into the same jars, which are read only once
+		Properties props = JarManifestCache.getManifest(systemJarFile);
+		return props == null ? null : (String) props.get(propertyName);
 	}
 	
 
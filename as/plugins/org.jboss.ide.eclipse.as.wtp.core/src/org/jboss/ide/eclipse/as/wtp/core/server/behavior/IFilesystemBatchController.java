@@ -0,0 +1,85 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.ide.eclipse.as.wtp.core.server.behavior;
+
+import java.io.File;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+
+/**
+ * An optional extension of {@link IFilesystemController} for
+ * filesystems where every single operation is expensive,
+ * such as those on a remote host.
+ *
+ * Instead of copying each file and creating each folder on its own,
+ * a client may collect all of them in a batch, which is then
+ * transferred to the filesystem at once when committed.
+ *
+ * As with {@link IFilesystemController}, all paths must
+ * already be absolute for the system they are copied to.
+ *
+ * @since 3.6
+ */
+public interface IFilesystemBatchController extends IFilesystemController {
+
+	/**
+	 * Begin a batch of copies and folder creations beneath the given
+	 * absolute root folder.
+	 *
+	 * @param root the folder all paths added to the batch are expected to be in
+	 * @param monitor
+	 * @return a new batch, or null if batching is not available at this time,
+	 *         in which case clients should fall back to the single operations
+	 *         of {@link IFilesystemController}
+	 * @throws CoreException
+	 */
+	public IFilesystemBatch createBatch(IPath root, IProgressMonitor monitor) throws CoreException;
+
+	/**
+	 * A set of copies and folder creations which are
+	 * performed together when the batch is committed.
+	 */
+	public interface IFilesystemBatch {
+		/**
+		 * Add a file to be copied to the given absolute path
+		 *
+		 * @param f		The local file
+		 * @param path	The remote path it should be copied to
+		 */
+		public void addFile(File f, IPath path);
+
+		/**
+		 * Add a folder to be created at the given absolute path,
+		 * along with any missing parent folders
+		 *
+		 * @param path
+		 */
+		public void addFolder(IPath path);
+
+		/**
+		 * Perform all operations added to this batch.
+		 * A batch may only be committed once.
+		 *
+		 * @param monitor
+		 * @return a possibly-empty array of error and warning status
+		 * @throws CoreException
+		 */
+		public IStatus[] commit(IProgressMonitor monitor) throws CoreException;
+
+		/**
+		 * Discard this batch without performing any of its operations
+		 */
+		public void dispose();
+	}
+}
@@ -30,6 +30,8 @@ import org.jboss.ide.eclipse.as.core.util.ModuleResourceUtil;
 import org.jboss.ide.eclipse.as.core.util.ProgressMonitorUtil;
 import org.jboss.ide.eclipse.as.core.util.PublishCopyUtil;
 import org.jboss.ide.eclipse.as.wtp.core.ASWTPToolsPlugin;
+import org.jboss.ide.eclipse.as.wtp.core.server.behavior.IFilesystemBatchController;
+import org.jboss.ide.eclipse.as.wtp.core.server.behavior.IFilesystemBatchController.IFilesystemBatch;
 import org.jboss.ide.eclipse.as.wtp.core.server.behavior.IFilesystemController;
 /**
  * A utility class for the purposes of traversing a 
@@ -55,6 +57,11 @@ import org.jboss.ide.eclipse.as.wtp.core.server.behavior.IFilesystemController;
  * This class re-implements portions of {@link PublishCopyUtil}, which 
  * will one day be removed and marked as deprecated
  * </p>
+ * <p>
+ * If the filesystem controller is an {@link IFilesystemBatchController},
+ * all copies and folder creations are collected into a single batch
+ * which is committed once the whole tree has been traversed.
+ * </p>
  * @since 3.0
  */
 public final class PublishModuleFullRunner {
@@ -64,6 +71,7 @@ public final class PublishModuleFullRunner {
 	
 	private IFilesystemController fsController;
 	private IPath rootDirectory;
+	private IFilesystemBatch batch;
 	
 	
 	/**
@@ -128,7 +136,24 @@ public final class PublishModuleFullRunner {
 		
 		// Begin to run through the resources
 		ArrayList<IStatus> all =new ArrayList<IStatus>();
-		IStatus[] results = traverseResources(resources, rootDirectory, monitor); //$NON-NLS-1$
+		batch = createBatch(monitor);
+		IStatus[] results;
+		try {
+			results = traverseResources(resources, rootDirectory, monitor); //$NON-NLS-1$
+			if( batch != null ) {
+				if( monitor.isCanceled())
+					return CANCEL_STATUS_ARR;
+				Trace.trace(Trace.STRING_FINER, "      Committing batch to: " + rootDirectory); //$NON-NLS-1$
+				List<IStatus> batchResults = new ArrayList<IStatus>(Arrays.asList(results));
+				addArrayToList(batchResults, batch.commit(ProgressMonitorUtil.getSubMon(monitor, 100 * count)));
+				results = batchResults.toArray(new IStatus[batchResults.size()]);
+			}
+		} finally {
+			if( batch != null ) {
+				batch.dispose();
+				batch = null;
+			}
+		}
 		if( s != null )
 			all.add(s);
 		all.addAll(Arrays.asList(results));
@@ -136,6 +161,18 @@ public final class PublishModuleFullRunner {
 		return results;
 	}
 	
+	/*
+	 * Begin a batch if the filesystem controller supports it.
+	 * Copies are then made in one go once all resources are traversed.
+	 */
+	private IFilesystemBatch createBatch(IProgressMonitor monitor) throws CoreException {
+		if( fsController instanceof IFilesystemBatchController ) {
+			return ((IFilesystemBatchController)fsController).createBatch(rootDirectory, 
+					ProgressMonitorUtil.getSubMon(monitor, 10));
+		}
+		return null;
+	}
+	
 	// Iterate over the array and call handleSingleResource(etc) on each item
 	private IStatus[] traverseResources(IModuleResource[] resources, IPath relative,
 			IProgressMonitor monitor) throws CoreException {
@@ -169,13 +206,22 @@ public final class PublishModuleFullRunner {
 			if( children.length == 0 ) {
 				// Ensure the empty remote folder is still created
 				Trace.trace(Trace.STRING_FINER, "      Creating folder: " + path); //$NON-NLS-1$
-				fsController.makeDirectoryIfRequired(absoluteRemote, 
-						ProgressMonitorUtil.getSubMon(monitor, 100));
+				if( batch != null ) {
+					batch.addFolder(absoluteRemote);
+				} else {
+					fsController.makeDirectoryIfRequired(absoluteRemote, 
+							ProgressMonitorUtil.getSubMon(monitor, 100));
+				}
 			} else {
 				// Re-traverse this new folder
 				IStatus[] stat = traverseResources(children, path, monitor);
 				addArrayToList(status, stat);
 			}
+		} else if( batch != null ) {
+			// The batch creates the parent folders along with the file
+			File file = ModuleResourceUtil.getFile(((IModuleFile)resource));
+			Trace.trace(Trace.STRING_FINER, "      Adding file to batch: " + absoluteRemote); //$NON-NLS-1$
+			batch.addFile(file, absoluteRemote);
 		} else {
 			// Ensure the directory is created.  This should already be true,
 			// so we weight it only 10 in the progmon
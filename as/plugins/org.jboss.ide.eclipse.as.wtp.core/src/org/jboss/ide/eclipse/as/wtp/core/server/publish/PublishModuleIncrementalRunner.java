@@ -19,6 +19,7 @@ import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.SubProgressMonitor;
 import org.eclipse.osgi.util.NLS;
@@ -33,6 +34,8 @@ import org.jboss.ide.eclipse.as.core.util.ModuleResourceUtil;
 import org.jboss.ide.eclipse.as.core.util.ProgressMonitorUtil;
 import org.jboss.ide.eclipse.as.core.util.PublishCopyUtil;
 import org.jboss.ide.eclipse.as.wtp.core.ASWTPToolsPlugin;
+import org.jboss.ide.eclipse.as.wtp.core.server.behavior.IFilesystemBatchController;
+import org.jboss.ide.eclipse.as.wtp.core.server.behavior.IFilesystemBatchController.IFilesystemBatch;
 import org.jboss.ide.eclipse.as.wtp.core.server.behavior.IFilesystemController;
 /**
  * A utility class for the purposes of traversing either a 
@@ -56,6 +59,12 @@ import org.jboss.ide.eclipse.as.wtp.core.server.behavior.IFilesystemController;
  * This class re-implements portions of {@link PublishCopyUtil}, which 
  * will one day be removed and marked as deprecated
  * </p>
+ * <p>
+ * If the filesystem controller is an {@link IFilesystemBatchController},
+ * changed files and added folders are collected into a single batch
+ * which is committed once the whole delta has been traversed.
+ * Removals are still performed as they are encountered. 
+ * </p>
  * @since 3.0
  */
 public final class PublishModuleIncrementalRunner {
@@ -65,6 +74,7 @@ public final class PublishModuleIncrementalRunner {
 	
 	private IFilesystemController fsController;
 	private IPath rootDirectory;
+	private IFilesystemBatch batch;
 	
 	
 	/**
@@ -110,17 +120,44 @@ public final class PublishModuleIncrementalRunner {
 		monitor = ProgressMonitorUtil.getMonitorFor(monitor);
 		monitor.beginTask("Incremental Publish", count * 100);
 		List<IStatus> status = new ArrayList<IStatus>(2);
-		int size2 = delta.length;
-		for (int i = 0; i < size2; i++) {
-			if( monitor.isCanceled())
-				return CANCEL_STATUS_ARR;
-			
-			IStatus[] stat = publishDelta(delta[i], rootDirectory, new SubProgressMonitor(monitor, 100));
-			addArrayToList(status, stat);
+		batch = count > 0 ? createBatch(monitor) : null;
+		try {
+			int size2 = delta.length;
+			for (int i = 0; i < size2; i++) {
+				if( monitor.isCanceled())
+					return CANCEL_STATUS_ARR;
+				
+				IStatus[] stat = publishDelta(delta[i], rootDirectory, 
+						new SubProgressMonitor(monitor, batch == null ? 100 : 10));
+				addArrayToList(status, stat);
+			}
+			if( batch != null ) {
+				if( monitor.isCanceled())
+					return CANCEL_STATUS_ARR;
+				Trace.trace(Trace.STRING_FINER, "      Committing batch to: " + rootDirectory); //$NON-NLS-1$
+				addArrayToList(status, batch.commit(new SubProgressMonitor(monitor, 90 * size2)));
+			}
+		} finally {
+			if( batch != null ) {
+				batch.dispose();
+				batch = null;
+			}
 		}
 		return status.toArray(new IStatus[status.size()]);
 	}
 	
+	/*
+	 * Begin a batch if the filesystem controller supports it.
+	 * Copies are then made in one go once the whole delta is traversed.
+	 */
+	private IFilesystemBatch createBatch(IProgressMonitor monitor) throws CoreException {
+		if( fsController instanceof IFilesystemBatchController ) {
+			return ((IFilesystemBatchController)fsController).createBatch(rootDirectory, 
+					new NullProgressMonitor());
+		}
+		return null;
+	}
+	
 	/**
 	 * Handle a delta publish.
 	 * 
@@ -151,6 +188,10 @@ public final class PublishModuleIncrementalRunner {
 				IStatus stat = fsController.deleteResource(absolutePath, monitor);
 				if( stat != null )
 					status.add( stat);
+			} else if( kind2 != IModuleResourceDelta.NO_CHANGE && batch != null ) {
+				// The batch creates the parent folders along with the file
+				Trace.trace(Trace.STRING_FINER, "      Adding resource to batch: " + absolutePath); //$NON-NLS-1$
+				batch.addFile(ioFile, absolutePath);
 			} else if( kind2 != IModuleResourceDelta.NO_CHANGE){
 				Trace.trace(Trace.STRING_FINER, "      Creating directory resource: " + absolutePath.removeLastSegments(1)); //$NON-NLS-1$
 				IStatus s1 = fsController.makeDirectoryIfRequired(absolutePath.removeLastSegments(1), new SubProgressMonitor(monitor, 10));
@@ -169,9 +210,13 @@ public final class PublishModuleIncrementalRunner {
 		// Handle the case of an added folder
 		if (kind2 == IModuleResourceDelta.ADDED) {
 			Trace.trace(Trace.STRING_FINER, "      Creating directory resource: " + absolutePath); //$NON-NLS-1$
-			IStatus stat = fsController.makeDirectoryIfRequired(absolutePath, monitor);
-			if( stat != null )
-				status.add( stat);
+			if( batch != null ) {
+				batch.addFolder(absolutePath);
+			} else {
+				IStatus stat = fsController.makeDirectoryIfRequired(absolutePath, monitor);
+				if( stat != null )
+					status.add( stat);
+			}
 		}
 		
 		// Handle all child deltas. 
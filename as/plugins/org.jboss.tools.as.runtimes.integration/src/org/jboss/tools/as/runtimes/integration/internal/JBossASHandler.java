@@ -295,7 +295,8 @@ public class JBossASHandler extends AbstractRuntimeDetectorDelegate implements I
 		if (monitor.isCanceled() || root == null) {
 			return null;
 		}
-		ServerBeanLoader loader = new ServerBeanLoader(root);
+		// Most folders searched are no server at all, and fail every condition
+		ServerBeanLoader loader = new ServerBeanLoader(root, true);
 		ServerBean serverBean = loader.getServerBean();
 		
 		if (serverBean.getBeanType() != null && Arrays.asList(JBossServerType.KNOWN_TYPES).contains(serverBean.getBeanType())) {
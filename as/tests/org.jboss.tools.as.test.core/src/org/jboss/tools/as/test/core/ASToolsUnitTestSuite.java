@@ -15,7 +15,10 @@ import org.jboss.tools.as.test.core.catalog.CatalogValidationTest;
 import org.jboss.tools.as.test.core.classpath.ClasspathSuite;
 import org.jboss.tools.as.test.core.console.ConsoleWriterTest;
 import org.jboss.tools.as.test.core.parametized.server.ParametizedSuite;
+import org.jboss.tools.as.test.core.polling.DeploymentReadinessWaiterTest;
 import org.jboss.tools.as.test.core.polling.PollThreadTest;
+import org.jboss.tools.as.test.core.polling.ServerLogScannerTest;
+import org.jboss.tools.as.test.core.polling.ServerPollingSchedulerTest;
 import org.jboss.tools.as.test.core.portal.LaunchProjectOnJPP6Test;
 import org.jboss.tools.as.test.core.runtime.RuntimeSuite;
 import org.jboss.tools.as.test.core.runtimedetect.RuntimeDetectionTest;
@@ -32,6 +35,9 @@ import org.junit.runners.Suite.SuiteClasses;
 	ParametizedSuite.class,
 	RuntimeSuite.class,
 	PollThreadTest.class,
+	ServerPollingSchedulerTest.class,
+	DeploymentReadinessWaiterTest.class,
+	ServerLogScannerTest.class,
 	ClasspathSuite.class,
 	RuntimeDetectionTest.class,
 	CatalogMissingEntriesTest.class,
@@ -0,0 +1,155 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.as.test.core.classpath.modules;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import junit.framework.TestCase;
+
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.Path;
+import org.jboss.ide.eclipse.as.classpath.core.runtime.cache.internal.ModuleSlot;
+import org.jboss.ide.eclipse.as.classpath.core.runtime.cache.internal.ModuleSlotIndex;
+import org.jboss.ide.eclipse.as.core.util.FileUtil;
+import org.jboss.tools.as.test.core.internal.utils.IOUtil;
+import org.junit.After;
+import org.junit.Before;
+
+public class ModuleSlotIndexTest extends TestCase {
+	private File root;
+	private IPath modules;
+
+	@Before
+	public void setUp() throws Exception {
+		root = File.createTempFile("moduleSlotIndex", "");
+		root.delete();
+		modules = new Path(root.getAbsolutePath()).append("modules");
+		IPath base = modules.append("system").append("layers").append("base");
+		for( int i = 0; i < 20; i++ ) {
+			addModule(base, "org.test.module" + i, "main", "module" + i + ".jar");
+		}
+		addModule(base, "org.test.module1", "1.1", "module1-1.1.jar");
+		addModule(base, "org.test.module2", "main", "module2-extra.jar");
+
+		// module3 is patched, module4 is replaced by a layer, module5 is put in the root
+		IPath overlay = MockJBossModulesUtil.addOverlay(base, "overlay1");
+		MockJBossModulesUtil.setActiveOverlays(base, new String[]{"overlay1"});
+		addModule(overlay, "org.test.module3", "main", "module3-patched.jar");
+		IPath layer = MockJBossModulesUtil.addLayer(modules, "mylayer", true);
+		addModule(layer, "org.test.module4", "main", "module4-layered.jar");
+		addModule(modules, "org.test.module5", "main", "module5-root.jar");
+		// a slot folder without a module.xml still hides the module in later roots
+		addModule(base, "org.test.module8", "main", "module8-base.jar");
+		IPath noDescriptor = layer.append("org/test/module8/main");
+		noDescriptor.toFile().mkdirs();
+		IOUtil.setContents(noDescriptor.append("module8-layered.jar").toFile(), "");
+
+		IPath alias = base.append("org/test/alias/main");
+		alias.toFile().mkdirs();
+		IOUtil.setContents(alias.append("module.xml").toFile(),
+				"<module-alias xmlns=\"urn:jboss:module:1.1\" name=\"org.test.alias\" target-name=\"org.test.module6\"/>");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		FileUtil.completeDelete(root);
+	}
+
+	public void testIndexMatchesSearch() throws Exception {
+		ModuleSlotIndex index = ModuleSlotIndex.load(modules.toFile(), null);
+		String[] names = new String[]{"org.test.module0", "org.test.module1", "org.test.module2",
+				"org.test.module3", "org.test.module4", "org.test.module5", "org.test.module8", "org.test.alias", "org.test.missing"};
+		for( int i = 0; i < names.length; i++ ) {
+			assertSameJars(names[i], "main", index);
+		}
+		assertSameJars("org.test.module1", "1.1", index);
+
+		assertJar(index, "org.test.module3", "module3-patched.jar");
+		assertJar(index, "org.test.module4", "module4-layered.jar");
+		assertJar(index, "org.test.module5", "module5-root.jar");
+		assertJar(index, "org.test.module8", "module8-layered.jar");
+		assertJar(index, "org.test.alias", "module6.jar");
+		assertEquals(2, index.getJars(new ModuleSlot("org.test.module2")).length);
+		assertEquals(0, index.getJars(new ModuleSlot("org.test.missing")).length);
+	}
+
+	public void testPersistedIndexIsValidated() throws Exception {
+		File persisted = new File(root, "index.xml");
+		ModuleSlotIndex index = ModuleSlotIndex.load(modules.toFile(), persisted);
+		assertTrue(persisted.exists());
+		assertTrue(index.isCurrent());
+
+		ModuleSlotIndex reloaded = ModuleSlotIndex.load(modules.toFile(), persisted);
+		assertEquals(index.size(), reloaded.size());
+		assertSameJars("org.test.module3", "main", reloaded);
+		assertSameJars("org.test.alias", "main", reloaded);
+
+		// Give the folder a different modification time, whatever the filesystem's resolution
+		IPath module7 = modules.append("system/layers/base/org/test/module7/main");
+		new File(module7.toFile(), "module7-extra.jar").createNewFile();
+		module7.toFile().setLastModified(module7.toFile().lastModified() - 10000);
+		assertFalse(reloaded.isCurrent());
+		ModuleSlotIndex rebuilt = ModuleSlotIndex.load(modules.toFile(), persisted);
+		assertEquals(2, rebuilt.getJars(new ModuleSlot("org.test.module7")).length);
+	}
+
+	public void testEditedAliasIsValidated() throws Exception {
+		File persisted = new File(root, "index.xml");
+		ModuleSlotIndex index = ModuleSlotIndex.load(modules.toFile(), persisted);
+		assertJar(index, "org.test.alias", "module6.jar");
+
+		// Edited in place, so the time of the folder does not change
+		File folder = modules.append("system/layers/base/org/test/alias/main").toFile();
+		File moduleXml = new File(folder, "module.xml");
+		long folderModified = folder.lastModified();
+		IOUtil.setContents(moduleXml,
+				"<module-alias xmlns=\"urn:jboss:module:1.1\" name=\"org.test.alias\" target-name=\"org.test.module7\"/>");
+		moduleXml.setLastModified(moduleXml.lastModified() - 10000);
+		folder.setLastModified(folderModified);
+		assertFalse(index.isCurrent());
+		assertJar(ModuleSlotIndex.load(modules.toFile(), persisted), "org.test.alias", "module7.jar");
+	}
+
+	public void testCachedIndexIsValidated() throws Exception {
+		ModuleSlot module7 = new ModuleSlot("org.test.module7");
+		assertEquals(1, module7.getJars(modules).length);
+
+		IPath folder = modules.append("system/layers/base/org/test/module7/main");
+		new File(folder.toFile(), "module7-extra.jar").createNewFile();
+		folder.toFile().setLastModified(folder.toFile().lastModified() - 10000);
+		// the cached index is only checked again once its last check is a second old
+		Thread.sleep(1100);
+		assertEquals(2, module7.getJars(modules).length);
+	}
+
+	private void addModule(IPath layerRoot, String name, String slot, String jar) throws IOException {
+		IPath folder = layerRoot.append(name.replace('.', '/')).append(slot);
+		folder.toFile().mkdirs();
+		IOUtil.setContents(folder.append("module.xml").toFile(), 
+				"<module xmlns=\"urn:jboss:module:1.1\" name=\"" + name + "\" slot=\"" + slot + "\"/>");
+		IOUtil.setContents(folder.append(jar).toFile(), "");
+	}
+
+	private void assertSameJars(String name, String slot, ModuleSlotIndex index) {
+		ModuleSlot ms = new ModuleSlot(name, slot);
+		assertEquals(name + ":" + slot, new HashSet<IPath>(Arrays.asList(ms.getJarsUncached(modules))), 
+				new HashSet<IPath>(Arrays.asList(index.getJars(ms))));
+	}
+
+	private void assertJar(ModuleSlotIndex index, String name, String jar) {
+		IPath[] jars = index.getJars(new ModuleSlot(name));
+		assertEquals(1, jars.length);
+		assertEquals(jar, jars[0].lastSegment());
+	}
+}
@@ -20,6 +20,7 @@ import junit.framework.TestCase;
 import org.eclipse.wst.server.core.IServerType;
 import org.eclipse.wst.server.core.ServerCore;
 import org.jboss.ide.eclipse.as.core.server.bean.JBossServerType;
+import org.jboss.ide.eclipse.as.core.server.bean.ServerBean;
 import org.jboss.ide.eclipse.as.core.server.bean.ServerBeanLoader;
 import org.jboss.ide.eclipse.as.core.util.IJBossToolingConstants;
 import org.jboss.tools.as.test.core.TestConstants;
@@ -112,6 +113,27 @@ public class ServerBeanLoader3Test extends TestCase {
 		inner_testServerBeanLoaderForFolder(serverDir, p.type, p.version, p.overrideId);
 	}
 	
+	/*
+	 * Checking all conditions in parallel must find the same type,
+	 * and so must a detection answered from the cache
+	 */
+	@Test
+	public void testParallelServerBeanLoaderForMocks() {
+		File serverDir = (ServerCreationTestUtils.createMockServerLayout(serverType));
+		if( serverDir == null || !serverDir.exists())
+			fail("Creation of mock server type " + serverType + " has failed.");
+		ServerBeanLoader.clearCache();
+		ServerBean parallel = new ServerBeanLoader(serverDir, true).getServerBean();
+		ServerBean cached = new ServerBeanLoader(serverDir).getServerBean();
+		ServerBeanLoader.clearCache();
+		ServerBean sequential = new ServerBeanLoader(serverDir).getServerBean();
+		assertEquals(sequential.getBeanType(), parallel.getBeanType());
+		assertEquals(sequential.getFullVersion(), parallel.getFullVersion());
+		assertEquals(sequential.getBeanType(), cached.getBeanType());
+		assertEquals(sequential.getFullVersion(), cached.getFullVersion());
+		assertEquals(sequential.getName(), cached.getName());
+	}
+	
 	protected void inner_testServerBeanLoaderForFolder(File serverDir, JBossServerType expectedType, String expectedVersion, String underlyingId) {
 		assertNotNull(serverType);
 		IServerType itype = ServerCore.findServerType(expectedType.getServerAdapterTypeId(expectedVersion));
@@ -0,0 +1,156 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.as.test.core.polling;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.wst.server.core.IModule;
+import org.eclipse.wst.server.core.IServer;
+import org.jboss.ide.eclipse.as.core.server.internal.v7.AbstractJBoss7ModuleStateVerifier;
+import org.junit.Test;
+
+/**
+ * Waits for mocked deployments with a module state verifier,
+ * whose checks run on the threads of the polling scheduler.
+ */
+public class DeploymentReadinessWaiterTest extends TestCase {
+	private IServer server;
+
+	protected void setUp() throws Exception {
+		server = mock(IServer.class);
+		when(server.getId()).thenReturn(getName());
+		when(server.getName()).thenReturn(getName());
+	}
+
+	@Test
+	public void testWaitUntilStarted() throws Exception {
+		TestVerifier verifier = new TestVerifier(3, false);
+		long start = System.currentTimeMillis();
+		verifier.waitModuleStarted(server, createModule("a"), 10000);
+		assertTrue(System.currentTimeMillis() - start < 5000);
+		assertEquals(3, verifier.checks.get());
+	}
+
+	@Test
+	public void testFailedEndsWait() throws Exception {
+		// failed from the first check on, without ever being seen in progress
+		TestVerifier verifier = new TestVerifier(-1, true);
+		long start = System.currentTimeMillis();
+		verifier.waitModuleStarted(server, createModule("a"), 10000);
+		assertTrue(System.currentTimeMillis() - start < 5000);
+		assertEquals(1, verifier.checks.get());
+	}
+
+	@Test
+	public void testMaxDelay() throws Exception {
+		TestVerifier verifier = new TestVerifier(-1, false);
+		long start = System.currentTimeMillis();
+		verifier.waitModuleStarted(server, createModule("a"), 300);
+		assertTrue(System.currentTimeMillis() - start >= 300);
+		int checks = verifier.checks.get();
+		Thread.sleep(1500);
+		// no longer checked once the wait is over
+		assertTrue(verifier.checks.get() <= checks + 1);
+	}
+
+	@Test
+	public void testCallerMonitorNotShared() throws Exception {
+		TestVerifier verifier = new TestVerifier(2, false);
+		IProgressMonitor monitor = new NullProgressMonitor();
+		verifier.waitModuleStarted(server, createModule("a"), monitor);
+		assertEquals(2, verifier.checks.get());
+		assertFalse(verifier.monitors.contains(monitor));
+		assertFalse(verifier.threads.contains(Thread.currentThread()));
+	}
+
+	@Test
+	public void testBlockedCheckDoesNotDelayOthers() throws Exception {
+		final CountDownLatch release = new CountDownLatch(1);
+		final TestVerifier blocked = new TestVerifier(1, false) {
+			protected int getRootModuleState(IServer server, IModule root,
+					String deploymentName, IProgressMonitor monitor) throws Exception {
+				release.await(10, TimeUnit.SECONDS);
+				return super.getRootModuleState(server, root, deploymentName, monitor);
+			}
+		};
+		Thread waiting = new Thread(new Runnable() {
+			public void run() {
+				blocked.waitModuleStarted(server, createModule("blocked"), 20000);
+			}
+		});
+		waiting.start();
+		try {
+			Thread.sleep(100);
+			TestVerifier verifier = new TestVerifier(2, false);
+			long start = System.currentTimeMillis();
+			verifier.waitModuleStarted(server, createModule("a"), 10000);
+			assertTrue(System.currentTimeMillis() - start < 5000);
+			assertEquals(2, verifier.checks.get());
+		} finally {
+			release.countDown();
+			waiting.join(10000);
+		}
+	}
+
+	private static IModule[] createModule(String name) {
+		IModule module = mock(IModule.class);
+		when(module.getName()).thenReturn(name);
+		return new IModule[] { module };
+	}
+
+	/**
+	 * Started once checked the given number of times,
+	 * or never if it is negative
+	 */
+	private static class TestVerifier extends AbstractJBoss7ModuleStateVerifier {
+		private int startedAfter;
+		private boolean failed;
+		private AtomicInteger checks = new AtomicInteger();
+		private Set<IProgressMonitor> monitors = Collections.synchronizedSet(new HashSet<IProgressMonitor>());
+		private Set<Thread> threads = Collections.synchronizedSet(new HashSet<Thread>());
+
+		private TestVerifier(int startedAfter, boolean failed) {
+			this.startedAfter = startedAfter;
+			this.failed = failed;
+		}
+
+		protected int getRootModuleState(IServer server, IModule root,
+				String deploymentName, IProgressMonitor monitor) throws Exception {
+			monitors.add(monitor);
+			threads.add(Thread.currentThread());
+			int count = checks.incrementAndGet();
+			return startedAfter >= 0 && count >= startedAfter ? IServer.STATE_STARTED : IServer.STATE_STARTING;
+		}
+
+		protected boolean isRootModuleFailed(IServer server, IModule root,
+				String deploymentName, IProgressMonitor monitor) throws Exception {
+			monitors.add(monitor);
+			return failed;
+		}
+
+		public int changeModuleStateTo(IModule[] module, int state, IProgressMonitor monitor) throws CoreException {
+			return state;
+		}
+	}
+}
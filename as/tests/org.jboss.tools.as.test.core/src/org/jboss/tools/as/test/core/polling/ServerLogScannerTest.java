@@ -0,0 +1,89 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.as.test.core.polling;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import junit.framework.TestCase;
+
+import org.jboss.ide.eclipse.as.core.extensions.polling.ServerLogScanner;
+import org.jboss.tools.as.test.core.internal.utils.BundleUtils;
+import org.junit.Test;
+
+public class ServerLogScannerTest extends TestCase {
+
+	@Test
+	public void testWildflyStarted() throws Exception {
+		assertEquals(ServerLogScanner.STARTED, scan("wildfly-started.log", Integer.MAX_VALUE));
+	}
+
+	@Test
+	public void testEAP6StartedWithErrors() throws Exception {
+		assertEquals(ServerLogScanner.STARTED, scan("eap6-started-with-errors.log", Integer.MAX_VALUE));
+	}
+
+	@Test
+	public void testWildflyFailed() throws Exception {
+		// the failure is followed by the server stopping
+		assertEquals(ServerLogScanner.STOPPED, scan("wildfly-failed.log", Integer.MAX_VALUE));
+		byte[] bytes = read("wildfly-failed.log");
+		String log = new String(bytes, "UTF-8");
+		String untilFailure = log.substring(0, log.indexOf("WFLYSRV0050"));
+		ServerLogScanner scanner = new ServerLogScanner();
+		byte[] b = untilFailure.getBytes("UTF-8");
+		assertEquals(ServerLogScanner.FAILED, scanner.scan(b, 0, b.length));
+	}
+
+	@Test
+	public void testWildflyStopped() throws Exception {
+		assertEquals(ServerLogScanner.STOPPED, scan("wildfly-stopped.log", Integer.MAX_VALUE));
+	}
+
+	@Test
+	public void testLinesSplitAcrossChunks() throws Exception {
+		// A marker is only recognized once its line is complete
+		assertEquals(ServerLogScanner.STARTED, scan("wildfly-started.log", 7));
+		assertEquals(ServerLogScanner.STARTED, scan("eap6-started-with-errors.log", 1));
+	}
+
+	@Test
+	public void testPartialLine() throws Exception {
+		ServerLogScanner scanner = new ServerLogScanner();
+		byte[] b = "INFO  [org.jboss.as] WFLYSRV0025: WildFly Full 13.0.0.Final started in 3512ms".getBytes("UTF-8");
+		assertEquals(ServerLogScanner.UNKNOWN, scanner.scan(b, 0, b.length));
+		assertEquals(ServerLogScanner.STARTED, scanner.flush());
+		scanner.reset();
+		assertEquals(ServerLogScanner.UNKNOWN, scanner.getState());
+	}
+
+	@Test
+	public void testNoMarkers() throws Exception {
+		assertEquals(ServerLogScanner.UNKNOWN, ServerLogScanner.match(
+				"INFO  [org.jboss.as] (MSC service thread 1-2) WFLYSRV0049: WildFly Full 13.0.0.Final starting"));
+		assertEquals(ServerLogScanner.UNKNOWN, ServerLogScanner.match(
+				"INFO  [org.jboss.as.server.deployment.scanner] WFLYDS0013: Started FileSystemDeploymentService"));
+	}
+
+	private int scan(String name, int chunkSize) throws Exception {
+		byte[] bytes = read(name);
+		ServerLogScanner scanner = new ServerLogScanner();
+		for( int i = 0; i < bytes.length; i += chunkSize ) {
+			scanner.scan(bytes, i, Math.min(chunkSize, bytes.length - i));
+		}
+		return scanner.getState();
+	}
+
+	private byte[] read(String name) throws Exception {
+		File f = BundleUtils.getFileLocation("serverMock/logs/" + name);
+		return Files.readAllBytes(f.toPath());
+	}
+}
@@ -0,0 +1,147 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.as.test.core.polling;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.jboss.ide.eclipse.as.core.server.ServerPollingScheduler;
+import org.jboss.ide.eclipse.as.core.server.ServerPollingScheduler.IPollCompletionListener;
+import org.jboss.ide.eclipse.as.core.server.ServerPollingScheduler.IPollTask;
+import org.jboss.ide.eclipse.as.core.server.ServerPollingScheduler.PollStatistics;
+import org.jboss.ide.eclipse.as.core.server.ServerPollingScheduler.ScheduledPoll;
+import org.junit.Test;
+
+public class ServerPollingSchedulerTest extends TestCase {
+
+	@Test
+	public void testPollUntilComplete() throws Exception {
+		final AtomicInteger count = new AtomicInteger();
+		IPollTask task = new IPollTask() {
+			public boolean poll() {
+				return count.incrementAndGet() == 3;
+			}
+		};
+		String id = "testPollUntilComplete";
+		ScheduledPoll poll = ServerPollingScheduler.getDefault().schedule(id, id, task, 10, 50);
+		assertTrue(poll.get(5, TimeUnit.SECONDS).booleanValue());
+		assertTrue(poll.isDone());
+		assertEquals(3, count.get());
+		PollStatistics stats = ServerPollingScheduler.getDefault().getStatistics(id);
+		assertEquals(3, stats.getPollCount());
+		assertEquals(1, stats.getCompletedCount());
+		assertTrue(stats.getLastDetectionLatency() >= 0);
+	}
+
+	@Test
+	public void testCancelNotifiesListeners() throws Exception {
+		final AtomicInteger count = new AtomicInteger();
+		IPollTask task = new IPollTask() {
+			public boolean poll() {
+				count.incrementAndGet();
+				return false;
+			}
+		};
+		String id = "testCancelNotifiesListeners";
+		ScheduledPoll poll = ServerPollingScheduler.getDefault().schedule(id, id, task, 10, 10);
+		final boolean[] notified = new boolean[]{false};
+		poll.addCompletionListener(new IPollCompletionListener() {
+			public void pollCompleted(ScheduledPoll p) {
+				notified[0] = true;
+			}
+		});
+		Thread.sleep(100);
+		poll.cancel();
+		assertTrue(notified[0]);
+		assertTrue(poll.isCancelled());
+		int afterCancel = count.get();
+		Thread.sleep(100);
+		// an attempt in progress may still finish, but none are started
+		assertTrue(count.get() <= afterCancel + 1);
+		try {
+			poll.get();
+			fail();
+		} catch(CancellationException ce) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testWakeUpPollsAtOnce() throws Exception {
+		final AtomicInteger count = new AtomicInteger();
+		IPollTask task = new IPollTask() {
+			public boolean poll() {
+				return count.incrementAndGet() == 2;
+			}
+		};
+		String id = "testWakeUpPollsAtOnce";
+		ScheduledPoll poll = ServerPollingScheduler.getDefault().schedule(id, id, task, 60000, 60000);
+		Thread.sleep(100);
+		assertEquals(1, count.get());
+		poll.wakeUp();
+		assertTrue(poll.await(5, TimeUnit.SECONDS));
+		assertEquals(2, count.get());
+	}
+
+	@Test
+	public void testFailure() throws Exception {
+		IPollTask task = new IPollTask() {
+			public boolean poll() throws Exception {
+				throw new Exception("Automatic failure");
+			}
+		};
+		String id = "testFailure";
+		ScheduledPoll poll = ServerPollingScheduler.getDefault().schedule(id, id, task, 10, 10);
+		assertTrue(poll.await(5, TimeUnit.SECONDS));
+		assertNotNull(poll.getFailure());
+		try {
+			poll.get();
+			fail();
+		} catch(ExecutionException ee) {
+			assertEquals("Automatic failure", ee.getCause().getMessage());
+		}
+	}
+
+	@Test
+	public void testBlockingAttemptsDoNotDelayOthers() throws Exception {
+		// more blocked attempts than there are processors
+		int blocked = Runtime.getRuntime().availableProcessors() + 8;
+		final CountDownLatch release = new CountDownLatch(1);
+		IPollTask blocking = new IPollTask() {
+			public boolean poll() throws Exception {
+				release.await();
+				return true;
+			}
+		};
+		String id = "testBlockingAttemptsDoNotDelayOthers";
+		ScheduledPoll[] polls = new ScheduledPoll[blocked];
+		try {
+			for( int i = 0; i < blocked; i++ )
+				polls[i] = ServerPollingScheduler.getDefault().schedule(id, id, blocking, 10, 10);
+			IPollTask quick = new IPollTask() {
+				public boolean poll() {
+					return true;
+				}
+			};
+			ScheduledPoll poll = ServerPollingScheduler.getDefault().schedule(id, id, quick, 10, 10);
+			assertTrue(poll.await(5, TimeUnit.SECONDS));
+		} finally {
+			release.countDown();
+		}
+		for( int i = 0; i < blocked; i++ )
+			assertTrue(polls[i].get(5, TimeUnit.SECONDS).booleanValue());
+	}
+}
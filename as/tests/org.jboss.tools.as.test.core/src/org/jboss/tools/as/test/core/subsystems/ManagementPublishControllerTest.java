@@ -0,0 +1,253 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.as.test.core.subsystems;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.wst.server.core.IModule;
+import org.eclipse.wst.server.core.IServer;
+import org.eclipse.wst.server.core.internal.Server;
+import org.eclipse.wst.server.core.model.IModuleResource;
+import org.eclipse.wst.server.core.model.ServerBehaviourDelegate;
+import org.jboss.ide.eclipse.as.core.util.IJBossToolingConstants;
+import org.jboss.ide.eclipse.as.management.core.BatchDeploymentManagerService;
+import org.jboss.ide.eclipse.as.management.core.IAS7ManagementDetails;
+import org.jboss.ide.eclipse.as.management.core.IJBoss7DeploymentResult;
+import org.jboss.ide.eclipse.as.management.core.IJBoss7ManagerService;
+import org.jboss.ide.eclipse.as.management.core.IncrementalManagementModel;
+import org.jboss.ide.eclipse.as.management.core.JBoss7DeploymentState;
+import org.jboss.ide.eclipse.as.management.core.JBoss7ManangerException;
+import org.jboss.ide.eclipse.as.management.core.JBoss7ServerState;
+import org.jboss.ide.eclipse.as.wtp.core.server.behavior.IModuleStateController;
+import org.jboss.tools.as.core.server.controllable.subsystems.internal.LocalDeploymentOptionsController;
+import org.jboss.tools.as.core.server.controllable.subsystems.internal.ManagementPublishController;
+import org.jboss.tools.as.core.server.controllable.subsystems.internal.ModuleDeployPathController;
+import org.jboss.tools.as.core.server.controllable.systems.IModuleDeployPathController;
+import org.jboss.tools.as.test.core.ASMatrixTests;
+import org.jboss.tools.as.test.core.internal.utils.IOUtil;
+import org.jboss.tools.as.test.core.internal.utils.MockModule;
+import org.jboss.tools.as.test.core.internal.utils.MockModuleUtil;
+import org.jboss.tools.as.test.core.internal.utils.ServerParameterUtils;
+import org.jboss.tools.as.test.core.parametized.server.publishing.AbstractPublishingTest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+/**
+ * This class tests that the {@link ManagementPublishController} collects the modules
+ * of a publish and sends them all at once when the publish finishes,
+ * against a mocked management service.
+ */
+@RunWith(value = Parameterized.class)
+public class ManagementPublishControllerTest extends AbstractPublishingTest {
+	@Parameters(name= "{0} - {1} - {2} - {3}")
+	public static Collection<Object[]> params() {
+		return Arrays.asList(new Object[][] {{IJBossToolingConstants.SERVER_WILDFLY_100,
+			ServerParameterUtils.ZIPPED, ServerParameterUtils.DEPLOY_META, ServerParameterUtils.DEPLOY_PERMOD_DEFAULT}});
+	}
+
+	private IModule[] module;
+	private BatchDeploymentManagerService service;
+	private TestManagementPublishController controller;
+
+	public ManagementPublishControllerTest(String serverType, String zip,
+			String deployLoc, String perMod) {
+		super(serverType, zip, deployLoc, perMod);
+	}
+
+	@Before @Override
+	public void setUp() throws Exception {
+		super.setUp(false);
+		((Server)server).setServerState(IServer.STATE_STARTED);
+		((Server)server).setModulePublishState(module, IServer.PUBLISH_STATE_FULL);
+		service = mock(BatchDeploymentManagerService.class);
+		when(service.getServerState(any(IAS7ManagementDetails.class))).thenReturn(JBoss7ServerState.RUNNING);
+		when(service.supportsIncrementalDeployment()).thenReturn(true);
+		when(service.supportsBatchDeployment()).thenReturn(true);
+		when(service.getDeploymentState(any(IAS7ManagementDetails.class), anyString())).thenReturn(JBoss7DeploymentState.NOT_FOUND);
+		controller = new TestManagementPublishController();
+		controller.initialize(server, null, null);
+	}
+
+	@After @Override
+	public void tearDown() throws Exception {
+		super.tearDown();
+	}
+
+	@Override
+	protected void createProjects() throws Exception {
+		module = createSimpleMockWebModule();
+		addModuleToServer(module[0]);
+	}
+
+	@Test
+	public void testPublishedWhenFinished() throws Exception {
+		setPublishAllResult(Status.OK_STATUS);
+		controller.publishStart(new NullProgressMonitor());
+		int state = controller.publishModule(IServer.PUBLISH_FULL, ServerBehaviourDelegate.ADDED, module, new NullProgressMonitor());
+		// nothing is sent until the publish finishes
+		assertEquals(IServer.PUBLISH_STATE_FULL, state);
+		verify(service, never()).publishAll(any(IAS7ManagementDetails.class),
+				any(IncrementalManagementModel.class), any(IProgressMonitor.class));
+
+		controller.publishFinish(new NullProgressMonitor());
+		verify(service, times(1)).publishAll(any(IAS7ManagementDetails.class),
+				any(IncrementalManagementModel.class), any(IProgressMonitor.class));
+		verifyDeploySync(0);
+		assertEquals(IServer.PUBLISH_STATE_NONE, server.getModulePublishState(module));
+	}
+
+	@Test
+	public void testFailedDeploymentSentAlone() throws Exception {
+		setPublishAllResult(new Status(IStatus.ERROR, "test", "failed"));
+		setDeploySyncResult(Status.OK_STATUS);
+		publish();
+		verifyDeploySync(1);
+		assertEquals(IServer.PUBLISH_STATE_NONE, server.getModulePublishState(module));
+	}
+
+	@Test
+	public void testFailedDeploymentStaysUnpublished() throws Exception {
+		setPublishAllResult(new Status(IStatus.ERROR, "test", "failed"));
+		setDeploySyncResult(new Status(IStatus.ERROR, "test", "failed again"));
+		publish();
+		verifyDeploySync(1);
+		assertEquals(IServer.PUBLISH_STATE_FULL, server.getModulePublishState(module));
+	}
+
+	@Test
+	public void testFailedPlanSentAlone() throws Exception {
+		when(service.publishAll(any(IAS7ManagementDetails.class), any(IncrementalManagementModel.class),
+				any(IProgressMonitor.class))).thenThrow(new JBoss7ManangerException("failed"));
+		setDeploySyncResult(Status.OK_STATUS);
+		publish();
+		verifyDeploySync(1);
+		assertEquals(IServer.PUBLISH_STATE_NONE, server.getModulePublishState(module));
+	}
+
+	@Test
+	public void testCanceledPublishSendsNothing() throws Exception {
+		setPublishAllResult(Status.OK_STATUS);
+		controller.publishStart(new NullProgressMonitor());
+		controller.publishModule(IServer.PUBLISH_FULL, ServerBehaviourDelegate.ADDED, module, new NullProgressMonitor());
+		IProgressMonitor canceled = new NullProgressMonitor();
+		canceled.setCanceled(true);
+		controller.publishFinish(canceled);
+		verify(service, never()).publishAll(any(IAS7ManagementDetails.class),
+				any(IncrementalManagementModel.class), any(IProgressMonitor.class));
+		verifyDeploySync(0);
+
+		// the next publish sends the module again
+		publish();
+		verify(service, times(1)).publishAll(any(IAS7ManagementDetails.class),
+				any(IncrementalManagementModel.class), any(IProgressMonitor.class));
+		assertEquals(IServer.PUBLISH_STATE_NONE, server.getModulePublishState(module));
+	}
+
+	private void publish() throws CoreException {
+		controller.publishStart(new NullProgressMonitor());
+		controller.publishModule(IServer.PUBLISH_FULL, ServerBehaviourDelegate.ADDED, module, new NullProgressMonitor());
+		controller.publishFinish(new NullProgressMonitor());
+	}
+
+	/*
+	 * Answer every deployment of the plan with the given status
+	 */
+	private void setPublishAllResult(final IStatus status) throws Exception {
+		when(service.publishAll(any(IAS7ManagementDetails.class), any(IncrementalManagementModel.class),
+				any(IProgressMonitor.class))).thenAnswer(new Answer<Map<String, IJBoss7DeploymentResult>>() {
+			public Map<String, IJBoss7DeploymentResult> answer(InvocationOnMock invocation) throws Throwable {
+				IncrementalManagementModel model = (IncrementalManagementModel)invocation.getArguments()[1];
+				Map<String, IJBoss7DeploymentResult> results = new HashMap<String, IJBoss7DeploymentResult>();
+				for( String id : model.getDeploymentIds()) {
+					results.put(id, createResult(status));
+				}
+				return results;
+			}
+		});
+	}
+
+	private void setDeploySyncResult(IStatus status) throws Exception {
+		IJBoss7DeploymentResult result = createResult(status);
+		when(service.deploySync(any(IAS7ManagementDetails.class), anyString(), any(File.class),
+				anyBoolean(), any(String[].class), any(IProgressMonitor.class))).thenReturn(result);
+	}
+
+	private void verifyDeploySync(int count) throws Exception {
+		verify(service, times(count)).deploySync(any(IAS7ManagementDetails.class), anyString(), any(File.class),
+				anyBoolean(), any(String[].class), any(IProgressMonitor.class));
+	}
+
+	private static IJBoss7DeploymentResult createResult(IStatus status) throws Exception {
+		IJBoss7DeploymentResult result = mock(IJBoss7DeploymentResult.class);
+		when(result.getStatus()).thenReturn(status);
+		return result;
+	}
+
+	private MockModule[] createSimpleMockWebModule() throws Exception {
+		IPath underlying = ASMatrixTests.getDefault().getStateLocation().append("underlying.txt");
+		underlying.toFile().getParentFile().mkdirs();
+		IOUtil.setContents(underlying.toFile(), "version1");
+		MockModule m = MockModuleUtil.createMockWebModule();
+		IPath[] leafs = new IPath[] { new Path("w"), new Path("x"), new Path("y"), new Path("z")};
+		IModuleResource[] all = MockModuleUtil.createMockResources(leafs, new IPath[0], underlying.toFile());
+		m.setMembers(all);
+		m.setExists(true);
+		return new MockModule[]{m};
+	}
+
+	/**
+	 * Uses the mocked service and hard-coded deployment settings
+	 * instead of the ones of the server behavior
+	 */
+	private class TestManagementPublishController extends ManagementPublishController {
+		protected IJBoss7ManagerService getService() throws JBoss7ManangerException {
+			return service;
+		}
+		protected IModuleDeployPathController getDeployPathController() throws CoreException {
+			LocalDeploymentOptionsController options = new LocalDeploymentOptionsController();
+			options.initialize(getServer(), null, getEnvironment());
+			ModuleDeployPathController c = new ModuleDeployPathController();
+			Map<String, Object> env2 = new HashMap<String, Object>(getEnvironment());
+			env2.put(IModuleDeployPathController.ENV_DEPLOYMENT_OPTIONS_CONTROLLER, options);
+			c.initialize(getServer(), null, env2);
+			return c;
+		}
+		protected IModuleStateController getModuleStateController() throws CoreException {
+			return null;
+		}
+	}
+}
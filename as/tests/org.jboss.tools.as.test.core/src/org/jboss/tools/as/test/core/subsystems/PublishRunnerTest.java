@@ -32,6 +32,7 @@ import org.eclipse.wst.server.core.util.ModuleFile;
 import org.eclipse.wst.server.core.util.ModuleFolder;
 import org.jboss.ide.eclipse.as.core.util.RemotePath;
 import org.jboss.ide.eclipse.as.wtp.core.server.behavior.AbstractSubsystemController;
+import org.jboss.ide.eclipse.as.wtp.core.server.behavior.IFilesystemBatchController;
 import org.jboss.ide.eclipse.as.wtp.core.server.behavior.IFilesystemController;
 import org.jboss.ide.eclipse.as.wtp.core.server.publish.PublishModuleFullRunner;
 import org.jboss.ide.eclipse.as.wtp.core.server.publish.PublishModuleIncrementalRunner;
@@ -173,6 +174,24 @@ public class PublishRunnerTest extends TestCase {
 	}
 
 	
+	@Test
+	public void testStandardModuleFullPublishBatched() throws Exception {
+		TestBatchController tc = new TestBatchController();
+		IModule m = createTestMockModule();
+		ModuleDelegate md = (ModuleDelegate)m.loadAdapter(ModuleDelegate.class, new NullProgressMonitor());
+		IModuleResource[] asArr = md.members();
+		PublishModuleFullRunner runner = new PublishModuleFullRunner(tc, rootPath);
+		try {
+			runner.fullPublish(asArr, null);
+		} catch(CoreException ce) {
+			ce.printStackTrace();
+			throw ce;
+		}
+		assertEquals(1, tc.commits);
+		assertEquals(getLeafs1().length, tc.batched.size());
+		assertFileCopiedAndParentDirsMade(tc, rootPath, getLeafs1());
+	}
+	
 	@Test
 	public void testStandardModuleIncrementalPublishNoChange() throws Exception {
 		TestController tc = new TestController();
@@ -221,6 +240,31 @@ public class PublishRunnerTest extends TestCase {
 		assertFileCopiedAndParentDirsMade(tc, rootPath, getLeafs1());
 	}
 
+	@Test
+	public void testStandardModuleIncrementalPublishAllChangedBatched() throws Exception {
+		TestBatchController tc = new TestBatchController();
+		IModule m = createTestMockModule();
+		ModuleDelegate md = (ModuleDelegate)m.loadAdapter(ModuleDelegate.class, new NullProgressMonitor());
+		IModuleResource[] asArr = md.members();
+		IPath[] leafs = getLeafs1();
+		int kind[] = new int[leafs.length];
+		for( int i = 0; i < leafs.length; i++ ) {
+			kind[i] = IModuleResourceDelta.CHANGED;
+		}
+		
+		IModuleResourceDelta[] mockDelta = MockModuleUtil.createMockResourceDeltas(Arrays.asList(asArr), leafs, kind);
+		PublishModuleIncrementalRunner runner = new PublishModuleIncrementalRunner(tc, rootPath);
+		try {
+			runner.publish(mockDelta, new NullProgressMonitor());
+		} catch(CoreException ce) {
+			ce.printStackTrace();
+			throw ce;
+		}
+		assertEquals(1, tc.commits);
+		assertEquals(leafs.length, tc.batched.size());
+		assertFileCopiedAndParentDirsMade(tc, rootPath, getLeafs1());
+	}
+
 	@Test
 	public void testIncrementalPublishWithCancel() throws Exception {
 		TestController tc = new TestController();
@@ -367,6 +411,39 @@ public class PublishRunnerTest extends TestCase {
 		}
 	}	
 	
+	// Collects copies into a batch, which performs them through the single operations on commit
+	private static class TestBatchController extends TestController implements IFilesystemBatchController {
+		private ArrayList<IPath> batched = new ArrayList<IPath>();
+		private int commits = 0;
+
+		@Override
+		public IFilesystemBatch createBatch(IPath root, IProgressMonitor monitor) throws CoreException {
+			return new IFilesystemBatch() {
+				private ArrayList<IPath> folders = new ArrayList<IPath>();
+				private ArrayList<IPath> files = new ArrayList<IPath>();
+				public void addFile(File f, IPath path) {
+					files.add(path);
+					batched.add(path);
+				}
+				public void addFolder(IPath path) {
+					folders.add(path);
+				}
+				public IStatus[] commit(IProgressMonitor monitor) throws CoreException {
+					commits++;
+					for( IPath p : folders ) 
+						makeDirectoryIfRequired(p, monitor);
+					for( IPath p : files ) {
+						makeDirectoryIfRequired(p.removeLastSegments(1), monitor);
+						copyFile(null, p, monitor);
+					}
+					return new IStatus[0];
+				}
+				public void dispose() {
+				}
+			};
+		}
+	}
+	
 	private IPath[] getLeafs1() {
 		IPath[] leafs = new IPath[] {
 				new Path("w"),
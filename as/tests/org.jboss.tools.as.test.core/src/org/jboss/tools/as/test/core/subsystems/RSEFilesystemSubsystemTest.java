@@ -10,6 +10,8 @@
  ******************************************************************************/
 package org.jboss.tools.as.test.core.subsystems;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
@@ -18,11 +20,16 @@ import junit.framework.TestCase;
 
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Platform;
 import org.eclipse.wst.server.core.IServer;
 import org.eclipse.wst.server.core.IServerWorkingCopy;
 import org.jboss.ide.eclipse.as.core.util.IJBossToolingConstants;
+import org.jboss.ide.eclipse.as.rse.core.subsystems.RSEFilesystemBatch;
 import org.jboss.ide.eclipse.as.rse.core.subsystems.RSEFilesystemController;
+import org.jboss.ide.eclipse.as.wtp.core.server.behavior.IFilesystemBatchController.IFilesystemBatch;
 import org.jboss.ide.eclipse.as.wtp.core.server.behavior.LocalFilesystemController;
 import org.jboss.ide.eclipse.as.wtp.core.server.behavior.ServerProfileModel;
 import org.jboss.tools.as.test.core.ASMatrixTests;
@@ -30,6 +37,7 @@ import org.jboss.tools.as.test.core.internal.utils.IOUtil;
 import org.jboss.tools.as.test.core.internal.utils.ServerCreationTestUtils;
 import org.jboss.tools.as.test.core.internal.utils.ServerParameterUtils;
 import org.junit.After;
+import org.junit.Assume;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -192,6 +200,94 @@ public class RSEFilesystemSubsystemTest extends TestCase {
 
 	
 	
+	@Test
+	public void testBatchCopyFiles() throws Exception {
+		// The local host stands in for the remote one, and its tar for the remote shell
+		Assume.assumeFalse("The batch is unpacked with a posix tar", Platform.OS_WIN32.equals(Platform.getOS()));
+		IPath tmpfile = getStateLocationPath("tmpfile6.txt");
+		IOUtil.setContents(tmpfile.toFile(), "hello");
+		IPath script = getStateLocationPath("tmpfile6.sh");
+		IOUtil.setContents(script.toFile(), "echo hello");
+		assertTrue(script.toFile().setExecutable(true));
+		IPath root = getStateLocationPath("batchRoot1");
+		TestRSEFilesystemController controller = new TestRSEFilesystemController();
+		controller.initialize(server, null, createEnvironmentTempFolder1());
+		IStatus[] result = commitBatch(controller, root, tmpfile, script);
+		assertEquals(0, result.length);
+
+		assertEquals("hello", IOUtil.getContents(root.append("inner/one.txt").toFile()));
+		assertEquals("hello", IOUtil.getContents(root.append("inner/deeper/two.txt").toFile()));
+		assertTrue(root.append("empty").toFile().isDirectory());
+		assertTrue(root.append("bin/run.sh").toFile().canExecute());
+		assertFalse(root.append("inner/one.txt").toFile().canExecute());
+		// All files are uploaded in a single call, rather than one each
+		assertEquals(1, controller.copies);
+		// The uploaded archive is removed once unpacked
+		for( String s : root.toFile().getParentFile().list()) {
+			assertFalse(s, s.startsWith(".batchRoot1."));
+		}
+	}
+
+	@Test
+	public void testBatchFailedUnpackCopiesFiles() throws Exception {
+		IPath tmpfile = getStateLocationPath("tmpfile7.txt");
+		IOUtil.setContents(tmpfile.toFile(), "hello");
+		IPath root = getStateLocationPath("batchRoot2");
+		TestRSEFilesystemController controller = new TestRSEFilesystemController();
+		controller.initialize(server, null, createEnvironmentTempFolder1());
+		controller.failUnpack();
+		IStatus[] result = commitBatch(controller, root, tmpfile, tmpfile);
+		assertEquals(0, result.length);
+
+		// tar exited with an error, so every file is copied on its own after the archive
+		assertEquals(4, controller.copies);
+		assertEquals("hello", IOUtil.getContents(root.append("inner/one.txt").toFile()));
+		assertEquals("hello", IOUtil.getContents(root.append("inner/deeper/two.txt").toFile()));
+		assertTrue(root.append("empty").toFile().isDirectory());
+		for( String s : root.toFile().getParentFile().list()) {
+			assertFalse(s, s.startsWith(".batchRoot2."));
+		}
+	}
+
+	@Test
+	public void testBatchUnknownUnpackStatusFails() throws Exception {
+		IPath tmpfile = getStateLocationPath("tmpfile8.txt");
+		IOUtil.setContents(tmpfile.toFile(), "hello");
+		IPath root = getStateLocationPath("batchRoot3");
+		TestRSEFilesystemController controller = new TestRSEFilesystemController();
+		controller.initialize(server, null, createEnvironmentTempFolder1());
+		controller.loseUnpackStatus();
+		IStatus[] result = commitBatch(controller, root, tmpfile, tmpfile);
+
+		// tar may still be running, so nothing is copied again or removed
+		assertEquals(1, result.length);
+		assertEquals(IStatus.ERROR, result[0].getSeverity());
+		assertEquals(1, controller.copies);
+		assertFalse(root.append("inner/one.txt").toFile().exists());
+		boolean archiveLeft = false;
+		for( File f : root.toFile().getParentFile().listFiles()) {
+			if( f.getName().startsWith(".batchRoot3.")) {
+				archiveLeft = true;
+				f.delete();
+			}
+		}
+		assertTrue(archiveLeft);
+	}
+
+	private IStatus[] commitBatch(TestRSEFilesystemController controller, IPath root, IPath file, IPath script) throws CoreException {
+		// The controller only offers a batch when the host has a remote shell
+		IFilesystemBatch batch = new RSEFilesystemBatch(controller, root);
+		try {
+			batch.addFile(file.toFile(), root.append("inner/one.txt"));
+			batch.addFile(file.toFile(), root.append("inner/deeper/two.txt"));
+			batch.addFile(script.toFile(), root.append("bin/run.sh"));
+			batch.addFolder(root.append("empty"));
+			return batch.commit(new NullProgressMonitor());
+		} finally {
+			batch.dispose();
+		}
+	}
+	
 	private Map<String, Object> createEnvironmentTempFolder1() {
 		HashMap<String, Object> env = new HashMap<String, Object>();
 		IPath loc = getStateLocationPath("tmpdir1");
@@ -206,5 +302,38 @@ public class RSEFilesystemSubsystemTest extends TestCase {
 	}
 	
 	public class TestRSEFilesystemController extends RSEFilesystemController {
+		private int unpackResult = 0;
+		private int copies = 0;
+
+		public void failUnpack() {
+			unpackResult = 2;
+		}
+
+		public void loseUnpackStatus() {
+			unpackResult = UNPACK_STATUS_UNKNOWN;
+		}
+
+		@Override
+		public IStatus copyFile(File file, IPath absolutePath, IProgressMonitor monitor) throws CoreException {
+			copies++;
+			return super.copyFile(file, absolutePath, monitor);
+		}
+
+		@Override
+		protected int unpackArchive(IPath archive, IPath folder, long archiveSize, IProgressMonitor monitor)
+				throws CoreException {
+			if( unpackResult != 0 )
+				return unpackResult;
+			try {
+				Process p = new ProcessBuilder("tar", "-xmf", archive.toOSString(), "-C", folder.toOSString())
+						.inheritIO().start();
+				int status = p.waitFor();
+				if( status == 0 )
+					archive.toFile().delete();
+				return status;
+			} catch(IOException | InterruptedException e) {
+				return UNPACK_NOT_RUN;
+			}
+		}
 	}
 }
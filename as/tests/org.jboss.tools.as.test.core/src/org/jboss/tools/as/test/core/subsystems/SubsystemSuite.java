@@ -33,6 +33,7 @@ import org.junit.runners.Suite.SuiteClasses;
 	PublishRunnerTest.class,
 	ZippedPublishRunnerTest.class,
 	StandardFilesystemPublishControllerTest.class,
+	ManagementPublishControllerTest.class,
 	ServerProfileTest.class,
 })
 public class SubsystemSuite {
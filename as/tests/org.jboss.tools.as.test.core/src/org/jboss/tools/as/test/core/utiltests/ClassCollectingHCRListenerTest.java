@@ -0,0 +1,154 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.as.test.core.utiltests;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.wst.server.core.IModule;
+import org.eclipse.wst.server.core.IServer;
+import org.eclipse.wst.server.core.model.IModuleResource;
+import org.eclipse.wst.server.core.model.IModuleResourceDelta;
+import org.jboss.ide.eclipse.as.core.util.ClassCollectingHCRListener;
+import org.jboss.tools.as.test.core.internal.utils.MockModuleUtil;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+/**
+ * Checks which classes the hotcode replace listener finds changed
+ * in the published deltas of mocked modules.
+ */
+public class ClassCollectingHCRListenerTest extends TestCase {
+	private IServer server;
+	private Map<IModule, IModuleResourceDelta[]> deltas;
+	private Map<IModule, IModule[]> children;
+	private TestListener listener;
+
+	protected void setUp() throws Exception {
+		deltas = new HashMap<IModule, IModuleResourceDelta[]>();
+		children = new HashMap<IModule, IModule[]>();
+		server = mock(IServer.class);
+		when(server.getChildModules(any(IModule[].class), any(IProgressMonitor.class))).thenAnswer(new Answer<IModule[]>() {
+			public IModule[] answer(InvocationOnMock invocation) throws Throwable {
+				IModule[] module = (IModule[])invocation.getArguments()[0];
+				IModule[] c = children.get(module[module.length - 1]);
+				return c == null ? new IModule[0] : c;
+			}
+		});
+		listener = new TestListener();
+	}
+
+	public void testWebClasses() {
+		IModule war = MockModuleUtil.createMockWebModule();
+		setChanged(war, "WEB-INF/classes/org/example/A.class", "WEB-INF/classes/org/example/B$Inner.class",
+				"WEB-INF/classes/org/example/B$Inner$1.class", "WEB-INF/web.xml", "index.jsp");
+		assertEquals(types("org.example.A", "org.example.B"), collect(war));
+	}
+
+	public void testEjbClasses() {
+		IModule ejb = MockModuleUtil.createMockModule("ejb", "EjbProj", "jst.ejb", "jst.ejb", "3.0");
+		setChanged(ejb, "org/example/Bean.class", "org/example/Bean$1.class", "META-INF/ejb-jar.xml");
+		assertEquals(types("org.example.Bean"), collect(ejb));
+	}
+
+	public void testChildModules() {
+		IModule ear = MockModuleUtil.createMockEarModule();
+		IModule war = MockModuleUtil.createMockWebModule();
+		IModule util = MockModuleUtil.createMockUtilModule();
+		children.put(ear, new IModule[] { war });
+		children.put(war, new IModule[] { util });
+		setChanged(ear, "META-INF/application.xml");
+		setChanged(war, "WEB-INF/classes/org/example/Servlet.class");
+		setChanged(util, "org/example/util/Helper.class");
+		assertEquals(types("org.example.Servlet", "org.example.util.Helper"), collect(ear));
+	}
+
+	public void testJarChanged() {
+		IModule war = MockModuleUtil.createMockWebModule();
+		setChanged(war, "WEB-INF/classes/org/example/A.class", "WEB-INF/lib/library.jar");
+		assertNull(collect(war));
+	}
+
+	public void testJarChangedInChild() {
+		IModule ear = MockModuleUtil.createMockEarModule();
+		IModule war = MockModuleUtil.createMockWebModule();
+		children.put(ear, new IModule[] { war });
+		setChanged(ear, "lib/library.jar");
+		setChanged(war, "WEB-INF/classes/org/example/A.class");
+		assertNull(collect(ear));
+	}
+
+	public void testNothingChanged() {
+		IModule war = MockModuleUtil.createMockWebModule();
+		setChanged(war);
+		assertNull(collect(war));
+	}
+
+	public void testUnchangedClassesIgnored() {
+		IModule war = MockModuleUtil.createMockWebModule();
+		IPath[] paths = new IPath[] { new Path("WEB-INF/classes/org/example/A.class"),
+				new Path("WEB-INF/classes/org/example/B.class") };
+		IModuleResource[] resources = MockModuleUtil.createMockResources(paths, new IPath[0]);
+		deltas.put(war, MockModuleUtil.createMockResourceDeltas(Arrays.asList(resources), paths,
+				new int[] { IModuleResourceDelta.NO_CHANGE, IModuleResourceDelta.CHANGED }));
+		assertEquals(types("org.example.B"), collect(war));
+	}
+
+	private Set<String> collect(IModule module) {
+		return listener.collectChangedTypes(new IModule[] { module });
+	}
+
+	/*
+	 * Marks the files at the given paths as changed in the module's delta
+	 */
+	private void setChanged(IModule module, String... changed) {
+		IPath[] paths = new IPath[changed.length];
+		int[] kind = new int[changed.length];
+		for( int i = 0; i < changed.length; i++ ) {
+			paths[i] = new Path(changed[i]);
+			kind[i] = IModuleResourceDelta.CHANGED;
+		}
+		IModuleResource[] resources = MockModuleUtil.createMockResources(paths, new IPath[0]);
+		deltas.put(module, MockModuleUtil.createMockResourceDeltas(Arrays.asList(resources), paths, kind));
+	}
+
+	private static Set<String> types(String... names) {
+		return new HashSet<String>(Arrays.asList(names));
+	}
+
+	/**
+	 * Takes the published deltas from the test rather than the server
+	 */
+	private class TestListener extends ClassCollectingHCRListener {
+		private TestListener() {
+			super(server, null);
+		}
+		public Set<String> collectChangedTypes(IModule[] modules) {
+			return super.collectChangedTypes(modules);
+		}
+		protected IModuleResourceDelta[] getPublishedResourceDelta(IModule[] module) {
+			IModuleResourceDelta[] d = deltas.get(module[module.length - 1]);
+			return d == null ? new IModuleResourceDelta[0] : d;
+		}
+	}
+}
@@ -0,0 +1,205 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.as.test.core.utiltests;
+
+import java.io.IOException;
+import java.util.ArrayList;
+
+import junit.framework.TestCase;
+
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.wst.server.core.IServer;
+import org.jboss.ide.eclipse.as.management.core.IAS7ManagementDetails;
+import org.jboss.ide.eclipse.as.management.core.IJBoss7DeploymentResult;
+import org.jboss.ide.eclipse.as.management.core.JBoss7ManangerException;
+import org.jboss.ide.eclipse.as.management.core.ManagementClientPool;
+
+public class ManagementClientPoolTest extends TestCase {
+	private ArrayList<TestClient> clients;
+	private ManagementClientPool<TestClient> pool;
+
+	protected void setUp() throws Exception {
+		clients = new ArrayList<TestClient>();
+		pool = new ManagementClientPool<TestClient>(new ManagementClientPool.IClientFactory<TestClient>() {
+			public TestClient create(IAS7ManagementDetails details) throws JBoss7ManangerException {
+				TestClient c = new TestClient();
+				clients.add(c);
+				return c;
+			}
+			public boolean isDone(IJBoss7DeploymentResult result) {
+				return ((TestResult)result).done;
+			}
+			public void dispose(TestClient client) {
+				client.disposed = true;
+			}
+		});
+	}
+
+	protected void tearDown() throws Exception {
+		pool.dispose();
+	}
+
+	public void testClientReused() {
+		IAS7ManagementDetails details = new TestDetails("admin", "secret");
+		TestClient first = pool.execute(details, c -> c);
+		TestClient second = pool.execute(details, c -> c);
+		TestClient third = pool.executeReadOnly(details, c -> c);
+		assertTrue(first == second && second == third);
+		assertEquals(1, pool.getStatistics().getCreated());
+		assertEquals(2, pool.getStatistics().getReused());
+		assertEquals(1, pool.getStatistics().getIdle());
+	}
+
+	public void testClientsSharedByUserNotPassword() {
+		TestClient first = pool.execute(new TestDetails("admin", "secret"), c -> c);
+		TestClient otherPassword = pool.execute(new TestDetails("admin", "changed"), c -> c);
+		TestClient otherUser = pool.execute(new TestDetails("guest", "secret"), c -> c);
+		assertTrue(first == otherPassword);
+		assertFalse(first == otherUser);
+		assertEquals(2, pool.getStatistics().getCreated());
+	}
+
+	public void testReadRetriedOnLostConnection() {
+		IAS7ManagementDetails details = new TestDetails("admin", "secret");
+		TestClient first = pool.execute(details, c -> c);
+		first.connected = false;
+		TestClient second = pool.executeReadOnly(details, c -> c.read());
+		assertFalse(first == second);
+		assertTrue(first.disposed);
+		assertEquals(1, pool.getStatistics().getRetries());
+		assertEquals(1, pool.getStatistics().getConnectionFailures());
+	}
+
+	public void testChangeNotRetried() {
+		IAS7ManagementDetails details = new TestDetails("admin", "secret");
+		TestClient first = pool.execute(details, c -> c);
+		first.connected = false;
+		try {
+			pool.execute(details, c -> c.read());
+			fail("The change should not have been run again");
+		} catch(JBoss7ManangerException e) {
+			assertTrue(ManagementClientPool.isConnectionFailure(e));
+		}
+		assertTrue(first.disposed);
+		assertEquals(0, pool.getStatistics().getRetries());
+		assertEquals(0, pool.getStatistics().getIdle());
+	}
+
+	public void testOtherFailureKeepsClient() {
+		IAS7ManagementDetails details = new TestDetails("admin", "secret");
+		try {
+			pool.executeReadOnly(details, c -> {
+				throw new JBoss7ManangerException("Operation failed");
+			});
+			fail();
+		} catch(JBoss7ManangerException e) {
+			assertFalse(ManagementClientPool.isConnectionFailure(e));
+		}
+		assertEquals(1, pool.getStatistics().getIdle());
+		assertFalse(clients.get(0).disposed);
+	}
+
+	public void testRuntimeFailureKeepsClient() {
+		IAS7ManagementDetails details = new TestDetails("admin", "secret");
+		try {
+			pool.execute(details, c -> {
+				throw new IllegalStateException("Server is booting");
+			});
+			fail();
+		} catch(IllegalStateException e) {
+			// expected
+		}
+		assertEquals(1, pool.getStatistics().getIdle());
+		assertEquals(0, pool.getStatistics().getConnectionFailures());
+		assertFalse(clients.get(0).disposed);
+	}
+
+	public void testAsyncClientHeldUntilDone() throws Exception {
+		IAS7ManagementDetails details = new TestDetails("admin", "secret");
+		final TestResult deployment = new TestResult();
+		IJBoss7DeploymentResult result = pool.executeAsync(details, c -> deployment);
+		assertEquals(1, pool.getStatistics().getPending());
+		assertEquals(0, pool.getStatistics().getIdle());
+
+		// the deployment's client is not handed out while it is in flight
+		TestClient other = pool.execute(details, c -> c);
+		assertFalse(other == clients.get(0));
+		assertFalse(clients.get(0).disposed);
+
+		deployment.done = true;
+		assertTrue(result.getStatus().isOK());
+		assertEquals(0, pool.getStatistics().getPending());
+		assertEquals(2, pool.getStatistics().getIdle());
+		// reading the result again does not release the client twice
+		result.getStatus();
+		assertEquals(2, pool.getStatistics().getIdle());
+	}
+
+	public void testAsyncClientClosedAfterDispose() throws Exception {
+		final TestResult deployment = new TestResult();
+		IJBoss7DeploymentResult result = pool.executeAsync(new TestDetails("admin", "secret"), c -> deployment);
+		pool.dispose();
+		assertFalse(clients.get(0).disposed);
+		deployment.done = true;
+		result.getStatus();
+		assertTrue(clients.get(0).disposed);
+	}
+
+	private static class TestClient {
+		private boolean connected = true;
+		private boolean disposed = false;
+		private TestClient read() {
+			if( !connected )
+				throw new JBoss7ManangerException(new IOException("Channel closed"));
+			return this;
+		}
+	}
+
+	private static class TestResult implements IJBoss7DeploymentResult {
+		private volatile boolean done = false;
+		public IStatus getStatus() throws JBoss7ManangerException {
+			return Status.OK_STATUS;
+		}
+	}
+
+	private static class TestDetails implements IAS7ManagementDetails {
+		private String user, password;
+		private TestDetails(String user, String password) {
+			this.user = user;
+			this.password = password;
+		}
+		public String getHost() {
+			return "localhost";
+		}
+		public int getManagementPort() {
+			return 9990;
+		}
+		public String getManagementUsername() {
+			return user;
+		}
+		public String getManagementPassword() {
+			return password;
+		}
+		public String[] handleCallbacks(String[] prompts) throws UnsupportedOperationException {
+			throw new UnsupportedOperationException();
+		}
+		public IServer getServer() {
+			return null;
+		}
+		public String getProtocol() {
+			return "http-remoting";
+		}
+		public Object getProperty(String key) {
+			return null;
+		}
+	}
+}
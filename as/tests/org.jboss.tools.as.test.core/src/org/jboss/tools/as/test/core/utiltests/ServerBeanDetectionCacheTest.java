@@ -0,0 +1,93 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.as.test.core.utiltests;
+
+import java.io.File;
+
+import junit.framework.TestCase;
+
+import org.jboss.ide.eclipse.as.core.server.bean.ServerBeanLoader;
+import org.jboss.ide.eclipse.as.core.util.FileUtil;
+import org.jboss.ide.eclipse.as.core.util.IJBossToolingConstants;
+import org.jboss.tools.as.test.core.internal.utils.ServerCreationTestUtils;
+
+/**
+ * Changes the files the conditions read in a detected server home,
+ * leaving the folders above them untouched, and checks that the
+ * cached detection is not used anymore.
+ */
+public class ServerBeanDetectionCacheTest extends TestCase {
+	private static final String PRODUCT_META_INF = "org/jboss/as/product/wildfly-full/dir/META-INF";
+	private static final String BASE = "modules/system/layers/base";
+
+	private File serverDir;
+
+	protected void setUp() throws Exception {
+		serverDir = ServerCreationTestUtils.createMockServerLayout(IJBossToolingConstants.SERVER_WILDFLY_100);
+		ServerBeanLoader.clearCache();
+		assertEquals("10.0.0.Final", getFullVersion());
+	}
+
+	protected void tearDown() throws Exception {
+		FileUtil.completeDelete(serverDir);
+		ServerBeanLoader.clearCache();
+	}
+
+	public void testProductManifestChanged() throws Exception {
+		setManifest(new File(serverDir, BASE), "10.0.12.Final");
+		assertEquals("10.0.12.Final", getFullVersion());
+	}
+
+	public void testOverlayAdded() throws Exception {
+		File base = new File(serverDir, BASE);
+		long modified = base.lastModified();
+		File overlays = new File(base, ".overlays");
+		setManifest(new File(overlays, "patch1"), "10.0.12.Final");
+		FileUtil.setContents(new File(overlays, ".overlays"), "patch1\n");
+		base.setLastModified(modified);
+		assertEquals("10.0.12.Final", getFullVersion());
+	}
+
+	public void testLayerAdded() throws Exception {
+		File modules = new File(serverDir, "modules");
+		File layers = new File(modules, "system/layers");
+		setManifest(new File(layers, "extra"), "10.0.12.Final");
+		// not used until listed in layers.conf
+		assertEquals("10.0.0.Final", getFullVersion());
+
+		long modified = modules.lastModified();
+		FileUtil.setContents(new File(modules, "layers.conf"), "layers=extra");
+		modules.setLastModified(modified);
+		assertEquals("10.0.12.Final", getFullVersion());
+	}
+
+	private String getFullVersion() {
+		return new ServerBeanLoader(serverDir).getFullServerVersion();
+	}
+
+	/*
+	 * Writes the product manifest of the given module root,
+	 * leaving the timestamps of the folders above it as they were
+	 */
+	private static void setManifest(File moduleRoot, String version) throws Exception {
+		File metaInf = new File(moduleRoot, PRODUCT_META_INF);
+		File parent = moduleRoot.getParentFile();
+		long modified = parent.lastModified();
+		metaInf.mkdirs();
+		File manifest = new File(metaInf, "manifest.mf");
+		long previous = manifest.lastModified();
+		FileUtil.setContents(manifest, "JBoss-Product-Release-Name: WildFly Full\nJBoss-Product-Release-Version: "
+				+ version + "\n");
+		// timestamps may be as coarse as seconds
+		manifest.setLastModified(Math.max(System.currentTimeMillis(), previous + 2000));
+		parent.setLastModified(modified);
+	}
+}
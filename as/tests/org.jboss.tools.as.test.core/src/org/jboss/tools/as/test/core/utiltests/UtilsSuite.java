@@ -22,7 +22,10 @@ import org.junit.runners.Suite.SuiteClasses;
 	UnitedServerListenerTest.class,
 	RSEUtilsTest.class,
 	VersionStringUtilTest.class,
-	ServerHomeValidationUtilityTest.class
+	ServerHomeValidationUtilityTest.class,
+	ManagementClientPoolTest.class,
+	ServerBeanDetectionCacheTest.class,
+	ClassCollectingHCRListenerTest.class
 })
 public class UtilsSuite {
 }
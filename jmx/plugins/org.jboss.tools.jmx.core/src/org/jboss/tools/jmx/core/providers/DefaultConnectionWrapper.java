@@ -32,6 +32,7 @@ import org.jboss.tools.jmx.core.IJMXRunnable;
 import org.jboss.tools.jmx.core.JMXActivator;
 import org.jboss.tools.jmx.core.JMXCoreMessages;
 import org.jboss.tools.jmx.core.JMXException;
+import org.jboss.tools.jmx.core.tree.MBeanRegistrationTracker;
 import org.jboss.tools.jmx.core.tree.NodeUtils;
 import org.jboss.tools.jmx.core.tree.Root;
 
@@ -39,6 +40,7 @@ public class DefaultConnectionWrapper implements IConnectionWrapper {
 	private JMXConnector connector;
 	private MBeanServerConnection connection;
 	private Root root;
+	private MBeanRegistrationTracker tracker;
 	private boolean isLoading;
 	private boolean isConnected;
 	private Map<String, String[]> environment;
@@ -85,6 +87,10 @@ public class DefaultConnectionWrapper implements IConnectionWrapper {
 		// close
 		root = null;
 		isConnected = false;
+		if( tracker != null && connection != null ) {
+			tracker.stop(connection);
+		}
+		tracker = null;
 		try {
 			if (connector != null) {
 				connector.close();
@@ -105,10 +111,33 @@ public class DefaultConnectionWrapper implements IConnectionWrapper {
 	}
 
 	public void loadRoot(IProgressMonitor monitor) throws CoreException {
+		loadRoot(monitor, false);
+	}
+
+	/**
+	 * Load the tree of this connection, unless it is loaded already.
+	 * 
+	 * @param monitor
+	 * @param eager whether the nodes of all domains are built up front, 
+	 * 		rather than only once a domain is loaded
+	 * @throws CoreException
+	 */
+	public void loadRoot(IProgressMonitor monitor, boolean eager) throws CoreException {
 		if( isConnected && root == null && !isLoading) {
 			try {
 				isLoading = true;
-				root = NodeUtils.createObjectNameTree(this, monitor);
+				// Either way the tree is kept up to date as MBeans come and go
+				Root r = eager ? NodeUtils.createObjectNameTree(this, monitor) 
+						: NodeUtils.createLazyObjectNameTree(this, monitor);
+				MBeanRegistrationTracker t = new MBeanRegistrationTracker(r);
+				try {
+					t.start(connection);
+					tracker = t;
+				} catch(Exception e) {
+					JMXActivator.getDefault().getLog().log(new Status(IStatus.WARNING, JMXActivator.PLUGIN_ID, 
+							"Unable to listen to MBean registrations for " + descriptor.getID(), e)); //$NON-NLS-1$
+				}
+				root = r;
 			} finally {
 				isLoading = false;
 			}
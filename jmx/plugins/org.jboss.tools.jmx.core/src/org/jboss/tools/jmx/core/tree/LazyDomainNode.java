@@ -0,0 +1,185 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+
+package org.jboss.tools.jmx.core.tree;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.management.MBeanServerConnection;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.jboss.tools.jmx.core.IAsyncRefreshable;
+import org.jboss.tools.jmx.core.IJMXRunnable;
+import org.jboss.tools.jmx.core.JMXActivator;
+import org.jboss.tools.jmx.core.JMXException;
+
+/**
+ * A domain whose object names are only queried
+ * the first time its children are loaded.
+ */
+public class LazyDomainNode extends DomainNode implements IAsyncRefreshable {
+
+	private volatile boolean loaded = false;
+	// Loads in flight, and the registrations tracked while they query the server
+	private int loading = 0;
+	private Map<ObjectName, Boolean> tracked = new LinkedHashMap<ObjectName, Boolean>();
+
+	LazyDomainNode(Node root, String domain) {
+		super(root, domain);
+	}
+
+	public boolean isLoaded() {
+		return loaded;
+	}
+
+	/**
+	 * Query the object names of this domain and build the nodes
+	 * beneath it, unless that has been done already.
+	 * The server is queried without holding the lock of this node, 
+	 * so registrations tracked meanwhile are not held up by a slow server.
+	 * They are queued instead, and applied once the nodes are built.
+	 * A domain found to be empty is removed from the tree.
+	 *
+	 * @param monitor
+	 * @throws JMXException
+	 */
+	public void load(IProgressMonitor monitor) throws JMXException {
+		synchronized(this) {
+			if( loaded )
+				return;
+			loading++;
+		}
+		monitor.beginTask("Loading JMX domain " + getDomain(), 100); //$NON-NLS-1$
+		final List<ObjectName> names = new ArrayList<ObjectName>();
+		boolean empty = false;
+		try {
+			getConnection().run(new IJMXRunnable() {
+				@Override
+				public void run(MBeanServerConnection connection) throws Exception {
+					Set<ObjectName> found = queryDomain(connection);
+					if( found != null ) {
+						for( ObjectName on : found ) {
+							// A domain with wildcards in its name matches other domains too
+							if( getDomain().equals(on.getDomain()))
+								names.add(on);
+						}
+					}
+				}
+			});
+			monitor.worked(50);
+			synchronized(this) {
+				if( !loaded ) {
+					for( ObjectName on : names ) {
+						NodeBuilder.addToDomain(this, on, null);
+					}
+					for( Map.Entry<ObjectName, Boolean> e : tracked.entrySet()) {
+						if( e.getValue())
+							NodeBuilder.addToDomain(this, e.getKey(), null);
+						else
+							NodeBuilder.removeFromDomain(this, e.getKey());
+					}
+					tracked.clear();
+					loaded = true;
+					empty = getChildren().length == 0;
+				}
+			}
+		} finally {
+			synchronized(this) {
+				if( --loading == 0 )
+					tracked.clear();
+			}
+		}
+		if( empty && removeIfEmpty())
+			getRoot().fireNodeChanged(parent);
+		monitor.done();
+	}
+
+	/*
+	 * Remove this domain from the tree if no MBean was found in it,
+	 * holding the same locks as the registration tracker
+	 */
+	private boolean removeIfEmpty() {
+		if( parent == null )
+			return false;
+		synchronized(parent) {
+			synchronized(this) {
+				return getChildren().length == 0 && parent.removeChild(this);
+			}
+		}
+	}
+
+	/**
+	 * Queue a registration or unregistration tracked while this
+	 * domain is being loaded, to be applied once it is built.
+	 * Must be called holding the lock of this node.
+	 *
+	 * @return true if the change must not be applied to the nodes now,
+	 * either because it is queued or because the domain is not loaded
+	 */
+	boolean deferTracked(ObjectName on, boolean registered) {
+		if( loaded )
+			return false;
+		if( loading > 0 ) {
+			// Only the last change of an object name matters
+			tracked.remove(on);
+			tracked.put(on, registered);
+		}
+		return true;
+	}
+
+	private Set<ObjectName> queryDomain(MBeanServerConnection connection) throws Exception {
+		ObjectName pattern;
+		try {
+			pattern = new ObjectName(getDomain() + ":*"); //$NON-NLS-1$
+		} catch(MalformedObjectNameException mone) {
+			pattern = new ObjectName("*:*"); //$NON-NLS-1$
+		}
+		return connection.queryNames(pattern, null);
+	}
+
+	/**
+	 * Forget the nodes beneath this domain, so they
+	 * are queried again the next time they are loaded
+	 */
+	public synchronized void unload() {
+		clearChildren();
+		loaded = false;
+	}
+
+	@Override
+	public void refresh(final ICallback cb) {
+		Job job = new Job("Refresh JMX Domain " + getDomain()) { //$NON-NLS-1$
+			@Override
+			protected IStatus run(IProgressMonitor monitor) {
+				unload();
+				try {
+					load(monitor);
+				} catch(JMXException e) {
+					JMXActivator.getDefault().getLog().log(new Status(IStatus.ERROR, JMXActivator.PLUGIN_ID,
+							"Error loading JMX domain " + getDomain(), e)); //$NON-NLS-1$
+				}
+				cb.refreshComplete();
+				return Status.OK_STATUS;
+			}
+		};
+		job.setSystem(true);
+		job.schedule();
+	}
+}
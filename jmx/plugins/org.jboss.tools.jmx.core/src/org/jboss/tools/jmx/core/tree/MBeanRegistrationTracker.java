@@ -0,0 +1,132 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+
+package org.jboss.tools.jmx.core.tree;
+
+import javax.management.MBeanServerConnection;
+import javax.management.MBeanServerDelegate;
+import javax.management.MBeanServerNotification;
+import javax.management.Notification;
+import javax.management.NotificationListener;
+import javax.management.ObjectName;
+import javax.management.relation.MBeanServerNotificationFilter;
+
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.jboss.tools.jmx.core.JMXActivator;
+
+/**
+ * Keeps a tree up to date with the MBeans registered and unregistered
+ * on the server, by listening to the notifications of the MBean server delegate.
+ *
+ * Only the domains which have been loaded are changed.
+ * Listeners of the root are told which node has changed.
+ */
+public class MBeanRegistrationTracker implements NotificationListener {
+
+	private Root root;
+
+	public MBeanRegistrationTracker(Root root) {
+		this.root = root;
+	}
+
+	/**
+	 * Start listening to registrations on the given connection
+	 *
+	 * @param connection
+	 * @throws Exception if the listener could not be added
+	 */
+	public void start(MBeanServerConnection connection) throws Exception {
+		MBeanServerNotificationFilter filter = new MBeanServerNotificationFilter();
+		filter.enableAllObjectNames();
+		connection.addNotificationListener(MBeanServerDelegate.DELEGATE_NAME, this, filter, null);
+	}
+
+	/**
+	 * Stop listening to registrations on the given connection
+	 *
+	 * @param connection
+	 */
+	public void stop(MBeanServerConnection connection) {
+		try {
+			connection.removeNotificationListener(MBeanServerDelegate.DELEGATE_NAME, this);
+		} catch(Exception e) {
+			// The connection may be closed already, in which case there's nothing to remove
+		}
+	}
+
+	@Override
+	public void handleNotification(Notification notification, Object handback) {
+		if( !(notification instanceof MBeanServerNotification))
+			return;
+		ObjectName on = ((MBeanServerNotification)notification).getMBeanName();
+		Node changed = null;
+		try {
+			if( MBeanServerNotification.REGISTRATION_NOTIFICATION.equals(notification.getType())) {
+				changed = registered(on);
+			} else if( MBeanServerNotification.UNREGISTRATION_NOTIFICATION.equals(notification.getType())) {
+				changed = unregistered(on);
+			}
+		} catch(RuntimeException re) {
+			JMXActivator.getDefault().getLog().log(new Status(IStatus.WARNING, JMXActivator.PLUGIN_ID,
+					"Unable to update the JMX tree for " + on, re)); //$NON-NLS-1$
+		}
+		if( changed != null )
+			root.fireNodeChanged(changed);
+	}
+
+	/*
+	 * Add the object name to the tree.
+	 * Return the node whose children changed, or null.
+	 */
+	Node registered(ObjectName on) {
+		MBeansNode mbeans = root.getMBeansNode();
+		synchronized(mbeans) {
+			DomainNode domain = root.getDomainNode(on.getDomain());
+			if( domain == null ) {
+				// Its object names are queried once it is expanded
+				mbeans.addChild(new LazyDomainNode(mbeans, on.getDomain()));
+				return mbeans;
+			}
+			synchronized(domain) {
+				if( domain instanceof LazyDomainNode && ((LazyDomainNode)domain).deferTracked(on, true))
+					return null;
+				NodeBuilder.addToDomain(domain, on, null);
+			}
+			return domain;
+		}
+	}
+
+	/*
+	 * Remove the object name from the tree.
+	 * Return the node whose children changed, or null.
+	 * A domain which was never loaded stays until it is loaded
+	 * and found to be empty, as its MBeans are not known here.
+	 */
+	Node unregistered(ObjectName on) {
+		MBeansNode mbeans = root.getMBeansNode();
+		synchronized(mbeans) {
+			DomainNode domain = root.getDomainNode(on.getDomain());
+			if( domain == null )
+				return null;
+			synchronized(domain) {
+				if( domain instanceof LazyDomainNode && ((LazyDomainNode)domain).deferTracked(on, false))
+					return null;
+				if( !NodeBuilder.removeFromDomain(domain, on))
+					return null;
+				if( domain.getChildren().length > 0 )
+					return domain;
+				mbeans.removeChild(domain);
+			}
+			return mbeans;
+		}
+	}
+}
@@ -34,7 +34,7 @@ public abstract class Node implements Comparable, HasRoot {
 	}
 
 	@SuppressWarnings("unchecked")
-	public Node addChild(Node node) {
+	public synchronized Node addChild(Node node) {
 		if (!children.contains(node)) {
 			children.add(node);
 			Collections.sort(children);
@@ -44,11 +44,11 @@ public abstract class Node implements Comparable, HasRoot {
 		}
 	}
 
-	public boolean removeChild(Node child) {
+	public synchronized boolean removeChild(Node child) {
 		return children.remove(child);
 	}
 
-	public Node[] getChildren() {
+	public synchronized Node[] getChildren() {
 		return children.toArray(new Node[children.size()]);
 	}
 
@@ -60,7 +60,7 @@ public abstract class Node implements Comparable, HasRoot {
 		return parent;
 	}
 
-	public void clearChildren() {
+	public synchronized void clearChildren() {
 		children.clear();
 	}
 
@@ -37,6 +37,14 @@ public class NodeBuilder {
 
     public static void addToTree(Node root, ObjectName on, MBeanServerConnection mbsc) {
         Node node = buildDomainNode(root, on.getDomain());
+        addToDomain(node, on, mbsc);
+    }
+
+    /**
+     * Add the nodes of the given object name beneath the node of its domain
+     */
+    public static void addToDomain(Node domainNode, ObjectName on, MBeanServerConnection mbsc) {
+        Node node = domainNode;
         String keyPropertyListString = on.getKeyPropertyListString();
         String[] properties = keyPropertyListString.split(","); //$NON-NLS-1$
         for (int i = 0; i < properties.length; i++) {
@@ -52,6 +60,52 @@ public class NodeBuilder {
         }
     }
 
+    /**
+     * Remove the node of the given object name from beneath the node of its domain,
+     * along with any property nodes left empty by its removal
+     *
+     * @return true if the object name was found
+     */
+    public static boolean removeFromDomain(Node domainNode, ObjectName on) {
+        String[] properties = on.getKeyPropertyListString().split(","); //$NON-NLS-1$
+        Node[] path = new Node[properties.length + 1];
+        path[0] = domainNode;
+        for (int i = 0; i < properties.length; i++) {
+            String property = properties[i];
+            String key = property.substring(0, property.indexOf('='));
+            String value = property.substring(property.indexOf('=') + 1);
+            path[i + 1] = findChild(path[i], key, value, i == properties.length - 1 ? on : null);
+            if (path[i + 1] == null) {
+                return false;
+            }
+        }
+        for (int i = path.length - 1; i > 0; i--) {
+            path[i - 1].removeChild(path[i]);
+            if (path[i - 1].getChildren().length > 0) {
+                break;
+            }
+        }
+        return true;
+    }
+
+    private static Node findChild(Node parent, String key, String value, ObjectName on) {
+        Node[] children = parent.getChildren();
+        for (int i = 0; i < children.length; i++) {
+            if (on != null) {
+                if (children[i] instanceof ObjectNameNode
+                        && on.equals(((ObjectNameNode) children[i]).getObjectName())) {
+                    return children[i];
+                }
+            } else if (children[i] instanceof PropertyNode && !(children[i] instanceof ObjectNameNode)) {
+                PropertyNode pn = (PropertyNode) children[i];
+                if (key.equals(pn.getKey()) && value.equals(pn.getValue())) {
+                    return pn;
+                }
+            }
+        }
+        return null;
+    }
+
     public static Root createRoot(IConnectionWrapper connection) {
         return new Root(connection);
     }
@@ -7,6 +7,7 @@
  *******************************************************************************/
 package org.jboss.tools.jmx.core.tree;
 
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.Set;
 
@@ -56,20 +57,56 @@ public class NodeUtils {
 			public void run(MBeanServerConnection connection) throws Exception {
 		        monitor.beginTask(JMXCoreMessages.LoadMBeans, 1000);
 				Set<ObjectName> beanInfo = connection.queryNames(new ObjectName("*:*"), null); //$NON-NLS-1$
-		        roots[0] = NodeBuilder.createRoot(connectionWrapper);
 				monitor.worked(100);
-				if( beanInfo != null ) {
-					SubMonitor subMon = SubMonitor.convert(monitor, JMXCoreMessages.InspectMBeans, beanInfo.size());
-			        Iterator<ObjectName> iter = beanInfo.iterator();
-			        while (iter.hasNext() && !monitor.isCanceled()) {
-			            ObjectName on = iter.next();
-			            NodeBuilder.addToTree(roots[0].getMBeansNode(), on, connection);
-			        	subMon.worked(1);
-			        }
+				roots[0] = createObjectNameTree(connectionWrapper, beanInfo, connection, monitor);
+		        monitor.done();
+			}
+    	});
+        return roots[0];
+    }
+
+    /**
+     * Create a tree of the domains only. The object names of each domain
+     * are queried once the {@link LazyDomainNode} is loaded.
+     */
+    public static Root createLazyObjectNameTree(final IConnectionWrapper connectionWrapper, final IProgressMonitor monitor)
+            throws JMXException {
+    	final Root[] roots = new Root[1];
+    	connectionWrapper.run(new IJMXRunnable() {
+    		@Override
+			public void run(MBeanServerConnection connection) throws Exception {
+		        monitor.beginTask(JMXCoreMessages.LoadMBeans, 100);
+				String[] domains = connection.getDomains();
+		        Root root = NodeBuilder.createRoot(connectionWrapper);
+		        MBeansNode mbeans = root.getMBeansNode();
+				if( domains != null ) {
+					for( int i = 0; i < domains.length; i++ ) {
+						mbeans.addChild(new LazyDomainNode(mbeans, domains[i]));
+					}
 				}
+				roots[0] = root;
 		        monitor.done();
 			}
     	});
         return roots[0];
     }
+
+    /**
+     * Create the tree of the given object names, which have already
+     * been queried from the connection by the caller
+     */
+    public static Root createObjectNameTree(IConnectionWrapper connectionWrapper, Collection<ObjectName> names, 
+    		MBeanServerConnection connection, IProgressMonitor monitor) {
+        Root root = NodeBuilder.createRoot(connectionWrapper);
+		if( names != null ) {
+			SubMonitor subMon = SubMonitor.convert(monitor, JMXCoreMessages.InspectMBeans, names.size());
+	        Iterator<ObjectName> iter = names.iterator();
+	        while (iter.hasNext() && !monitor.isCanceled()) {
+	            ObjectName on = iter.next();
+	            NodeBuilder.addToTree(root.getMBeansNode(), on, connection);
+	        	subMon.worked(1);
+	        }
+		}
+		return root;
+    }
 }
@@ -18,6 +18,8 @@
 
 package org.jboss.tools.jmx.core.tree;
 
+import java.util.concurrent.CopyOnWriteArrayList;
+
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
 import org.jboss.tools.jmx.core.IConnectionWrapper;
@@ -26,8 +28,17 @@ import org.jboss.tools.jmx.core.JMXActivator;
 
 public class Root extends Node {
 
+	/**
+	 * Notified when the nodes beneath a node of the tree
+	 * have been changed after the tree was loaded
+	 */
+	public interface INodeChangeListener {
+		public void nodeChanged(Node node);
+	}
+
 	private IConnectionWrapper connection;
 	private MBeansNode mbeansNode;
+	private CopyOnWriteArrayList<INodeChangeListener> listeners = new CopyOnWriteArrayList<INodeChangeListener>();
 
 	public Root(IConnectionWrapper connection) {
 		super(null);
@@ -85,6 +96,20 @@ public class Root extends Node {
 		return mbeansNode;
 	}
 
+	public void addNodeChangeListener(INodeChangeListener listener) {
+		listeners.addIfAbsent(listener);
+	}
+
+	public void removeNodeChangeListener(INodeChangeListener listener) {
+		listeners.remove(listener);
+	}
+
+	public void fireNodeChanged(Node node) {
+		for( INodeChangeListener l : listeners ) {
+			l.nodeChanged(node);
+		}
+	}
+
 	public boolean isConnected() {
 		return connection != null && connection.isConnected();
 	}
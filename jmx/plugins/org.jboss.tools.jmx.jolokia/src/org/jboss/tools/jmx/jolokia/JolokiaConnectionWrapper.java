@@ -24,6 +24,7 @@ import java.util.stream.Collectors;
 
 import javax.management.MBeanServerConnection;
 import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
 import javax.net.ssl.HostnameVerifier;
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.TrustManager;
@@ -44,6 +45,7 @@ import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.SubMonitor;
 import org.eclipse.ui.views.properties.IPropertySheetPage;
 import org.eclipse.ui.views.properties.tabbed.ITabbedPropertySheetPageContributor;
 import org.eclipse.ui.views.properties.tabbed.TabbedPropertySheetPage;
@@ -138,13 +140,35 @@ public class JolokiaConnectionWrapper implements IConnectionWrapper, IAdaptable
 			monitor = new NullProgressMonitor();
 		if (isConnected() && root == null) {
 			try {
-				root = NodeUtils.createObjectNameTree(this, monitor);
-			} catch (Throwable e) {
-				Activator.pluginLog().logWarning("Failed to load JMX tree for " + this + ". " + e, e);
+				root = loadRootInBulk(monitor);
+			} catch (IOException ioe) {
+				Activator.pluginLog().logWarning("Failed to load JMX tree for " + this + " in bulk, loading MBeans one at a time. " + ioe, ioe);
+			}
+			if( root == null && !monitor.isCanceled()) {
+				try {
+					root = NodeUtils.createObjectNameTree(this, monitor);
+				} catch (Throwable e) {
+					Activator.pluginLog().logWarning("Failed to load JMX tree for " + this + ". " + e, e);
+				}
 			}
 		}
 	}
 	
+	/*
+	 * Load the names and infos of all MBeans with a few list requests,
+	 * rather than querying the names and then each info on its own
+	 */
+	private Root loadRootInBulk(IProgressMonitor monitor) throws IOException {
+		JolokiaMBeanServerConnection c = (JolokiaMBeanServerConnection)getConnection();
+		SubMonitor subMon = SubMonitor.convert(monitor, JMXCoreMessages.LoadMBeans, 100);
+		Set<ObjectName> names = c.loadMBeans(subMon.newChild(70));
+		if( subMon.isCanceled())
+			return null;
+		Root r = NodeUtils.createObjectNameTree(this, names, c, subMon.newChild(30));
+		monitor.done();
+		return r;
+	}
+	
 	
 	protected J4pClient createJ4pClient() {
 		CustomClientBuilder jb = new CustomClientBuilder() {
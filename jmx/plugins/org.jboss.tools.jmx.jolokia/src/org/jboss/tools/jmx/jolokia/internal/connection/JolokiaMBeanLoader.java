@@ -0,0 +1,198 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.jmx.jolokia.internal.connection;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.management.MBeanInfo;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.SubMonitor;
+import org.jboss.tools.jmx.jolokia.internal.Activator;
+import org.jolokia.client.J4pClient;
+import org.jolokia.client.exception.J4pBulkRemoteException;
+import org.jolokia.client.exception.J4pException;
+import org.jolokia.client.exception.J4pRemoteException;
+import org.jolokia.client.request.J4pListRequest;
+import org.jolokia.client.request.J4pListResponse;
+import org.jolokia.client.request.J4pQueryParameter;
+import org.jolokia.client.request.J4pRequest;
+import org.jolokia.client.request.J4pResponse;
+import org.json.simple.JSONObject;
+
+/**
+ * Loads the names and infos of all MBeans of a Jolokia agent
+ * with as few HTTP requests as possible.
+ *
+ * The domains are listed first, with the depth of the list limited to 1,
+ * and the MBeans of those domains are then listed in bulk requests of
+ * several domains each. Requests made one at a time would otherwise
+ * cost a round trip for each MBean.
+ */
+public class JolokiaMBeanLoader {
+	/* The number of domains listed in a single bulk request */
+	private static final int DOMAINS_PER_REQUEST = 20;
+
+	private J4pClient j4pClient;
+	private String type; // GET or POST
+	private JolokiaMBeanUtility utility = new JolokiaMBeanUtility();
+
+	/*
+	 * Bulk requests are always sent with POST, which does not
+	 * work behind every proxy. Once a bulk request failed as a whole,
+	 * requests are sent one at a time with the configured type.
+	 */
+	private volatile boolean bulkUnsupported = false;
+
+	public JolokiaMBeanLoader(J4pClient j4pClient, String type) {
+		this.j4pClient = j4pClient;
+		this.type = type;
+	}
+
+	/**
+	 * List all MBeans of the agent
+	 *
+	 * @param monitor
+	 * @return the info of every MBean, by name
+	 * @throws IOException if the domains could not be listed
+	 */
+	public Map<ObjectName, MBeanInfo> loadMBeanInfos(IProgressMonitor monitor) throws IOException {
+		SubMonitor subMon = SubMonitor.convert(monitor == null ? new NullProgressMonitor() : monitor, 100);
+		Map<ObjectName, MBeanInfo> result = new HashMap<>();
+		JSONObject domains;
+		try {
+			Map<J4pQueryParameter,String> processingOptions = new EnumMap<>(J4pQueryParameter.class);
+			processingOptions.put(J4pQueryParameter.MAX_DEPTH, "1");
+			J4pListResponse resp = j4pClient.execute(new J4pListRequest(), type, processingOptions);
+			domains = resp.getValue();
+		} catch (J4pException e) {
+			throw new IOException(e);
+		}
+		subMon.worked(10);
+		if( domains == null )
+			return result;
+
+		List<String> listed = new ArrayList<>();
+		List<J4pListRequest> requests = new ArrayList<>();
+		for( Object k : domains.keySet()) {
+			String domain = (String)k;
+			Object v = domains.get(domain);
+			if( isFullyListed(v)) {
+				// An agent which ignores the max depth has already sent everything
+				addMBeanInfos(domain, (JSONObject)v, result);
+			} else {
+				listed.add(domain);
+				requests.add(new J4pListRequest(escapePathElement(domain)));
+			}
+		}
+
+		SubMonitor listMon = subMon.newChild(90).setWorkRemaining(requests.size());
+		for( int i = 0; i < requests.size() && !listMon.isCanceled(); i += DOMAINS_PER_REQUEST ) {
+			List<J4pListRequest> batch = requests.subList(i, Math.min(requests.size(), i + DOMAINS_PER_REQUEST));
+			List<J4pResponse<J4pListRequest>> responses = execute(batch);
+			for( int j = 0; j < batch.size(); j++ ) {
+				J4pResponse<J4pListRequest> r = responses.get(j);
+				Object v = r == null ? null : r.getValue();
+				if( v instanceof JSONObject ) {
+					addMBeanInfos(listed.get(i + j), (JSONObject)v, result);
+				}
+			}
+			listMon.worked(batch.size());
+		}
+		return result;
+	}
+
+	/*
+	 * Execute a batch of requests as a single bulk request,
+	 * falling back to single requests if bulk requests are not possible
+	 */
+	private <R extends J4pRequest> List<J4pResponse<R>> execute(List<R> batch) throws IOException {
+		if( !bulkUnsupported && batch.size() > 1 ) {
+			try {
+				List<J4pResponse<R>> responses = j4pClient.execute(batch);
+				return responses;
+			} catch(J4pBulkRemoteException bre) {
+				return fromPartialResults(bre);
+			} catch(J4pException e) {
+				Activator.pluginLog().logWarning("Bulk request to Jolokia agent failed, sending requests one at a time. " + e.getMessage());
+				bulkUnsupported = true;
+			}
+		}
+		List<J4pResponse<R>> responses = new ArrayList<>(batch.size());
+		for( R r : batch ) {
+			try {
+				responses.add(j4pClient.execute(r, type));
+			} catch(J4pRemoteException e) {
+				responses.add(null);
+			} catch(J4pException e) {
+				throw new IOException(e);
+			}
+		}
+		return responses;
+	}
+
+	@SuppressWarnings("unchecked")
+	private <R extends J4pRequest> List<J4pResponse<R>> fromPartialResults(J4pBulkRemoteException bre) {
+		List<?> results = bre.getResults();
+		List<J4pResponse<R>> responses = new ArrayList<>(results.size());
+		for( Object o : results ) {
+			responses.add(o instanceof J4pResponse ? (J4pResponse<R>)o : null);
+		}
+		return responses;
+	}
+
+	private void addMBeanInfos(String domain, JSONObject mbeans, Map<ObjectName, MBeanInfo> result) {
+		for( Object k : mbeans.keySet()) {
+			Object v = mbeans.get(k);
+			if( v instanceof JSONObject ) {
+				try {
+					ObjectName on = new ObjectName(domain + ":" + k);
+					result.put(on, utility.createMBeanInfoFromSingletonList((JSONObject)v));
+				} catch(MalformedObjectNameException | RuntimeException e) {
+					Activator.pluginLog().logWarning("Unable to read MBean " + domain + ":" + k + " from Jolokia list", e);
+				}
+			}
+		}
+	}
+
+	/*
+	 * The list of a domain is complete when every MBean in it
+	 * has been listed with its info, rather than cut off at the max depth
+	 */
+	private boolean isFullyListed(Object domain) {
+		if( !(domain instanceof JSONObject) || ((JSONObject)domain).isEmpty())
+			return false;
+		for( Object v : ((JSONObject)domain).values()) {
+			if( !isMBeanInfo(v))
+				return false;
+		}
+		return true;
+	}
+
+	private boolean isMBeanInfo(Object o) {
+		if( !(o instanceof JSONObject))
+			return false;
+		JSONObject info = (JSONObject)o;
+		return info.containsKey("class") || info.containsKey("desc") || info.containsKey("attr") || info.containsKey("op");
+	}
+
+	static String escapePathElement(String element) {
+		return element.replace("!", "!!").replace("/", "!/");
+	}
+}
@@ -21,6 +21,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -47,6 +48,7 @@ import javax.management.ObjectName;
 import javax.management.QueryExp;
 import javax.management.ReflectionException;
 
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.jboss.tools.jmx.jolokia.internal.Activator;
 import org.jolokia.client.J4pClient;
 import org.jolokia.client.exception.J4pException;
@@ -70,15 +72,38 @@ import org.json.simple.JSONObject;
  * the base case that our UI uses. 
  * 
  * This code could be improved. 
+ * 
+ * The MBean infos fetched are cached by object name, as they rarely change 
+ * while an MBean is registered. All of them can be loaded at once with 
+ * {@link #loadMBeans(IProgressMonitor)}, which replaces the cache. 
+ * Cached infos of MBeans no longer returned by a query are dropped. 
  */
 public class JolokiaMBeanServerConnection implements MBeanServerConnection {
 	private J4pClient j4pClient;
 	private String type; // GET or POST
 	private JolokiaJavaTypeConverter converter = new JolokiaJavaTypeConverter();
+	private JolokiaMBeanLoader loader;
+	private Map<ObjectName, MBeanInfo> mbeanInfos = new ConcurrentHashMap<>();
 	
 	public JolokiaMBeanServerConnection(J4pClient j4pClient, String type) {
 		this.j4pClient = j4pClient;
 		this.type = type;
+		this.loader = new JolokiaMBeanLoader(j4pClient, type);
+	}
+
+	/**
+	 * Load the names and infos of all MBeans of the agent in bulk,
+	 * and replace the cached MBean infos with them
+	 * 
+	 * @param monitor
+	 * @return the names of all MBeans
+	 * @throws IOException
+	 */
+	public Set<ObjectName> loadMBeans(IProgressMonitor monitor) throws IOException {
+		Map<ObjectName, MBeanInfo> loaded = loader.loadMBeanInfos(monitor);
+		mbeanInfos.keySet().retainAll(loaded.keySet());
+		mbeanInfos.putAll(loaded);
+		return new HashSet<>(loaded.keySet());
 	}
 
 	@Override
@@ -111,11 +136,19 @@ public class JolokiaMBeanServerConnection implements MBeanServerConnection {
 	@Override
 	public MBeanInfo getMBeanInfo(ObjectName name)
 			throws InstanceNotFoundException, IntrospectionException, ReflectionException, IOException {
+		MBeanInfo cached = mbeanInfos.get(name);
+		if( cached != null ) {
+			return cached;
+		}
 		try {
 			J4pListRequest request = new J4pListRequest(name);
 			J4pListResponse resp = j4pClient.execute(request, type);
 			JSONObject o = resp.getValue();
-			return new JolokiaMBeanUtility().createMBeanInfoFromSingletonList(o);
+			MBeanInfo info = new JolokiaMBeanUtility().createMBeanInfoFromSingletonList(o);
+			if( !name.isPattern()) {
+				mbeanInfos.put(name, info);
+			}
+			return info;
 		} catch (J4pException e) {
 			throw new IOException(e);
 		}
@@ -143,6 +176,8 @@ public class JolokiaMBeanServerConnection implements MBeanServerConnection {
 			J4pSearchResponse resp = j4pClient.execute(request, type, processingOptions);
 			HashSet<ObjectName> toFilter = new HashSet<>(resp.getObjectNames());
 			
+			// Forget the infos of MBeans which have been unregistered
+			mbeanInfos.keySet().removeIf(on -> name.apply(on) && !toFilter.contains(on));
 			return toFilter;
 		} catch (MalformedObjectNameException | J4pException e) {
 			throw new IOException(e);
@@ -351,6 +386,10 @@ public class JolokiaMBeanServerConnection implements MBeanServerConnection {
 	}
 
 	private String retrieveClassName(ObjectName objectName) {
+		MBeanInfo cached = mbeanInfos.get(objectName);
+		if( cached != null ) {
+			return cached.getClassName();
+		}
 		String escapedCanonicalPropertyList = objectName.getCanonicalKeyPropertyListString().replaceAll("/", "!/");
 		J4pListRequest listAttributes = new J4pListRequest(objectName.getDomain()+"/"+escapedCanonicalPropertyList+"/class");
 		try {
@@ -149,6 +149,8 @@ public class Agent {
                 DataTransferMXBean.DATA_TRANSFER_MXBEAN_NAME);
         ObjectName swtResourceMonitorObjectName = new ObjectName(
                 SWTResourceMonitorMXBean.SWT_RESOURCE_MONITOR_MXBEAN_NAME);
+        ObjectName stackSamplerObjectName = new ObjectName(
+                StackSamplerMXBean.STACK_SAMPLER_MXBEAN_NAME);
 
         if (!server.isRegistered(profilerObjectName)) {
             CpuBciProfilerMXBeanImpl profiler = new CpuBciProfilerMXBeanImpl(
@@ -163,6 +165,12 @@ public class Agent {
             agentLoaded = true;
         }
 
+        if (!server.isRegistered(stackSamplerObjectName)) {
+            StackSamplerMXBeanImpl stackSampler = new StackSamplerMXBeanImpl();
+            server.registerMBean(stackSampler, stackSamplerObjectName);
+            agentLoaded = true;
+        }
+
         if (!server.isRegistered(swtResourceMonitorObjectName)) {
             SWTResourceMonitorMXBeanImpl swtResourceMonitor = new SWTResourceMonitorMXBeanImpl(
                     inst);
@@ -45,6 +45,7 @@ public class ClassVisitorImpl extends ClassAdapter {
         // attach the parameter descriptor (e.g. (JI)V) to method name
         String qualifiedName = name + ((desc != null) ? desc : "");
 
-        return new MethodVisitorImpl(methodVisitor, className, qualifiedName);
+        return new MethodVisitorImpl(methodVisitor, qualifiedName,
+                MethodRegistry.register(className, qualifiedName));
     }
 }
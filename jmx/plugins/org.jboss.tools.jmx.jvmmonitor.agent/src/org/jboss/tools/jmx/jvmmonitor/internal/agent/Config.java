@@ -105,6 +105,7 @@ public class Config {
      */
     protected void setProfilerEnabled(boolean enabled) {
         this.profilerEnabled = enabled;
+        CpuBciProfiler.setEnabled(enabled);
     }
 
     /**
@@ -13,7 +13,7 @@ package org.jboss.tools.jmx.jvmmonitor.internal.agent;
 public class Constants {
 
     /** The version. */
-    static final String VERSION = "3.8.1";
+    static final String VERSION = "3.9.0";
 
     /** The logger name. */
     static final String LOGGER_NAME = "org.jboss.tools.jmx.jvmmonitor.agent";
@@ -66,11 +66,8 @@ public class Constants {
     /** The method name representing the class initialization method. */
     static final String METHOD_CLINIT = "<clinit>";
 
-    /** The descriptor for two strings. */
-    static final String DESC_STRING_STRING = "(Ljava/lang/String;Ljava/lang/String;)V";
-
-    /** The descriptor for three strings. */
-    static final String DESC_STRING_STRING_STRING = "(Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;)V";
+    /** The descriptor for a method id. */
+    static final String DESC_INT = "(I)V";
 
     /** The -javaagent option for JVM. */
     static final String JAVA_AGENT_OPTION = "-javaagent:";
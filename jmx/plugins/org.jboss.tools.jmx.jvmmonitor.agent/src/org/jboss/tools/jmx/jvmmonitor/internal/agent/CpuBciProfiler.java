@@ -6,65 +6,89 @@
  *******************************************************************************/
 package org.jboss.tools.jmx.jvmmonitor.internal.agent;
 
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * The CPU profiler.
+ * <p>
+ * The instrumented methods call this class on every invocation, so the
+ * methods here neither lock nor allocate once the thread and its frames are
+ * known. The methods are identified by the ids given by
+ * {@link MethodRegistry} when their class was transformed.
+ * <p>
+ * Reading the name of a thread allocates on Java 8, so renamed threads are
+ * found by a watcher thread while the profiler is enabled, rather than on
+ * every invocation.
  */
 public class CpuBciProfiler {
 
     /** The runtime model. */
     private static RuntimeModel model;
 
+    /** The state indicating if the profiler is enabled. */
+    private static volatile boolean enabled;
+
+    /** The period in milliseconds to check the names of profiled threads. */
+    private static final int NAME_CHECK_PERIOD = 1000;
+
+    /** The profiled thread of the current thread. */
+    private static final ThreadLocal<ProfiledThread> currentThread = new ThreadLocal<ProfiledThread>();
+
+    /** The profiled threads whose names are watched. */
+    private static final Set<ProfiledThread> profiledThreads = Collections
+            .newSetFromMap(new ConcurrentHashMap<ProfiledThread, Boolean>());
+
+    /** The thread watching the names of profiled threads, or <tt>null</tt>. */
+    private static Thread nameWatcher;
+
     /**
      * The method to be invoked when stepping into frame.
      * 
-     * @param className
-     *            The class name
-     * @param methodName
-     *            The method name
+     * @param methodId
+     *            The method id
      */
-    public static void stepInto(String className, String methodName) {
-        if (!Config.getInstance().isProfilerEnabled()) {
+    public static void stepInto(int methodId) {
+        if (!enabled) {
             return;
         }
 
-        long time = System.currentTimeMillis();
-        String thread = Thread.currentThread().getName();
+        long time = System.nanoTime();
 
         // get the current thread
-        ThreadNode threadNode = model.getThread(thread);
+        ThreadNode threadNode = getThreadNode(time);
 
         // update the current frame
         FrameNode frame;
         FrameNode previousFrame = threadNode.getCurrentFrame();
         if (previousFrame == null) {
-            frame = threadNode.getRootFrame(className, methodName);
+            frame = threadNode.getRootFrame(methodId);
         } else {
-            frame = previousFrame.getChild(className, methodName);
+            frame = previousFrame.getChild(methodId);
         }
         threadNode.setCurrentFrame(frame);
 
         // set the time
-        frame.setStepIntoTime(time, System.currentTimeMillis() - time);
+        frame.setStepIntoTime(time, System.nanoTime() - time);
     }
 
     /**
      * The method to be invoked when stepping out from frame.
      * 
-     * @param className
-     *            The class name
-     * @param methodName
-     *            The method name
+     * @param methodId
+     *            The method id
      */
-    public static void stepReturn(String className, String methodName) {
-        if (!Config.getInstance().isProfilerEnabled()) {
+    public static void stepReturn(int methodId) {
+        if (!enabled) {
             return;
         }
 
-        long time = System.currentTimeMillis();
-        String thread = Thread.currentThread().getName();
+        long time = System.nanoTime();
 
         // get the current thread
-        ThreadNode threadNode = model.getThread(thread);
+        ThreadNode threadNode = getThreadNode(time);
 
         // update the current frame
         FrameNode previousFrame = threadNode.getCurrentFrame();
@@ -74,55 +98,115 @@ public class CpuBciProfiler {
         threadNode.setCurrentFrame(previousFrame.getParent());
 
         // set the time stepping return from this frame
-        long overhead = System.currentTimeMillis() - time;
+        long overhead = System.nanoTime() - time;
         previousFrame.setStepReturnTime(time + overhead, overhead);
     }
 
     /**
      * The method to be executed when dropping to frame due to exception.
      * 
-     * @param className
-     *            The class name
-     * @param methodName
-     *            The method name
-     * @param exception
-     *            The exception
+     * @param methodId
+     *            The method id
      */
-    public static void dropToFrame(String className, String methodName,
-            String exception) {
-        if (!Config.getInstance().isProfilerEnabled()) {
+    public static void dropToFrame(int methodId) {
+        if (!enabled) {
             return;
         }
 
-        long time = System.currentTimeMillis();
-        String thread = Thread.currentThread().getName();
+        long time = System.nanoTime();
 
         // get the current thread
-        ThreadNode threadNode = model.getThread(thread);
+        ThreadNode threadNode = getThreadNode(time);
 
         // update the current frame
         FrameNode previousFrame = threadNode.getCurrentFrame();
         if (previousFrame == null) {
             return;
         }
-        FrameNode frame = previousFrame.searchFrame(className, methodName);
+        FrameNode frame = previousFrame.searchFrame(methodId);
         threadNode.setCurrentFrame(frame);
 
         // set the time dropping to this frame
-        long overhead = System.currentTimeMillis() - time;
-        if (frame.equals(previousFrame)) {
+        long overhead = System.nanoTime() - time;
+        if (frame == previousFrame) {
             // stay at frame
             previousFrame.incrementOverhead(overhead);
             return;
         }
 
         FrameNode iterator = previousFrame;
-        while (!frame.equals(iterator)) {
+        while (frame != iterator) {
             iterator.setStepReturnTime(time + overhead, overhead);
             iterator = iterator.getParent();
         }
     }
 
+    /**
+     * Gets the thread node of the current thread, looking it up in the model
+     * only the first time, after the model has been cleared or after the
+     * thread has been renamed.
+     * 
+     * @param time
+     *            The time in nanoseconds
+     * @return The thread node
+     */
+    private static ThreadNode getThreadNode(long time) {
+        ProfiledThread profiledThread = currentThread.get();
+        if (profiledThread == null || profiledThread.renamed
+                || profiledThread.node.getGeneration() != model.getGeneration()) {
+            profiledThread = startProfiledThread(profiledThread, time);
+        }
+        return profiledThread.node;
+    }
+
+    /**
+     * Looks up the thread node of the current thread with its current name.
+     * The frames still open under its previous name are closed.
+     * 
+     * @param previous
+     *            The previous profiled thread, or <tt>null</tt>
+     * @param time
+     *            The time in nanoseconds
+     * @return The profiled thread
+     */
+    private static ProfiledThread startProfiledThread(ProfiledThread previous,
+            long time) {
+        if (previous != null) {
+            profiledThreads.remove(previous);
+            if (previous.renamed) {
+                FrameNode frame = previous.node.getCurrentFrame();
+                while (frame != null) {
+                    frame.setStepReturnTime(time, 0);
+                    frame = frame.getParent();
+                }
+                previous.node.setCurrentFrame(null);
+            }
+        }
+        Thread thread = Thread.currentThread();
+        ProfiledThread profiledThread = new ProfiledThread(thread,
+                model.getThread(thread.getName()));
+        currentThread.set(profiledThread);
+        profiledThreads.add(profiledThread);
+        return profiledThread;
+    }
+
+    /**
+     * Marks the profiled threads which have been renamed, and forgets the
+     * threads which have died.
+     */
+    protected static void checkThreadNames() {
+        Iterator<ProfiledThread> iterator = profiledThreads.iterator();
+        while (iterator.hasNext()) {
+            ProfiledThread profiledThread = iterator.next();
+            if (!profiledThread.thread.isAlive()) {
+                iterator.remove();
+            } else if (!profiledThread.thread.getName().equals(
+                    profiledThread.node.getThreadName())) {
+                profiledThread.renamed = true;
+            }
+        }
+    }
+
     /**
      * Initialize the profiler.
      */
@@ -130,6 +214,47 @@ public class CpuBciProfiler {
         model = new RuntimeModel();
     }
 
+    /**
+     * Sets the profiler enabled state.
+     * 
+     * @param enable
+     *            <tt>true</tt> to enable profiler
+     */
+    protected static synchronized void setEnabled(boolean enable) {
+        enabled = enable;
+        if (enable && nameWatcher == null) {
+            nameWatcher = new Thread("JVM Monitor Thread Name Watcher") {
+                @Override
+                public void run() {
+                    watchThreadNames(this);
+                }
+            };
+            nameWatcher.setDaemon(true);
+            nameWatcher.start();
+        } else if (!enable && nameWatcher != null) {
+            nameWatcher.interrupt();
+            nameWatcher = null;
+        }
+    }
+
+    /**
+     * Checks the names of the profiled threads until the profiler is
+     * disabled.
+     * 
+     * @param watcher
+     *            The watcher thread
+     */
+    static void watchThreadNames(Thread watcher) {
+        while (!watcher.isInterrupted()) {
+            checkThreadNames();
+            try {
+                Thread.sleep(NAME_CHECK_PERIOD);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
     /**
      * Gets the runtime model.
      * 
@@ -138,4 +263,32 @@ public class CpuBciProfiler {
     protected static RuntimeModel getModel() {
         return model;
     }
+
+    /**
+     * A thread calling the profiler, along with its thread node.
+     */
+    private static final class ProfiledThread {
+
+        /** The thread. */
+        final Thread thread;
+
+        /** The thread node, found by the name of the thread. */
+        final ThreadNode node;
+
+        /** The state indicating if the thread has been renamed since. */
+        volatile boolean renamed;
+
+        /**
+         * The constructor.
+         * 
+         * @param thread
+         *            The thread
+         * @param node
+         *            The thread node
+         */
+        ProfiledThread(Thread thread, ThreadNode node) {
+            this.thread = thread;
+            this.node = node;
+        }
+    }
 }
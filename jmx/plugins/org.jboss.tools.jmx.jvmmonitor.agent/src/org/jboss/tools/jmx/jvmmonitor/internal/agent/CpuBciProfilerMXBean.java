@@ -67,6 +67,14 @@ public interface CpuBciProfilerMXBean {
      */
     String dump();
 
+    /**
+     * Dumps the profile data in the binary snapshot format described in
+     * {@link CpuSnapshotWriter}.
+     * 
+     * @return The profile data
+     */
+    byte[] dumpSnapshot();
+
     /**
      * Gets the directory where dump file is created.
      * 
@@ -146,6 +146,19 @@ public class CpuBciProfilerMXBeanImpl implements CpuBciProfilerMXBean {
         }
     }
 
+    /*
+     * @see CpuBciProfilerMXBean#dumpSnapshot()
+     */
+    @Override
+    public byte[] dumpSnapshot() {
+        try {
+            return CpuBciProfiler.getModel().dumpSnapshot();
+        } catch (Throwable t) {
+            Agent.logError(t, Messages.CANNOT_GET_DUMP);
+            return new byte[0];
+        }
+    }
+
     /*
      * @see ProfilerMXBean#dumpToFile()
      */
@@ -0,0 +1,204 @@
+/*******************************************************************************
+ * Copyright (c) 2010 JVM Monitor project. All rights reserved.
+ *
+ * This code is distributed under the terms of the Eclipse Public License v1.0
+ * which is available at http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.jboss.tools.jmx.jvmmonitor.internal.agent;
+
+import java.io.ByteArrayOutputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The writer of the CPU profile in the binary snapshot format, in which the
+ * method names are written once into a string table and the frame tree refers
+ * to them by id. Numbers are unsigned variable-length integers:
+ *
+ * <pre>
+ * 'J' 'V' 'M' 'C' version
+ * date runtime mainClass arguments comments
+ * stringCount string * stringCount
+ * threadCount (threadNameId rootFrameCount frame * rootFrameCount) * threadCount
+ * </pre>
+ *
+ * where a string is its UTF-8 length followed by its UTF-8 bytes, a header
+ * string is its UTF-8 length plus one followed by its UTF-8 bytes or 0 for
+ * none, and a frame is written in pre-order as
+ * <tt>methodNameId count time childFrameCount</tt> with the time in
+ * milliseconds. The XML format is still written by the dump to file.
+ */
+@SuppressWarnings("nls")
+public class CpuSnapshotWriter {
+
+    /** The magic bytes at the start of a snapshot. */
+    static final byte[] MAGIC = new byte[] { 'J', 'V', 'M', 'C' };
+
+    /** The version of the format. */
+    static final int VERSION = 1;
+
+    /** The string table. */
+    private ByteArrayOutputStream strings;
+
+    /** The frame tree. */
+    private ByteArrayOutputStream tree;
+
+    /** The string ids by string. */
+    private Map<String, Integer> stringIds;
+
+    /** The string ids by method id. */
+    private Map<Integer, Integer> methodStringIds;
+
+    /** The number of threads written. */
+    private int threadCount;
+
+    /**
+     * The constructor.
+     */
+    protected CpuSnapshotWriter() {
+        strings = new ByteArrayOutputStream();
+        tree = new ByteArrayOutputStream();
+        stringIds = new HashMap<String, Integer>();
+        methodStringIds = new HashMap<Integer, Integer>();
+    }
+
+    /**
+     * Writes the thread, which has to be followed by its root frames.
+     *
+     * @param threadName
+     *            The thread name
+     * @param rootFrameCount
+     *            The number of root frames
+     */
+    protected void writeThread(String threadName, int rootFrameCount) {
+        write(tree, getStringId(threadName));
+        write(tree, rootFrameCount);
+        threadCount++;
+    }
+
+    /**
+     * Writes the frame, which has to be followed by its child frames.
+     *
+     * @param methodId
+     *            The method id
+     * @param count
+     *            The invocation count
+     * @param time
+     *            The total time in milliseconds
+     * @param childFrameCount
+     *            The number of child frames
+     */
+    protected void writeFrame(int methodId, int count, long time,
+            int childFrameCount) {
+        Integer stringId = methodStringIds.get(methodId);
+        if (stringId == null) {
+            stringId = getStringId(FrameNode.getFrameName(methodId));
+            methodStringIds.put(methodId, stringId);
+        }
+        write(tree, stringId);
+        write(tree, count);
+        write(tree, time);
+        write(tree, childFrameCount);
+    }
+
+    /**
+     * Gets the snapshot.
+     *
+     * @param date
+     *            The date
+     * @param runtime
+     *            The runtime
+     * @param mainClass
+     *            The main class
+     * @param arguments
+     *            The JVM arguments
+     * @return The snapshot
+     */
+    protected byte[] toByteArray(String date, String runtime,
+            String mainClass, String arguments) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64
+                + strings.size() + tree.size());
+        out.write(MAGIC, 0, MAGIC.length);
+        write(out, VERSION);
+        writeHeader(out, date);
+        writeHeader(out, runtime);
+        writeHeader(out, mainClass);
+        writeHeader(out, arguments);
+        writeHeader(out, null);
+        write(out, stringIds.size());
+        out.write(strings.toByteArray(), 0, strings.size());
+        write(out, threadCount);
+        out.write(tree.toByteArray(), 0, tree.size());
+        return out.toByteArray();
+    }
+
+    /**
+     * Gets the id of the given string, adding it to the string table if not
+     * yet present.
+     *
+     * @param string
+     *            The string
+     * @return The string id
+     */
+    private int getStringId(String string) {
+        Integer id = stringIds.get(string);
+        if (id == null) {
+            id = stringIds.size();
+            stringIds.put(string, id);
+            byte[] bytes = toBytes(string);
+            write(strings, bytes.length);
+            strings.write(bytes, 0, bytes.length);
+        }
+        return id;
+    }
+
+    /**
+     * Writes the header string.
+     *
+     * @param out
+     *            The output stream
+     * @param string
+     *            The string, or <tt>null</tt>
+     */
+    private static void writeHeader(ByteArrayOutputStream out, String string) {
+        if (string == null) {
+            write(out, 0);
+            return;
+        }
+        byte[] bytes = toBytes(string);
+        write(out, bytes.length + 1);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Gets the UTF-8 bytes of the given string.
+     *
+     * @param string
+     *            The string
+     * @return The UTF-8 bytes
+     */
+    private static byte[] toBytes(String string) {
+        try {
+            return string.getBytes("UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Writes the given non-negative number as a variable-length integer.
+     *
+     * @param out
+     *            The output stream
+     * @param value
+     *            The number
+     */
+    private static void write(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+}
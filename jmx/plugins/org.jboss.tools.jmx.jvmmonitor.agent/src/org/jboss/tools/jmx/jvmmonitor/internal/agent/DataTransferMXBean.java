@@ -25,6 +25,51 @@ public interface DataTransferMXBean {
      */
     byte[] read(String fileName, int pos, int maxSize);
 
+    /**
+     * Opens the file on host where target JVM is running, and keeps it open
+     * to read it with {@link #readChunk(String, long, int, boolean)} until
+     * {@link #closeSession(String)} is invoked.
+     * 
+     * @param fileName
+     *            The file name
+     * @return The session id, or <tt>null</tt> if the file cannot be read
+     */
+    String openSession(String fileName);
+
+    /**
+     * Gets the size of the file opened by the session.
+     * 
+     * @param sessionId
+     *            The session id
+     * @return The file size in bytes, or -1 if there is no such session
+     */
+    long getSessionFileSize(String sessionId);
+
+    /**
+     * Reads the data from the file opened by the session. Chunks may be read
+     * concurrently and in any order.
+     * 
+     * @param sessionId
+     *            The session id
+     * @param pos
+     *            The offset position of data in bytes to start reading data
+     * @param maxSize
+     *            The max size in bytes to read data
+     * @param deflate
+     *            <tt>true</tt> to compress the data with {@link java.util.zip.Deflater}
+     * @return The file data, or the compressed file data if
+     *         <tt>deflate</tt> is <tt>true</tt>
+     */
+    byte[] readChunk(String sessionId, long pos, int maxSize, boolean deflate);
+
+    /**
+     * Closes the session and the file opened by it.
+     * 
+     * @param sessionId
+     *            The session id
+     */
+    void closeSession(String sessionId);
+
     /**
      * Gets the version.
      * 
@@ -1,9 +1,18 @@
 package org.jboss.tools.jmx.jvmmonitor.internal.agent;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.Deflater;
 
 /**
  * The MXBean to transfer data.
@@ -11,6 +20,23 @@ import java.util.Arrays;
 @SuppressWarnings("nls")
 public class DataTransferMXBeanImpl implements DataTransferMXBean {
 
+    /** The max size in bytes of a chunk read by a session. */
+    private static final int MAX_CHUNK_SIZE = 16 * 1024 * 1024;
+
+    /** The time in milliseconds after which an unused session is closed. */
+    private static final long SESSION_TIMEOUT = 5 * 60 * 1000;
+
+    /** The open sessions. */
+    private Map<String, Session> sessions = new ConcurrentHashMap<String, Session>();
+
+    /** The deflater of each thread reading a chunk. */
+    private static final ThreadLocal<Deflater> deflaters = new ThreadLocal<Deflater>() {
+        @Override
+        protected Deflater initialValue() {
+            return new Deflater(Deflater.BEST_SPEED);
+        }
+    };
+
     /*
      * @see DataTransferMXBean#read(String, int, int)
      */
@@ -50,6 +76,83 @@ public class DataTransferMXBeanImpl implements DataTransferMXBean {
         return results;
     }
 
+    /*
+     * @see DataTransferMXBean#openSession(String)
+     */
+    @Override
+    public String openSession(String fileName) {
+        closeExpiredSessions();
+
+        File file = new File(fileName);
+        if (!file.exists() || !file.isFile() || !file.canRead()) {
+            Agent.logError(new Exception(), Messages.CANNOT_READ_FILE, fileName);
+            return null;
+        }
+
+        try {
+            FileChannel channel = new FileInputStream(file).getChannel();
+            String sessionId = UUID.randomUUID().toString();
+            sessions.put(sessionId, new Session(channel, channel.size()));
+            return sessionId;
+        } catch (IOException e) {
+            Agent.logError(e, Messages.CANNOT_READ_FILE, fileName);
+            return null;
+        }
+    }
+
+    /*
+     * @see DataTransferMXBean#getSessionFileSize(String)
+     */
+    @Override
+    public long getSessionFileSize(String sessionId) {
+        Session session = sessions.get(sessionId);
+        return session == null ? -1 : session.size;
+    }
+
+    /*
+     * @see DataTransferMXBean#readChunk(String, long, int, boolean)
+     */
+    @Override
+    public byte[] readChunk(String sessionId, long pos, int maxSize,
+            boolean deflate) {
+        Session session = sessions.get(sessionId);
+        if (session == null) {
+            throw new IllegalStateException(String.format(
+                    Messages.SESSION_NOT_FOUND, sessionId));
+        }
+        session.lastAccess = System.currentTimeMillis();
+
+        int size = (int) Math.min(Math.min(maxSize, MAX_CHUNK_SIZE),
+                Math.max(0, session.size - pos));
+        byte[] bytes = new byte[size];
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                // positional reads, so that chunks can be read concurrently
+                if (session.channel.read(buffer, pos + buffer.position()) == -1) {
+                    bytes = Arrays.copyOf(bytes, buffer.position());
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            Agent.logError(e, Messages.CANNOT_READ_FILE, sessionId);
+            throw new IllegalStateException(e.getMessage());
+        }
+
+        return deflate ? deflate(bytes) : bytes;
+    }
+
+    /*
+     * @see DataTransferMXBean#closeSession(String)
+     */
+    @Override
+    public void closeSession(String sessionId) {
+        Session session = sessions.remove(sessionId);
+        if (session != null) {
+            session.close();
+        }
+    }
+
     /*
      * @see DataTransferMXBean#getVersion()
      */
@@ -57,4 +160,83 @@ public class DataTransferMXBeanImpl implements DataTransferMXBean {
     public String getVersion() {
         return Constants.VERSION;
     }
+
+    /**
+     * Closes the sessions which have not been used for a while, in case the
+     * client went away without closing them.
+     */
+    private void closeExpiredSessions() {
+        long now = System.currentTimeMillis();
+        Iterator<Session> iterator = sessions.values().iterator();
+        while (iterator.hasNext()) {
+            Session session = iterator.next();
+            if (now - session.lastAccess > SESSION_TIMEOUT) {
+                iterator.remove();
+                session.close();
+            }
+        }
+    }
+
+    /**
+     * Compresses the given data.
+     * 
+     * @param bytes
+     *            The data
+     * @return The compressed data
+     */
+    private static byte[] deflate(byte[] bytes) {
+        Deflater deflater = deflaters.get();
+        deflater.reset();
+        deflater.setInput(bytes);
+        deflater.finish();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(
+                bytes.length / 2 + 64);
+        byte[] buffer = new byte[64 * 1024];
+        while (!deflater.finished()) {
+            int length = deflater.deflate(buffer);
+            out.write(buffer, 0, length);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * The file opened for a client.
+     */
+    private static class Session {
+
+        /** The file channel. */
+        final FileChannel channel;
+
+        /** The file size. */
+        final long size;
+
+        /** The last time the session was used. */
+        volatile long lastAccess;
+
+        /**
+         * The constructor.
+         * 
+         * @param channel
+         *            The file channel
+         * @param size
+         *            The file size
+         */
+        Session(FileChannel channel, long size) {
+            this.channel = channel;
+            this.size = size;
+            lastAccess = System.currentTimeMillis();
+        }
+
+        /**
+         * Closes the file channel.
+         */
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // do nothing
+            }
+        }
+    }
 }
@@ -7,8 +7,7 @@
 package org.jboss.tools.jmx.jvmmonitor.internal.agent;
 
 import java.io.PrintWriter;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.List;
 
 import org.jboss.tools.jmx.jvmmonitor.internal.agent.asm.Type;
 
@@ -18,25 +17,22 @@ import org.jboss.tools.jmx.jvmmonitor.internal.agent.asm.Type;
 @SuppressWarnings("nls")
 public class FrameNode {
 
-    /** The class name. */
-    private String className;
-
-    /** The method name. */
-    private String methodName;
+    /** The method id. */
+    private final int methodId;
 
     /** The child frame nodes. */
-    private Map<String, FrameNode> childFrames;
+    private final FrameNodeMap childFrames;
 
     /** The parent frame node. */
-    private FrameNode parentFrame;
+    private final FrameNode parentFrame;
 
-    /** The time stepped into this frame. */
+    /** The time stepped into this frame in nanoseconds. */
     private long stepIntoTime;
 
-    /** The total invocation time. */
+    /** The total invocation time in nanoseconds. */
     private long totalTime;
 
-    /** The overhead time. */
+    /** The overhead time in nanoseconds. */
     private long overheadTime;
 
     /** The invocation count. */
@@ -47,16 +43,13 @@ public class FrameNode {
      * 
      * @param parent
      *            The parent frame node
-     * @param clazz
-     *            The class name
-     * @param method
-     *            The method name
+     * @param methodId
+     *            The method id
      */
-    protected FrameNode(FrameNode parent, String clazz, String method) {
+    protected FrameNode(FrameNode parent, int methodId) {
         parentFrame = parent;
-        className = clazz;
-        methodName = method;
-        childFrames = new ConcurrentHashMap<String, FrameNode>();
+        this.methodId = methodId;
+        childFrames = new FrameNodeMap();
         stepIntoTime = 0;
         totalTime = 0;
         overheadTime = 0;
@@ -64,19 +57,26 @@ public class FrameNode {
     }
 
     /**
-     * Gets the child frame for the given class name and method name.
+     * Gets the method id.
+     * 
+     * @return The method id
+     */
+    protected int getMethodId() {
+        return methodId;
+    }
+
+    /**
+     * Gets the child frame for the given method.
      * 
-     * @param clazz
-     *            The class name
      * @param method
-     *            The method name
+     *            The method id
      * @return The child frame
      */
-    protected FrameNode getChild(String clazz, String method) {
-        FrameNode frame = childFrames.get(clazz + '.' + method);
+    protected FrameNode getChild(int method) {
+        FrameNode frame = childFrames.get(method);
         if (frame == null) {
-            frame = new FrameNode(this, clazz, method);
-            childFrames.put(clazz + '.' + method, frame);
+            frame = new FrameNode(this, method);
+            childFrames.put(frame);
         }
         return frame;
     }
@@ -131,15 +131,13 @@ public class FrameNode {
     /**
      * Searches the frame.
      * 
-     * @param clazz
-     *            The class name
      * @param method
-     *            The method name
+     *            The method id
      * @return The frame
      */
-    protected FrameNode searchFrame(String clazz, String method) {
+    protected FrameNode searchFrame(int method) {
 
-        if (className.equals(clazz) && methodName.equals(method)) {
+        if (methodId == method) {
             return this;
         }
 
@@ -147,7 +145,7 @@ public class FrameNode {
             return this;
         }
 
-        return parentFrame.searchFrame(clazz, method);
+        return parentFrame.searchFrame(method);
     }
 
     /**
@@ -156,22 +154,19 @@ public class FrameNode {
      * @param writer
      *            The writer
      * @param time
-     *            The time
+     *            The time in nanoseconds
      * @param nest
      *            The nest
      */
     protected void dump(PrintWriter writer, long time, int nest) {
-        String name = getFrameName();
-        long actualTotalTime = totalTime - overheadTime;
-        if (stepIntoTime != 0) {
-            actualTotalTime += time - stepIntoTime;
-        }
+        String name = escape(getFrameName(methodId));
+        long actualTotalTime = getActualTotalTime(time);
 
         for (int i = 0; i < nest; i++) {
             writer.print("\t");
         }
         writer.printf("<frame name=\"%s\" cnt=\"%d\" time=\"%d\"", name, count,
-                Math.max(actualTotalTime, 0));
+                actualTotalTime);
         if (childFrames.size() > 0) {
             writer.println(">");
             for (FrameNode frameNode : childFrames.values()) {
@@ -192,23 +187,20 @@ public class FrameNode {
      * @param buffer
      *            The string buffer
      * @param time
-     *            The time
+     *            The time in nanoseconds
      * @param nest
      *            The nest count
      */
     protected void dump(StringBuffer buffer, long time, int nest) {
-        String name = getFrameName();
-        long actualTotalTime = totalTime - overheadTime;
-        if (stepIntoTime != 0) {
-            actualTotalTime += time - stepIntoTime;
-        }
+        String name = escape(getFrameName(methodId));
+        long actualTotalTime = getActualTotalTime(time);
 
         for (int i = 0; i < nest; i++) {
             buffer.append('\t');
         }
         buffer.append("<frame name=\"").append(name).append("\" cnt=\"")
                 .append(count).append("\" time=\"")
-                .append(Math.max(actualTotalTime, 0)).append("\"");
+                .append(actualTotalTime).append("\"");
         if (childFrames.size() > 0) {
             buffer.append(">\n");
             for (FrameNode frameNode : childFrames.values()) {
@@ -223,12 +215,59 @@ public class FrameNode {
         }
     }
 
+    /**
+     * Writes the profile data into the binary snapshot.
+     * 
+     * @param writer
+     *            The snapshot writer
+     * @param time
+     *            The time in nanoseconds
+     */
+    protected void dump(CpuSnapshotWriter writer, long time) {
+        List<FrameNode> frameNodes = childFrames.values();
+        writer.writeFrame(methodId, count, getActualTotalTime(time),
+                frameNodes.size());
+        for (FrameNode frameNode : frameNodes) {
+            frameNode.dump(writer, time);
+        }
+    }
+
+    /**
+     * Gets the total time excluding the overhead.
+     * 
+     * @param time
+     *            The time in nanoseconds
+     * @return The total time in milliseconds
+     */
+    private long getActualTotalTime(long time) {
+        long actualTotalTime = totalTime - overheadTime;
+        if (stepIntoTime != 0) {
+            actualTotalTime += time - stepIntoTime;
+        }
+        return Math.max(actualTotalTime, 0) / 1000000;
+    }
+
+    /**
+     * Escapes the given frame name for XML.
+     * 
+     * @param name
+     *            The frame name
+     * @return The escaped frame name
+     */
+    private static String escape(String name) {
+        return name.replaceAll("<", "&lt;").replaceAll(">", "&gt;");
+    }
+
     /**
      * Gets the frame name.
      * 
+     * @param methodId
+     *            The method id
      * @return The frame name
      */
-    private String getFrameName() {
+    protected static String getFrameName(int methodId) {
+        String className = MethodRegistry.getClassName(methodId);
+        String methodName = MethodRegistry.getMethodName(methodId);
 
         // replace '/' with '.'
         String clazz = className.replace('/', '.');
@@ -246,11 +285,6 @@ public class FrameNode {
                     .getClassName());
         }
         builder.append(')');
-        String method = builder.toString();
-
-        // convert into escaped characters
-        method = method.replaceAll("<", "&lt;").replaceAll(">", "&gt;");
-
-        return clazz + '.' + method;
+        return clazz + '.' + builder.toString();
     }
 }
@@ -0,0 +1,121 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ *******************************************************************************/
+package org.jboss.tools.jmx.jvmmonitor.internal.agent;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The frame nodes keyed by method id, in an open addressing table.
+ * <p>
+ * Nodes are added only by the profiled thread owning the frame tree, while
+ * the dump may iterate the nodes from another thread at the same time.
+ */
+public class FrameNodeMap {
+
+    /** The initial capacity, which must be a power of two. */
+    private static final int INITIAL_CAPACITY = 4;
+
+    /** The table. */
+    private volatile FrameNode[] table;
+
+    /** The number of nodes. */
+    private int size;
+
+    /**
+     * The constructor.
+     */
+    protected FrameNodeMap() {
+        table = new FrameNode[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Gets the frame node of the given method.
+     *
+     * @param methodId
+     *            The method id
+     * @return The frame node, or <tt>null</tt> if not found
+     */
+    protected FrameNode get(int methodId) {
+        FrameNode[] nodes = table;
+        int mask = nodes.length - 1;
+        for (int i = methodId & mask;; i = (i + 1) & mask) {
+            FrameNode node = nodes[i];
+            if (node == null || node.getMethodId() == methodId) {
+                return node;
+            }
+        }
+    }
+
+    /**
+     * Adds the frame node, which must not be in this map yet.
+     *
+     * @param node
+     *            The frame node
+     */
+    protected void put(FrameNode node) {
+        FrameNode[] nodes = table;
+        if ((size + 1) * 4 > nodes.length * 3) {
+            nodes = new FrameNode[table.length * 2];
+            for (FrameNode n : table) {
+                if (n != null) {
+                    insert(nodes, n);
+                }
+            }
+            insert(nodes, node);
+            table = nodes;
+        } else {
+            insert(nodes, node);
+        }
+        size++;
+    }
+
+    /**
+     * Gets the number of frame nodes.
+     *
+     * @return The number of frame nodes
+     */
+    protected int size() {
+        return size;
+    }
+
+    /**
+     * Gets the frame nodes.
+     *
+     * @return The frame nodes
+     */
+    protected List<FrameNode> values() {
+        List<FrameNode> values = new ArrayList<FrameNode>();
+        for (FrameNode node : table) {
+            if (node != null) {
+                values.add(node);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Inserts the frame node into the given table.
+     *
+     * @param nodes
+     *            The table
+     * @param node
+     *            The frame node
+     */
+    private static void insert(FrameNode[] nodes, FrameNode node) {
+        int mask = nodes.length - 1;
+        int i = node.getMethodId() & mask;
+        while (nodes[i] != null) {
+            i = (i + 1) & mask;
+        }
+        nodes[i] = node;
+    }
+}
@@ -49,6 +49,12 @@ public class Messages {
     /** The error message that reading file failed. */
     static final String CANNOT_READ_FILE = "Cannot read file: %s";
 
+    /** The error message that the data transfer session is not found. */
+    static final String SESSION_NOT_FOUND = "Data transfer session not found: %s";
+
+    /** The error message that sampling stacks failed. */
+    static final String CANNOT_SAMPLE_STACKS = "Cannot sample the stacks of threads.";
+
     /** The error message that setting SWT resource tracking state failed. */
     static final String CANNOT_SET_RESOURCE_TRACKING_STATE = "Cannot set SWT resource tracking state.";
 
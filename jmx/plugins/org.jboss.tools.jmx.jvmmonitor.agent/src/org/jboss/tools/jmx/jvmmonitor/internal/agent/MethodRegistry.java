@@ -0,0 +1,94 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ *******************************************************************************/
+package org.jboss.tools.jmx.jvmmonitor.internal.agent;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The registry of instrumented methods. Each method is given an integer id
+ * when its class is transformed, which is then passed to the profiler instead
+ * of the class and method names.
+ */
+public class MethodRegistry {
+
+    /** The ids by qualified method name. */
+    private static Map<String, Integer> ids = new HashMap<String, Integer>();
+
+    /** The class names by id. */
+    private static String[] classNames = new String[1024];
+
+    /** The method names by id. */
+    private static String[] methodNames = new String[1024];
+
+    /** The number of registered methods. */
+    private static int size;
+
+    /**
+     * The constructor.
+     */
+    private MethodRegistry() {
+        // not to be instantiated
+    }
+
+    /**
+     * Gets the id of the given method, registering it if not yet registered.
+     *
+     * @param className
+     *            The class name
+     * @param methodName
+     *            The method name with its parameter descriptor
+     * @return The method id
+     */
+    protected static synchronized int register(String className,
+            String methodName) {
+        String key = className + '.' + methodName;
+        Integer id = ids.get(key);
+        if (id != null) {
+            return id.intValue();
+        }
+
+        if (size == classNames.length) {
+            String[] newClassNames = new String[size * 2];
+            String[] newMethodNames = new String[size * 2];
+            System.arraycopy(classNames, 0, newClassNames, 0, size);
+            System.arraycopy(methodNames, 0, newMethodNames, 0, size);
+            classNames = newClassNames;
+            methodNames = newMethodNames;
+        }
+        classNames[size] = className;
+        methodNames[size] = methodName;
+        ids.put(key, Integer.valueOf(size));
+        return size++;
+    }
+
+    /**
+     * Gets the class name of the given method.
+     *
+     * @param id
+     *            The method id
+     * @return The class name
+     */
+    protected static synchronized String getClassName(int id) {
+        return classNames[id];
+    }
+
+    /**
+     * Gets the method name of the given method.
+     *
+     * @param id
+     *            The method id
+     * @return The method name with its parameter descriptor
+     */
+    protected static synchronized String getMethodName(int id) {
+        return methodNames[id];
+    }
+}
@@ -16,11 +16,8 @@ import org.jboss.tools.jmx.jvmmonitor.internal.agent.asm.Opcodes;
  */
 public class MethodVisitorImpl extends MethodAdapter {
 
-    /** The class name */
-    private String className;
-
-    /** The method name */
-    private String methodName;
+    /** The method id */
+    private int methodId;
 
     /** The state indicating if this is the class initialization method. */
     private boolean isClinit;
@@ -30,16 +27,15 @@ public class MethodVisitorImpl extends MethodAdapter {
      * 
      * @param methodVisitor
      *            The method visitor
-     * @param className
-     *            The class name
      * @param methodName
      *            The method name
+     * @param methodId
+     *            The method id given by {@link MethodRegistry}
      */
-    public MethodVisitorImpl(MethodVisitor methodVisitor, String className,
-            String methodName) {
+    public MethodVisitorImpl(MethodVisitor methodVisitor, String methodName,
+            int methodId) {
         super(methodVisitor);
-        this.className = className;
-        this.methodName = methodName;
+        this.methodId = methodId;
         isClinit = methodName.startsWith(Constants.METHOD_CLINIT);
     }
 
@@ -48,8 +44,7 @@ public class MethodVisitorImpl extends MethodAdapter {
      */
     @Override
     public void visitCode() {
-        instrumentMethodInvocation(Constants.METHOD_STEP_INTO, className,
-                methodName);
+        instrumentMethodInvocation(Constants.METHOD_STEP_INTO);
 
         super.visitCode();
     }
@@ -63,8 +58,7 @@ public class MethodVisitorImpl extends MethodAdapter {
         // the JVM opcode to return method
         if ((Opcodes.IRETURN <= opcode && opcode <= Opcodes.RETURN)
                 || Opcodes.ATHROW == opcode) {
-            instrumentMethodInvocation(Constants.METHOD_STEP_RETURN, className,
-                    methodName);
+            instrumentMethodInvocation(Constants.METHOD_STEP_RETURN);
         }
 
         super.visitInsn(opcode);
@@ -90,39 +84,23 @@ public class MethodVisitorImpl extends MethodAdapter {
         super.visitLabel(label);
 
         if (label.info != null) {
-            instrumentMethodInvocation(Constants.METHOD_DROP_TO_FRAME,
-                    className, methodName, (String) label.info);
+            instrumentMethodInvocation(Constants.METHOD_DROP_TO_FRAME);
         }
     }
 
     /**
-     * Instruments the method invocation.
+     * Instruments the method invocation passing the method id.
      * 
      * @param name
      *            The method name
-     * @param args
-     *            The method arguments
      */
-    private void instrumentMethodInvocation(String name, String... args) {
+    private void instrumentMethodInvocation(String name) {
         if (isClinit) {
             return;
         }
 
-        // get descriptor
-        String desc = null;
-        if (args.length == 2) {
-            desc = Constants.DESC_STRING_STRING;
-        } else if (args.length == 3) {
-            desc = Constants.DESC_STRING_STRING_STRING;
-        } else {
-            return;
-        }
-
-        // instrument
-        for (String arg : args) {
-            visitLdcInsn(arg);
-        }
+        visitLdcInsn(Integer.valueOf(methodId));
         super.visitMethodInsn(Opcodes.INVOKESTATIC,
-                Constants.CLASS_CPU_PROFILER, name, desc);
+                Constants.CLASS_CPU_PROFILER, name, Constants.DESC_INT);
     }
 }
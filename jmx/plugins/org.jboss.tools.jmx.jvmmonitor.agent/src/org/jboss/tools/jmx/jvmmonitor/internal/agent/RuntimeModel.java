@@ -18,7 +18,6 @@ import java.lang.management.ThreadMXBean;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.List;
-import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -29,7 +28,10 @@ import java.util.concurrent.ConcurrentHashMap;
 public class RuntimeModel implements Runnable {
 
     /** The thread nodes */
-    private Map<String, ThreadNode> threadNodes;
+    private ConcurrentHashMap<String, ThreadNode> threadNodes;
+
+    /** The generation, incremented each time the model is cleared */
+    private volatile int generation;
 
     /**
      * The constructor.
@@ -62,16 +64,29 @@ public class RuntimeModel implements Runnable {
     protected ThreadNode getThread(String thread) {
         ThreadNode threadNode = threadNodes.get(thread);
         if (threadNode == null) {
-            threadNode = new ThreadNode(thread);
-            threadNodes.put(thread, threadNode);
+            threadNode = new ThreadNode(thread, generation);
+            ThreadNode existing = threadNodes.putIfAbsent(thread, threadNode);
+            if (existing != null) {
+                threadNode = existing;
+            }
         }
         return threadNode;
     }
 
+    /**
+     * Gets the generation of the model.
+     * 
+     * @return The generation
+     */
+    protected int getGeneration() {
+        return generation;
+    }
+
     /**
      * Clears the model.
      */
     protected void clear() {
+        generation++;
         threadNodes.clear();
     }
 
@@ -92,6 +107,27 @@ public class RuntimeModel implements Runnable {
         return callable.call();
     }
 
+    /**
+     * Dumps the profile data in the binary snapshot format.
+     * 
+     * @return The snapshot
+     */
+    protected byte[] dumpSnapshot() {
+        Date currentDate = new Date();
+        String date = new SimpleDateFormat(Constants.DATE_FORMAT)
+                .format(currentDate);
+        String time = new SimpleDateFormat(Constants.TIME_FORMAT)
+                .format(currentDate);
+
+        CpuSnapshotWriter writer = new CpuSnapshotWriter();
+        long currentTime = System.nanoTime();
+        for (ThreadNode threadNode : threadNodes.values()) {
+            threadNode.dump(writer, currentTime);
+        }
+        return writer.toByteArray(date + ' ' + time, getRuntime(),
+                getMainClass(), getJvmArguments());
+    }
+
     /**
      * Dumps the profile data with <tt>Runnable</tt>.
      */
@@ -131,7 +167,7 @@ public class RuntimeModel implements Runnable {
         buffer.append("mainClass=\"").append(getMainClass()).append("\" ");
         buffer.append("arguments=\"").append(getJvmArguments()).append("\">\n");
 
-        long currentTime = System.currentTimeMillis();
+        long currentTime = System.nanoTime();
         for (ThreadNode threadNode : threadNodes.values()) {
             threadNode.dump(buffer, currentTime);
         }
@@ -167,7 +203,7 @@ public class RuntimeModel implements Runnable {
             writer.printf("mainClass=\"%s\" ", getMainClass());
             writer.printf("arguments=\"%s\">\n", getJvmArguments());
             writer.println("");
-            long currentTime = System.currentTimeMillis();
+            long currentTime = System.nanoTime();
             for (ThreadNode threadNode : threadNodes.values()) {
                 threadNode.dump(writer, currentTime);
             }
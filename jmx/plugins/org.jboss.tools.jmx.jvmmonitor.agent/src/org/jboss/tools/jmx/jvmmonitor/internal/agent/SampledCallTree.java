@@ -0,0 +1,360 @@
+/*******************************************************************************
+ * Copyright (c) 2010 JVM Monitor project. All rights reserved.
+ *
+ * This code is distributed under the terms of the Eclipse Public License v1.0
+ * which is available at http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.jboss.tools.jmx.jvmmonitor.internal.agent;
+
+import java.io.ByteArrayOutputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The call tree aggregated from the stack samples of the threads.
+ * <p>
+ * The threads and the methods are interned into string ids, and the frames
+ * into the ids of their methods, so that sampling a known stack creates no
+ * objects. The nodes changed since the last export are tracked, so that only
+ * they are exported, encoded as unsigned variable-length integers as follows:
+ *
+ * <pre>
+ * version
+ * firstStringId stringCount firstNodeId nodeCount
+ * (utf8Length utf8Bytes) * stringCount
+ * (parentNodeId + 1, stringId) * nodeCount
+ * changedNodeCount
+ * (nodeId - previousNodeId, time, selfTime, invocationCount) * changedNodeCount
+ * </pre>
+ *
+ * The strings and the nodes are the ones created since the last export. The
+ * nodes without parent are the threads, whose strings are the thread names.
+ * The strings of the other nodes are the method names, e.g.
+ * <tt>java.lang.Thread.run()</tt>. The changed nodes are in ascending order of
+ * id, and their times in milliseconds and invocation counts are the ones added
+ * since the last export.
+ */
+@SuppressWarnings("nls")
+public class SampledCallTree {
+
+    /** The version of the encoding. */
+    static final int VERSION = 1;
+
+    /** The comparator of nodes by id. */
+    private static final Comparator<Node> BY_ID = new Comparator<Node>() {
+        @Override
+        public int compare(Node n1, Node n2) {
+            return n1.id - n2.id;
+        }
+    };
+
+    /** The strings. */
+    private List<String> strings;
+
+    /** The string ids by string. */
+    private Map<String, Integer> stringIds;
+
+    /** The string ids of the method names by frame. */
+    private Map<StackTraceElement, Integer> frameIds;
+
+    /** The nodes. */
+    private List<Node> nodes;
+
+    /** The thread nodes by thread name. */
+    private Map<String, Node> threads;
+
+    /** The nodes changed since the last export. */
+    private List<Node> changedNodes;
+
+    /** The number of strings exported. */
+    private int exportedStringCount;
+
+    /** The number of nodes exported. */
+    private int exportedNodeCount;
+
+    /**
+     * The constructor.
+     */
+    protected SampledCallTree() {
+        strings = new ArrayList<String>();
+        stringIds = new HashMap<String, Integer>();
+        frameIds = new HashMap<StackTraceElement, Integer>();
+        nodes = new ArrayList<Node>();
+        threads = new HashMap<String, Node>();
+        changedNodes = new ArrayList<Node>();
+    }
+
+    /**
+     * Adds the stack sample of the given thread.
+     *
+     * @param threadName
+     *            The thread name
+     * @param stackTrace
+     *            The stack trace, whose first element is the top of stack
+     * @param period
+     *            The time in nanoseconds since the previous sample
+     */
+    protected synchronized void add(String threadName,
+            StackTraceElement[] stackTrace, long period) {
+        Node thread = threads.get(threadName);
+        if (thread == null) {
+            thread = createNode(null, getStringId(threadName));
+            threads.put(threadName, thread);
+        }
+
+        StackTraceElement[] previousStackTrace = thread.previousStackTrace;
+        boolean isNewStack = previousStackTrace == null;
+        Node node = thread;
+        for (int i = 0; i < stackTrace.length; i++) {
+            StackTraceElement frame = stackTrace[stackTrace.length - 1 - i];
+            if (!isNewStack
+                    && (i >= previousStackTrace.length || !frame
+                            .equals(previousStackTrace[previousStackTrace.length
+                                    - 1 - i]))) {
+                isNewStack = true;
+            }
+
+            node = getChild(node, getFrameId(frame));
+            node.time += period;
+            if (isNewStack) {
+                node.count++;
+            }
+            if (i == stackTrace.length - 1) {
+                node.selfTime += period;
+            }
+            if (!node.changed) {
+                node.changed = true;
+                changedNodes.add(node);
+            }
+        }
+        thread.previousStackTrace = stackTrace;
+    }
+
+    /**
+     * Exports the changes since the last export.
+     *
+     * @return The encoded changes
+     */
+    protected synchronized byte[] export() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(
+                64 + changedNodes.size() * 8);
+        write(out, VERSION);
+        write(out, exportedStringCount);
+        write(out, strings.size() - exportedStringCount);
+        write(out, exportedNodeCount);
+        write(out, nodes.size() - exportedNodeCount);
+
+        for (int i = exportedStringCount; i < strings.size(); i++) {
+            byte[] bytes;
+            try {
+                bytes = strings.get(i).getBytes("UTF-8");
+            } catch (UnsupportedEncodingException e) {
+                throw new IllegalStateException(e);
+            }
+            write(out, bytes.length);
+            out.write(bytes, 0, bytes.length);
+        }
+        exportedStringCount = strings.size();
+
+        for (int i = exportedNodeCount; i < nodes.size(); i++) {
+            Node node = nodes.get(i);
+            write(out, node.parent == null ? 0 : node.parent.id + 1);
+            write(out, node.stringId);
+        }
+        exportedNodeCount = nodes.size();
+
+        Collections.sort(changedNodes, BY_ID);
+        write(out, changedNodes.size());
+        int previousId = 0;
+        for (Node node : changedNodes) {
+            long time = node.time / 1000000;
+            long selfTime = node.selfTime / 1000000;
+            write(out, node.id - previousId);
+            write(out, time - node.exportedTime);
+            write(out, selfTime - node.exportedSelfTime);
+            write(out, node.count - node.exportedCount);
+            node.exportedTime = time;
+            node.exportedSelfTime = selfTime;
+            node.exportedCount = node.count;
+            node.changed = false;
+            previousId = node.id;
+        }
+        changedNodes.clear();
+
+        return out.toByteArray();
+    }
+
+    /**
+     * Clears the call tree.
+     */
+    protected synchronized void clear() {
+        strings.clear();
+        stringIds.clear();
+        frameIds.clear();
+        nodes.clear();
+        threads.clear();
+        changedNodes.clear();
+        exportedStringCount = 0;
+        exportedNodeCount = 0;
+    }
+
+    /**
+     * Gets the string id of the method of the given frame.
+     *
+     * @param frame
+     *            The frame
+     * @return The string id
+     */
+    private int getFrameId(StackTraceElement frame) {
+        Integer id = frameIds.get(frame);
+        if (id == null) {
+            id = getStringId(frame.getClassName() + "." + frame.getMethodName()
+                    + "()");
+            frameIds.put(frame, id);
+        }
+        return id;
+    }
+
+    /**
+     * Gets the id of the given string.
+     *
+     * @param string
+     *            The string
+     * @return The string id
+     */
+    private int getStringId(String string) {
+        Integer id = stringIds.get(string);
+        if (id == null) {
+            id = strings.size();
+            strings.add(string);
+            stringIds.put(string, id);
+        }
+        return id;
+    }
+
+    /**
+     * Gets the child node of the given method, creating it if not yet present.
+     *
+     * @param parent
+     *            The parent node
+     * @param stringId
+     *            The string id of the method
+     * @return The child node
+     */
+    private Node getChild(Node parent, int stringId) {
+        for (int i = 0; i < parent.childCount; i++) {
+            if (parent.children[i].stringId == stringId) {
+                return parent.children[i];
+            }
+        }
+        Node child = createNode(parent, stringId);
+        if (parent.childCount == parent.children.length) {
+            parent.children = Arrays.copyOf(parent.children,
+                    Math.max(4, parent.childCount * 2));
+        }
+        parent.children[parent.childCount++] = child;
+        return child;
+    }
+
+    /**
+     * Creates the node.
+     *
+     * @param parent
+     *            The parent node, or <tt>null</tt> for a thread node
+     * @param stringId
+     *            The string id of the method or the thread
+     * @return The node
+     */
+    private Node createNode(Node parent, int stringId) {
+        Node node = new Node(nodes.size(), parent, stringId);
+        nodes.add(node);
+        return node;
+    }
+
+    /**
+     * Writes the given non-negative number as a variable-length integer.
+     *
+     * @param out
+     *            The output stream
+     * @param value
+     *            The number
+     */
+    private static void write(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    /**
+     * The node of the call tree.
+     */
+    private static class Node {
+
+        /** The empty child nodes. */
+        private static final Node[] NO_CHILDREN = new Node[0];
+
+        /** The node id. */
+        final int id;
+
+        /** The parent node. */
+        final Node parent;
+
+        /** The string id of the method, or of the thread name. */
+        final int stringId;
+
+        /** The child nodes. */
+        Node[] children;
+
+        /** The number of child nodes. */
+        int childCount;
+
+        /** The total time in nanoseconds. */
+        long time;
+
+        /** The self time in nanoseconds. */
+        long selfTime;
+
+        /** The invocation count. */
+        int count;
+
+        /** The total time in milliseconds exported last. */
+        long exportedTime;
+
+        /** The self time in milliseconds exported last. */
+        long exportedSelfTime;
+
+        /** The invocation count exported last. */
+        int exportedCount;
+
+        /** The state indicating if changed since the last export. */
+        boolean changed;
+
+        /** The previous stack trace, only for a thread node. */
+        StackTraceElement[] previousStackTrace;
+
+        /**
+         * The constructor.
+         *
+         * @param id
+         *            The node id
+         * @param parent
+         *            The parent node
+         * @param stringId
+         *            The string id of the method, or of the thread name
+         */
+        Node(int id, Node parent, int stringId) {
+            this.id = id;
+            this.parent = parent;
+            this.stringId = stringId;
+            children = NO_CHILDREN;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*******************************************************************************
+ * Copyright (c) 2010 JVM Monitor project. All rights reserved.
+ *
+ * This code is distributed under the terms of the Eclipse Public License v1.0
+ * which is available at http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.jboss.tools.jmx.jvmmonitor.internal.agent;
+
+import javax.management.MXBean;
+
+/**
+ * The MXBean to control the stack sampler, which samples the stacks of the
+ * threads inside the target JVM and aggregates them into a call tree.
+ */
+@SuppressWarnings("nls")
+@MXBean
+public interface StackSamplerMXBean {
+
+    /** The MXBean name. */
+    final static String STACK_SAMPLER_MXBEAN_NAME = "org.jboss.tools.jmx.jvmmonitor:type=Stack Sampler";
+
+    /**
+     * Sets the state indicating if the sampler is running.
+     *
+     * @param run
+     *            True to run sampler
+     */
+    void setRunning(boolean run);
+
+    /**
+     * Gets the state indicating if the sampler is running.
+     *
+     * @return <tt>true</tt> if sampler is running
+     */
+    boolean isRunning();
+
+    /**
+     * Sets the sampling period.
+     *
+     * @param period
+     *            The sampling period in milliseconds
+     */
+    void setSamplingPeriod(int period);
+
+    /**
+     * Gets the sampling period.
+     *
+     * @return The sampling period in milliseconds
+     */
+    int getSamplingPeriod();
+
+    /**
+     * Clears the call tree.
+     */
+    void clear();
+
+    /**
+     * Reads the changes of the call tree since the last read, in the encoding
+     * described in {@link SampledCallTree}.
+     *
+     * @return The changes of the call tree
+     */
+    byte[] readDelta();
+
+    /**
+     * Gets the version.
+     *
+     * @return The version
+     */
+    String getVersion();
+}
@@ -0,0 +1,175 @@
+/*******************************************************************************
+ * Copyright (c) 2010 JVM Monitor project. All rights reserved.
+ *
+ * This code is distributed under the terms of the Eclipse Public License v1.0
+ * which is available at http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.jboss.tools.jmx.jvmmonitor.internal.agent;
+
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * The stack sampler, which samples the stacks of the threads at a high rate
+ * inside the target JVM, so that only the changes of the aggregated call tree
+ * have to be read remotely.
+ */
+@SuppressWarnings("nls")
+public class StackSamplerMXBeanImpl implements StackSamplerMXBean {
+
+    /** The default sampling period in milliseconds. */
+    private static final int DEFAULT_SAMPLING_PERIOD = 10;
+
+    /**
+     * The time in milliseconds after which the sampler stops if the changes
+     * are not read, in case the client went away without stopping it.
+     */
+    private static final long READ_TIMEOUT = 5 * 60 * 1000;
+
+    /** The call tree. */
+    private final SampledCallTree callTree;
+
+    /** The sampling period in milliseconds. */
+    private volatile int samplingPeriod;
+
+    /** The sampler thread, or <tt>null</tt> if not running. */
+    private volatile Thread samplerThread;
+
+    /** The last time the changes were read. */
+    private volatile long lastReadTime;
+
+    /**
+     * The constructor.
+     */
+    public StackSamplerMXBeanImpl() {
+        callTree = new SampledCallTree();
+        samplingPeriod = DEFAULT_SAMPLING_PERIOD;
+    }
+
+    /*
+     * @see StackSamplerMXBean#setRunning(boolean)
+     */
+    @Override
+    public synchronized void setRunning(boolean run) {
+        if (run && samplerThread == null) {
+            lastReadTime = System.currentTimeMillis();
+            samplerThread = new Thread("JVM Monitor Stack Sampler") {
+                @Override
+                public void run() {
+                    try {
+                        sample();
+                    } catch (Throwable t) {
+                        Agent.logError(t, Messages.CANNOT_SAMPLE_STACKS);
+                        stopSampling(this);
+                    }
+                }
+            };
+            samplerThread.setDaemon(true);
+            samplerThread.start();
+        } else if (!run && samplerThread != null) {
+            stopSampling(samplerThread);
+        }
+    }
+
+    /*
+     * @see StackSamplerMXBean#isRunning()
+     */
+    @Override
+    public boolean isRunning() {
+        return samplerThread != null;
+    }
+
+    /*
+     * @see StackSamplerMXBean#setSamplingPeriod(int)
+     */
+    @Override
+    public void setSamplingPeriod(int period) {
+        samplingPeriod = Math.max(1, period);
+    }
+
+    /*
+     * @see StackSamplerMXBean#getSamplingPeriod()
+     */
+    @Override
+    public int getSamplingPeriod() {
+        return samplingPeriod;
+    }
+
+    /*
+     * @see StackSamplerMXBean#clear()
+     */
+    @Override
+    public void clear() {
+        callTree.clear();
+    }
+
+    /*
+     * @see StackSamplerMXBean#readDelta()
+     */
+    @Override
+    public byte[] readDelta() {
+        lastReadTime = System.currentTimeMillis();
+        try {
+            return callTree.export();
+        } catch (Throwable t) {
+            Agent.logError(t, Messages.CANNOT_GET_DUMP);
+            return new byte[0];
+        }
+    }
+
+    /*
+     * @see StackSamplerMXBean#getVersion()
+     */
+    @Override
+    public String getVersion() {
+        return Constants.VERSION;
+    }
+
+    /**
+     * Samples the stacks until the sampler is stopped.
+     */
+    void sample() {
+        Thread currentThread = Thread.currentThread();
+        long previousTime = System.nanoTime() - samplingPeriod * 1000000L;
+        while (samplerThread == currentThread) {
+            if (System.currentTimeMillis() - lastReadTime > READ_TIMEOUT) {
+                stopSampling(currentThread);
+                return;
+            }
+
+            long time = System.nanoTime();
+            Map<Thread, StackTraceElement[]> stackTraces = Thread
+                    .getAllStackTraces();
+            for (Entry<Thread, StackTraceElement[]> entry : stackTraces
+                    .entrySet()) {
+                String threadName = entry.getKey().getName();
+                StackTraceElement[] stackTrace = entry.getValue();
+                if (entry.getKey() != currentThread && stackTrace.length > 0
+                        && !threadName.startsWith("JMX ")
+                        && !threadName.startsWith("RMI ")) {
+                    callTree.add(threadName, stackTrace, time - previousTime);
+                }
+            }
+            previousTime = time;
+
+            try {
+                Thread.sleep(samplingPeriod);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Stops the given sampler thread, if it is the running one.
+     *
+     * @param thread
+     *            The sampler thread
+     */
+    synchronized void stopSampling(Thread thread) {
+        if (samplerThread == thread) {
+            samplerThread = null;
+            thread.interrupt();
+        }
+    }
+}
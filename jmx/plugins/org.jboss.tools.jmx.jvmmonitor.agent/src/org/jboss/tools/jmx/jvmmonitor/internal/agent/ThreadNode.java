@@ -8,8 +8,6 @@ package org.jboss.tools.jmx.jvmmonitor.internal.agent;
 
 import java.io.PrintWriter;
 import java.util.Collection;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * The thread node of runtime model.
@@ -24,37 +22,59 @@ public class ThreadNode {
     private FrameNode currentFrame;
 
     /** The root frame nodes */
-    private Map<String, FrameNode> rootFrames;
+    private FrameNodeMap rootFrames;
+
+    /** The generation of the runtime model this node belongs to */
+    private final int generation;
 
     /**
      * The constructor.
      * 
      * @param thread
      *            The thread name
+     * @param generation
+     *            The generation of the runtime model
      */
-    protected ThreadNode(String thread) {
+    protected ThreadNode(String thread, int generation) {
         this.thread = thread;
-        rootFrames = new ConcurrentHashMap<String, FrameNode>();
+        this.generation = generation;
+        rootFrames = new FrameNodeMap();
     }
 
     /**
      * Gets the root frame.
      * 
-     * @param className
-     *            The class name
-     * @param methodName
-     *            The method name
+     * @param methodId
+     *            The method id
      * @return The root frame
      */
-    protected FrameNode getRootFrame(String className, String methodName) {
-        FrameNode frame = rootFrames.get(className + '.' + methodName);
+    protected FrameNode getRootFrame(int methodId) {
+        FrameNode frame = rootFrames.get(methodId);
         if (frame == null) {
-            frame = new FrameNode(null, className, methodName);
-            rootFrames.put(className + '.' + methodName, frame);
+            frame = new FrameNode(null, methodId);
+            rootFrames.put(frame);
         }
         return frame;
     }
 
+    /**
+     * Gets the thread name.
+     * 
+     * @return The thread name
+     */
+    protected String getThreadName() {
+        return thread;
+    }
+
+    /**
+     * Gets the generation of the runtime model this node belongs to.
+     * 
+     * @return The generation
+     */
+    protected int getGeneration() {
+        return generation;
+    }
+
     /**
      * Gets the current frame.
      * 
@@ -80,7 +100,7 @@ public class ThreadNode {
      * @param writer
      *            The writer
      * @param time
-     *            The time
+     *            The time in nanoseconds
      */
     protected void dump(PrintWriter writer, long time) {
         Collection<FrameNode> frameNodes = rootFrames.values();
@@ -96,13 +116,33 @@ public class ThreadNode {
         writer.println("\t</thread>");
     }
 
+    /**
+     * Writes the profile data into the binary snapshot.
+     * 
+     * @param writer
+     *            The snapshot writer
+     * @param time
+     *            The time in nanoseconds
+     */
+    protected void dump(CpuSnapshotWriter writer, long time) {
+        Collection<FrameNode> frameNodes = rootFrames.values();
+        if (frameNodes.size() == 0) {
+            return;
+        }
+
+        writer.writeThread(thread, frameNodes.size());
+        for (FrameNode frameNode : frameNodes) {
+            frameNode.dump(writer, time);
+        }
+    }
+
     /**
      * Dumps the profile data.
      * 
      * @param buffer
      *            The string buffer
      * @param time
-     *            The time
+     *            The time in nanoseconds
      */
     protected void dump(StringBuffer buffer, long time) {
         Collection<FrameNode> frameNodes = rootFrames.values();
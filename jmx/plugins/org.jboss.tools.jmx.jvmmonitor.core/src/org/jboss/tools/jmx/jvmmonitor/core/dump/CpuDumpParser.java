@@ -6,7 +6,9 @@
  *******************************************************************************/
 package org.jboss.tools.jmx.jvmmonitor.core.dump;
 
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 
@@ -18,10 +20,12 @@ import org.eclipse.core.runtime.IProgressMonitor;
 import org.jboss.tools.jmx.jvmmonitor.core.cpu.ICpuModel;
 import org.jboss.tools.jmx.jvmmonitor.internal.core.cpu.CpuDumpSaxEventHandler;
 import org.jboss.tools.jmx.jvmmonitor.internal.core.cpu.CpuModel;
+import org.jboss.tools.jmx.jvmmonitor.internal.core.cpu.CpuSnapshotReader;
 import org.xml.sax.SAXException;
 
 /**
- * The CPU dump parser.
+ * The CPU dump parser, which reads either the binary snapshot format or the
+ * XML format.
  */
 public class CpuDumpParser extends AbstractDumpParser {
 
@@ -98,19 +102,45 @@ public class CpuDumpParser extends AbstractDumpParser {
      */
     public void parse() throws ParserConfigurationException, SAXException,
             IOException {
-
-        parser = SAXParserFactory.newInstance().newSAXParser();
-        CpuDumpSaxEventHandler handler = new CpuDumpSaxEventHandler(cpuModel,
-                monitor);
-
         if (inputType == InputType.FILE) {
             if (file.exists() && file.canRead()) {
-                parser.parse(file, handler);
+                InputStream input = new BufferedInputStream(
+                        new FileInputStream(file));
+                try {
+                    parse(input);
+                } finally {
+                    input.close();
+                }
             }
         } else if (inputType == InputType.STREAM) {
-            parser.parse(inputStream, handler);
+            parse(inputStream.markSupported() ? inputStream
+                    : new BufferedInputStream(inputStream));
+        }
+    }
+
+    /**
+     * Parses the CPU dump from the given input stream.
+     * 
+     * @param input
+     *            The input stream, which supports mark and reset
+     * @throws SAXException
+     *             if creating parser fails
+     * @throws ParserConfigurationException
+     *             if creating parser fails
+     * @throws IOException
+     *             if parsing input fails
+     */
+    private void parse(InputStream input) throws ParserConfigurationException,
+            SAXException, IOException {
+        if (CpuSnapshotReader.isSnapshot(input)) {
+            info = new CpuSnapshotReader(cpuModel, monitor).read(input);
+            return;
         }
 
+        parser = SAXParserFactory.newInstance().newSAXParser();
+        CpuDumpSaxEventHandler handler = new CpuDumpSaxEventHandler(cpuModel,
+                monitor);
+        parser.parse(input, handler);
         info = handler.getProfileInfo();
     }
 
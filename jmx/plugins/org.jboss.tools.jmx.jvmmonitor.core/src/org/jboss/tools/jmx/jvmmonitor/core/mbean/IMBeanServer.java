@@ -89,6 +89,14 @@ public interface IMBeanServer {
      */
     void removeMonitoredAttributeGroup(String name);
 
+    /**
+     * Gets the time taken to read the monitored attributes in each refresh,
+     * in milliseconds. The returned attribute has no object name.
+     * 
+     * @return The refresh latency
+     */
+    IMonitoredMXBeanAttribute getRefreshLatency();
+
     /**
      * Gets the MBean info.
      * 
@@ -26,17 +26,24 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Scanner;
 import java.util.Set;
 import java.util.Timer;
 import java.util.TimerTask;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.management.Attribute;
+import javax.management.AttributeList;
 import javax.management.InstanceNotFoundException;
 import javax.management.JMException;
+import javax.management.JMRuntimeException;
 import javax.management.MBeanInfo;
 import javax.management.MBeanServerConnection;
 import javax.management.MalformedObjectNameException;
@@ -51,7 +58,6 @@ import org.eclipse.core.runtime.Assert;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
-import org.eclipse.jdt.core.Signature;
 import org.eclipse.osgi.util.NLS;
 import org.jboss.tools.jmx.jvmmonitor.core.AbstractJvm;
 import org.jboss.tools.jmx.jvmmonitor.core.Activator;
@@ -90,6 +96,15 @@ public abstract class AbstractMBeanServer implements IMBeanServer, IProfilingMBe
     /** The data transfer MXBean name. */
     private final static String DATA_TRANSFER_MXBEAN_NAME = "org.jboss.tools.jmx.jvmmonitor:type=Data Transfer"; //$NON-NLS-1$
 
+    /** The stack sampler MXBean name. */
+    private final static String STACK_SAMPLER_MXBEAN_NAME = "org.jboss.tools.jmx.jvmmonitor:type=Stack Sampler"; //$NON-NLS-1$
+
+    /**
+     * The min period in milliseconds to read the changes from the stack
+     * sampler, which samples at the sampling period by itself.
+     */
+    private final static int MIN_STACK_SAMPLER_READ_PERIOD = 500;
+
     /** The MBean server connection. */
     private MBeanServerConnection connection;
     
@@ -112,12 +127,24 @@ public abstract class AbstractMBeanServer implements IMBeanServer, IProfilingMBe
     /** The heap list elements. */
     private Map<String, HeapElement> heapListElements;
 
+    /** The parser of heap histograms. */
+    private HeapHistogramParser heapHistogramParser;
+
     /** The thread list elements. */
     private Map<String, ThreadElement> threadListElements;
 
     /** The timer to update. */
     Timer timer;
 
+    /** The executor running the refreshes triggered by the timer. */
+    private ExecutorService refreshExecutor;
+
+    /** The state indicating if a refresh is in progress. */
+    private AtomicBoolean refreshing;
+
+    /** The time taken to fetch the monitored attributes in each refresh. */
+    private MonitoredMXBeanAttribute refreshLatency;
+
     /** The timer to sample profile data. */
     Timer samplingTimer;
 
@@ -127,8 +154,14 @@ public abstract class AbstractMBeanServer implements IMBeanServer, IProfilingMBe
     /** The previous sampling time. */
     private long previousSamplingTime;
 
-    /** The previous thread process CPU time. */
-    private Map<Long, Long> previousThreadProcessCpuTime;
+    /** The previous thread process CPU time by thread id. */
+    private LongLongHashMap previousThreadProcessCpuTime;
+
+    /**
+     * The state indicating if the target JVM lacks the operation getting the
+     * CPU times of several threads at once.
+     */
+    private boolean isBulkThreadCpuTimeUnsupported;
 
     /** The state indicating if handling only live objects. */
     private boolean isLive;
@@ -142,6 +175,12 @@ public abstract class AbstractMBeanServer implements IMBeanServer, IProfilingMBe
     /** The previous stack trace. */
     private Map<String, StackTraceElement[]> previousStackTraces;
 
+    /**
+     * The merger of the changes read from the stack sampler of the agent, or
+     * <tt>null</tt> if stacks are sampled over JMX.
+     */
+    private StackSampleMerger stackSampleMerger;
+
     /**
      * The constructor.
      * 
@@ -155,8 +194,9 @@ public abstract class AbstractMBeanServer implements IMBeanServer, IProfilingMBe
         this.jvm = jvm;
         mxBeans = new HashMap<Class, Object>();
         mBeanNotification = new MBeanNotification(jvm);
-        previousThreadProcessCpuTime = new HashMap<Long, Long>();
+        previousThreadProcessCpuTime = new LongLongHashMap();
         heapListElements = new LinkedHashMap<String, HeapElement>();
+        heapHistogramParser = new HeapHistogramParser();
         threadListElements = new LinkedHashMap<String, ThreadElement>();
         isLive = true;
         isJvmReachable = false;
@@ -165,6 +205,9 @@ public abstract class AbstractMBeanServer implements IMBeanServer, IProfilingMBe
         samplingPeriod = 50;
         previousStackTraces = new HashMap<String, StackTraceElement[]>();
         monitoredAttributeGroups = new CopyOnWriteArrayList<IMonitoredMXBeanGroup>();
+        refreshing = new AtomicBoolean(false);
+        refreshLatency = new MonitoredMXBeanAttribute(null,
+                "RefreshLatency", null); //$NON-NLS-1$
     }
     
     protected void setJvmReachable(boolean val) {
@@ -431,33 +474,46 @@ public abstract class AbstractMBeanServer implements IMBeanServer, IProfilingMBe
         List<ThreadInfo> allThreads = Arrays.asList(threadMXBean
                 .dumpAllThreads(true, false));
         Collections.reverse(allThreads);
+        if (ids != null) {
+            Arrays.sort(ids);
+        }
 
+        List<ThreadInfo> threads = new ArrayList<ThreadInfo>(allThreads.size());
         for (ThreadInfo threadInfo : allThreads) {
             String threadName = threadInfo.getThreadName();
-            long threadId = threadInfo.getThreadId();
             if (threadInfo.getStackTrace().length == 0
                     || threadName.startsWith("RMI ") //$NON-NLS-1$
                     || threadName.startsWith("JMX ")) { //$NON-NLS-1$
                 continue;
             }
-            boolean isDeadlocked = false;
-            if (ids != null) {
-                Arrays.sort(ids);
-                if (Arrays.binarySearch(ids, threadId) >= 0) {
-                    isDeadlocked = true;
-                }
-            }
+            threads.add(threadInfo);
+        }
+        long[] threadIds = new long[threads.size()];
+        for (int i = 0; i < threadIds.length; i++) {
+            threadIds[i] = threads.get(i).getThreadId();
+        }
+        long[] cpuTimes = getThreadCpuTimes(threadMXBean, threadIds);
+
+        // only the threads still alive are kept for the next refresh
+        LongLongHashMap threadProcessCpuTime = new LongLongHashMap(
+                threadIds.length);
+        for (int i = 0; i < threadIds.length; i++) {
+            ThreadInfo threadInfo = threads.get(i);
+            String threadName = threadInfo.getThreadName();
+            long threadId = threadIds[i];
+            boolean isDeadlocked = ids != null
+                    && Arrays.binarySearch(ids, threadId) >= 0;
 
             ThreadElement oldElement = threadListElements.get(threadName);
-            long processCpuTime = threadMXBean.getThreadCpuTime(threadId);
-            Long previousCpuTime = previousThreadProcessCpuTime.get(threadId);
+            long processCpuTime = cpuTimes[i];
             double cpuUsage = 0;
-            previousThreadProcessCpuTime.put(threadId, processCpuTime);
-            if (previousCpuTime != null) {
+            if (previousThreadProcessCpuTime.containsKey(threadId)) {
+                long previousCpuTime = previousThreadProcessCpuTime.get(
+                        threadId, 0);
                 cpuUsage = Math.min(
                         (processCpuTime - previousCpuTime) / 10000000d, 100);
             }
-            previousThreadProcessCpuTime.put(threadId, processCpuTime);
+            threadProcessCpuTime.put(threadId, processCpuTime);
             if (oldElement == null) {
                 newThreadListElements.put(threadName, new ThreadElement(
                         threadInfo, isDeadlocked, cpuUsage));
@@ -468,9 +524,57 @@ public abstract class AbstractMBeanServer implements IMBeanServer, IProfilingMBe
                 newThreadListElements.put(threadName, oldElement);
             }
         }
+        previousThreadProcessCpuTime = threadProcessCpuTime;
         threadListElements = newThreadListElements;
     }
 
+    /**
+     * Gets the CPU times of the given threads. They are got in one request
+     * with the operation of <tt>com.sun.management.ThreadMXBean</tt> taking
+     * an array of thread ids, or one request per thread if the target JVM
+     * doesn't have it.
+     * 
+     * @param threadMXBean
+     *            The thread MXBean
+     * @param threadIds
+     *            The thread ids
+     * @return The CPU times in nanoseconds, -1 for the threads which are not
+     *         alive or whose CPU time is not measured
+     * @throws JvmCoreException
+     */
+    private long[] getThreadCpuTimes(ThreadMXBean threadMXBean,
+            long[] threadIds) throws JvmCoreException {
+        MBeanServerConnection connection = getConnection();
+        if (connection != null && threadIds.length > 0
+                && !isBulkThreadCpuTimeUnsupported) {
+            ObjectName objectName = getObjectName(ManagementFactory.THREAD_MXBEAN_NAME);
+            try {
+                Object cpuTimes = connection.invoke(objectName,
+                        "getThreadCpuTime", new Object[] { threadIds }, //$NON-NLS-1$
+                        new String[] { long[].class.getName() });
+                if (cpuTimes instanceof long[]
+                        && ((long[]) cpuTimes).length == threadIds.length) {
+                    return (long[]) cpuTimes;
+                }
+                isBulkThreadCpuTimeUnsupported = true;
+            } catch (JMException e) {
+                isBulkThreadCpuTimeUnsupported = true;
+            } catch (JMRuntimeException e) {
+                isBulkThreadCpuTimeUnsupported = true;
+            } catch (IOException e) {
+                throw new JvmCoreException(IStatus.ERROR, NLS.bind(
+                        Messages.getMBeanFailedMsg,
+                        ManagementFactory.THREAD_MXBEAN_NAME), e);
+            }
+        }
+
+        long[] cpuTimes = new long[threadIds.length];
+        for (int i = 0; i < threadIds.length; i++) {
+            cpuTimes[i] = threadMXBean.getThreadCpuTime(threadIds[i]);
+        }
+        return cpuTimes;
+    }
+
     /*
      * @see IMBeanServer#getHeapCache()
      */
@@ -640,6 +744,13 @@ public abstract class AbstractMBeanServer implements IMBeanServer, IProfilingMBe
         }
         samplingTimer = new Timer(true);
 
+        // the stack sampler of the agent, if loaded, samples at the sampling
+        // period by itself, so that only its changes have to be read
+        int period = samplingPeriod;
+        if (startStackSampler()) {
+            period = Math.max(samplingPeriod, MIN_STACK_SAMPLER_READ_PERIOD);
+        }
+
         TimerTask timerTask = new TimerTask() {
             @Override
             public void run() {
@@ -653,7 +764,7 @@ public abstract class AbstractMBeanServer implements IMBeanServer, IProfilingMBe
                 }
             }
         };
-        samplingTimer.schedule(timerTask, 0, samplingPeriod);
+        samplingTimer.schedule(timerTask, 0, period);
     }
 
     /**
@@ -664,6 +775,69 @@ public abstract class AbstractMBeanServer implements IMBeanServer, IProfilingMBe
             samplingTimer.cancel();
             samplingTimer = null;
         }
+        stopStackSampler();
+    }
+
+    /**
+     * Starts the stack sampler of the agent.
+     * 
+     * @return <tt>true</tt> if started, and <tt>false</tt> if the agent is not
+     *         loaded in the target JVM
+     */
+    private boolean startStackSampler() {
+        MBeanServerConnection mBeanServerConnection = getConnection();
+        if (!isJvmReachable || mBeanServerConnection == null) {
+            return false;
+        }
+
+        try {
+            ObjectName objectName = getObjectName(STACK_SAMPLER_MXBEAN_NAME);
+            if (!mBeanServerConnection.isRegistered(objectName)) {
+                stackSampleMerger = null;
+                return false;
+            }
+            mBeanServerConnection.setAttribute(objectName, new Attribute(
+                    "SamplingPeriod", samplingPeriod)); //$NON-NLS-1$
+            mBeanServerConnection.setAttribute(objectName, new Attribute(
+                    "Running", true)); //$NON-NLS-1$
+        } catch (JvmCoreException e) {
+            stackSampleMerger = null;
+            return false;
+        } catch (JMException e) {
+            stackSampleMerger = null;
+            return false;
+        } catch (IOException e) {
+            stackSampleMerger = null;
+            return false;
+        }
+
+        if (stackSampleMerger == null) {
+            stackSampleMerger = new StackSampleMerger();
+        }
+        return true;
+    }
+
+    /**
+     * Stops the stack sampler of the agent, if started.
+     */
+    private void stopStackSampler() {
+        MBeanServerConnection mBeanServerConnection = getConnection();
+        if (stackSampleMerger == null || !isJvmReachable
+                || mBeanServerConnection == null) {
+            return;
+        }
+
+        try {
+            mBeanServerConnection.setAttribute(
+                    getObjectName(STACK_SAMPLER_MXBEAN_NAME), new Attribute(
+                            "Running", false)); //$NON-NLS-1$
+        } catch (JvmCoreException e) {
+            // do nothing
+        } catch (JMException e) {
+            // do nothing
+        } catch (IOException e) {
+            // do nothing
+        }
     }
 
     /**
@@ -834,12 +1008,15 @@ public abstract class AbstractMBeanServer implements IMBeanServer, IProfilingMBe
 
         mxBeans.clear();
         previousThreadProcessCpuTime.clear();
+        isBulkThreadCpuTimeUnsupported = false;
         heapListElements.clear();
+        heapHistogramParser.clear();
         threadListElements.clear();
         isJvmReachable = true;
         listeners.clear();
         previousSamplingTime = 0;
         previousStackTraces.clear();
+        stackSampleMerger = null;
         monitoredAttributeGroups.clear();
 
         startUpdateTimer(updatePeriod);
@@ -854,11 +1031,22 @@ public abstract class AbstractMBeanServer implements IMBeanServer, IProfilingMBe
         if (!checkReachability()) {
             return;
         }
+        long start = System.currentTimeMillis();
+        Map<ObjectName, Map<String, Object>> attributeObjects = getMonitoredAttributeObjects();
+        long end = System.currentTimeMillis();
+        Date date = new Date(end);
+        refreshLatency.add(end - start, date);
+
         for (IMonitoredMXBeanGroup group : monitoredAttributeGroups) {
             for (IMonitoredMXBeanAttribute attribute : group.getAttributes()) {
                 String attributeName = attribute.getAttributeName();
-                Object attributeObject = getAttribute(
-                        attribute.getObjectName(), attributeName);
+                Map<String, Object> objects = attributeObjects.get(attribute
+                        .getObjectName());
+                if (objects == null) {
+                    continue;
+                }
+                Object attributeObject = objects
+                        .get(getTopLevelAttributeName(attributeName));
 
                 Number value = getAttributeValue(attributeObject, attributeName);
                 if (value == null) {
@@ -876,7 +1064,7 @@ public abstract class AbstractMBeanServer implements IMBeanServer, IProfilingMBe
                     previousProcessCpuTime = (Long) value;
                     value = percent > 1 ? 1 : percent;
                 }
-                ((MonitoredMXBeanAttribute) attribute).add(value, new Date());
+                ((MonitoredMXBeanAttribute) attribute).add(value, date);
             }
         }
 
@@ -884,6 +1072,78 @@ public abstract class AbstractMBeanServer implements IMBeanServer, IProfilingMBe
                 new JvmModelEvent(State.JvmModified, jvm));
     }
 
+    /*
+     * @see IMBeanServer#getRefreshLatency()
+     */
+    @Override
+    public IMonitoredMXBeanAttribute getRefreshLatency() {
+        return refreshLatency;
+    }
+
+    /**
+     * Gets the values of all monitored attributes, with a single request for
+     * each MBean.
+     * 
+     * @return The attribute values by attribute name, by object name. The
+     *         attributes and MBeans which could not be read are missing.
+     * @throws JvmCoreException
+     *             if the connection to the JVM failed
+     */
+    protected Map<ObjectName, Map<String, Object>> getMonitoredAttributeObjects()
+            throws JvmCoreException {
+        Map<ObjectName, Set<String>> attributeNames = new LinkedHashMap<ObjectName, Set<String>>();
+        for (IMonitoredMXBeanGroup group : monitoredAttributeGroups) {
+            for (IMonitoredMXBeanAttribute attribute : group.getAttributes()) {
+                Set<String> names = attributeNames.get(attribute
+                        .getObjectName());
+                if (names == null) {
+                    names = new LinkedHashSet<String>();
+                    attributeNames.put(attribute.getObjectName(), names);
+                }
+                names.add(getTopLevelAttributeName(attribute
+                        .getAttributeName()));
+            }
+        }
+
+        Map<ObjectName, Map<String, Object>> attributeObjects = new HashMap<ObjectName, Map<String, Object>>();
+        for (Map.Entry<ObjectName, Set<String>> entry : attributeNames
+                .entrySet()) {
+            Set<String> names = entry.getValue();
+            AttributeList list;
+            try {
+                list = getConnection().getAttributes(entry.getKey(),
+                        names.toArray(new String[names.size()]));
+            } catch (JMException e) {
+                // e.g. the MBean has been unregistered; the other MBeans
+                // are still refreshed
+                continue;
+            } catch (IOException e) {
+                throw new JvmCoreException(IStatus.ERROR, NLS.bind(
+                        Messages.getAttributeFailedMsg, names), e);
+            }
+            Map<String, Object> objects = new HashMap<String, Object>();
+            for (Attribute attribute : list.asList()) {
+                objects.put(attribute.getName(), attribute.getValue());
+            }
+            attributeObjects.put(entry.getKey(), objects);
+        }
+        return attributeObjects;
+    }
+
+    /**
+     * Gets the attribute name without the keys of composite or tabular data.
+     * e.g. "HeapMemoryUsage" for "HeapMemoryUsage.used"
+     * 
+     * @param qualifiedAttributeName
+     *            The qualified attribute name
+     * @return The attribute name
+     */
+    private static String getTopLevelAttributeName(String qualifiedAttributeName) {
+        int index = qualifiedAttributeName.indexOf('.');
+        return index == -1 ? qualifiedAttributeName : qualifiedAttributeName
+                .substring(0, index);
+    }
+
     /**
      * Disposes the resources.
      */
@@ -891,6 +1151,12 @@ public abstract class AbstractMBeanServer implements IMBeanServer, IProfilingMBe
         if (timer != null) {
             timer.cancel();
         }
+        synchronized (refreshing) {
+            if (refreshExecutor != null) {
+                refreshExecutor.shutdown();
+                refreshExecutor = null;
+            }
+        }
         if (samplingTimer != null) {
             samplingTimer.cancel();
         }
@@ -984,62 +1250,8 @@ public abstract class AbstractMBeanServer implements IMBeanServer, IProfilingMBe
      *            The max number of classes
      */
     private void parseHeap(String heap, int maxNumberOfClasses) {
-        Map<String, HeapElement> newHeapElements = new LinkedHashMap<String, HeapElement>();
-
-        String[] lines = heap.split("\n"); //$NON-NLS-1$
-        for (String line : lines) {
-            Scanner scanner = new Scanner(line);
-            if (!scanner.hasNext()) {
-                continue;
-            }
-            scanner.next();
-            if (!scanner.hasNextLong()) {
-                continue;
-            }
-            long count = scanner.nextLong();
-            if (!scanner.hasNextLong()) {
-                continue;
-            }
-            long size = scanner.nextLong();
-            if (scanner.hasNext()) {
-                String className = scanner.next();
-                if (className.startsWith("<")) { //$NON-NLS-1$
-                    continue;
-                }
-                className = convertClassName(className);
-
-                HeapElement oldElement = heapListElements.get(className);
-                if (oldElement == null) {
-                    newHeapElements.put(className, new HeapElement(className,
-                            size, count));
-                } else {
-                    // WORKAROUND heap from target JVM has a
-                    // duplicated entry...
-                    if (!newHeapElements.containsKey(className)) {
-                        oldElement.setSizeAndCount(size, count);
-                        newHeapElements.put(className, oldElement);
-                    }
-                }
-                if (newHeapElements.size() >= maxNumberOfClasses) {
-                    break;
-                }
-            }
-        }
-        heapListElements = newHeapElements;
-    }
-
-    /**
-     * Converts the class name. e.g "[I" to "int[]"
-     * 
-     * @param className
-     *            The class name
-     * @return The class name
-     */
-    private static String convertClassName(String className) {
-        if (className.startsWith("[")) { //$NON-NLS-1$
-            return Signature.toString(className);
-        }
-        return className;
+        heapListElements = heapHistogramParser.parse(heap, maxNumberOfClasses,
+                heapListElements);
     }
 
     /**
@@ -1088,20 +1300,18 @@ public abstract class AbstractMBeanServer implements IMBeanServer, IProfilingMBe
             } else if (type == SnapshotType.Hprof && jvm.isRemote()) {
                 ObjectName objectName = getObjectName(DATA_TRANSFER_MXBEAN_NAME);
                 os = fileStore.openOutputStream(EFS.NONE, null);
-                byte[] bytes = new byte[0];
-                int offset = 0;
-                final int SIZE = 4096;
-                final String[] SIGNATURES = new String[] {
-                        String.class.getCanonicalName(), "int", "int" };//$NON-NLS-1$ //$NON-NLS-2$
-                do {
-                    bytes = (byte[]) invoke(objectName, "read", new Object[] { //$NON-NLS-1$
-                            dumpFileName, offset, SIZE }, SIGNATURES);
-                    os.write(bytes);
-                    offset += SIZE;
-                    if (monitor != null && monitor.isCanceled()) {
-                        return null;
-                    }
-                } while (bytes.length > 0);
+                RemoteFileTransfer transfer = new RemoteFileTransfer(this,
+                        objectName, dumpFileName);
+                boolean completed;
+                if (transfer.open()) {
+                    completed = transfer.transfer(os, monitor);
+                } else {
+                    completed = transferLegacy(objectName, dumpFileName, os,
+                            monitor);
+                }
+                if (!completed) {
+                    return null;
+                }
             }
 
             Snapshot snapshot = new Snapshot(fileStore, abstractJvm);
@@ -1110,6 +1320,14 @@ public abstract class AbstractMBeanServer implements IMBeanServer, IProfilingMBe
             JvmModel.getInstance().fireJvmModelChangeEvent(
                     new JvmModelEvent(State.ShapshotTaken, abstractJvm,
                             snapshot));
+        } catch (JvmCoreException e) {
+            // the transfer from the remote host failed
+            try {
+                fileStore.delete(EFS.NONE, null);
+            } catch (CoreException e1) {
+                // do nothing
+            }
+            throw e;
         } catch (CoreException e) {
             throw new JvmCoreException(IStatus.ERROR, NLS.bind(
                     Messages.openOutputStreamFailedMsg, fileStore.toURI()
@@ -1135,6 +1353,42 @@ public abstract class AbstractMBeanServer implements IMBeanServer, IProfilingMBe
         return fileStore;
     }
 
+    /**
+     * Transfers the file from the remote host with an agent which does not
+     * support transfer sessions, one chunk per invocation.
+     * 
+     * @param objectName
+     *            The object name of the data transfer MXBean
+     * @param fileName
+     *            The file name on the remote host
+     * @param os
+     *            The output stream
+     * @param monitor
+     *            The progress monitor, or <tt>null</tt>
+     * @return <tt>false</tt> if canceled
+     * @throws JvmCoreException
+     * @throws IOException
+     */
+    private boolean transferLegacy(ObjectName objectName, String fileName,
+            OutputStream os, IProgressMonitor monitor)
+            throws JvmCoreException, IOException {
+        byte[] bytes = new byte[0];
+        int offset = 0;
+        final int SIZE = 1024 * 1024;
+        final String[] SIGNATURES = new String[] {
+                String.class.getCanonicalName(), "int", "int" };//$NON-NLS-1$ //$NON-NLS-2$
+        do {
+            bytes = (byte[]) invoke(objectName, "read", new Object[] { //$NON-NLS-1$
+                    fileName, offset, SIZE }, SIGNATURES);
+            os.write(bytes);
+            offset += SIZE;
+            if (monitor != null && monitor.isCanceled()) {
+                return false;
+            }
+        } while (bytes.length > 0);
+        return true;
+    }
+
     /**
      * Gets the dump string.
      * 
@@ -1218,6 +1472,11 @@ public abstract class AbstractMBeanServer implements IMBeanServer, IProfilingMBe
             return;
         }
 
+        if (stackSampleMerger != null) {
+            mergeStackSamples();
+            return;
+        }
+
         ThreadMXBean threadMXBean;
         try {
             threadMXBean = (ThreadMXBean) getMXBean(ThreadMXBean.class,
@@ -1278,6 +1537,29 @@ public abstract class AbstractMBeanServer implements IMBeanServer, IProfilingMBe
         previousSamplingTime = samplingTime;
     }
 
+    /**
+     * Merges the changes read from the stack sampler of the agent into the CPU
+     * model.
+     * 
+     * @throws JvmCoreException
+     */
+    private void mergeStackSamples() throws JvmCoreException {
+        ObjectName objectName = getObjectName(STACK_SAMPLER_MXBEAN_NAME);
+        Object delta = invoke(objectName, "readDelta", null, null); //$NON-NLS-1$
+        if (!(delta instanceof byte[])) {
+            return;
+        }
+
+        CpuModel cpuModel = (CpuModel) jvm.getCpuProfiler().getCpuModel();
+        Set<String> profiledPackages = jvm.getCpuProfiler()
+                .getProfiledPackages();
+        if (!stackSampleMerger.merge((byte[]) delta, cpuModel,
+                profiledPackages)) {
+            // start over from an empty call tree in the target JVM
+            invoke(objectName, "clear", null, null); //$NON-NLS-1$
+        }
+    }
+
     /**
      * Gets the inverted stack trace.
      * 
@@ -1446,7 +1728,7 @@ public abstract class AbstractMBeanServer implements IMBeanServer, IProfilingMBe
      *            The profiled packages
      * @return true if the given class belongs to one of the packages list
      */
-    private static boolean isProfiledPackage(String className, Set<String> packages) {
+    static boolean isProfiledPackage(String className, Set<String> packages) {
         if (packages.isEmpty()) {
             return false;
         }
@@ -1490,18 +1772,59 @@ public abstract class AbstractMBeanServer implements IMBeanServer, IProfilingMBe
         TimerTask timerTask = new TimerTask() {
             @Override
             public void run() {
+                // a refresh still in progress skips the tick rather than
+                // queuing another one behind it
+                if (!refreshing.compareAndSet(false, true)) {
+                    return;
+                }
                 try {
-                    refresh();
-                } catch (JvmCoreException e) {
-                    Activator.log(IStatus.ERROR, e.getMessage(), e);
-                    timer.cancel();
-                } catch (Throwable t) {
-                    timer.cancel();
+                    getRefreshExecutor().execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            try {
+                                refresh();
+                            } catch (JvmCoreException e) {
+                                Activator.log(IStatus.ERROR, e.getMessage(), e);
+                                timer.cancel();
+                            } catch (Throwable t) {
+                                timer.cancel();
+                            } finally {
+                                refreshing.set(false);
+                            }
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    refreshing.set(false);
+                    cancel();
                 }
             }
         };
         timer.schedule(timerTask, 0, updatePeriod);
     }
+
+    /**
+     * Gets the executor running the refreshes, so that a slow connection does
+     * not hold up the timer.
+     * 
+     * @return The executor
+     */
+    private ExecutorService getRefreshExecutor() {
+        synchronized (refreshing) {
+            if (refreshExecutor == null) {
+                refreshExecutor = Executors
+                        .newSingleThreadExecutor(new ThreadFactory() {
+                            @Override
+                            public Thread newThread(Runnable r) {
+                                Thread thread = new Thread(r,
+                                        "JVM Monitor Refresh"); //$NON-NLS-1$
+                                thread.setDaemon(true);
+                                return thread;
+                            }
+                        });
+            }
+            return refreshExecutor;
+        }
+    }
     
     
     /**
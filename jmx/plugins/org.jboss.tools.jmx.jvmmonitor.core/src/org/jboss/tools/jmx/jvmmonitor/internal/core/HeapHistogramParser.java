@@ -0,0 +1,384 @@
+/*******************************************************************************
+ * Copyright (c) 2010 JVM Monitor project. All rights reserved.
+ *
+ * This code is distributed under the terms of the Eclipse Public License v1.0
+ * which is available at http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.jboss.tools.jmx.jvmmonitor.internal.core;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import org.eclipse.jdt.core.Signature;
+
+/**
+ * The parser of class histograms as printed by <tt>jmap -histo</tt>.
+ * <p>
+ * The histogram is tokenized in place rather than split into lines. The
+ * converted class names and the heap elements are kept in a table keyed by
+ * the raw class name across invocations, so that parsing the histogram of
+ * known classes again creates no strings. The largest classes are selected
+ * with a bounded heap, so that the result does not depend on the order of
+ * the lines.
+ */
+public class HeapHistogramParser {
+
+    /** The initial capacity of the table. */
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /** The comparator of entries by size. */
+    private static final Comparator<Entry> BY_SIZE = new Comparator<Entry>() {
+        @Override
+        public int compare(Entry e1, Entry e2) {
+            return Long.compare(e1.size, e2.size);
+        }
+    };
+
+    /** The table of entries, with open addressing. */
+    private Entry[] table;
+
+    /** The number of entries in the table. */
+    private int entryCount;
+
+    /** The number of entries seen in the current histogram. */
+    private int seenCount;
+
+    /** The number of the current histogram. */
+    private int generation;
+
+    /** The start of the token found last. */
+    private int tokenStart;
+
+    /** The end of the token found last. */
+    private int tokenEnd;
+
+    /**
+     * The constructor.
+     */
+    public HeapHistogramParser() {
+        table = new Entry[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Parses the given heap histogram.
+     *
+     * @param heap
+     *            The heap histogram
+     * @param maxNumberOfClasses
+     *            The max number of classes
+     * @param previousElements
+     *            The heap elements of the previous histogram, whose elements
+     *            are reused for the classes still listed
+     * @return The heap elements of the largest classes, ordered by size
+     */
+    public Map<String, HeapElement> parse(CharSequence heap,
+            int maxNumberOfClasses, Map<String, HeapElement> previousElements) {
+        int max = Math.max(1, maxNumberOfClasses);
+        PriorityQueue<Entry> largest = new PriorityQueue<Entry>(max, BY_SIZE);
+        generation++;
+        seenCount = 0;
+
+        int length = heap.length();
+        int lineStart = 0;
+        while (lineStart < length) {
+            int lineEnd = lineStart;
+            while (lineEnd < length && heap.charAt(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            Entry entry = parseLine(heap, lineStart, lineEnd);
+            if (entry != null) {
+                if (largest.size() < max) {
+                    largest.add(entry);
+                } else if (entry.size > largest.peek().size) {
+                    largest.poll();
+                    largest.add(entry);
+                }
+            }
+            lineStart = lineEnd + 1;
+        }
+
+        Entry[] sorted = new Entry[largest.size()];
+        for (int i = sorted.length - 1; i >= 0; i--) {
+            sorted[i] = largest.poll();
+        }
+        Map<String, HeapElement> elements = new LinkedHashMap<String, HeapElement>();
+        for (Entry entry : sorted) {
+            HeapElement element = entry.element;
+            if (element != null
+                    && previousElements.get(entry.className) == element) {
+                element.setSizeAndCount(entry.size, entry.count);
+            } else {
+                element = new HeapElement(entry.className, entry.size,
+                        entry.count);
+                entry.element = element;
+            }
+            elements.put(entry.className, element);
+        }
+
+        if (entryCount > INITIAL_CAPACITY / 2 && entryCount > 2 * seenCount) {
+            rehash(table.length, true);
+        }
+        return elements;
+    }
+
+    /**
+     * Clears the cached class names and heap elements.
+     */
+    public void clear() {
+        table = new Entry[INITIAL_CAPACITY];
+        entryCount = 0;
+    }
+
+    /**
+     * Parses the line of the given range.
+     *
+     * @param heap
+     *            The heap histogram
+     * @param start
+     *            The start of the line
+     * @param end
+     *            The end of the line
+     * @return The entry of the class in the line, or <tt>null</tt> if the line
+     *         has no class, or if the class has already been seen in the
+     *         current histogram
+     */
+    private Entry parseLine(CharSequence heap, int start, int end) {
+        // the rank, e.g. "1:"
+        if (!nextToken(heap, start, end)) {
+            return null;
+        }
+        if (!nextToken(heap, tokenEnd, end)) {
+            return null;
+        }
+        long count = parseLong(heap, tokenStart, tokenEnd);
+        if (count < 0 || !nextToken(heap, tokenEnd, end)) {
+            return null;
+        }
+        long size = parseLong(heap, tokenStart, tokenEnd);
+        if (size < 0 || !nextToken(heap, tokenEnd, end)
+                || heap.charAt(tokenStart) == '<') {
+            return null;
+        }
+
+        Entry entry = getEntry(heap, tokenStart, tokenEnd);
+        // WORKAROUND heap from target JVM has a duplicated entry...
+        if (entry.generation == generation) {
+            return null;
+        }
+        entry.generation = generation;
+        entry.size = size;
+        entry.count = count;
+        seenCount++;
+        return entry;
+    }
+
+    /**
+     * Finds the next token separated by whitespaces, and stores its range into
+     * {@link #tokenStart} and {@link #tokenEnd}.
+     *
+     * @param heap
+     *            The heap histogram
+     * @param start
+     *            The start of the search
+     * @param end
+     *            The end of the line
+     * @return <tt>true</tt> if a token has been found
+     */
+    private boolean nextToken(CharSequence heap, int start, int end) {
+        int i = start;
+        while (i < end && Character.isWhitespace(heap.charAt(i))) {
+            i++;
+        }
+        if (i == end) {
+            return false;
+        }
+        tokenStart = i;
+        while (i < end && !Character.isWhitespace(heap.charAt(i))) {
+            i++;
+        }
+        tokenEnd = i;
+        return true;
+    }
+
+    /**
+     * Parses the non-negative decimal number of the given range.
+     *
+     * @param heap
+     *            The heap histogram
+     * @param start
+     *            The start of the number
+     * @param end
+     *            The end of the number
+     * @return The number, or -1 if the range is not a number
+     */
+    private static long parseLong(CharSequence heap, int start, int end) {
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            char c = heap.charAt(i);
+            if (c < '0' || c > '9' || value > (Long.MAX_VALUE - 9) / 10) {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Gets the entry of the raw class name of the given range, adding it to
+     * the table if not yet present.
+     *
+     * @param heap
+     *            The heap histogram
+     * @param start
+     *            The start of the raw class name
+     * @param end
+     *            The end of the raw class name
+     * @return The entry
+     */
+    private Entry getEntry(CharSequence heap, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + heap.charAt(i);
+        }
+        int mask = table.length - 1;
+        int index = mix(hash) & mask;
+        Entry entry;
+        while ((entry = table[index]) != null) {
+            if (entry.hash == hash && entry.matches(heap, start, end)) {
+                return entry;
+            }
+            index = (index + 1) & mask;
+        }
+
+        String rawName = heap.subSequence(start, end).toString();
+        entry = new Entry(hash, rawName, convertClassName(rawName));
+        table[index] = entry;
+        entryCount++;
+        if (entryCount * 2 > table.length) {
+            rehash(table.length * 2, false);
+        }
+        return entry;
+    }
+
+    /**
+     * Rehashes the table.
+     *
+     * @param capacity
+     *            The new capacity, a power of two
+     * @param evict
+     *            <tt>true</tt> to drop the entries not seen in the current
+     *            histogram
+     */
+    private void rehash(int capacity, boolean evict) {
+        Entry[] oldTable = table;
+        table = new Entry[capacity];
+        entryCount = 0;
+        int mask = capacity - 1;
+        for (Entry entry : oldTable) {
+            if (entry == null || (evict && entry.generation != generation)) {
+                continue;
+            }
+            int index = mix(entry.hash) & mask;
+            while (table[index] != null) {
+                index = (index + 1) & mask;
+            }
+            table[index] = entry;
+            entryCount++;
+        }
+    }
+
+    /**
+     * Spreads the bits of the given hash code.
+     *
+     * @param hash
+     *            The hash code
+     * @return The spread hash code
+     */
+    private static int mix(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Converts the class name. e.g "[I" to "int[]"
+     *
+     * @param className
+     *            The class name
+     * @return The class name
+     */
+    private static String convertClassName(String className) {
+        if (className.startsWith("[")) { //$NON-NLS-1$
+            return Signature.toString(className);
+        }
+        return className;
+    }
+
+    /**
+     * The entry of a class in the table.
+     */
+    private static class Entry {
+
+        /** The hash code of the raw class name. */
+        final int hash;
+
+        /** The raw class name, e.g. "[I". */
+        final String rawName;
+
+        /** The converted class name, e.g. "int[]". */
+        final String className;
+
+        /** The heap element last created for the class. */
+        HeapElement element;
+
+        /** The number of the histogram the class was last seen in. */
+        int generation;
+
+        /** The total memory size of instances in that histogram. */
+        long size;
+
+        /** The total count of instances in that histogram. */
+        long count;
+
+        /**
+         * The constructor.
+         *
+         * @param hash
+         *            The hash code of the raw class name
+         * @param rawName
+         *            The raw class name
+         * @param className
+         *            The converted class name
+         */
+        Entry(int hash, String rawName, String className) {
+            this.hash = hash;
+            this.rawName = rawName;
+            this.className = className;
+        }
+
+        /**
+         * Gets the state indicating if the raw class name equals the given
+         * range.
+         *
+         * @param heap
+         *            The heap histogram
+         * @param start
+         *            The start of the range
+         * @param end
+         *            The end of the range
+         * @return <tt>true</tt> if the raw class name equals the range
+         */
+        boolean matches(CharSequence heap, int start, int end) {
+            if (rawName.length() != end - start) {
+                return false;
+            }
+            for (int i = 0; i < rawName.length(); i++) {
+                if (rawName.charAt(i) != heap.charAt(start + i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/*******************************************************************************
+ * Copyright (c) 2010 JVM Monitor project. All rights reserved.
+ *
+ * This code is distributed under the terms of the Eclipse Public License v1.0
+ * which is available at http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.jboss.tools.jmx.jvmmonitor.internal.core;
+
+import java.util.Arrays;
+
+/**
+ * The hash map from <tt>long</tt> to <tt>long</tt>, with open addressing, so
+ * that neither keys nor values are boxed.
+ */
+public class LongLongHashMap {
+
+    /** The minimum capacity. */
+    private static final int MIN_CAPACITY = 16;
+
+    /** The keys. */
+    private long[] keys;
+
+    /** The values. */
+    private long[] values;
+
+    /** The states indicating if the slots are used. */
+    private boolean[] used;
+
+    /** The number of entries. */
+    private int size;
+
+    /**
+     * The constructor.
+     */
+    public LongLongHashMap() {
+        this(MIN_CAPACITY / 2);
+    }
+
+    /**
+     * The constructor.
+     *
+     * @param expectedSize
+     *            The expected number of entries
+     */
+    public LongLongHashMap(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    /**
+     * Gets the state indicating if the map has the given key.
+     *
+     * @param key
+     *            The key
+     * @return <tt>true</tt> if the map has the key
+     */
+    public boolean containsKey(long key) {
+        return used[indexOf(key)];
+    }
+
+    /**
+     * Gets the value of the given key.
+     *
+     * @param key
+     *            The key
+     * @param defaultValue
+     *            The value returned if the map does not have the key
+     * @return The value
+     */
+    public long get(long key, long defaultValue) {
+        int index = indexOf(key);
+        return used[index] ? values[index] : defaultValue;
+    }
+
+    /**
+     * Puts the value of the given key.
+     *
+     * @param key
+     *            The key
+     * @param value
+     *            The value
+     */
+    public void put(long key, long value) {
+        int index = indexOf(key);
+        if (!used[index]) {
+            if ((size + 1) * 2 > keys.length) {
+                rehash(keys.length * 2);
+                index = indexOf(key);
+            }
+            used[index] = true;
+            keys[index] = key;
+            size++;
+        }
+        values[index] = value;
+    }
+
+    /**
+     * Gets the number of entries.
+     *
+     * @return The number of entries
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Clears the map.
+     */
+    public void clear() {
+        Arrays.fill(used, false);
+        size = 0;
+    }
+
+    /**
+     * Gets the index of the slot holding the given key, or of the empty slot
+     * where it would be put.
+     *
+     * @param key
+     *            The key
+     * @return The index
+     */
+    private int indexOf(long key) {
+        int mask = keys.length - 1;
+        long h = key * 0x9E3779B97F4A7C15L;
+        int index = (int) (h ^ (h >>> 32)) & mask;
+        while (used[index] && keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    /**
+     * Rehashes the map.
+     *
+     * @param capacity
+     *            The new capacity, a power of two
+     */
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        boolean[] oldUsed = used;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i]) {
+                int index = indexOf(oldKeys[i]);
+                used[index] = true;
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * Allocates the arrays.
+     *
+     * @param capacity
+     *            The capacity, a power of two
+     */
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new long[capacity];
+        used = new boolean[capacity];
+    }
+}
@@ -123,4 +123,10 @@ public final class Messages extends NLS {
     
     /** */
     public static String transformClassesTask;
+
+    /** */
+    public static String transferFileTask;
+
+    /** */
+    public static String transferFileProgressMsg;
 }
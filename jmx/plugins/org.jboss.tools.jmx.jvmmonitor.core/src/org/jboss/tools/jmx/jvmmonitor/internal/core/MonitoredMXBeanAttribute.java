@@ -6,10 +6,10 @@
  *******************************************************************************/
 package org.jboss.tools.jmx.jvmmonitor.internal.core;
 
-import java.util.ArrayList;
+import java.util.AbstractList;
 import java.util.Date;
 import java.util.List;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.RandomAccess;
 
 import javax.management.ObjectName;
 
@@ -21,23 +21,17 @@ import org.jboss.tools.jmx.jvmmonitor.core.mbean.IMonitoredMXBeanAttribute;
  */
 public class MonitoredMXBeanAttribute implements IMonitoredMXBeanAttribute {
 
-    /** The number of durations. */
-    private static final long NUM_OF_DURATIONS = 500;
-
     /** The object name. */
     private ObjectName objectName;
 
     /** The attribute name. */
     private String atributeName;
 
-    /** The attribute values. */
-    private List<Number> values;
-
-    /** The time values. */
-    private List<Date> dates;
+    /** The time series of the attribute values. */
+    private volatile TimeSeries series;
 
-    /** The previous duration index. */
-    private int previousDurationIndex;
+    /** The last snapshot of the time series, shared by the dates and values. */
+    private volatile SeriesSnapshot lastSnapshot;
 
     /** The RGB. */
     private int[] rgb;
@@ -56,11 +50,9 @@ public class MonitoredMXBeanAttribute implements IMonitoredMXBeanAttribute {
             String attributeName, int[] rgb) {
         this.objectName = objectName;
         this.atributeName = attributeName;
-        previousDurationIndex = 0;
         this.rgb = rgb;
 
-        values = new CopyOnWriteArrayList<Number>();
-        dates = new CopyOnWriteArrayList<Date>();
+        series = new TimeSeries();
     }
 
     /*
@@ -92,7 +84,7 @@ public class MonitoredMXBeanAttribute implements IMonitoredMXBeanAttribute {
      */
     @Override
     public List<Date> getDates() {
-        return dates;
+        return new DateList(getSnapshot().snapshot.times);
     }
 
     /*
@@ -100,7 +92,7 @@ public class MonitoredMXBeanAttribute implements IMonitoredMXBeanAttribute {
      */
     @Override
     public List<Number> getValues() {
-        return values;
+        return new ValueList(getSnapshot().snapshot.values);
     }
 
     /*
@@ -116,9 +108,8 @@ public class MonitoredMXBeanAttribute implements IMonitoredMXBeanAttribute {
      */
     @Override
     public void clear() {
-        dates.clear();
-        values.clear();
-        previousDurationIndex = 0;
+        series = new TimeSeries();
+        lastSnapshot = null;
     }
 
     /**
@@ -130,13 +121,7 @@ public class MonitoredMXBeanAttribute implements IMonitoredMXBeanAttribute {
      *            The date
      */
     public void add(Number value, Date date) {
-        values.add(value);
-        dates.add(date);
-
-        // compress data if exceeding the certain size
-        if (dates.size() > NUM_OF_DURATIONS * 2) {
-            compress();
-        }
+        series.add(date.getTime(), value.doubleValue());
     }
 
     /**
@@ -145,95 +130,116 @@ public class MonitoredMXBeanAttribute implements IMonitoredMXBeanAttribute {
      * @return The data size.
      */
     public int getSize() {
-        return dates.size();
+        return getSnapshot().snapshot.times.length;
     }
 
     /**
-     * Compresses the data diving into several durations and keeping only the
-     * min / max value in each duration.
+     * Gets the snapshot of the time series, taking a new one only if values
+     * have been added since the last one.
+     * 
+     * @return The snapshot
      */
-    private void compress() {
-        ArrayList<Date> compressedDates = new ArrayList<Date>();
-        ArrayList<Number> compressedValues = new ArrayList<Number>();
-
-        int minIndex = 0;
-        int maxIndex = 0;
-        previousDurationIndex = 0;
-        for (int i = 0; i < dates.size(); i++) {
-            if (isInSameDurationAsPrevious(dates.get(i).getTime())) {
-
-                // get the min / max values in the same duration
-                double value = values.get(i).doubleValue();
-                if (value > values.get(maxIndex).doubleValue()) {
-                    maxIndex = i;
-                }
-                if (value < values.get(minIndex).doubleValue()) {
-                    minIndex = i;
-                }
-            } else {
-                addValues(compressedDates, compressedValues, minIndex, maxIndex);
-                maxIndex = i;
-                minIndex = i;
-            }
+    private SeriesSnapshot getSnapshot() {
+        TimeSeries current = series;
+        long count = current.getCount();
+        SeriesSnapshot snapshot = lastSnapshot;
+        if (snapshot == null || snapshot.series != current
+                || snapshot.count != count) {
+            snapshot = new SeriesSnapshot(current, count, current.snapshot());
+            lastSnapshot = snapshot;
         }
-
-        addValues(compressedDates, compressedValues, minIndex, maxIndex);
-
-        dates = compressedDates;
-        values = compressedValues;
+        return snapshot;
     }
 
     /**
-     * Adds the values to the given array.
-     * 
-     * @param datesArray
-     *            The array of dates
-     * @param valuesArray
-     *            The array of values
-     * @param indexA
-     *            The index of {@link #dates} and {@link #values} to add
-     * @param indexB
-     *            The index of {@link #values} and {@link #values} to add
+     * The snapshot of a time series, with the number of samples it was taken at.
      */
-    private void addValues(ArrayList<Date> datesArray,
-            ArrayList<Number> valuesArray, int indexA, int indexB) {
-        if (indexA < indexB) {
-            datesArray.add(dates.get(indexA));
-            valuesArray.add(values.get(indexA));
-            datesArray.add(dates.get(indexB));
-            valuesArray.add(values.get(indexB));
-        } else if (indexA > indexB) {
-            datesArray.add(dates.get(indexB));
-            valuesArray.add(values.get(indexB));
-            datesArray.add(dates.get(indexA));
-            valuesArray.add(values.get(indexA));
-        } else {
-            datesArray.add(dates.get(indexB));
-            valuesArray.add(values.get(indexB));
+    private static class SeriesSnapshot {
+
+        /** The time series. */
+        final TimeSeries series;
+
+        /** The number of samples added to the time series. */
+        final long count;
+
+        /** The snapshot. */
+        final TimeSeries.Snapshot snapshot;
+
+        /**
+         * The constructor.
+         * 
+         * @param series
+         *            The time series
+         * @param count
+         *            The number of samples added to the time series
+         * @param snapshot
+         *            The snapshot
+         */
+        SeriesSnapshot(TimeSeries series, long count,
+                TimeSeries.Snapshot snapshot) {
+            this.series = series;
+            this.count = count;
+            this.snapshot = snapshot;
         }
     }
 
     /**
-     * Checks if the given date is in the same duration as previous.
-     * 
-     * @param date
-     *            the date
-     * @return true if the given date is in the same duration as previous
+     * The read-only view of the time stamps as dates.
      */
-    private boolean isInSameDurationAsPrevious(long date) {
+    private static class DateList extends AbstractList<Date> implements
+            RandomAccess {
+
+        /** The time stamps. */
+        private final long[] times;
+
+        /**
+         * The constructor.
+         * 
+         * @param times
+         *            The time stamps
+         */
+        DateList(long[] times) {
+            this.times = times;
+        }
 
-        double minDate = dates.get(0).getTime();
-        double maxDate = dates.get(dates.size() - 1).getTime();
+        @Override
+        public Date get(int index) {
+            return new Date(times[index]);
+        }
 
-        // calculate the duration index
-        int durationIndex = (int) ((date - minDate) / (maxDate - minDate) * NUM_OF_DURATIONS);
+        @Override
+        public int size() {
+            return times.length;
+        }
+    }
 
-        // check if the duration index is the same as previous
-        boolean isInSameGridAsPrevious = (durationIndex == previousDurationIndex);
+    /**
+     * The read-only view of the values.
+     */
+    private static class ValueList extends AbstractList<Number> implements
+            RandomAccess {
+
+        /** The values. */
+        private final double[] values;
+
+        /**
+         * The constructor.
+         * 
+         * @param values
+         *            The values
+         */
+        ValueList(double[] values) {
+            this.values = values;
+        }
 
-        // store the previous duration index
-        previousDurationIndex = durationIndex;
+        @Override
+        public Number get(int index) {
+            return values[index];
+        }
 
-        return isInSameGridAsPrevious;
+        @Override
+        public int size() {
+            return values.length;
+        }
     }
 }
@@ -0,0 +1,445 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ *******************************************************************************/
+package org.jboss.tools.jmx.jvmmonitor.internal.core;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import javax.management.InstanceNotFoundException;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.osgi.util.NLS;
+import org.jboss.tools.jmx.jvmmonitor.core.JvmCoreException;
+
+/**
+ * Transfers a file from the host of a remote JVM through the data transfer
+ * MXBean of the agent.
+ * <p>
+ * The file is kept open by the agent for the whole transfer. Several chunks
+ * are requested at once so that the round trips overlap, and the chunk size
+ * is adapted to the time each round trip takes. A chunk failing is requested
+ * again, in a new session if the agent has lost the previous one.
+ */
+public class RemoteFileTransfer {
+
+    /** The system property to disable compressing the transferred data. */
+    public static final String DEFLATE_PROPERTY = "org.jboss.tools.jmx.jvmmonitor.transfer.deflate"; //$NON-NLS-1$
+
+    /** The initial chunk size in bytes. */
+    private static final int INITIAL_CHUNK_SIZE = 1024 * 1024;
+
+    /** The min chunk size in bytes. */
+    private static final int MIN_CHUNK_SIZE = 256 * 1024;
+
+    /** The max chunk size in bytes. */
+    private static final int MAX_CHUNK_SIZE = 8 * 1024 * 1024;
+
+    /** The round trip time in milliseconds the chunk size is adapted to. */
+    private static final long TARGET_ROUND_TRIP = 1000;
+
+    /** The number of chunks requested at once. */
+    private static final int PIPELINE_DEPTH = 4;
+
+    /** The number of times a chunk is requested again on failure. */
+    private static final int MAX_RETRIES = 3;
+
+    /** The signatures of the operations taking a string. */
+    private static final String[] STRING_SIGNATURES = new String[] { String.class
+            .getCanonicalName() };
+
+    /** The signatures of the readChunk operation. */
+    private static final String[] READ_SIGNATURES = new String[] {
+            String.class.getCanonicalName(), "long", "int", "boolean" }; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+
+    /** The MBean server. */
+    private AbstractMBeanServer server;
+
+    /** The object name of the data transfer MXBean. */
+    private ObjectName objectName;
+
+    /** The file name on the remote host. */
+    private String fileName;
+
+    /** The state indicating if the data is compressed. */
+    private boolean deflate;
+
+    /** The current session id. */
+    private volatile String sessionId;
+
+    /** The file size. */
+    private long size;
+
+    /**
+     * The constructor.
+     *
+     * @param server
+     *            The MBean server
+     * @param objectName
+     *            The object name of the data transfer MXBean
+     * @param fileName
+     *            The file name on the remote host
+     */
+    public RemoteFileTransfer(AbstractMBeanServer server,
+            ObjectName objectName, String fileName) {
+        this.server = server;
+        this.objectName = objectName;
+        this.fileName = fileName;
+        deflate = !Boolean.FALSE.toString().equals(
+                System.getProperty(DEFLATE_PROPERTY));
+    }
+
+    /**
+     * Opens the file on the remote host.
+     *
+     * @return <tt>false</tt> if the agent does not support sessions
+     * @throws JvmCoreException
+     *             if the JVM is not reachable, or the agent cannot read the
+     *             file
+     */
+    public boolean open() throws JvmCoreException {
+        if (objectName == null) {
+            return false;
+        }
+        try {
+            if (!openSession(null)) {
+                throw new JvmCoreException(IStatus.ERROR, NLS.bind(
+                        Messages.readFileFailedMsg, fileName), null);
+            }
+            return true;
+        } catch (JvmCoreException e) {
+            if (isUnsupported(e)) {
+                // the agent is older than the session operations
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Gets the state indicating if the given exception means that the data
+     * transfer MXBean or its operation does not exist.
+     *
+     * @param e
+     *            The exception
+     * @return <tt>true</tt> if the MXBean or the operation is missing
+     */
+    static boolean isUnsupported(JvmCoreException e) {
+        for (Throwable t = e.getStatus().getException(); t != null; t = t
+                .getCause()) {
+            if (t instanceof InstanceNotFoundException) {
+                return true;
+            }
+            if (t instanceof ReflectionException) {
+                return t.getCause() instanceof NoSuchMethodException;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Transfers the file opened by {@link #open()} into the given stream, and
+     * closes the session.
+     *
+     * @param os
+     *            The output stream
+     * @param monitor
+     *            The progress monitor, or <tt>null</tt>
+     * @return <tt>false</tt> if canceled
+     * @throws JvmCoreException
+     * @throws IOException
+     */
+    public boolean transfer(OutputStream os, IProgressMonitor monitor)
+            throws JvmCoreException, IOException {
+        if (monitor == null) {
+            monitor = new NullProgressMonitor();
+        }
+        monitor.beginTask(NLS.bind(Messages.transferFileTask, fileName),
+                (int) (size / 1024));
+
+        ExecutorService executor = Executors.newFixedThreadPool(
+                PIPELINE_DEPTH, new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "JvmMonitor file transfer"); //$NON-NLS-1$
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        LinkedList<Chunk> pending = new LinkedList<Chunk>();
+        try {
+            long start = System.currentTimeMillis();
+            long submitted = 0;
+            long written = 0;
+            int chunkSize = INITIAL_CHUNK_SIZE;
+            while (written < size) {
+                while (pending.size() < PIPELINE_DEPTH && submitted < size) {
+                    Chunk chunk = new Chunk(submitted, (int) Math.min(
+                            chunkSize, size - submitted));
+                    chunk.future = executor.submit(chunk);
+                    pending.add(chunk);
+                    submitted += chunk.length;
+                }
+
+                Chunk chunk = pending.removeFirst();
+                byte[] bytes = get(chunk, monitor);
+                if (bytes == null) {
+                    return false;
+                }
+                os.write(bytes);
+                written += bytes.length;
+                if (bytes.length < chunk.length) {
+                    // the file got shorter
+                    break;
+                }
+
+                chunkSize = adapt(chunkSize, chunk.roundTrip);
+                monitor.worked(bytes.length / 1024);
+                long elapsed = Math.max(1, System.currentTimeMillis() - start);
+                monitor.subTask(NLS.bind(Messages.transferFileProgressMsg,
+                        new Object[] { written / (1024 * 1024),
+                                size / (1024 * 1024),
+                                written * 1000 / elapsed / (1024 * 1024) }));
+            }
+            return true;
+        } finally {
+            executor.shutdownNow();
+            closeSession();
+            monitor.done();
+        }
+    }
+
+    /**
+     * Waits for the data of the chunk.
+     *
+     * @param chunk
+     *            The chunk
+     * @param monitor
+     *            The progress monitor
+     * @return The data, or <tt>null</tt> if canceled
+     * @throws JvmCoreException
+     */
+    private static byte[] get(Chunk chunk, IProgressMonitor monitor)
+            throws JvmCoreException {
+        while (true) {
+            if (monitor.isCanceled()) {
+                return null;
+            }
+            try {
+                return chunk.future.get(500, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                // check cancellation again
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof JvmCoreException) {
+                    throw (JvmCoreException) e.getCause();
+                }
+                throw new JvmCoreException(IStatus.ERROR, e.getMessage(),
+                        e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Gets the chunk size for the next chunks, so that a round trip takes
+     * about {@link #TARGET_ROUND_TRIP}.
+     *
+     * @param chunkSize
+     *            The current chunk size
+     * @param roundTrip
+     *            The time the last round trip took
+     * @return The chunk size
+     */
+    private static int adapt(int chunkSize, long roundTrip) {
+        if (roundTrip < TARGET_ROUND_TRIP / 2 && chunkSize < MAX_CHUNK_SIZE) {
+            return chunkSize * 2;
+        }
+        if (roundTrip > TARGET_ROUND_TRIP * 2 && chunkSize > MIN_CHUNK_SIZE) {
+            return chunkSize / 2;
+        }
+        return chunkSize;
+    }
+
+    /**
+     * Opens a session on the remote host, unless the failed session has
+     * already been replaced by another thread.
+     *
+     * @param failedSessionId
+     *            The session which failed, or <tt>null</tt>
+     * @return <tt>true</tt> if a session is open
+     * @throws JvmCoreException
+     */
+    private synchronized boolean openSession(String failedSessionId)
+            throws JvmCoreException {
+        if (sessionId != null && !sessionId.equals(failedSessionId)) {
+            return true;
+        }
+        String id = (String) server.invoke(objectName, "openSession", //$NON-NLS-1$
+                new Object[] { fileName }, STRING_SIGNATURES);
+        if (id == null) {
+            return false;
+        }
+        Long fileSize = (Long) server.invoke(objectName,
+                "getSessionFileSize", new Object[] { id }, STRING_SIGNATURES); //$NON-NLS-1$
+        if (fileSize == null || fileSize.longValue() < 0) {
+            return false;
+        }
+        if (failedSessionId == null) {
+            size = fileSize.longValue();
+        }
+        sessionId = id;
+        return true;
+    }
+
+    /**
+     * Closes the current session.
+     */
+    private void closeSession() {
+        String id = sessionId;
+        if (id == null) {
+            return;
+        }
+        sessionId = null;
+        try {
+            server.invoke(objectName, "closeSession", new Object[] { id }, //$NON-NLS-1$
+                    STRING_SIGNATURES);
+        } catch (JvmCoreException e) {
+            // the agent closes it on timeout
+        }
+    }
+
+    /**
+     * Reads the chunk, retrying in a new session on failure.
+     *
+     * @param chunk
+     *            The chunk
+     * @return The data
+     * @throws JvmCoreException
+     */
+    byte[] read(Chunk chunk) throws JvmCoreException {
+        JvmCoreException failure = null;
+        for (int i = 0; i <= MAX_RETRIES; i++) {
+            String id = sessionId;
+            try {
+                byte[] bytes = (byte[]) server.invoke(objectName,
+                        "readChunk", new Object[] { id, chunk.offset, //$NON-NLS-1$
+                                chunk.length, deflate }, READ_SIGNATURES);
+                if (bytes == null) {
+                    throw new JvmCoreException(IStatus.ERROR,
+                            Messages.jvmNotReachableMsg, null);
+                }
+                return deflate ? inflate(bytes, chunk.length) : bytes;
+            } catch (JvmCoreException e) {
+                failure = e;
+                if (Thread.currentThread().isInterrupted()) {
+                    break;
+                }
+                openSession(id);
+            }
+        }
+        throw failure;
+    }
+
+    /**
+     * Decompresses the data of a chunk.
+     *
+     * @param bytes
+     *            The compressed data
+     * @param length
+     *            The expected length
+     * @return The data
+     * @throws JvmCoreException
+     */
+    private byte[] inflate(byte[] bytes, int length) throws JvmCoreException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(bytes);
+            byte[] result = new byte[length];
+            int count = 0;
+            while (count < length && !inflater.finished()) {
+                int n = inflater.inflate(result, count, length - count);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                count += n;
+            }
+            if (count < length) {
+                byte[] shorter = new byte[count];
+                System.arraycopy(result, 0, shorter, 0, count);
+                return shorter;
+            }
+            return result;
+        } catch (DataFormatException e) {
+            throw new JvmCoreException(IStatus.ERROR, NLS.bind(
+                    Messages.readFileFailedMsg, fileName), e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * The chunk of the file being transferred.
+     */
+    private class Chunk implements Callable<byte[]> {
+
+        /** The offset in the file. */
+        final long offset;
+
+        /** The length. */
+        final int length;
+
+        /** The future of the data. */
+        Future<byte[]> future;
+
+        /** The time in milliseconds the round trip took. */
+        volatile long roundTrip;
+
+        /**
+         * The constructor.
+         *
+         * @param offset
+         *            The offset in the file
+         * @param length
+         *            The length
+         */
+        Chunk(long offset, int length) {
+            this.offset = offset;
+            this.length = length;
+        }
+
+        /*
+         * @see Callable#call()
+         */
+        @Override
+        public byte[] call() throws JvmCoreException {
+            long start = System.currentTimeMillis();
+            byte[] bytes = read(this);
+            roundTrip = System.currentTimeMillis() - start;
+            return bytes;
+        }
+    }
+}
@@ -0,0 +1,356 @@
+/*******************************************************************************
+ * Copyright (c) 2010 JVM Monitor project. All rights reserved.
+ *
+ * This code is distributed under the terms of the Eclipse Public License v1.0
+ * which is available at http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.jboss.tools.jmx.jvmmonitor.internal.core;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.jboss.tools.jmx.jvmmonitor.internal.core.cpu.CallTreeNode;
+import org.jboss.tools.jmx.jvmmonitor.internal.core.cpu.CpuModel;
+import org.jboss.tools.jmx.jvmmonitor.internal.core.cpu.MethodNode;
+import org.jboss.tools.jmx.jvmmonitor.internal.core.cpu.ThreadNode;
+
+/**
+ * The merger of the call tree changes read from the stack sampler of the
+ * agent into the CPU model.
+ * <p>
+ * The strings and the nodes of the call tree in the target JVM are kept by id,
+ * since the changes only carry the ones created since the previous read. The
+ * frames of methods which are not in the profiled packages are left out when
+ * merging, in the same way as when sampling the stacks over JMX.
+ */
+public class StackSampleMerger {
+
+    /** The version of the encoding. */
+    private static final int VERSION = 1;
+
+    /** The strings, which are the thread names and method names. */
+    private List<String> strings;
+
+    /** The profiled states of the strings, 0 if not yet known. */
+    private byte[] profiledStates;
+
+    /** The profiled packages the profiled states are for. */
+    private Set<String> profiledPackages;
+
+    /** The parent node ids, -1 for the thread nodes. */
+    private int[] parentIds;
+
+    /** The string ids of the nodes. */
+    private int[] stringIds;
+
+    /** The thread node ids of the nodes. */
+    private int[] threadIds;
+
+    /** The number of nodes. */
+    private int nodeCount;
+
+    /** The encoded changes being merged. */
+    private byte[] data;
+
+    /** The position in the encoded changes. */
+    private int position;
+
+    /**
+     * The constructor.
+     */
+    public StackSampleMerger() {
+        strings = new ArrayList<String>();
+        profiledStates = new byte[256];
+        profiledPackages = new HashSet<String>();
+        parentIds = new int[1024];
+        stringIds = new int[1024];
+        threadIds = new int[1024];
+    }
+
+    /**
+     * Merges the given changes into the CPU model.
+     *
+     * @param delta
+     *            The encoded changes of the call tree
+     * @param cpuModel
+     *            The CPU model
+     * @param packages
+     *            The profiled packages
+     * @return <tt>false</tt> if the changes could not be merged since they are
+     *         not the ones following the previous changes, in which case the
+     *         call tree in the target JVM has to be cleared
+     */
+    public boolean merge(byte[] delta, CpuModel cpuModel, Set<String> packages) {
+        if (delta.length == 0) {
+            return true;
+        }
+        data = delta;
+        position = 0;
+        try {
+            return doMerge(cpuModel, packages);
+        } catch (IndexOutOfBoundsException e) {
+            clear();
+            return false;
+        } finally {
+            data = null;
+        }
+    }
+
+    /**
+     * Clears the strings and the nodes.
+     */
+    public void clear() {
+        strings.clear();
+        Arrays.fill(profiledStates, (byte) 0);
+        nodeCount = 0;
+    }
+
+    /**
+     * Merges the changes into the CPU model.
+     *
+     * @param cpuModel
+     *            The CPU model
+     * @param packages
+     *            The profiled packages
+     * @return <tt>false</tt> if the changes could not be merged
+     */
+    private boolean doMerge(CpuModel cpuModel, Set<String> packages) {
+        if (readInt() != VERSION) {
+            return false;
+        }
+        int firstStringId = readInt();
+        int stringCount = readInt();
+        int firstNodeId = readInt();
+        int newNodeCount = readInt();
+        if (firstStringId != strings.size() || firstNodeId != nodeCount) {
+            // the call tree in the target JVM has been cleared, or has been
+            // read by someone else
+            clear();
+            if (firstStringId != 0 || firstNodeId != 0) {
+                return false;
+            }
+        }
+        if (!packages.equals(profiledPackages)) {
+            profiledPackages = new HashSet<String>(packages);
+            Arrays.fill(profiledStates, (byte) 0);
+        }
+
+        for (int i = 0; i < stringCount; i++) {
+            int length = readInt();
+            strings.add(new String(data, position, length,
+                    StandardCharsets.UTF_8));
+            position += length;
+        }
+        if (profiledStates.length < strings.size()) {
+            profiledStates = Arrays.copyOf(profiledStates,
+                    Math.max(strings.size(), profiledStates.length * 2));
+        }
+
+        ensureNodeCapacity(nodeCount + newNodeCount);
+        for (int i = 0; i < newNodeCount; i++) {
+            int parentId = readInt() - 1;
+            parentIds[nodeCount] = parentId;
+            stringIds[nodeCount] = readInt();
+            threadIds[nodeCount] = parentId < 0 ? nodeCount
+                    : threadIds[parentId];
+            nodeCount++;
+        }
+
+        Map<Integer, ThreadNode<CallTreeNode>> callTreeThreads = new HashMap<Integer, ThreadNode<CallTreeNode>>();
+        Map<Integer, ThreadNode<MethodNode>> hotSpotThreads = new HashMap<Integer, ThreadNode<MethodNode>>();
+        Map<Integer, CallTreeNode> frameNodes = new HashMap<Integer, CallTreeNode>();
+        int changedNodeCount = readInt();
+        int nodeId = 0;
+        for (int i = 0; i < changedNodeCount; i++) {
+            nodeId += readInt();
+            long time = readLong();
+            long selfTime = readLong();
+            int count = readInt();
+            if (parentIds[nodeId] < 0 || !isProfiled(stringIds[nodeId])) {
+                continue;
+            }
+
+            int threadId = threadIds[nodeId];
+            String threadName = strings.get(stringIds[threadId]);
+            ThreadNode<CallTreeNode> callTreeThreadNode = callTreeThreads
+                    .get(threadId);
+            if (callTreeThreadNode == null) {
+                callTreeThreadNode = cpuModel.getCallTreeThread(threadName);
+                if (callTreeThreadNode == null) {
+                    callTreeThreadNode = new ThreadNode<CallTreeNode>(
+                            threadName);
+                }
+                callTreeThreads.put(threadId, callTreeThreadNode);
+            }
+            ThreadNode<MethodNode> hotSpotThreadNode = hotSpotThreads
+                    .get(threadId);
+            if (hotSpotThreadNode == null) {
+                hotSpotThreadNode = cpuModel.getHotSpotThread(threadName);
+                if (hotSpotThreadNode == null) {
+                    hotSpotThreadNode = new ThreadNode<MethodNode>(threadName);
+                }
+                hotSpotThreads.put(threadId, hotSpotThreadNode);
+            }
+
+            CallTreeNode frameNode = getFrameNode(nodeId, cpuModel,
+                    callTreeThreadNode, frameNodes);
+            frameNode.setTotalTime(frameNode.getTotalTime() + time);
+            frameNode.setSelfTime(frameNode.getSelfTime() + selfTime);
+            frameNode.setInvocationCount(frameNode.getInvocationCount()
+                    + count);
+            if (frameNode.getParent() == callTreeThreadNode) {
+                callTreeThreadNode.setTotalTime(callTreeThreadNode
+                        .getTotalTime() + time);
+            }
+
+            String methodName = frameNode.getName();
+            MethodNode methodNode = (MethodNode) hotSpotThreadNode
+                    .getChild(methodName);
+            if (methodNode == null) {
+                methodNode = new MethodNode(cpuModel, methodName,
+                        hotSpotThreadNode);
+                hotSpotThreadNode.addChild(methodNode);
+            }
+            methodNode.incrementCount(count);
+            methodNode.incrementTime(time);
+            hotSpotThreadNode.setTotalTime(hotSpotThreadNode.getTotalTime()
+                    + time);
+        }
+
+        for (ThreadNode<CallTreeNode> callTreeThreadNode : callTreeThreads
+                .values()) {
+            if (callTreeThreadNode.hasChildren()) {
+                cpuModel.addCallTreeThread(callTreeThreadNode);
+            }
+        }
+        for (ThreadNode<MethodNode> hotSpotThreadNode : hotSpotThreads
+                .values()) {
+            if (hotSpotThreadNode.hasChildren()) {
+                cpuModel.addHotSpotThread(hotSpotThreadNode);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets the frame node in the CPU model corresponding to the given node,
+     * creating the frame nodes on the way if not yet present.
+     *
+     * @param nodeId
+     *            The node id
+     * @param cpuModel
+     *            The CPU model
+     * @param callTreeThreadNode
+     *            The call tree thread node
+     * @param frameNodes
+     *            The frame nodes found so far by node id, whose value is
+     *            <tt>null</tt> for a node which has no profiled ancestor
+     * @return The frame node of the nearest profiled node among the given node
+     *         and its ancestors, or <tt>null</tt> if there is none
+     */
+    private CallTreeNode getFrameNode(int nodeId, CpuModel cpuModel,
+            ThreadNode<CallTreeNode> callTreeThreadNode,
+            Map<Integer, CallTreeNode> frameNodes) {
+        List<Integer> path = new ArrayList<Integer>();
+        int id = nodeId;
+        while (parentIds[id] >= 0 && !frameNodes.containsKey(id)) {
+            path.add(id);
+            id = parentIds[id];
+        }
+
+        CallTreeNode frameNode = parentIds[id] < 0 ? null : frameNodes.get(id);
+        for (int i = path.size() - 1; i >= 0; i--) {
+            id = path.get(i);
+            if (isProfiled(stringIds[id])) {
+                String methodName = strings.get(stringIds[id]);
+                CallTreeNode child;
+                if (frameNode == null) {
+                    child = (CallTreeNode) callTreeThreadNode
+                            .getChild(methodName);
+                    if (child == null) {
+                        child = new CallTreeNode(cpuModel, methodName, 0, 0,
+                                callTreeThreadNode);
+                        callTreeThreadNode.addChild(child);
+                    }
+                } else {
+                    child = frameNode.getChild(methodName);
+                    if (child == null) {
+                        child = new CallTreeNode(cpuModel, methodName, 0, 0,
+                                frameNode, callTreeThreadNode);
+                        frameNode.addChild(child);
+                    }
+                }
+                frameNode = child;
+            }
+            frameNodes.put(id, frameNode);
+        }
+        return frameNode;
+    }
+
+    /**
+     * Gets the state indicating if the method of the given string id is in
+     * the profiled packages.
+     *
+     * @param stringId
+     *            The string id of the method
+     * @return <tt>true</tt> if the method is in the profiled packages
+     */
+    private boolean isProfiled(int stringId) {
+        if (profiledStates[stringId] == 0) {
+            String methodName = strings.get(stringId);
+            int index = methodName.lastIndexOf('.', methodName.length() - 3);
+            String className = index < 0 ? methodName : methodName.substring(
+                    0, index);
+            profiledStates[stringId] = AbstractMBeanServer.isProfiledPackage(
+                    className, profiledPackages) ? (byte) 1 : (byte) 2;
+        }
+        return profiledStates[stringId] == 1;
+    }
+
+    /**
+     * Ensures the capacity of the node arrays.
+     *
+     * @param capacity
+     *            The capacity
+     */
+    private void ensureNodeCapacity(int capacity) {
+        if (parentIds.length < capacity) {
+            int length = Math.max(capacity, parentIds.length * 2);
+            parentIds = Arrays.copyOf(parentIds, length);
+            stringIds = Arrays.copyOf(stringIds, length);
+            threadIds = Arrays.copyOf(threadIds, length);
+        }
+    }
+
+    /**
+     * Reads the variable-length integer.
+     *
+     * @return The integer
+     */
+    private int readInt() {
+        return (int) readLong();
+    }
+
+    /**
+     * Reads the variable-length long integer.
+     *
+     * @return The long integer
+     */
+    private long readLong() {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = data[position++];
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+}
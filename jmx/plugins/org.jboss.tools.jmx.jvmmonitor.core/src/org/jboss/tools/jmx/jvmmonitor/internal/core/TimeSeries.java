@@ -0,0 +1,339 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ *******************************************************************************/
+package org.jboss.tools.jmx.jvmmonitor.internal.core;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The time series of a monitored attribute, kept in fixed size rings of
+ * primitive time stamps and values.
+ * <p>
+ * The latest samples are kept as they are. Older samples are kept in coarser
+ * tiers which only hold the min / max value of each duration, so that the
+ * memory used does not grow with the monitoring time.
+ * <p>
+ * Samples are expected to be added by a single thread. Any number of threads
+ * may take a snapshot at the same time without locking.
+ */
+public class TimeSeries {
+
+    /** The number of raw samples kept. */
+    public static final int RAW_CAPACITY = 600;
+
+    /** The durations of the aggregated tiers in milliseconds. */
+    private static final long[] TIER_DURATIONS = { 10000, 60000 };
+
+    /** The number of durations kept in each aggregated tier. */
+    private static final int[] TIER_CAPACITIES = { 360, 1440 };
+
+    /** The raw samples. */
+    private final Ring raw;
+
+    /** The aggregated tiers, from the finest to the coarsest. */
+    private final Tier[] tiers;
+
+    /**
+     * The constructor.
+     */
+    public TimeSeries() {
+        this(RAW_CAPACITY, TIER_DURATIONS, TIER_CAPACITIES);
+    }
+
+    /**
+     * The constructor.
+     *
+     * @param rawCapacity
+     *            The number of raw samples kept
+     * @param durations
+     *            The duration of each aggregated tier in milliseconds
+     * @param capacities
+     *            The number of durations kept in each aggregated tier
+     */
+    public TimeSeries(int rawCapacity, long[] durations, int[] capacities) {
+        raw = new Ring(rawCapacity);
+        tiers = new Tier[durations.length];
+        for (int i = 0; i < tiers.length; i++) {
+            // min and max of each duration
+            tiers[i] = new Tier(durations[i], new Ring(capacities[i] * 2));
+        }
+    }
+
+    /**
+     * Adds the sample. Must not be called from several threads at once.
+     *
+     * @param time
+     *            The time in milliseconds
+     * @param value
+     *            The value
+     */
+    public void add(long time, double value) {
+        for (Tier tier : tiers) {
+            tier.add(time, value);
+        }
+        raw.add(time, value);
+    }
+
+    /**
+     * Gets the number of samples added so far.
+     *
+     * @return The number of samples added
+     */
+    public long getCount() {
+        return raw.written;
+    }
+
+    /**
+     * Gets the number of time stamps and values held by this series.
+     *
+     * @return The capacity
+     */
+    public int getCapacity() {
+        int capacity = raw.capacity;
+        for (Tier tier : tiers) {
+            capacity += tier.ring.capacity;
+        }
+        return capacity;
+    }
+
+    /**
+     * Takes the snapshot of the series, starting with the coarsest tier and
+     * ending with the raw samples. Each tier only contributes the samples
+     * older than those of the finer tiers.
+     *
+     * @return The snapshot
+     */
+    public Snapshot snapshot() {
+        Snapshot[] parts = new Snapshot[tiers.length + 1];
+        parts[0] = raw.snapshot();
+        for (int i = 0; i < tiers.length; i++) {
+            parts[i + 1] = tiers[i].ring.snapshot();
+        }
+
+        int size = 0;
+        long end = Long.MAX_VALUE;
+        int[] lengths = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            lengths[i] = parts[i].countBefore(end);
+            size += lengths[i];
+            if (lengths[i] > 0) {
+                end = parts[i].times[0];
+            }
+        }
+
+        long[] times = new long[size];
+        double[] values = new double[size];
+        int offset = 0;
+        for (int i = parts.length - 1; i >= 0; i--) {
+            System.arraycopy(parts[i].times, 0, times, offset, lengths[i]);
+            System.arraycopy(parts[i].values, 0, values, offset, lengths[i]);
+            offset += lengths[i];
+        }
+        return new Snapshot(times, values);
+    }
+
+    /**
+     * The time stamps and values of the series at a point of time.
+     */
+    public static class Snapshot {
+
+        /** The time stamps in milliseconds, in ascending order. */
+        public final long[] times;
+
+        /** The values. */
+        public final double[] values;
+
+        /**
+         * The constructor.
+         *
+         * @param times
+         *            The time stamps
+         * @param values
+         *            The values
+         */
+        Snapshot(long[] times, double[] values) {
+            this.times = times;
+            this.values = values;
+        }
+
+        /**
+         * Gets the number of samples older than the given time.
+         *
+         * @param time
+         *            The time
+         * @return The number of samples
+         */
+        int countBefore(long time) {
+            int count = 0;
+            while (count < times.length && times[count] < time) {
+                count++;
+            }
+            return count;
+        }
+    }
+
+    /**
+     * The tier keeping the min / max value of each duration.
+     */
+    private static class Tier {
+
+        /** The duration in milliseconds. */
+        private final long duration;
+
+        /** The ring. */
+        private final Ring ring;
+
+        /** The start of the current duration, or -1 if none yet. */
+        private long start = -1;
+
+        /** The time and value of the min / max sample in the current duration. */
+        private long minTime, maxTime;
+        private double min, max;
+
+        /**
+         * The constructor.
+         *
+         * @param duration
+         *            The duration in milliseconds
+         * @param ring
+         *            The ring
+         */
+        Tier(long duration, Ring ring) {
+            this.duration = duration;
+            this.ring = ring;
+        }
+
+        /**
+         * Adds the sample to the current duration, flushing the previous
+         * duration to the ring if the sample starts a new one.
+         *
+         * @param time
+         *            The time
+         * @param value
+         *            The value
+         */
+        void add(long time, double value) {
+            long durationStart = time - time % duration;
+            if (durationStart != start) {
+                flush();
+                start = durationStart;
+                minTime = maxTime = time;
+                min = max = value;
+                return;
+            }
+            if (value < min) {
+                min = value;
+                minTime = time;
+            }
+            if (value > max) {
+                max = value;
+                maxTime = time;
+            }
+        }
+
+        /**
+         * Writes the min / max sample of the current duration in time order.
+         */
+        private void flush() {
+            if (start == -1) {
+                return;
+            }
+            if (minTime < maxTime) {
+                ring.add(minTime, min);
+                ring.add(maxTime, max);
+            } else if (minTime > maxTime) {
+                ring.add(maxTime, max);
+                ring.add(minTime, min);
+            } else {
+                ring.add(minTime, min);
+            }
+        }
+    }
+
+    /**
+     * The fixed size ring of time stamps and values with a single writer.
+     * <p>
+     * The writer fills a slot and then publishes it by incrementing
+     * {@link #written}. A reader copies the published slots and then drops
+     * the ones the writer may have overwritten meanwhile.
+     */
+    private static class Ring {
+
+        /** The capacity. */
+        final int capacity;
+
+        /** The time stamps. */
+        private final AtomicLongArray times;
+
+        /** The raw long bits of the values. */
+        private final AtomicLongArray values;
+
+        /** The number of samples written so far. */
+        volatile long written;
+
+        /**
+         * The constructor.
+         *
+         * @param capacity
+         *            The capacity
+         */
+        Ring(int capacity) {
+            this.capacity = capacity;
+            times = new AtomicLongArray(capacity);
+            values = new AtomicLongArray(capacity);
+        }
+
+        /**
+         * Adds the sample, overwriting the oldest one if full.
+         *
+         * @param time
+         *            The time
+         * @param value
+         *            The value
+         */
+        void add(long time, double value) {
+            long index = written;
+            int slot = (int) (index % capacity);
+            times.lazySet(slot, time);
+            values.lazySet(slot, Double.doubleToRawLongBits(value));
+            written = index + 1;
+        }
+
+        /**
+         * Copies the samples in the ring, from the oldest to the latest.
+         *
+         * @return The snapshot
+         */
+        Snapshot snapshot() {
+            long end = written;
+            long start = Math.max(0, end - capacity);
+            int size = (int) (end - start);
+            long[] t = new long[size];
+            double[] v = new double[size];
+            for (int i = 0; i < size; i++) {
+                int slot = (int) ((start + i) % capacity);
+                t[i] = times.get(slot);
+                v[i] = Double.longBitsToDouble(values.get(slot));
+            }
+
+            // the writer may have been writing over the oldest slots
+            long overwritten = written - capacity + 1 - start;
+            if (overwritten <= 0) {
+                return new Snapshot(t, v);
+            }
+            int skip = (int) Math.min(size, overwritten);
+            long[] t2 = new long[size - skip];
+            double[] v2 = new double[size - skip];
+            System.arraycopy(t, skip, t2, 0, t2.length);
+            System.arraycopy(v, skip, v2, 0, v2.length);
+            return new Snapshot(t2, v2);
+        }
+    }
+}
@@ -31,7 +31,7 @@ import org.jboss.tools.jmx.jvmmonitor.core.cpu.CpuModelEvent.CpuModelState;
 public class CpuModel implements ICpuModel {
 
     /** The agent version. */
-    static final String AGENT_VERSION = "3.8.1"; //$NON-NLS-1$
+    static final String AGENT_VERSION = "3.9.0"; //$NON-NLS-1$
 
     /** The call tree threads. */
     private List<ThreadNode<CallTreeNode>> callTreeThreads;
@@ -15,6 +15,7 @@ import java.util.LinkedHashSet;
 import java.util.Set;
 
 import javax.management.Attribute;
+import javax.management.JMException;
 import javax.management.ObjectName;
 import javax.management.openmbean.CompositeData;
 import javax.xml.parsers.ParserConfigurationException;
@@ -66,6 +67,9 @@ public class CpuProfiler implements ICpuProfiler {
     /** The dump method in CpuProfilerMXBean. */
     private static final String DUMP = "dump"; //$NON-NLS-1$
 
+    /** The dumpSnapshot method in CpuProfilerMXBean. */
+    private static final String DUMP_SNAPSHOT = "dumpSnapshot"; //$NON-NLS-1$
+
     /** The setFilter method in CpuProfilerMXBean. */
     private static final String SET_FILTER = "setFilter"; //$NON-NLS-1$
 
@@ -105,6 +109,12 @@ public class CpuProfiler implements ICpuProfiler {
     /** The profiled packages. */
     private Set<String> profiledPackages;
 
+    /**
+     * The state indicating if the loaded agent is too old to dump the profile
+     * data in the binary snapshot format.
+     */
+    private boolean isDumpSnapshotUnsupported;
+
     /**
      * The constructor.
      * 
@@ -310,15 +320,33 @@ public class CpuProfiler implements ICpuProfiler {
             return;
         }
 
-        String dumpString = (String) invokeCpuProfilerMXBeanMethod(DUMP, null,
-                null);
-        if (dumpString == null) {
-            return;
+        byte[] dump = null;
+        if (!isDumpSnapshotUnsupported) {
+            try {
+                dump = (byte[]) invokeCpuProfilerMXBeanMethod(DUMP_SNAPSHOT,
+                        null, null);
+                if (dump == null) {
+                    return;
+                }
+            } catch (JvmCoreException e) {
+                if (!(e.getCause() instanceof JMException)) {
+                    throw e;
+                }
+                isDumpSnapshotUnsupported = true;
+            }
+        }
+        if (dump == null || dump.length == 0) {
+            String dumpString = (String) invokeCpuProfilerMXBeanMethod(DUMP,
+                    null, null);
+            if (dumpString == null) {
+                return;
+            }
+            dump = dumpString.getBytes();
         }
 
         ByteArrayInputStream input = null;
         try {
-            input = new ByteArrayInputStream(dumpString.getBytes());
+            input = new ByteArrayInputStream(dump);
             CpuDumpParser parser = new CpuDumpParser(input, cpuModel, monitor);
             parser.parse();
         } catch (ParserConfigurationException e) {
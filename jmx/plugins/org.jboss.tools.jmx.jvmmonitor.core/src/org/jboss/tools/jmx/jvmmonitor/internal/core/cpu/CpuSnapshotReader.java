@@ -0,0 +1,352 @@
+/*******************************************************************************
+ * Copyright (c) 2010 JVM Monitor project. All rights reserved.
+ *
+ * This code is distributed under the terms of the Eclipse Public License v1.0
+ * which is available at http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.jboss.tools.jmx.jvmmonitor.internal.core.cpu;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.jboss.tools.jmx.jvmmonitor.core.cpu.CpuModelEvent;
+import org.jboss.tools.jmx.jvmmonitor.core.cpu.CpuModelEvent.CpuModelState;
+import org.jboss.tools.jmx.jvmmonitor.core.dump.IProfileInfo;
+import org.jboss.tools.jmx.jvmmonitor.internal.core.ProfileInfo;
+
+/**
+ * The reader of the CPU profile in the binary snapshot format written by the
+ * agent, which builds the CPU model directly in the same way as
+ * {@link CpuDumpSaxEventHandler} does from the XML format.
+ * <p>
+ * The snapshot starts with the bytes <tt>JVMC</tt> followed by the version,
+ * and numbers are unsigned variable-length integers. The method names are
+ * written once into a string table, and the frame tree of each thread refers
+ * to them by id in pre-order.
+ */
+public class CpuSnapshotReader {
+
+    /** The magic bytes at the start of a snapshot. */
+    private static final byte[] MAGIC = new byte[] { 'J', 'V', 'M', 'C' };
+
+    /** The version of the format. */
+    private static final int VERSION = 1;
+
+    /** The CPU model. */
+    private CpuModel cpuModel;
+
+    /** The progress monitor. */
+    private IProgressMonitor monitor;
+
+    /** The snapshot being read. */
+    private byte[] data;
+
+    /** The position in the snapshot. */
+    private int position;
+
+    /** The strings. */
+    private String[] strings;
+
+    /**
+     * The constructor.
+     *
+     * @param cpuModel
+     *            The CPU model
+     * @param monitor
+     *            The progress monitor
+     */
+    public CpuSnapshotReader(CpuModel cpuModel, IProgressMonitor monitor) {
+        this.cpuModel = cpuModel;
+        this.monitor = monitor;
+    }
+
+    /**
+     * Gets the state indicating if the given input stream starts with a
+     * snapshot. The input stream is reset to the position where it was.
+     *
+     * @param input
+     *            The input stream, which has to support mark and reset
+     * @return <tt>true</tt> if the input stream starts with a snapshot
+     * @throws IOException
+     *             if reading the input stream fails
+     */
+    public static boolean isSnapshot(InputStream input) throws IOException {
+        input.mark(MAGIC.length);
+        try {
+            for (byte b : MAGIC) {
+                if (input.read() != b) {
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            input.reset();
+        }
+    }
+
+    /**
+     * Reads the snapshot into the CPU model.
+     *
+     * @param input
+     *            The input stream
+     * @return The profile info
+     * @throws IOException
+     *             if reading the input stream fails or the snapshot is
+     *             malformed
+     */
+    public IProfileInfo read(InputStream input) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int length;
+        while ((length = input.read(buffer)) != -1) {
+            out.write(buffer, 0, length);
+        }
+        return read(out.toByteArray());
+    }
+
+    /**
+     * Reads the snapshot into the CPU model.
+     *
+     * @param snapshot
+     *            The snapshot
+     * @return The profile info
+     * @throws IOException
+     *             if the snapshot is malformed
+     */
+    public IProfileInfo read(byte[] snapshot) throws IOException {
+        if (snapshot.length < MAGIC.length
+                || !Arrays.equals(MAGIC,
+                        Arrays.copyOf(snapshot, MAGIC.length))) {
+            throw new IOException("Not a CPU profile snapshot"); //$NON-NLS-1$
+        }
+
+        data = snapshot;
+        position = MAGIC.length;
+        try {
+            int version = readInt();
+            if (version != VERSION) {
+                throw new IOException(
+                        "Unsupported CPU profile snapshot version: " + version); //$NON-NLS-1$
+            }
+            return doRead();
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException("Malformed CPU profile snapshot", e); //$NON-NLS-1$
+        } finally {
+            data = null;
+            strings = null;
+        }
+    }
+
+    /**
+     * Reads the header, the string table and the threads.
+     *
+     * @return The profile info
+     */
+    private IProfileInfo doRead() {
+        String date = readHeader();
+        String runtime = readHeader();
+        String mainClass = readHeader();
+        String arguments = readHeader();
+        String comments = readHeader();
+        IProfileInfo info = new ProfileInfo(date, runtime, mainClass,
+                arguments, comments);
+
+        strings = new String[readInt()];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = readString(readInt());
+        }
+
+        cpuModel.clear();
+        int threadCount = readInt();
+        for (int i = 0; i < threadCount; i++) {
+            readThread();
+        }
+        cpuModel.notifyModelChanged(new CpuModelEvent(
+                CpuModelState.CpuModelChanged));
+        return info;
+    }
+
+    /**
+     * Reads the thread with its frames.
+     */
+    private void readThread() {
+        String threadName = strings[readInt()];
+        ThreadNode<CallTreeNode> callTreeThreadNode = cpuModel
+                .getCallTreeThread(threadName);
+        if (callTreeThreadNode == null) {
+            callTreeThreadNode = new ThreadNode<CallTreeNode>(threadName);
+            cpuModel.addCallTreeThread(callTreeThreadNode);
+        }
+        ThreadNode<MethodNode> hotSpotThreadNode = cpuModel
+                .getHotSpotThread(threadName);
+        if (hotSpotThreadNode == null) {
+            hotSpotThreadNode = new ThreadNode<MethodNode>(threadName);
+            cpuModel.addHotSpotThread(hotSpotThreadNode);
+        }
+
+        // the hot spot methods by name, to look them up without going
+        // through all the methods of the thread for each frame
+        Map<String, MethodNode> methods = new HashMap<String, MethodNode>();
+        for (MethodNode method : hotSpotThreadNode.getChildren()) {
+            methods.put(method.getName(), method);
+        }
+
+        // the frames being read and their numbers of child frames left
+        CallTreeNode[] frames = new CallTreeNode[64];
+        int[] childFrameCounts = new int[64];
+        int depth = 0;
+
+        long threadTotalTime = 0;
+        int rootFrameCount = readInt();
+        for (int i = 0; i < rootFrameCount; i++) {
+            do {
+                if (monitor.isCanceled()) {
+                    throw new OperationCanceledException();
+                }
+
+                String methodName = strings[readInt()];
+                int count = readInt();
+                long time = readLong();
+                int childFrameCount = readInt();
+
+                CallTreeNode frame;
+                if (depth == 0) {
+                    frame = (CallTreeNode) callTreeThreadNode
+                            .getChild(methodName);
+                    if (frame == null) {
+                        frame = new CallTreeNode(cpuModel, methodName, time,
+                                count, callTreeThreadNode);
+                        callTreeThreadNode.addChild(frame);
+                    }
+                    threadTotalTime += time;
+                } else {
+                    CallTreeNode parentFrame = frames[depth - 1];
+                    frame = parentFrame.getChild(methodName);
+                    if (frame == null) {
+                        frame = new CallTreeNode(cpuModel, methodName, time,
+                                count, parentFrame, callTreeThreadNode);
+                        parentFrame.addChild(frame);
+                    }
+                }
+                frame.setTotalTime(time);
+                frame.setInvocationCount(count);
+                frame.setSelfTime(time);
+
+                if (childFrameCount > 0) {
+                    if (depth == frames.length) {
+                        frames = Arrays.copyOf(frames, depth * 2);
+                        childFrameCounts = Arrays.copyOf(childFrameCounts,
+                                depth * 2);
+                    }
+                    frames[depth] = frame;
+                    childFrameCounts[depth] = childFrameCount;
+                    depth++;
+                    continue;
+                }
+
+                // end the frame and the ancestors whose last child it is
+                while (true) {
+                    storeMethod(frame, hotSpotThreadNode, methods);
+                    if (depth == 0) {
+                        break;
+                    }
+                    CallTreeNode parentFrame = frames[depth - 1];
+                    parentFrame.setSelfTime(parentFrame.getSelfTime()
+                            - frame.getTotalTime());
+                    if (--childFrameCounts[depth - 1] > 0) {
+                        break;
+                    }
+                    frames[--depth] = null;
+                    frame = parentFrame;
+                }
+            } while (depth > 0);
+        }
+
+        callTreeThreadNode.setTotalTime(threadTotalTime);
+        hotSpotThreadNode.setTotalTime(threadTotalTime);
+    }
+
+    /**
+     * Stores the method of the given frame into the hot spots.
+     *
+     * @param frame
+     *            The frame
+     * @param hotSpotThreadNode
+     *            The hot spot thread node
+     * @param methods
+     *            The hot spot methods of the thread by name
+     */
+    private void storeMethod(CallTreeNode frame,
+            ThreadNode<MethodNode> hotSpotThreadNode,
+            Map<String, MethodNode> methods) {
+        String methodName = frame.getName();
+        MethodNode method = methods.get(methodName);
+        if (method == null) {
+            method = new MethodNode(cpuModel, methodName, hotSpotThreadNode);
+            hotSpotThreadNode.addChild(method);
+            methods.put(methodName, method);
+        }
+        method.incrementTime(frame.getSelfTime());
+        method.incrementCount(frame.getInvocationCount());
+    }
+
+    /**
+     * Reads the header string.
+     *
+     * @return The header string, or <tt>null</tt> if none
+     */
+    private String readHeader() {
+        int length = readInt();
+        return length == 0 ? null : readString(length - 1);
+    }
+
+    /**
+     * Reads the UTF-8 string.
+     *
+     * @param length
+     *            The length in bytes
+     * @return The string
+     */
+    private String readString(int length) {
+        if (length < 0 || length > data.length - position) {
+            throw new IndexOutOfBoundsException();
+        }
+        String string = new String(data, position, length,
+                StandardCharsets.UTF_8);
+        position += length;
+        return string;
+    }
+
+    /**
+     * Reads the variable-length integer.
+     *
+     * @return The integer
+     */
+    private int readInt() {
+        return (int) readLong();
+    }
+
+    /**
+     * Reads the variable-length long integer.
+     *
+     * @return The long integer
+     */
+    private long readLong() {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = data[position++];
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+}
@@ -10,6 +10,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
+import org.eclipse.osgi.util.NLS;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.events.PaintEvent;
 import org.eclipse.swt.events.PaintListener;
@@ -183,6 +184,11 @@ public class Marker {
         buffer.append(Messages.timeLabel).append(' ')
                 .append(new SimpleDateFormat("HH:mm:ss") //$NON-NLS-1$
                         .format(time));
+        Number latency = chart.getRefreshLatency(time);
+        if (latency != null) {
+            buffer.append('\n').append(
+                    NLS.bind(Messages.refreshLatencyLabel, latency));
+        }
         texts.put(TIME_KEY, buffer.toString());
 
         int timeInPixel = chart.getAxisSet().getXAxes()[0]
@@ -157,6 +157,9 @@ public final class Messages extends NLS {
     /** */
     public static String timeLabel;
 
+    /** */
+    public static String refreshLatencyLabel;
+
     // job name
 
     /** */
@@ -9,6 +9,7 @@ package org.jboss.tools.jmx.jvmmonitor.internal.ui.properties.timeline;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 
@@ -24,6 +25,7 @@ import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Event;
 import org.eclipse.swt.widgets.Listener;
 import org.eclipse.ui.forms.widgets.ExpandableComposite;
+import org.jboss.tools.jmx.jvmmonitor.core.mbean.IMBeanServer;
 import org.jboss.tools.jmx.jvmmonitor.core.mbean.IMonitoredMXBeanAttribute;
 import org.jboss.tools.jmx.jvmmonitor.core.mbean.IMonitoredMXBeanGroup;
 import org.jboss.tools.jmx.jvmmonitor.core.mbean.IMonitoredMXBeanGroup.AxisUnit;
@@ -50,6 +52,9 @@ public class TimelineChart extends Chart implements IPropertyChangeListener {
     /** The attribute group. */
     private IMonitoredMXBeanGroup attributeGroup;
 
+    /** The MBean server. */
+    private IMBeanServer mBeanServer;
+
     /** The section id. */
     private String sectionId;
 
@@ -71,16 +76,20 @@ public class TimelineChart extends Chart implements IPropertyChangeListener {
      *            The section
      * @param group
      *            The monitored attribute group
+     * @param mBeanServer
+     *            The MBean server
      * @param style
      *            The style
      * @param sectionId
      *            The section id
      */
     public TimelineChart(Composite parent, ExpandableComposite section,
-            IMonitoredMXBeanGroup group, int style, String sectionId) {
+            IMonitoredMXBeanGroup group, IMBeanServer mBeanServer, int style,
+            String sectionId) {
         super(parent, style);
         this.section = section;
         this.attributeGroup = group;
+        this.mBeanServer = mBeanServer;
         this.sectionId = sectionId;
         colors = new ArrayList<Color>();
 
@@ -129,6 +138,26 @@ public class TimelineChart extends Chart implements IPropertyChangeListener {
         return attributeGroup;
     }
 
+    /**
+     * Gets the time taken to read the monitored attributes in the refresh at
+     * the given time.
+     * 
+     * @param time
+     *            The time in milliseconds
+     * @return The refresh latency in milliseconds, or <tt>null</tt> if not
+     *         known
+     */
+    public Number getRefreshLatency(long time) {
+        IMonitoredMXBeanAttribute latency = mBeanServer.getRefreshLatency();
+        List<Date> dates = latency.getDates();
+        List<Number> values = latency.getValues();
+        int index = Collections.binarySearch(dates, new Date(time));
+        if (index < 0 || index >= values.size()) {
+            return null;
+        }
+        return values.get(index);
+    }
+
     /**
      * Refreshes the chart.
      */
@@ -284,6 +284,7 @@ public class TimelineSection extends AbstractJvmPropertySection {
                     .getMonitoredAttributeGroups()) {
                 group.clearAttributes();
             }
+            jvm.getMBeanServer().getRefreshLatency().clear();
 
             if (isRefreshSuspended()) {
                 Display.getDefault().asyncExec(new Runnable() {
@@ -428,7 +429,8 @@ public class TimelineSection extends AbstractJvmPropertySection {
         formLayout.marginWidth = 0;
         flatFormComposite.setLayout(formLayout);
         TimelineChart chart = new TimelineChart(flatFormComposite, section,
-                group, SWT.NONE, toString() + getJvm().getPid());
+                group, getJvm().getMBeanServer(), SWT.NONE, toString()
+                        + getJvm().getPid());
         charts.add(chart);
 
         FormData data;
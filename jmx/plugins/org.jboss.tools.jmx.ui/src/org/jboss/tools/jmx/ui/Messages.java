@@ -94,6 +94,8 @@ public class Messages extends NLS {
 	public static String TypeInAFilter;
 	public static String LoadingJMXObjectName;
 	public static String LoadingJMXRoot;
+	public static String LoadingJMXDomain;
+	public static String LoadingJMXDomains;
 	public static String Loading;
 	public static String ErrorLoading;
 	public static String UpdatingSelectionJob;
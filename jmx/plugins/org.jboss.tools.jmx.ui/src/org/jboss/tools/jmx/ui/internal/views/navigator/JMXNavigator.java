@@ -11,11 +11,21 @@
 package org.jboss.tools.jmx.ui.internal.views.navigator;
 
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.eclipse.core.runtime.IAdaptable;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.SubProgressMonitor;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jface.action.Separator;
 import org.eclipse.jface.viewers.TreeViewer;
+import org.eclipse.jface.viewers.Viewer;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Display;
 import org.eclipse.ui.dialogs.FilteredTree;
 import org.eclipse.ui.dialogs.PatternFilter;
 import org.eclipse.ui.navigator.CommonNavigator;
@@ -24,6 +34,14 @@ import org.eclipse.ui.navigator.LinkHelperService;
 import org.eclipse.ui.views.properties.IPropertySheetPage;
 import org.eclipse.ui.views.properties.tabbed.ITabbedPropertySheetPageContributor;
 import org.eclipse.ui.views.properties.tabbed.TabbedPropertySheetPage;
+import org.jboss.tools.jmx.core.ExtensionManager;
+import org.jboss.tools.jmx.core.IConnectionWrapper;
+import org.jboss.tools.jmx.core.JMXException;
+import org.jboss.tools.jmx.core.tree.LazyDomainNode;
+import org.jboss.tools.jmx.core.tree.Node;
+import org.jboss.tools.jmx.core.tree.Root;
+import org.jboss.tools.jmx.ui.JMXUIActivator;
+import org.jboss.tools.jmx.ui.Messages;
 import org.jboss.tools.jmx.ui.internal.actions.NewConnectionAction;
 
 /**
@@ -43,15 +61,97 @@ public class JMXNavigator extends CommonNavigator implements ITabbedPropertyShee
 	}
 
 	protected CommonViewer createCommonViewerObject(Composite aParent) {
+		DomainLoadingPatternFilter filter = new DomainLoadingPatternFilter();
 		FilteredTree ft = new FilteredTree(aParent, SWT.BORDER | SWT.V_SCROLL | SWT.H_SCROLL | SWT.SINGLE, 
-				new PatternFilter(), true) {
+				filter, true) {
 			protected TreeViewer doCreateTreeViewer(Composite parent, int style) {
 				return new CommonViewer(getViewSite().getId(), parent,style);
 			}
 		};
+		filter.tree = ft;
 		return (CommonViewer)ft.getViewer();
 	}
 	
+	/**
+	 * The domains of a connection are only loaded once expanded, 
+	 * so the filter could not match the MBeans of the others.
+	 * Once a filter is typed in, all domains of the connected servers 
+	 * are loaded, and the tree is filtered again when they are.
+	 */
+	private static class DomainLoadingPatternFilter extends PatternFilter {
+		private FilteredTree tree;
+		private String pattern;
+		private Job loadJob;
+		
+		public void setPattern(String patternString) {
+			super.setPattern(patternString);
+			pattern = patternString;
+			if( patternString != null && patternString.length() > 0 
+					&& (loadJob == null || loadJob.getState() == Job.NONE)) {
+				List<LazyDomainNode> domains = getUnloadedDomains();
+				if( !domains.isEmpty()) {
+					loadJob = createLoadJob(domains);
+					loadJob.schedule();
+				}
+			}
+		}
+		
+		protected boolean isParentMatch(Viewer viewer, Object element) {
+			// Not known yet, it is filtered again once it is loaded
+			if( element instanceof LazyDomainNode && !((LazyDomainNode)element).isLoaded())
+				return false;
+			return super.isParentMatch(viewer, element);
+		}
+		
+		private List<LazyDomainNode> getUnloadedDomains() {
+			List<LazyDomainNode> domains = new ArrayList<LazyDomainNode>();
+			IConnectionWrapper[] connections = ExtensionManager.getAllConnections();
+			for( int i = 0; i < connections.length; i++ ) {
+				Root root = connections[i].isConnected() ? connections[i].getRoot() : null;
+				if( root == null || root.getMBeansNode() == null )
+					continue;
+				Node[] children = root.getMBeansNode().getChildren();
+				for( int j = 0; j < children.length; j++ ) {
+					if( children[j] instanceof LazyDomainNode && !((LazyDomainNode)children[j]).isLoaded())
+						domains.add((LazyDomainNode)children[j]);
+				}
+			}
+			return domains;
+		}
+		
+		private Job createLoadJob(final List<LazyDomainNode> domains) {
+			return new Job(Messages.LoadingJMXDomains) {
+				protected IStatus run(IProgressMonitor monitor) {
+					monitor.beginTask(Messages.LoadingJMXDomains, domains.size());
+					for( LazyDomainNode d : domains ) {
+						if( monitor.isCanceled())
+							return Status.CANCEL_STATUS;
+						try {
+							d.load(new SubProgressMonitor(monitor, 1));
+						} catch(JMXException e) {
+							JMXUIActivator.log(e.getStatus());
+						}
+					}
+					monitor.done();
+					Display.getDefault().asyncExec(new Runnable() {
+						public void run() {
+							refilter();
+						}
+					});
+					return Status.OK_STATUS;
+				}
+			};
+		}
+		
+		private void refilter() {
+			if( tree == null || tree.isDisposed() || pattern == null || pattern.length() == 0 )
+				return;
+			// Forget what was matched while the domains were not loaded
+			super.setPattern(pattern);
+			tree.getViewer().refresh();
+		}
+	}
+	
 	public void fillActionBars() {
 	    getViewSite().getActionBars().getToolBarManager().add(new NewConnectionAction());
 	    getViewSite().getActionBars().getToolBarManager().add(new Separator());
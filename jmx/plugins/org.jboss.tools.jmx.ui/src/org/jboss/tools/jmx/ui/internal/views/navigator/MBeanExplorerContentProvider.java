@@ -43,9 +43,11 @@ import org.jboss.tools.jmx.core.IConnectionProviderListener;
 import org.jboss.tools.jmx.core.IConnectionWrapper;
 import org.jboss.tools.jmx.core.MBeanFeatureInfoWrapper;
 import org.jboss.tools.jmx.core.tree.ErrorRoot;
+import org.jboss.tools.jmx.core.tree.LazyDomainNode;
 import org.jboss.tools.jmx.core.tree.Node;
 import org.jboss.tools.jmx.core.tree.ObjectNameNode;
 import org.jboss.tools.jmx.core.tree.Root;
+import org.jboss.tools.jmx.core.tree.Root.INodeChangeListener;
 import org.jboss.tools.jmx.ui.Messages;
 import org.jboss.tools.jmx.ui.internal.actions.RefreshActionState;
 
@@ -65,10 +67,18 @@ public class MBeanExplorerContentProvider implements IConnectionProviderListener
 	private Viewer viewer;
 	private HashMap<IConnectionWrapper, DelayProxy> loading;
 	private HashMap<ObjectNameNode, DelayProxy> loadingObjectNameNode;
+	private HashMap<LazyDomainNode, DelayProxy> loadingDomainNode;
+	private INodeChangeListener nodeChangeListener = new INodeChangeListener() {
+		@Override
+		public void nodeChanged(Node node) {
+			refreshNode(node);
+		}
+	};
     public MBeanExplorerContentProvider() {
     	ExtensionManager.addConnectionProviderListener(this);
     	loading = new HashMap<>();
     	loadingObjectNameNode = new HashMap<>();
+    	loadingDomainNode = new HashMap<>();
     }
     
     @Override
@@ -186,6 +196,9 @@ public class MBeanExplorerContentProvider implements IConnectionProviderListener
         if( parent instanceof ErrorRoot ) {
         	return new Object[0];
         }
+        if (parent instanceof LazyDomainNode && !((LazyDomainNode)parent).isLoaded()) {
+        	return loadAndGetDomainChildren((LazyDomainNode)parent);
+        }
         if (parent instanceof Node) {
             Node node = (Node) parent;
             return node.getChildren();
@@ -209,6 +222,9 @@ public class MBeanExplorerContentProvider implements IConnectionProviderListener
 			protected IStatus run(IProgressMonitor monitor) {
 				try {
 					w.loadRoot(monitor);
+					Root r = w.getRoot();
+					if( r != null )
+						r.addNodeChangeListener(nodeChangeListener);
 				} catch( CoreException ce ) {
 					return ce.getStatus();
 				} finally {
@@ -276,6 +292,50 @@ public class MBeanExplorerContentProvider implements IConnectionProviderListener
 		return new Object[] { p };
 	}
 
+	protected synchronized Object[] loadAndGetDomainChildren(final LazyDomainNode parent) {
+		if( loadingDomainNode.containsKey(parent)) {
+			return new Object[] { loadingDomainNode.get(parent)};
+		}
+
+		Job job = new Job(NLS.bind(Messages.LoadingJMXDomain, parent.getDomain())) {
+			@Override
+			protected IStatus run(IProgressMonitor monitor) {
+				try {
+					parent.load(monitor);
+				} catch( CoreException ce ) {
+					return ce.getStatus();
+				} finally {
+					loadingDomainNode.remove(parent);
+					asyncRefresh(parent.getRoot().getConnection(),  parent);
+				}
+				return Status.OK_STATUS;
+			}
+		};
+
+		DelayProxy p = new DelayProxy(parent);
+		loadingDomainNode.put(parent, p);
+		job.schedule();
+		return new Object[] { p };
+	}
+
+	/*
+	 * Refresh a node whose children changed in the model, 
+	 * without reloading anything else
+	 */
+	private void refreshNode(final Node node) {
+		Display.getDefault().asyncExec(new Runnable() {
+			@Override
+			public void run() {
+				if( viewer == null || viewer.getControl().isDisposed())
+					return;
+				if( viewer instanceof StructuredViewer )
+					((StructuredViewer)viewer).refresh(node);
+				else
+					viewer.refresh();
+			}
+		});
+	}
+
     @Override
     public boolean hasChildren(Object parent) {
     	if( parent instanceof ProviderCategory || parent instanceof IConnectionProvider ) {
@@ -288,6 +348,9 @@ public class MBeanExplorerContentProvider implements IConnectionProviderListener
             	return node.getMbeanInfoWrapper().getMBeanFeatureInfos().length > 0;
             return true;
         }
+        if (parent instanceof LazyDomainNode && !((LazyDomainNode)parent).isLoaded()) {
+        	return true;
+        }
         if (parent instanceof Node) {
             Node node = (Node) parent;
             return node.getChildren().length > 0;
@@ -10,6 +10,12 @@
  *******************************************************************************/
 package org.jboss.tools.jmx.core.test;
 
+import org.jboss.tools.jmx.core.test.jvmmonitor.CpuSnapshotReaderTest;
+import org.jboss.tools.jmx.core.test.jvmmonitor.HeapHistogramParserTest;
+import org.jboss.tools.jmx.core.test.jvmmonitor.LongLongHashMapTest;
+import org.jboss.tools.jmx.core.test.jvmmonitor.MonitoredAttributesRefreshTest;
+import org.jboss.tools.jmx.core.test.jvmmonitor.StackSampleMergerTest;
+import org.jboss.tools.jmx.core.test.jvmmonitor.TimeSeriesTest;
 import org.jboss.tools.jmx.core.test.providers.DefaultConnectionProviderTest;
 
 import junit.framework.Test;
@@ -28,10 +34,17 @@ public class JMXCoreAllTests extends TestSuite {
 		// [Root exception is java.rmi.ConnectException: Connection refused to host: localhost
 		addTest(new TestSuite(DefaultProviderTest.class));
 		addTest(new TestSuite(NodeBuilderTestCase.class));
+		addTestSuite(LazyTreeTest.class);
 		addTestSuite(JMXExceptionTest.class);
 		addTestSuite(ImpactTest.class);
 		addTestSuite(ErrorRootTest.class);
 		addTestSuite(DefaultConnectionProviderTest.class);
+		addTestSuite(StackSampleMergerTest.class);
+		addTestSuite(CpuSnapshotReaderTest.class);
+		addTestSuite(MonitoredAttributesRefreshTest.class);
+		addTestSuite(TimeSeriesTest.class);
+		addTestSuite(HeapHistogramParserTest.class);
+		addTestSuite(LongLongHashMapTest.class);
 
 	}
 }
@@ -0,0 +1,182 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+
+package org.jboss.tools.jmx.core.test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import junit.framework.TestCase;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.jboss.tools.jmx.core.IJMXRunnable;
+import org.jboss.tools.jmx.core.JMXException;
+import org.jboss.tools.jmx.core.tree.DomainNode;
+import org.jboss.tools.jmx.core.tree.LazyDomainNode;
+import org.jboss.tools.jmx.core.tree.MBeanRegistrationTracker;
+import org.jboss.tools.jmx.core.tree.Node;
+import org.jboss.tools.jmx.core.tree.NodeUtils;
+import org.jboss.tools.jmx.core.tree.ObjectNameNode;
+import org.jboss.tools.jmx.core.tree.Root;
+
+public class LazyTreeTest extends TestCase {
+
+    private static final String DOMAIN = "org.jboss.tools.jmx.core.test.lazy"; //$NON-NLS-1$
+
+    private MBeanServer server;
+    private MockConnectionWrapper wrapper;
+    private List<ObjectName> registered = new ArrayList<ObjectName>();
+    private boolean changeAfterQuery = false;
+
+    public interface DummyMBean {
+        public int getValue();
+    }
+
+    public static class Dummy implements DummyMBean {
+        public int getValue() {
+            return 1;
+        }
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        server = ManagementFactory.getPlatformMBeanServer();
+        wrapper = new MockConnectionWrapper() {
+            @Override
+            public void run(IJMXRunnable runnable) throws JMXException {
+                try {
+                    runnable.run(server);
+                    if (changeAfterQuery) {
+                        changeAfterQuery = false;
+                        register(DOMAIN + ":type=Test,name=Three"); //$NON-NLS-1$
+                        server.unregisterMBean(new ObjectName(DOMAIN + ":type=Test,name=One")); //$NON-NLS-1$
+                    }
+                } catch (Exception e) {
+                    fail(e.getMessage());
+                }
+            }
+        };
+        register(DOMAIN + ":type=Test,name=One"); //$NON-NLS-1$
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        for (ObjectName on : registered) {
+            if (server.isRegistered(on))
+                server.unregisterMBean(on);
+        }
+        super.tearDown();
+    }
+
+    public void testOnlyDomainsAreLoaded() throws Exception {
+        Root root = NodeUtils.createLazyObjectNameTree(wrapper, new NullProgressMonitor());
+        LazyDomainNode domain = (LazyDomainNode) root.getDomainNode(DOMAIN);
+        assertNotNull(domain);
+        assertFalse(domain.isLoaded());
+        assertEquals(0, domain.getChildren().length);
+        assertNotNull(root.getDomainNode("java.lang")); //$NON-NLS-1$
+
+        domain.load(new NullProgressMonitor());
+        assertTrue(domain.isLoaded());
+        assertNotNull(findObjectNameNode(root, DOMAIN + ":type=Test,name=One")); //$NON-NLS-1$
+    }
+
+    public void testRegistrationDeltas() throws Exception {
+        Root root = NodeUtils.createLazyObjectNameTree(wrapper, new NullProgressMonitor());
+        final List<Node> changed = new ArrayList<Node>();
+        root.addNodeChangeListener(new Root.INodeChangeListener() {
+            public void nodeChanged(Node node) {
+                synchronized (changed) {
+                    changed.add(node);
+                }
+            }
+        });
+        ((LazyDomainNode) root.getDomainNode(DOMAIN)).load(new NullProgressMonitor());
+        MBeanRegistrationTracker tracker = new MBeanRegistrationTracker(root);
+        tracker.start(server);
+        try {
+            register(DOMAIN + ":type=Test,name=Two"); //$NON-NLS-1$
+            register(DOMAIN + ".other:type=Test"); //$NON-NLS-1$
+            server.unregisterMBean(new ObjectName(DOMAIN + ":type=Test,name=One")); //$NON-NLS-1$
+
+            // The platform server delivers notifications on the registering thread
+            assertNotNull(findObjectNameNode(root, DOMAIN + ":type=Test,name=Two")); //$NON-NLS-1$
+            assertNull(findObjectNameNode(root, DOMAIN + ":type=Test,name=One")); //$NON-NLS-1$
+            DomainNode other = root.getDomainNode(DOMAIN + ".other"); //$NON-NLS-1$
+            assertTrue(other instanceof LazyDomainNode);
+            assertFalse(((LazyDomainNode) other).isLoaded());
+            synchronized (changed) {
+                assertTrue(changed.contains(root.getDomainNode(DOMAIN)));
+                assertTrue(changed.contains(root.getMBeansNode()));
+            }
+
+            server.unregisterMBean(new ObjectName(DOMAIN + ":type=Test,name=Two")); //$NON-NLS-1$
+            assertNull(root.getDomainNode(DOMAIN));
+
+            // A domain which was never loaded goes once it is loaded and found empty
+            server.unregisterMBean(new ObjectName(DOMAIN + ".other:type=Test")); //$NON-NLS-1$
+            assertSame(other, root.getDomainNode(DOMAIN + ".other")); //$NON-NLS-1$
+            ((LazyDomainNode) other).load(new NullProgressMonitor());
+            assertNull(root.getDomainNode(DOMAIN + ".other")); //$NON-NLS-1$
+        } finally {
+            tracker.stop(server);
+        }
+    }
+
+    public void testRegistrationsDuringLoad() throws Exception {
+        Root root = NodeUtils.createLazyObjectNameTree(wrapper, new NullProgressMonitor());
+        MBeanRegistrationTracker tracker = new MBeanRegistrationTracker(root);
+        tracker.start(server);
+        try {
+            // The MBeans change after the domain is queried, before its nodes are built
+            changeAfterQuery = true;
+            LazyDomainNode domain = (LazyDomainNode) root.getDomainNode(DOMAIN);
+            domain.load(new NullProgressMonitor());
+            assertFalse(changeAfterQuery);
+            assertTrue(domain.isLoaded());
+            assertNotNull(findObjectNameNode(root, DOMAIN + ":type=Test,name=Three")); //$NON-NLS-1$
+            assertNull(findObjectNameNode(root, DOMAIN + ":type=Test,name=One")); //$NON-NLS-1$
+        } finally {
+            tracker.stop(server);
+        }
+    }
+
+    public void testEagerTreeTracked() throws Exception {
+        Root root = NodeUtils.createObjectNameTree(wrapper, new NullProgressMonitor());
+        assertFalse(root.getDomainNode(DOMAIN) instanceof LazyDomainNode);
+        assertNotNull(findObjectNameNode(root, DOMAIN + ":type=Test,name=One")); //$NON-NLS-1$
+        MBeanRegistrationTracker tracker = new MBeanRegistrationTracker(root);
+        tracker.start(server);
+        try {
+            register(DOMAIN + ":type=Test,name=Two"); //$NON-NLS-1$
+            assertNotNull(findObjectNameNode(root, DOMAIN + ":type=Test,name=Two")); //$NON-NLS-1$
+            server.unregisterMBean(new ObjectName(DOMAIN + ":type=Test,name=One")); //$NON-NLS-1$
+            assertNull(findObjectNameNode(root, DOMAIN + ":type=Test,name=One")); //$NON-NLS-1$
+        } finally {
+            tracker.stop(server);
+        }
+    }
+
+    private void register(String name) throws Exception {
+        ObjectName on = new ObjectName(name);
+        server.registerMBean(new Dummy(), on);
+        registered.add(on);
+    }
+
+    private ObjectNameNode findObjectNameNode(Root root, String name) throws Exception {
+        return NodeUtils.findObjectNameNode(root, new ObjectName(name));
+    }
+}
@@ -0,0 +1,93 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+
+package org.jboss.tools.jmx.core.test.jvmmonitor;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+
+import org.eclipse.core.runtime.FileLocator;
+import org.eclipse.core.runtime.Platform;
+import org.jboss.tools.jmx.jvmmonitor.core.Activator;
+
+/**
+ * Loads the classes of the agent from the jar shipped in the JVM monitor
+ * core plugin, so that the tests run against what is actually attached to
+ * the target JVM rather than against the agent sources.
+ */
+class AgentClasses {
+	private static final String AGENT_JAR = "lib/jvmmonitor-agent.jar";
+	private static final String AGENT_PACKAGE = "org.jboss.tools.jmx.jvmmonitor.internal.agent.";
+
+	private static ClassLoader loader;
+
+	static synchronized Class<?> load(String simpleName) throws Exception {
+		if( loader == null ) {
+			URL url = FileLocator.toFileURL(Platform.getBundle(Activator.PLUGIN_ID).getEntry(AGENT_JAR));
+			// the agent only depends on the JRE
+			loader = new URLClassLoader(new URL[] { url }, null);
+		}
+		return loader.loadClass(AGENT_PACKAGE + simpleName);
+	}
+
+	static Method method(Class<?> c, String name, Class<?>... parameterTypes) throws Exception {
+		Method m = c.getDeclaredMethod(name, parameterTypes);
+		m.setAccessible(true);
+		return m;
+	}
+
+	static Object invoke(Method m, Object target, Object... args) throws Exception {
+		try {
+			return m.invoke(target, args);
+		} catch(InvocationTargetException e) {
+			if( e.getCause() instanceof Exception )
+				throw (Exception)e.getCause();
+			throw e;
+		}
+	}
+
+	static CallTree newCallTree() throws Exception {
+		return new CallTree();
+	}
+
+	/**
+	 * The call tree of the stack sampler of the agent.
+	 */
+	static class CallTree {
+		private Object tree;
+		private Method add, export, clear;
+
+		private CallTree() throws Exception {
+			Class<?> c = load("SampledCallTree");
+			Constructor<?> constructor = c.getDeclaredConstructor();
+			constructor.setAccessible(true);
+			tree = constructor.newInstance();
+			add = method(c, "add", String.class, StackTraceElement[].class, long.class);
+			export = method(c, "export");
+			clear = method(c, "clear");
+		}
+
+		void add(String threadName, StackTraceElement[] stackTrace, long period) throws Exception {
+			invoke(add, tree, threadName, stackTrace, period);
+		}
+
+		byte[] export() throws Exception {
+			return (byte[])invoke(export, tree);
+		}
+
+		void clear() throws Exception {
+			invoke(clear, tree);
+		}
+	}
+}
@@ -0,0 +1,199 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+
+package org.jboss.tools.jmx.core.test.jvmmonitor;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.List;
+
+import javax.xml.parsers.SAXParserFactory;
+
+import junit.framework.TestCase;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.jboss.tools.jmx.jvmmonitor.core.cpu.IMethodNode;
+import org.jboss.tools.jmx.jvmmonitor.core.dump.IProfileInfo;
+import org.jboss.tools.jmx.jvmmonitor.internal.core.cpu.CallTreeNode;
+import org.jboss.tools.jmx.jvmmonitor.internal.core.cpu.CpuDumpSaxEventHandler;
+import org.jboss.tools.jmx.jvmmonitor.internal.core.cpu.CpuModel;
+import org.jboss.tools.jmx.jvmmonitor.internal.core.cpu.CpuSnapshotReader;
+import org.jboss.tools.jmx.jvmmonitor.internal.core.cpu.MethodNode;
+import org.jboss.tools.jmx.jvmmonitor.internal.core.cpu.ThreadNode;
+
+/**
+ * Profiles calls with the BCI profiler of the shipped agent jar, and checks
+ * that reading its binary snapshot builds the same CPU model as parsing its
+ * XML dump does.
+ */
+public class CpuSnapshotReaderTest extends TestCase {
+	private Class<?> profiler;
+	private Method register, stepInto, stepReturn;
+	private Object runtimeModel;
+	private Method dump, dumpSnapshot;
+
+	protected void setUp() throws Exception {
+		profiler = AgentClasses.load("CpuBciProfiler");
+		register = AgentClasses.method(AgentClasses.load("MethodRegistry"), "register", String.class, String.class);
+		stepInto = AgentClasses.method(profiler, "stepInto", int.class);
+		stepReturn = AgentClasses.method(profiler, "stepReturn", int.class);
+		Method getModel = AgentClasses.method(profiler, "getModel");
+		if( AgentClasses.invoke(getModel, null) == null )
+			AgentClasses.invoke(AgentClasses.method(profiler, "initialize"), null);
+		runtimeModel = AgentClasses.invoke(getModel, null);
+		// start from an empty model, as the threads remember their nodes
+		Class<?> c = runtimeModel.getClass();
+		AgentClasses.invoke(AgentClasses.method(c, "clear"), runtimeModel);
+		AgentClasses.invoke(AgentClasses.method(profiler, "setEnabled", boolean.class), null, true);
+		dump = AgentClasses.method(c, "doDump");
+		dumpSnapshot = AgentClasses.method(c, "dumpSnapshot");
+	}
+
+	protected void tearDown() throws Exception {
+		AgentClasses.invoke(AgentClasses.method(profiler, "setEnabled", boolean.class), null, false);
+	}
+
+	public void testSameModelAsXml() throws Exception {
+		final int run = register("demo/A", "run()V");
+		final int work = register("demo/B", "work(Ljava/lang/String;[I)Ljava/lang/Object;");
+		final int init = register("demo/C", "<init>()V");
+		Thread worker = new Thread(new Runnable() {
+			public void run() {
+				try {
+					call(run, 0, work, 2, init, 0);
+					call(run, 0, init, 1);
+				} catch(Exception e) {
+					throw new RuntimeException(e);
+				}
+			}
+		}, "worker-\u00fc");
+		worker.start();
+		worker.join();
+		// the same methods on another thread, called often enough for
+		// multi-byte counts
+		for( int i = 0; i < 200; i++ )
+			call(run, 0, work, 0);
+
+		CpuModel snapshotModel = assertSameModelAsXml();
+		ThreadNode<CallTreeNode> thread = snapshotModel.getCallTreeThread(worker.getName());
+		CallTreeNode root = (CallTreeNode)thread.getChild("demo.A.run()");
+		assertEquals(2, root.getInvocationCount());
+		assertNotNull(root.getChild("demo.B.work(java.lang.String, int[])"));
+		assertNotNull(root.getChild("demo.C.<init>()"));
+		assertTrue(root.getTotalTime() >= 3);
+		CallTreeNode current = (CallTreeNode)snapshotModel.getCallTreeThread(Thread.currentThread().getName())
+				.getChild("demo.A.run()");
+		assertEquals(200, current.getInvocationCount());
+	}
+
+	public void testManyMethods() throws Exception {
+		// enough methods for multi-byte string ids
+		int run = register("demo/A", "run()V");
+		for( int i = 0; i < 300; i++ )
+			call(run, 0, register("demo/M", "m" + i + "()V"), 0);
+
+		CpuModel snapshotModel = assertSameModelAsXml();
+		CallTreeNode root = (CallTreeNode)snapshotModel.getCallTreeThread(Thread.currentThread().getName())
+				.getChild("demo.A.run()");
+		assertEquals(300, root.getChildren().size());
+		assertEquals(301, snapshotModel.getHotSpotThread(Thread.currentThread().getName()).getChildren().size());
+	}
+
+	public void testMalformedSnapshot() throws Exception {
+		call(register("demo/A", "run()V"), 0);
+		byte[] snapshot = (byte[])AgentClasses.invoke(dumpSnapshot, runtimeModel);
+		assertTrue(CpuSnapshotReader.isSnapshot(new BufferedInputStream(new ByteArrayInputStream(snapshot))));
+		assertFalse(CpuSnapshotReader.isSnapshot(new BufferedInputStream(new ByteArrayInputStream(
+				"<?xml version=\"1.0\"?>".getBytes("UTF-8")))));
+		try {
+			byte[] truncated = new byte[snapshot.length - 1];
+			System.arraycopy(snapshot, 0, truncated, 0, truncated.length);
+			new CpuSnapshotReader(new CpuModel(), new NullProgressMonitor()).read(truncated);
+			fail("A truncated snapshot should not be read");
+		} catch(IOException e) {
+			// expected
+		}
+	}
+
+	/*
+	 * Reads the snapshot and parses the XML dump of the profiled calls,
+	 * and compares the resulting models.
+	 */
+	private CpuModel assertSameModelAsXml() throws Exception {
+		String xml = (String)AgentClasses.invoke(dump, runtimeModel);
+		byte[] snapshot = (byte[])AgentClasses.invoke(dumpSnapshot, runtimeModel);
+
+		CpuModel xmlModel = new CpuModel();
+		CpuDumpSaxEventHandler handler = new CpuDumpSaxEventHandler(xmlModel, new NullProgressMonitor());
+		SAXParserFactory.newInstance().newSAXParser().parse(new ByteArrayInputStream(xml.getBytes("UTF-8")), handler);
+		CpuModel snapshotModel = new CpuModel();
+		IProfileInfo info = new CpuSnapshotReader(snapshotModel, new NullProgressMonitor()).read(snapshot);
+
+		assertEquals(handler.getProfileInfo().getRuntime(), info.getRuntime());
+		assertEquals(handler.getProfileInfo().getMainClass(), info.getMainClass());
+		assertEquals(handler.getProfileInfo().getArguments(), info.getArguments());
+		assertEquals(handler.getProfileInfo().getComments(), info.getComments());
+
+		assertEquals(xmlModel.getCallTreeRoots().length, snapshotModel.getCallTreeRoots().length);
+		assertEquals(xmlModel.getHotSpotRoots().length, snapshotModel.getHotSpotRoots().length);
+		for( int i = 0; i < xmlModel.getCallTreeRoots().length; i++ ) {
+			ThreadNode<?> xmlThread = (ThreadNode<?>)xmlModel.getCallTreeRoots()[i];
+			ThreadNode<CallTreeNode> thread = snapshotModel.getCallTreeThread(xmlThread.getName());
+			assertNotNull(xmlThread.getName(), thread);
+			assertEquals(xmlThread.getTotalTime(), thread.getTotalTime());
+			assertSameFrames(xmlThread.getChildren(), thread.getChildren());
+
+			List<MethodNode> xmlMethods = xmlModel.getHotSpotThread(xmlThread.getName()).getChildren();
+			ThreadNode<MethodNode> hotSpots = snapshotModel.getHotSpotThread(xmlThread.getName());
+			assertEquals(xmlMethods.size(), hotSpots.getChildren().size());
+			for( MethodNode xmlMethod : xmlMethods ) {
+				MethodNode method = (MethodNode)hotSpots.getChild(xmlMethod.getName());
+				assertNotNull(xmlMethod.getName(), method);
+				assertEquals(xmlMethod.getName(), xmlMethod.getSelfTime(), method.getSelfTime());
+				assertEquals(xmlMethod.getName(), xmlMethod.getInvocationCount(), method.getInvocationCount());
+			}
+		}
+		return snapshotModel;
+	}
+
+	private static void assertSameFrames(List<? extends IMethodNode> xmlFrames, List<CallTreeNode> frames) {
+		assertEquals(xmlFrames.size(), frames.size());
+		for( int i = 0; i < xmlFrames.size(); i++ ) {
+			CallTreeNode xmlFrame = (CallTreeNode)xmlFrames.get(i);
+			CallTreeNode frame = frames.get(i);
+			assertEquals(xmlFrame.getName(), frame.getName());
+			assertEquals(frame.getName(), xmlFrame.getTotalTime(), frame.getTotalTime());
+			assertEquals(frame.getName(), xmlFrame.getSelfTime(), frame.getSelfTime());
+			assertEquals(frame.getName(), xmlFrame.getInvocationCount(), frame.getInvocationCount());
+			assertSameFrames(xmlFrame.getChildren(), frame.getChildren());
+		}
+	}
+
+	private int register(String className, String methodName) throws Exception {
+		return ((Integer)AgentClasses.invoke(register, null, className, methodName)).intValue();
+	}
+
+	/*
+	 * Steps into the given methods in turn, each called by the previous one
+	 * and sleeping the given milliseconds, then returns from all of them.
+	 */
+	private void call(int... methodsAndSleeps) throws Exception {
+		for( int i = 0; i < methodsAndSleeps.length; i += 2 ) {
+			AgentClasses.invoke(stepInto, null, methodsAndSleeps[i]);
+			if( methodsAndSleeps[i + 1] > 0 )
+				Thread.sleep(methodsAndSleeps[i + 1]);
+		}
+		for( int i = methodsAndSleeps.length - 2; i >= 0; i -= 2 )
+			AgentClasses.invoke(stepReturn, null, methodsAndSleeps[i]);
+	}
+}
@@ -0,0 +1,146 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+
+package org.jboss.tools.jmx.core.test.jvmmonitor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.jboss.tools.jmx.jvmmonitor.internal.core.HeapElement;
+import org.jboss.tools.jmx.jvmmonitor.internal.core.HeapHistogramParser;
+
+/**
+ * Parses class histograms as printed by <tt>jmap -histo</tt>, with and
+ * without the module column, and follows the classes across histograms.
+ */
+public class HeapHistogramParserTest extends TestCase {
+	private static final String HEADER = "\n num     #instances         #bytes  class name\n"
+			+ "----------------------------------------------\n";
+
+	private HeapHistogramParser parser;
+	private Map<String, HeapElement> previous;
+
+	protected void setUp() throws Exception {
+		parser = new HeapHistogramParser();
+		previous = new LinkedHashMap<String, HeapElement>();
+	}
+
+	public void testLargestClassesBySize() {
+		String heap = HEADER
+				+ "   1:            10            300  demo.B\n"
+				+ "   2:             5            900  demo.A\n"
+				+ "   3:             1             20  demo.D\n"
+				+ "   4:             7            500  demo.C\n"
+				+ "Total            23           1720\n";
+		Map<String, HeapElement> elements = parse(heap, 3);
+		assertEquals(Arrays.asList("demo.A", "demo.C", "demo.B"), new ArrayList<String>(elements.keySet()));
+		HeapElement a = elements.get("demo.A");
+		assertEquals(900, a.getSize());
+		assertEquals(5, a.getCount());
+	}
+
+	public void testModuleColumn() {
+		String heap = HEADER
+				+ "   1:         12345        1048576  [B (java.base@11.0.2)\n"
+				+ "   2:           200           6400  java.lang.String (java.base@11.0.2)\n"
+				+ "   3:            20            640  [Ljava.lang.Object; (java.base@11.0.2)\n"
+				+ "   4:             3             48  demo.Local\n";
+		Map<String, HeapElement> elements = parse(heap, 10);
+		assertEquals(Arrays.asList("byte[]", "java.lang.String", "java.lang.Object[]", "demo.Local"),
+				new ArrayList<String>(elements.keySet()));
+		assertEquals(12345, elements.get("byte[]").getCount());
+	}
+
+	public void testSkippedLines() {
+		String heap = HEADER
+				+ "   1:          2000          64000  <constMethodKlass>\n"
+				+ "   2:            10            300  demo.A\n"
+				+ "   3:            10            900  demo.A\n"
+				+ "   4:           n/a            100  demo.B\n"
+				+ "   5:\n"
+				+ "   6:             1             16  demo.C\n";
+		Map<String, HeapElement> elements = parse(heap, 10);
+		assertEquals(Arrays.asList("demo.A", "demo.C"), new ArrayList<String>(elements.keySet()));
+		// the first of the duplicated lines
+		assertEquals(300, elements.get("demo.A").getSize());
+	}
+
+	public void testElementsFollowed() {
+		Map<String, HeapElement> first = parse(histogram("demo.A", 100, "demo.B", 50), 10);
+		HeapElement a = first.get("demo.A");
+		a.resetBaseSize();
+
+		Map<String, HeapElement> second = parse(histogram("demo.A", 160, "demo.C", 70), 10);
+		assertSame(a, second.get("demo.A"));
+		assertEquals(160, a.getSize());
+		// the size the delta is taken from
+		assertEquals(100, a.getBaseSize());
+		assertFalse(second.containsKey("demo.B"));
+
+		// listed again after having been left out
+		Map<String, HeapElement> third = parse(histogram("demo.A", 160, "demo.B", 80), 10);
+		assertEquals(80, third.get("demo.B").getSize());
+		assertNotSame(first.get("demo.B"), third.get("demo.B"));
+	}
+
+	public void testManyClassesThenFew() {
+		List<Object> many = new ArrayList<Object>();
+		for (int i = 0; i < 3000; i++) {
+			many.add("demo.Class" + i);
+			many.add(Integer.valueOf(i + 1));
+		}
+		Map<String, HeapElement> elements = parse(histogram(many.toArray()), 100);
+		assertEquals(100, elements.size());
+		assertEquals("demo.Class2999", elements.keySet().iterator().next());
+
+		// drops the classes not listed anymore, and still knows the others
+		elements = parse(histogram("demo.Class5", 10, "demo.Other", 20), 100);
+		assertEquals(Arrays.asList("demo.Other", "demo.Class5"), new ArrayList<String>(elements.keySet()));
+		elements = parse(histogram(many.toArray()), 3);
+		assertEquals(Arrays.asList("demo.Class2999", "demo.Class2998", "demo.Class2997"),
+				new ArrayList<String>(elements.keySet()));
+		assertEquals(3000, elements.get("demo.Class2999").getSize());
+	}
+
+	public void testClear() {
+		HeapElement a = parse(histogram("demo.A", 100), 10).get("demo.A");
+		parser.clear();
+		assertNotSame(a, parse(histogram("demo.A", 100), 10).get("demo.A"));
+	}
+
+	private Map<String, HeapElement> parse(String heap, int max) {
+		previous = parser.parse(heap, max, previous);
+		return previous;
+	}
+
+	/*
+	 * The histogram of the given class names and sizes, in a shuffled order
+	 */
+	private static String histogram(Object... namesAndSizes) {
+		List<String> lines = new ArrayList<String>();
+		for (int i = 0; i < namesAndSizes.length; i += 2) {
+			long size = ((Number)namesAndSizes[i + 1]).longValue();
+			lines.add("        " + size / 10 + "        " + size + "  " + namesAndSizes[i] + "\n");
+		}
+		Collections.shuffle(lines);
+		StringBuilder heap = new StringBuilder(HEADER);
+		for (int i = 0; i < lines.size(); i++) {
+			heap.append("   ").append(i + 1).append(':').append(lines.get(i));
+		}
+		return heap.toString();
+	}
+}
@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+
+package org.jboss.tools.jmx.core.test.jvmmonitor;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.jboss.tools.jmx.jvmmonitor.internal.core.LongLongHashMap;
+
+/**
+ * Puts thread ids and CPU times into the map, and compares it with a
+ * <tt>HashMap</tt> of boxed keys and values.
+ */
+public class LongLongHashMapTest extends TestCase {
+
+	public void testPutAndGet() {
+		LongLongHashMap map = new LongLongHashMap();
+		assertEquals(0, map.size());
+		assertFalse(map.containsKey(1));
+		assertEquals(-1, map.get(1, -1));
+
+		map.put(1, 100);
+		map.put(0, 50);
+		map.put(-7, Long.MIN_VALUE);
+		assertEquals(3, map.size());
+		assertEquals(100, map.get(1, -1));
+		assertEquals(50, map.get(0, -1));
+		assertEquals(Long.MIN_VALUE, map.get(-7, -1));
+
+		map.put(1, 200);
+		assertEquals(3, map.size());
+		assertEquals(200, map.get(1, -1));
+	}
+
+	public void testGrows() {
+		LongLongHashMap map = new LongLongHashMap(2);
+		for (long id = 0; id < 10000; id++) {
+			map.put(id << 20, id);
+		}
+		assertEquals(10000, map.size());
+		for (long id = 0; id < 10000; id++) {
+			assertEquals(id, map.get(id << 20, -1));
+		}
+		assertFalse(map.containsKey(1));
+	}
+
+	public void testClear() {
+		LongLongHashMap map = new LongLongHashMap();
+		map.put(1, 1);
+		map.put(2, 2);
+		map.clear();
+		assertEquals(0, map.size());
+		assertFalse(map.containsKey(1));
+		map.put(2, 3);
+		assertEquals(1, map.size());
+		assertEquals(3, map.get(2, -1));
+	}
+
+	public void testSameAsHashMap() {
+		Random random = new Random(42);
+		LongLongHashMap map = new LongLongHashMap();
+		Map<Long, Long> expected = new HashMap<Long, Long>();
+		for (int i = 0; i < 50000; i++) {
+			// a few hundred live threads, reported again and again
+			long key = random.nextInt(500);
+			long value = random.nextLong();
+			map.put(key, value);
+			expected.put(key, value);
+		}
+		assertEquals(expected.size(), map.size());
+		for (Map.Entry<Long, Long> entry : expected.entrySet()) {
+			assertEquals(entry.getValue().longValue(), map.get(entry.getKey(), -1));
+		}
+		for (long key = 500; key < 1000; key++) {
+			assertFalse(map.containsKey(key));
+		}
+	}
+}
@@ -0,0 +1,112 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+
+package org.jboss.tools.jmx.core.test.jvmmonitor;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+import javax.management.MBeanServerConnection;
+import javax.management.ObjectName;
+
+import junit.framework.TestCase;
+
+import org.jboss.tools.jmx.jvmmonitor.core.JvmCoreException;
+import org.jboss.tools.jmx.jvmmonitor.core.mbean.IMonitoredMXBeanAttribute;
+import org.jboss.tools.jmx.jvmmonitor.core.mbean.IMonitoredMXBeanGroup;
+import org.jboss.tools.jmx.jvmmonitor.core.mbean.IMonitoredMXBeanGroup.AxisUnit;
+import org.jboss.tools.jmx.jvmmonitor.internal.core.AbstractMBeanServer;
+
+/**
+ * Refreshes monitored attributes read from the platform MBean server
+ * of the running JVM, one of them on an MBean which is not registered.
+ */
+public class MonitoredAttributesRefreshTest extends TestCase {
+	private static final String MEMORY = "java.lang:type=Memory";
+	private static final String THREADING = "java.lang:type=Threading";
+	private static final String MISSING = "org.jboss.tools.jmx.test:type=Missing";
+
+	private TestMBeanServer server;
+	private IMonitoredMXBeanGroup group;
+
+	protected void setUp() throws Exception {
+		server = new TestMBeanServer();
+		group = server.addMonitoredAttributeGroup("test", AxisUnit.Count);
+		group.addAttribute(MEMORY, "HeapMemoryUsage.used", null);
+		group.addAttribute(MEMORY, "HeapMemoryUsage.committed", null);
+		group.addAttribute(MEMORY, "ObjectPendingFinalizationCount", null);
+		group.addAttribute(MISSING, "Value", null);
+		group.addAttribute(THREADING, "ThreadCount", null);
+	}
+
+	public void testOneReadPerMBean() throws Exception {
+		Map<ObjectName, Map<String, Object>> objects = server.getMonitoredAttributeObjects();
+		assertEquals(2, objects.size());
+		Map<String, Object> memory = objects.get(new ObjectName(MEMORY));
+		// both keys of the composite come with a single attribute
+		assertEquals(2, memory.size());
+		assertTrue(memory.containsKey("HeapMemoryUsage"));
+		assertTrue(memory.containsKey("ObjectPendingFinalizationCount"));
+		assertTrue(objects.get(new ObjectName(THREADING)).containsKey("ThreadCount"));
+	}
+
+	public void testMissingMBeanSkipped() throws Exception {
+		server.refresh();
+		server.refresh();
+		for (IMonitoredMXBeanAttribute attribute : group.getAttributes()) {
+			int expected = attribute.getObjectName().equals(new ObjectName(MISSING)) ? 0 : 2;
+			assertEquals(attribute.getAttributeName(), expected, attribute.getValues().size());
+		}
+		assertTrue(((Number)group.getAttributes().get(0).getValues().get(1)).longValue() > 0);
+	}
+
+	public void testRefreshLatency() throws Exception {
+		IMonitoredMXBeanAttribute latency = server.getRefreshLatency();
+		assertNull(latency.getObjectName());
+		assertTrue(latency.getValues().isEmpty());
+
+		server.refresh();
+		server.refresh();
+		assertEquals(2, latency.getValues().size());
+		assertTrue(latency.getValues().get(1).longValue() >= 0);
+		// taken at the same time as the attributes
+		assertEquals(group.getAttributes().get(0).getDates(), latency.getDates());
+
+		latency.clear();
+		assertTrue(latency.getValues().isEmpty());
+	}
+
+	/**
+	 * Reads the platform MBean server of the running JVM
+	 */
+	private static class TestMBeanServer extends AbstractMBeanServer {
+		private TestMBeanServer() {
+			super(null);
+			setJvmReachable(true);
+		}
+
+		public Map<ObjectName, Map<String, Object>> getMonitoredAttributeObjects() throws JvmCoreException {
+			return super.getMonitoredAttributeObjects();
+		}
+
+		public void refresh() throws JvmCoreException {
+			super.refresh();
+		}
+
+		protected MBeanServerConnection createMBeanServerConnection() throws JvmCoreException {
+			return ManagementFactory.getPlatformMBeanServer();
+		}
+
+		public MBeanServerConnection getConnection() {
+			return ManagementFactory.getPlatformMBeanServer();
+		}
+	}
+}
@@ -0,0 +1,174 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+
+package org.jboss.tools.jmx.core.test.jvmmonitor;
+
+import java.util.Collections;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import org.jboss.tools.jmx.jvmmonitor.internal.core.StackSampleMerger;
+import org.jboss.tools.jmx.jvmmonitor.internal.core.cpu.CallTreeNode;
+import org.jboss.tools.jmx.jvmmonitor.internal.core.cpu.CpuModel;
+import org.jboss.tools.jmx.jvmmonitor.internal.core.cpu.MethodNode;
+import org.jboss.tools.jmx.jvmmonitor.internal.core.cpu.ThreadNode;
+
+/**
+ * Samples stacks with the call tree of the shipped agent jar, and merges
+ * the encoded changes it exports into the CPU model.
+ */
+public class StackSampleMergerTest extends TestCase {
+	private static final long MS = 1000000L;
+	private static final Set<String> PACKAGES = Collections.singleton("demo");
+
+	private AgentClasses.CallTree tree;
+	private StackSampleMerger merger;
+	private CpuModel model;
+
+	protected void setUp() throws Exception {
+		tree = AgentClasses.newCallTree();
+		merger = new StackSampleMerger();
+		model = new CpuModel();
+	}
+
+	public void testMergeCallTree() throws Exception {
+		tree.add("main", stack("demo.B.work", "demo.A.run"), 10 * MS);
+		tree.add("main", stack("demo.B.work", "demo.A.run"), 10 * MS);
+		tree.add("main", stack("demo.C.other", "demo.A.run"), 10 * MS);
+		assertTrue(merger.merge(tree.export(), model, PACKAGES));
+
+		ThreadNode<CallTreeNode> thread = model.getCallTreeThread("main");
+		assertEquals(30, thread.getTotalTime());
+		CallTreeNode run = (CallTreeNode)thread.getChild("demo.A.run()");
+		assertFrame(run, 30, 0, 1);
+		assertFrame(run.getChild("demo.B.work()"), 20, 20, 1);
+		assertFrame(run.getChild("demo.C.other()"), 10, 10, 1);
+
+		ThreadNode<MethodNode> hotSpots = model.getHotSpotThread("main");
+		assertEquals(3, hotSpots.getChildren().size());
+		assertEquals(30, ((MethodNode)hotSpots.getChild("demo.A.run()")).getSelfTime());
+		assertEquals(20, ((MethodNode)hotSpots.getChild("demo.B.work()")).getSelfTime());
+	}
+
+	public void testMergeIncrementally() throws Exception {
+		tree.add("main", stack("demo.B.work", "demo.A.run"), 10 * MS);
+		assertTrue(merger.merge(tree.export(), model, PACKAGES));
+
+		// an existing node changes, and a new method and thread come in
+		tree.add("main", stack("demo.B.work", "demo.A.run"), 10 * MS);
+		tree.add("main", stack("demo.D.next", "demo.B.work", "demo.A.run"), 10 * MS);
+		tree.add("worker", stack("demo.A.run"), 5 * MS);
+		assertTrue(merger.merge(tree.export(), model, PACKAGES));
+
+		CallTreeNode run = (CallTreeNode)model.getCallTreeThread("main").getChild("demo.A.run()");
+		assertFrame(run, 30, 0, 1);
+		CallTreeNode work = run.getChild("demo.B.work()");
+		assertFrame(work, 30, 20, 1);
+		assertFrame(work.getChild("demo.D.next()"), 10, 10, 1);
+		assertEquals(30, model.getCallTreeThread("main").getTotalTime());
+		assertFrame((CallTreeNode)model.getCallTreeThread("worker").getChild("demo.A.run()"), 5, 5, 1);
+
+		// nothing sampled since the last read
+		assertTrue(merger.merge(tree.export(), model, PACKAGES));
+		assertEquals(30, model.getCallTreeThread("main").getTotalTime());
+	}
+
+	public void testUnprofiledFramesLeftOut() throws Exception {
+		tree.add("main", stack("demo.B.work", "other.X.call", "demo.A.run", "java.lang.Thread.run"), 10 * MS);
+		assertTrue(merger.merge(tree.export(), model, PACKAGES));
+
+		ThreadNode<CallTreeNode> thread = model.getCallTreeThread("main");
+		assertEquals(1, thread.getChildren().size());
+		CallTreeNode run = (CallTreeNode)thread.getChild("demo.A.run()");
+		assertEquals(1, run.getChildren().size());
+		assertFrame(run.getChild("demo.B.work()"), 10, 10, 1);
+		assertNull(model.getHotSpotThread("main").getChild("other.X.call()"));
+	}
+
+	public void testLargeIdsAndTimes() throws Exception {
+		// enough strings and nodes for multi-byte ids and id deltas
+		for( int i = 0; i < 300; i++ )
+			tree.add("main", stack("demo.M.m" + i, "demo.A.run"), (1000 + i) * MS);
+		assertTrue(merger.merge(tree.export(), model, PACKAGES));
+		for( int i = 0; i < 300; i += 7 )
+			tree.add("main", stack("demo.M.m" + i, "demo.A.run"), 200 * MS);
+		assertTrue(merger.merge(tree.export(), model, PACKAGES));
+
+		CallTreeNode run = (CallTreeNode)model.getCallTreeThread("main").getChild("demo.A.run()");
+		assertEquals(300, run.getChildren().size());
+		for( int i = 0; i < 300; i++ ) {
+			long time = 1000 + i + (i % 7 == 0 ? 200 : 0);
+			assertEquals(time, run.getChild("demo.M.m" + i + "()").getSelfTime());
+		}
+	}
+
+	public void testMissedDeltaNotMerged() throws Exception {
+		tree.add("main", stack("demo.B.work", "demo.A.run"), 10 * MS);
+		assertTrue(merger.merge(tree.export(), model, PACKAGES));
+
+		// the next changes are read by someone else
+		tree.add("main", stack("demo.C.other", "demo.A.run"), 10 * MS);
+		tree.export();
+
+		tree.add("main", stack("demo.D.next", "demo.A.run"), 10 * MS);
+		assertFalse(merger.merge(tree.export(), model, PACKAGES));
+		CallTreeNode run = (CallTreeNode)model.getCallTreeThread("main").getChild("demo.A.run()");
+		assertNull(run.getChild("demo.D.next()"));
+
+		// the call tree in the target JVM is cleared and read again from the start
+		tree.clear();
+		tree.add("main", stack("demo.D.next", "demo.A.run"), 10 * MS);
+		assertTrue(merger.merge(tree.export(), model, PACKAGES));
+		assertFrame(run.getChild("demo.D.next()"), 10, 10, 1);
+		assertFrame(run, 20, 0, 2);
+	}
+
+	public void testMergerStartingMidStream() throws Exception {
+		tree.add("main", stack("demo.B.work", "demo.A.run"), 10 * MS);
+		tree.export();
+		tree.add("main", stack("demo.C.other", "demo.A.run"), 10 * MS);
+		assertFalse(merger.merge(tree.export(), model, PACKAGES));
+		assertEquals(0, model.getCallTreeRoots().length);
+	}
+
+	public void testClearedCallTreeMergedFromStart() throws Exception {
+		tree.add("main", stack("demo.B.work", "demo.A.run"), 10 * MS);
+		assertTrue(merger.merge(tree.export(), model, PACKAGES));
+
+		// cleared by someone else, so the next changes start from id 0 again
+		tree.clear();
+		tree.add("main", stack("demo.B.work", "demo.A.run"), 10 * MS);
+		assertTrue(merger.merge(tree.export(), model, PACKAGES));
+		CallTreeNode run = (CallTreeNode)model.getCallTreeThread("main").getChild("demo.A.run()");
+		assertFrame(run.getChild("demo.B.work()"), 20, 20, 2);
+	}
+
+	private static void assertFrame(CallTreeNode frame, long totalTime, long selfTime, int count) {
+		assertNotNull(frame);
+		assertEquals(frame.getName() + " total time", totalTime, frame.getTotalTime());
+		assertEquals(frame.getName() + " self time", selfTime, frame.getSelfTime());
+		assertEquals(frame.getName() + " count", count, frame.getInvocationCount());
+	}
+
+	/*
+	 * The stack trace of the given methods, the innermost first.
+	 */
+	static StackTraceElement[] stack(String... methods) {
+		StackTraceElement[] result = new StackTraceElement[methods.length];
+		for( int i = 0; i < methods.length; i++ ) {
+			int index = methods[i].lastIndexOf('.');
+			result[i] = new StackTraceElement(methods[i].substring(0, index),
+					methods[i].substring(index + 1), null, -1);
+		}
+		return result;
+	}
+}
@@ -0,0 +1,164 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+
+package org.jboss.tools.jmx.core.test.jvmmonitor;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import junit.framework.TestCase;
+
+import org.jboss.tools.jmx.jvmmonitor.internal.core.MonitoredMXBeanAttribute;
+import org.jboss.tools.jmx.jvmmonitor.internal.core.TimeSeries;
+
+/**
+ * Adds samples to time series small enough to wrap their rings, and checks
+ * the memory a series keeps for a day of samples taken every second.
+ */
+public class TimeSeriesTest extends TestCase {
+	private static final long SECOND = 1000;
+	private static final long DAY = 24 * 60 * 60 * SECOND;
+
+	public void testRawSamples() {
+		TimeSeries series = new TimeSeries(10, new long[] { 5 }, new int[] { 4 });
+		for (int t = 0; t < 8; t++) {
+			series.add(t, t * 2);
+		}
+		assertEquals(8, series.getCount());
+		TimeSeries.Snapshot snapshot = series.snapshot();
+		assertEquals(8, snapshot.times.length);
+		for (int t = 0; t < 8; t++) {
+			assertEquals(t, snapshot.times[t]);
+			assertEquals(t * 2, snapshot.values[t], 0);
+		}
+	}
+
+	public void testOlderSamplesAggregated() {
+		TimeSeries series = new TimeSeries(10, new long[] { 5 }, new int[] { 4 });
+		for (int t = 0; t < 30; t++) {
+			series.add(t, t);
+		}
+		// min and max of the last durations of 5 before the raw samples; full
+		// rings leave out their oldest slot, which the writer may be overwriting
+		long[] expected = { 9, 10, 14, 15, 19, 20, 21, 22, 23, 24, 25, 26, 27, 28, 29 };
+		TimeSeries.Snapshot snapshot = series.snapshot();
+		assertEquals(expected.length, snapshot.times.length);
+		for (int i = 0; i < expected.length; i++) {
+			assertEquals(expected[i], snapshot.times[i]);
+			assertEquals(expected[i], snapshot.values[i], 0);
+		}
+	}
+
+	public void testAggregatedInTimeOrder() {
+		TimeSeries series = new TimeSeries(4, new long[] { 10 }, new int[] { 10 });
+		for (int t = 0; t < 40; t++) {
+			// decreasing within each duration, so the max comes first
+			series.add(t, 100 - t % 10);
+		}
+		TimeSeries.Snapshot snapshot = series.snapshot();
+		assertEquals(0, snapshot.times[0]);
+		assertEquals(100, snapshot.values[0], 0);
+		assertEquals(9, snapshot.times[1]);
+		assertEquals(91, snapshot.values[1], 0);
+		assertAscending(snapshot);
+	}
+
+	public void testConcurrentSnapshots() throws Exception {
+		final TimeSeries series = new TimeSeries(64, new long[] { 16, 256 }, new int[] { 16, 16 });
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		final AtomicBoolean done = new AtomicBoolean();
+		Thread[] readers = new Thread[3];
+		for (int i = 0; i < readers.length; i++) {
+			readers[i] = new Thread(new Runnable() {
+				public void run() {
+					try {
+						while (!done.get()) {
+							TimeSeries.Snapshot snapshot = series.snapshot();
+							assertAscending(snapshot);
+							for (int j = 0; j < snapshot.times.length; j++) {
+								// never a time stamp with the value of another sample
+								assertEquals(snapshot.times[j], snapshot.values[j], 0);
+							}
+						}
+					} catch (Throwable t) {
+						failure.compareAndSet(null, t);
+					}
+				}
+			});
+			readers[i].start();
+		}
+		for (int t = 0; t < 200000; t++) {
+			series.add(t, t);
+		}
+		done.set(true);
+		for (Thread reader : readers) {
+			reader.join(10000);
+		}
+		if (failure.get() != null) {
+			throw new AssertionError(failure.get());
+		}
+	}
+
+	public void testAttributeViews() {
+		MonitoredMXBeanAttribute attribute = new MonitoredMXBeanAttribute(null, "Test", null);
+		attribute.add(Long.valueOf(3), new Date(1000));
+		attribute.add(Integer.valueOf(5), new Date(2000));
+		List<Date> dates = attribute.getDates();
+		List<Number> values = attribute.getValues();
+		assertEquals(2, dates.size());
+		assertEquals(new Date(2000), dates.get(1));
+		assertEquals(5, values.get(1).longValue());
+
+		// the views do not change with later samples
+		attribute.add(Long.valueOf(7), new Date(3000));
+		assertEquals(2, values.size());
+		assertEquals(3, attribute.getValues().size());
+
+		attribute.clear();
+		assertTrue(attribute.getDates().isEmpty());
+	}
+
+	/**
+	 * The memory kept for a day of samples taken every second. The lists of
+	 * boxed dates and numbers the series replaced held every sample.
+	 */
+	public void testMemoryPerDay() {
+		TimeSeries series = new TimeSeries();
+		int capacity = series.getCapacity();
+		long start = 1000000 * SECOND;
+		for (long t = start; t < start + DAY; t += SECOND) {
+			series.add(t, t / SECOND % 100);
+		}
+		TimeSeries.Snapshot snapshot = series.snapshot();
+
+		assertEquals(DAY / SECOND, series.getCount());
+		assertEquals(capacity, series.getCapacity());
+		// the whole day is still covered by the coarsest tier
+		assertTrue(snapshot.times[0] - start < 60 * SECOND);
+		assertAscending(snapshot);
+
+		// a long time stamp and a double value per slot: 65 KB for the day
+		long bytes = capacity * 16L;
+		assertTrue(bytes <= 70 * 1024);
+		// a Date (24 bytes) and a Long (16 bytes) per sample, plus two
+		// references: 4 MB for the day
+		long boxedBytes = DAY / SECOND * (24 + 16 + 8);
+		assertTrue(bytes * 50 < boxedBytes);
+	}
+
+	private static void assertAscending(TimeSeries.Snapshot snapshot) {
+		for (int i = 1; i < snapshot.times.length; i++) {
+			assertTrue(snapshot.times[i - 1] + " then " + snapshot.times[i], snapshot.times[i - 1] < snapshot.times[i]);
+		}
+	}
+}
@@ -0,0 +1,47 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.jmx.jolokia.test.internal.connection;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Set;
+
+import javax.management.MBeanInfo;
+import javax.management.ObjectName;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.jboss.tools.jmx.jolokia.test.util.AttributeChecking;
+import org.jboss.tools.jmx.jolokia.test.util.JolokiaTestEnvironmentSetup;
+import org.jboss.tools.jmx.jolokia.test.util.OperationChecking;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+@RunWith(Parameterized.class)
+public class JolokiaMBeanServerConnectionBulkLoadTest extends JolokiaTestEnvironmentSetup {
+
+	@Test
+	public void testLoadMBeansMatchesQuery() throws Exception {
+		Set<ObjectName> loaded = jolokiaMBeanServerConnection.loadMBeans(new NullProgressMonitor());
+		Set<ObjectName> queried = jolokiaMBeanServerConnection.queryNames(new ObjectName("*:*"), null);
+		assertThat(loaded).containsAll(queried);
+		assertThat(loaded).contains(new ObjectName(JOLOKIA_IT_DOMAIN+":type=operation"), new ObjectName(JOLOKIA_IT_DOMAIN+":type=attributetest"));
+	}
+
+	@Test
+	public void testLoadedMBeanInfo() throws Exception {
+		jolokiaMBeanServerConnection.loadMBeans(new NullProgressMonitor());
+		MBeanInfo res = jolokiaMBeanServerConnection.getMBeanInfo(new ObjectName(JOLOKIA_IT_DOMAIN+":type=operation"));
+		assertThat(res.getClassName()).isEqualTo(OperationChecking.class.getName());
+		assertThat(jolokiaMBeanServerConnection.getObjectInstance(new ObjectName(JOLOKIA_IT_DOMAIN+":type=attributetest")).getClassName())
+			.isEqualTo(AttributeChecking.class.getName());
+	}
+}
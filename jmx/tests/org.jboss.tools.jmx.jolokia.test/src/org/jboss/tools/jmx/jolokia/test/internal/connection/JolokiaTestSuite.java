@@ -21,6 +21,7 @@ import org.junit.runners.Suite.SuiteClasses;
 	JolokiaMBeanServerConnectionGetDomainsTest.class,
 	JolokiaMBeanServerConnectionInvocationTest.class,
 	JolokiaMBeanServerConnectionMBeanInfoTest.class,
+	JolokiaMBeanServerConnectionBulkLoadTest.class,
 	JolokiaMBeanServerConnectionQueryMBeansTest.class,
 	JolokiaMBeanServerConnectionGetSetAttributeTest.class,
 	JolokiaMBeanServerGetAttributeWithConvertedTypeTest.class